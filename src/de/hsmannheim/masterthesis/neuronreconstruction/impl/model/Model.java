@@ -148,6 +148,21 @@ public class Model {
 		}
 	}
 
+	/**
+	 * Creates a model with all values and weights set to zero.
+	 * 
+	 * @param numNeurons
+	 *            The number of all neurons in the network
+	 * @param neuronIndex
+	 *            The index of the current neuron
+	 */
+	public Model(int numNeurons, int neuronIndex) {
+		this.numNeurons = numNeurons;
+		this.neuronIndex = neuronIndex;
+
+		weights = new double[numNeurons];
+	}
+
 	/**
 	 * Creates a model with random values which is required during the
 	 * reconstruction.
@@ -334,9 +349,65 @@ public class Model {
 		u = results[1];
 	}
 
+	/**
+	 * Calculates a neuron for one time step. In contrast to
+	 * {@link #calculateNetwork(double, double[], double)} only the weights of
+	 * the neurons which have spiked at the given time step are added to the
+	 * input, so that the voltage values of the other neurons do not have to be
+	 * checked.
+	 * 
+	 * @param dt
+	 *            The delta t value for the solving of the differential
+	 *            equations.
+	 * @param spikes
+	 *            The spiking neurons of the network
+	 * @param t
+	 *            The time step of the spike events (normally the last time
+	 *            step)
+	 * @param input
+	 *            The input value which is injected in the current neuron
+	 */
+	public void calculateNetwork(double dt, SpikeEvents spikes, int t, double input) {
+		double inputValue = getNetworkInput(spikes, t, input);
+
+		double[] results = new double[2];
+		calculateModelIntern(dt, inputValue, results);
+
+		v = results[0];
+		u = results[1];
+	}
+
+	/**
+	 * Calculates the whole input of the neuron for one time step, i.e. the
+	 * given input plus the weights of all neurons which have spiked at the
+	 * given time step.
+	 * 
+	 * @param spikes
+	 *            The spiking neurons of the network
+	 * @param t
+	 *            The time step of the spike events
+	 * @param input
+	 *            The input value which is injected in the current neuron
+	 * 
+	 * @return The whole input of the neuron
+	 */
+	public double getNetworkInput(SpikeEvents spikes, int t, double input) {
+		int[] spikingNeurons = spikes.getNeurons();
+
+		double inputValue = input;
+		for (int k = spikes.getStart(t), end = spikes.getEnd(t); k < end; k++) {
+			inputValue += weights[spikingNeurons[k]];
+		}
+		return inputValue;
+	}
+
 	/**
 	 * Calculates a full network of interconnected neurons for one single time
 	 * step. The resulting state will be stored in the models themselves.
+	 * 
+	 * <p />
+	 * For simulations over many time steps use {@link NetworkState} directly,
+	 * which avoids copying the network state for each single time step.
 	 *
 	 * @param dt
 	 *            The delta t value for the solving of the differential
@@ -348,34 +419,9 @@ public class Model {
 	 *            network
 	 */
 	public static void calculateNetwork(double dt, List<Model> models, double[] input) {
-		int maxNeurons = models.size();
-
-		double[] newV = new double[maxNeurons];
-		double[] newU = new double[maxNeurons];
-		for (int n0 = 0; n0 < maxNeurons; n0++) {
-			double inputValue = input[n0];
-			for (int n1 = 0; n1 < maxNeurons; n1++) {
-				double isSpike = 0;
-				if (models.get(n1).v >= SPIKE_RECOGNITION) {
-					isSpike = 1.0;
-				}
-				inputValue += isSpike * models.get(n0).weights[n1];
-			}
-
-			Model model = models.get(n0);
-
-			double[] results = new double[2];
-			model.calculateModelIntern(dt, inputValue, results);
-
-			newV[n0] = results[0];
-			newU[n0] = results[1];
-		}
-
-		for (int n0 = 0; n0 < maxNeurons; n0++) {
-			Model instance = models.get(n0);
-			instance.v = newV[n0];
-			instance.u = newU[n0];
-		}
+		NetworkState state = new NetworkState(models);
+		state.step(dt, input);
+		state.writeBack(models);
 	}
 
 	/**
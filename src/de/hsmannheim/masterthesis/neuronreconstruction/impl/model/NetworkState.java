@@ -0,0 +1,270 @@
+/** NetworkState.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.model;
+
+import static de.hsmannheim.masterthesis.neuronreconstruction.impl.model.ValueBorders.SPIKE_RECOGNITION;
+import static de.hsmannheim.masterthesis.neuronreconstruction.impl.model.ValueBorders.SPIKE_RESET;
+
+import java.util.List;
+
+/**
+ * Simulation engine for a full network of interconnected neurons.
+ *
+ * <p />
+ * In contrast to {@link Model#calculateNetwork(double, List, double[])} the
+ * state of all neurons is kept in primitive arrays (structure of arrays). The
+ * weights of the network are stored in one flat matrix in which the column
+ * {@code pre} contains the weights of the neuron {@code pre} to all other
+ * neurons, i.e. {@code weights[pre * numNeurons + post]} is the same value as
+ * {@code models.get(post).weights[pre]}.
+ *
+ * <p />
+ * By default the synaptic input is accumulated event driven: For each time
+ * step the indices of the spiking neurons are gathered and only their weight
+ * columns are added to the input of the neurons. The costs of a time step
+ * therefore scale with the number of spikes instead of the square of the
+ * number of neurons. Both modes yield the same results.
+ *
+ * <p />
+ * The v and u states are double buffered, so that a time step can be
+ * calculated without allocating any memory. The model equations are the same
+ * as described in the {@link Model} class.
+ *
+ * @author Leah Lackner
+ */
+public class NetworkState {
+
+	private final int numNeurons;
+
+	private final double[] a;
+	private final double[] b;
+	private final double[] c;
+	private final double[] d;
+	private final double[] p1;
+	private final double[] p2;
+	private final double[] p3;
+	private final double[] p4;
+
+	/**
+	 * The flat weight matrix. See the class javadoc for the layout.
+	 */
+	private final double[] weights;
+
+	private double[] v;
+	private double[] u;
+
+	private double[] nextV;
+	private double[] nextU;
+
+	/**
+	 * Buffers of the spike event mode. The synaptic input of each neuron and
+	 * the indices of the neurons which are spiking in the current time step.
+	 */
+	private final double[] synapticInput;
+	private final int[] spiking;
+
+	private boolean spikeEventMode = true;
+
+	/**
+	 * Creates the network state for the given models. The parameters and the
+	 * current v and u states are copied, so that the models are not modified
+	 * by the simulation.
+	 *
+	 * @param models
+	 *            The models of the network. The position in the list is used
+	 *            as index of the neuron.
+	 */
+	public NetworkState(List<Model> models) {
+		numNeurons = models.size();
+
+		a = new double[numNeurons];
+		b = new double[numNeurons];
+		c = new double[numNeurons];
+		d = new double[numNeurons];
+		p1 = new double[numNeurons];
+		p2 = new double[numNeurons];
+		p3 = new double[numNeurons];
+		p4 = new double[numNeurons];
+		weights = new double[numNeurons * numNeurons];
+
+		v = new double[numNeurons];
+		u = new double[numNeurons];
+		nextV = new double[numNeurons];
+		nextU = new double[numNeurons];
+
+		synapticInput = new double[numNeurons];
+		spiking = new int[numNeurons];
+
+		// iterate instead of using get(n), the list may be a linked list
+		int n = 0;
+		for (Model model : models) {
+			a[n] = model.a;
+			b[n] = model.b;
+			c[n] = model.c;
+			d[n] = model.d;
+			p1[n] = model.p1;
+			p2[n] = model.p2;
+			p3[n] = model.p3;
+			p4[n] = model.p4;
+			v[n] = model.v;
+			u[n] = model.u;
+			for (int pre = 0; pre < numNeurons; pre++) {
+				weights[pre * numNeurons + n] = model.weights[pre];
+			}
+			n++;
+		}
+	}
+
+	/**
+	 * Calculates the whole network for one single time step.
+	 *
+	 * @param dt
+	 *            The delta t value for the solving of the differential
+	 *            equations.
+	 * @param input
+	 *            An input array with an input value for each neuron of the
+	 *            network
+	 */
+	public void step(double dt, double[] input) {
+		if (spikeEventMode) {
+			accumulateSpikeEvents(input);
+		} else {
+			accumulateDense(input);
+		}
+
+		for (int n = 0; n < numNeurons; n++) {
+			// reset part of the model (see Model.calculateModel1)
+			double vn = v[n];
+			double un = u[n];
+			double h = 1.0 / (1.0 - Math.exp(10000 * (SPIKE_RESET - vn)));
+			double v1 = vn * (1.0 - h) + c[n] * h;
+			double u1 = un + d[n] * h;
+
+			// differential equations (see Model.calculateModel2)
+			nextV[n] = v1 + dt * (p1[n] * v1 * v1 + p2[n] * v1 + p3[n] - u1 + p4[n] * synapticInput[n]);
+			nextU[n] = u1 + dt * (a[n] * (b[n] * v1 - u1));
+		}
+
+		double[] tmp = v;
+		v = nextV;
+		nextV = tmp;
+
+		tmp = u;
+		u = nextU;
+		nextU = tmp;
+	}
+
+	/**
+	 * Calculates the input of all neurons by adding only the weight columns of
+	 * the neurons which are spiking in the current time step.
+	 */
+	private void accumulateSpikeEvents(double[] input) {
+		int spikeCount = 0;
+		for (int pre = 0; pre < numNeurons; pre++) {
+			if (v[pre] >= SPIKE_RECOGNITION) {
+				spiking[spikeCount++] = pre;
+			}
+		}
+
+		System.arraycopy(input, 0, synapticInput, 0, numNeurons);
+		for (int k = 0; k < spikeCount; k++) {
+			int column = spiking[k] * numNeurons;
+			for (int post = 0; post < numNeurons; post++) {
+				synapticInput[post] += weights[column + post];
+			}
+		}
+	}
+
+	/**
+	 * Calculates the input of all neurons by checking the voltage values of
+	 * all neurons for each neuron.
+	 */
+	private void accumulateDense(double[] input) {
+		for (int post = 0; post < numNeurons; post++) {
+			double inputValue = input[post];
+			for (int pre = 0; pre < numNeurons; pre++) {
+				if (v[pre] >= SPIKE_RECOGNITION) {
+					inputValue += weights[pre * numNeurons + post];
+				}
+			}
+			synapticInput[post] = inputValue;
+		}
+	}
+
+	/**
+	 * Enables or disables the event driven accumulation of the synaptic input.
+	 * See the class javadoc for more details.
+	 *
+	 * @param spikeEventMode
+	 *            true to enable the spike event mode (default), false to check
+	 *            all neurons in each time step
+	 */
+	public void setSpikeEventMode(boolean spikeEventMode) {
+		this.spikeEventMode = spikeEventMode;
+	}
+
+	/**
+	 * @return true if the spike event mode is enabled
+	 */
+	public boolean isSpikeEventMode() {
+		return spikeEventMode;
+	}
+
+	/**
+	 * @return The number of all neurons in the network
+	 */
+	public int getNumNeurons() {
+		return numNeurons;
+	}
+
+	/**
+	 * @param neuronIdx
+	 *            The index of the neuron
+	 * @return The current voltage state of the neuron
+	 */
+	public double getV(int neuronIdx) {
+		return v[neuronIdx];
+	}
+
+	/**
+	 * @param neuronIdx
+	 *            The index of the neuron
+	 * @return The current recovery variable state of the neuron
+	 */
+	public double getU(int neuronIdx) {
+		return u[neuronIdx];
+	}
+
+	/**
+	 * Copies the current voltage states of all neurons into the given array.
+	 *
+	 * @param target
+	 *            The array with at least one element per neuron (Output
+	 *            parameter)
+	 */
+	public void copyVoltages(double[] target) {
+		System.arraycopy(v, 0, target, 0, numNeurons);
+	}
+
+	/**
+	 * Writes the current v and u states back into the given models.
+	 *
+	 * @param models
+	 *            The models in the same order as they were passed to the
+	 *            constructor
+	 */
+	public void writeBack(List<Model> models) {
+		int n = 0;
+		for (Model model : models) {
+			model.v = v[n];
+			model.u = u[n];
+			n++;
+		}
+	}
+
+}
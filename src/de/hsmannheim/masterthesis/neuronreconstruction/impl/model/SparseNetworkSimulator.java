@@ -0,0 +1,409 @@
+/** SparseNetworkSimulator.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.model;
+
+import static de.hsmannheim.masterthesis.neuronreconstruction.impl.model.ValueBorders.SPIKE_RECOGNITION;
+import static de.hsmannheim.masterthesis.neuronreconstruction.impl.model.ValueBorders.SPIKE_RESET;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Simulation engine for large networks with sparse connectivity.
+ *
+ * <p />
+ * The weights are stored in compressed sparse row format: The row of a neuron
+ * contains the indices and weights of all neurons with a synapse to this
+ * neuron, sorted by the index of the presynaptic neuron. Neurons which are not
+ * connected do not need any memory, so the network size is only limited by the
+ * number of synapses.
+ *
+ * <p />
+ * The neurons of a time step are updated in parallel in a
+ * {@link ForkJoinPool}. Each task gathers the synaptic input of its neurons
+ * from the voltage values of the last time step and writes the new states into
+ * the second buffer, so the tasks do not share any written data. The next time
+ * step is started after all tasks have finished.
+ *
+ * <p />
+ * The voltage values are not stored but handed to a {@link VoltageListener}
+ * for each time step, so the memory usage does not depend on the number of
+ * time steps. The results are the same as those of {@link NetworkState}.
+ *
+ * @author Leah Lackner
+ */
+public class SparseNetworkSimulator {
+
+	/**
+	 * Provides the external input of the neurons for each time step.
+	 */
+	public interface InputProvider {
+
+		/**
+		 * @param t
+		 *            The time step
+		 * @param input
+		 *            The array for the input value of each neuron (Output
+		 *            parameter)
+		 */
+		void getInputs(int t, double[] input);
+	}
+
+	/**
+	 * Receives the voltage values of the neurons for each time step.
+	 */
+	public interface VoltageListener {
+
+		/**
+		 * @param t
+		 *            The time step
+		 * @param v
+		 *            The voltage values of all neurons. The array is reused by
+		 *            the simulator and must neither be modified nor stored.
+		 */
+		void voltagesCalculated(int t, double[] v);
+	}
+
+	/**
+	 * Networks with less neurons per task are not split any further.
+	 */
+	private static final int DEFAULT_NEURONS_PER_TASK = 1024;
+
+	private final int numNeurons;
+
+	private final double[] a;
+	private final double[] b;
+	private final double[] c;
+	private final double[] d;
+	private final double[] p1;
+	private final double[] p2;
+	private final double[] p3;
+	private final double[] p4;
+
+	/**
+	 * The synapses to the neuron {@code post} are stored from the index
+	 * {@code rowStart[post]} (inclusive) to the index
+	 * {@code rowStart[post + 1]} (exclusive) of the arrays
+	 * {@code presynapticNeurons} and {@code synapticWeights}.
+	 */
+	private final int[] rowStart;
+	private final int[] presynapticNeurons;
+	private final double[] synapticWeights;
+
+	private double[] v;
+	private double[] u;
+
+	private double[] nextV;
+	private double[] nextU;
+
+	private ForkJoinPool pool = ForkJoinPool.commonPool();
+	private int neuronsPerTask = DEFAULT_NEURONS_PER_TASK;
+
+	/**
+	 * The values of the current time step, used by the update tasks.
+	 */
+	private double stepDt;
+	private double[] stepInput;
+
+	/**
+	 * Creates the simulator for the given models. The parameters, the current
+	 * v and u states and all non-zero weights are copied, so that the models
+	 * are not modified by the simulation.
+	 *
+	 * @param models
+	 *            The models of the network. The position in the list is used
+	 *            as index of the neuron.
+	 */
+	public SparseNetworkSimulator(List<Model> models) {
+		this(models, null, null, null);
+	}
+
+	/**
+	 * Creates the simulator for the given models and the given synapses in
+	 * compressed sparse row format. The weight arrays of the models are not
+	 * used, so they may be empty for large networks.
+	 *
+	 * @param models
+	 *            The models of the network. The position in the list is used
+	 *            as index of the neuron.
+	 * @param rowStart
+	 *            The start index of the synapses of each neuron and the total
+	 *            number of synapses as last element
+	 * @param presynapticNeurons
+	 *            The indices of the presynaptic neurons, sorted in ascending
+	 *            order within each row
+	 * @param synapticWeights
+	 *            The weights of the synapses
+	 */
+	public SparseNetworkSimulator(List<Model> models, int[] rowStart, int[] presynapticNeurons,
+			double[] synapticWeights) {
+		numNeurons = models.size();
+
+		a = new double[numNeurons];
+		b = new double[numNeurons];
+		c = new double[numNeurons];
+		d = new double[numNeurons];
+		p1 = new double[numNeurons];
+		p2 = new double[numNeurons];
+		p3 = new double[numNeurons];
+		p4 = new double[numNeurons];
+
+		v = new double[numNeurons];
+		u = new double[numNeurons];
+		nextV = new double[numNeurons];
+		nextU = new double[numNeurons];
+
+		// iterate instead of using get(n), the list may be a linked list
+		int n = 0;
+		for (Model model : models) {
+			a[n] = model.a;
+			b[n] = model.b;
+			c[n] = model.c;
+			d[n] = model.d;
+			p1[n] = model.p1;
+			p2[n] = model.p2;
+			p3[n] = model.p3;
+			p4[n] = model.p4;
+			v[n] = model.v;
+			u[n] = model.u;
+			n++;
+		}
+
+		if (rowStart == null) {
+			// Compress the dense weights of the models
+			this.rowStart = new int[numNeurons + 1];
+			int synapses = 0;
+			n = 0;
+			for (Model model : models) {
+				for (int pre = 0; pre < numNeurons; pre++) {
+					if (model.weights[pre] != 0) {
+						synapses++;
+					}
+				}
+				this.rowStart[++n] = synapses;
+			}
+
+			this.presynapticNeurons = new int[synapses];
+			this.synapticWeights = new double[synapses];
+			int k = 0;
+			for (Model model : models) {
+				for (int pre = 0; pre < numNeurons; pre++) {
+					if (model.weights[pre] != 0) {
+						this.presynapticNeurons[k] = pre;
+						this.synapticWeights[k] = model.weights[pre];
+						k++;
+					}
+				}
+			}
+		} else {
+			if (rowStart.length != numNeurons + 1 || presynapticNeurons.length != rowStart[numNeurons]
+					|| synapticWeights.length != rowStart[numNeurons]) {
+				throw new IllegalArgumentException("The synapses do not match the number of neurons");
+			}
+			this.rowStart = rowStart;
+			this.presynapticNeurons = presynapticNeurons;
+			this.synapticWeights = synapticWeights;
+		}
+	}
+
+	/**
+	 * Calculates the whole network for one single time step.
+	 *
+	 * @param dt
+	 *            The delta t value for the solving of the differential
+	 *            equations.
+	 * @param input
+	 *            An input array with an input value for each neuron of the
+	 *            network
+	 */
+	public void step(double dt, double[] input) {
+		stepDt = dt;
+		stepInput = input;
+		if (numNeurons <= neuronsPerTask) {
+			update(0, numNeurons);
+		} else {
+			// invoke returns after all neurons are updated
+			pool.invoke(new UpdateTask(0, numNeurons));
+		}
+		stepInput = null;
+
+		double[] tmp = v;
+		v = nextV;
+		nextV = tmp;
+
+		tmp = u;
+		u = nextU;
+		nextU = tmp;
+	}
+
+	/**
+	 * Simulates the time steps from {@code from} (inclusive) to {@code to}
+	 * (exclusive). The listener receives the voltage values before each time
+	 * step is calculated.
+	 *
+	 * @param from
+	 *            The first time step
+	 * @param to
+	 *            The time step after the last time step
+	 * @param dt
+	 *            The delta t value for the solving of the differential
+	 *            equations.
+	 * @param inputs
+	 *            The external input of each time step
+	 * @param listener
+	 *            The listener for the voltage values
+	 */
+	public void simulate(int from, int to, double dt, InputProvider inputs, VoltageListener listener) {
+		double[] input = new double[numNeurons];
+		for (int t = from; t < to; t++) {
+			listener.voltagesCalculated(t, v);
+			inputs.getInputs(t, input);
+			step(dt, input);
+		}
+	}
+
+	/**
+	 * Updates the neurons from the index {@code from} (inclusive) to the index
+	 * {@code to} (exclusive). The arithmetic is the same as in
+	 * {@link NetworkState#step(double, double[])}.
+	 */
+	private void update(int from, int to) {
+		double dt = stepDt;
+		double[] input = stepInput;
+		for (int n = from; n < to; n++) {
+			// gather the weights of the spiking presynaptic neurons
+			double synapticInput = input[n];
+			for (int k = rowStart[n], end = rowStart[n + 1]; k < end; k++) {
+				if (v[presynapticNeurons[k]] >= SPIKE_RECOGNITION) {
+					synapticInput += synapticWeights[k];
+				}
+			}
+
+			// reset part of the model (see Model.calculateModel1)
+			double vn = v[n];
+			double un = u[n];
+			double h = 1.0 / (1.0 - Math.exp(10000 * (SPIKE_RESET - vn)));
+			double v1 = vn * (1.0 - h) + c[n] * h;
+			double u1 = un + d[n] * h;
+
+			// differential equations (see Model.calculateModel2)
+			nextV[n] = v1 + dt * (p1[n] * v1 * v1 + p2[n] * v1 + p3[n] - u1 + p4[n] * synapticInput);
+			nextU[n] = u1 + dt * (a[n] * (b[n] * v1 - u1));
+		}
+	}
+
+	/**
+	 * Splits the neurons of a time step into tasks of at most
+	 * {@code neuronsPerTask} neurons.
+	 */
+	private class UpdateTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+
+		UpdateTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= neuronsPerTask) {
+				update(from, to);
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new UpdateTask(from, middle), new UpdateTask(middle, to));
+			}
+		}
+	}
+
+	/**
+	 * @param pool
+	 *            The pool used for the parallel update of the neurons (default
+	 *            common pool)
+	 */
+	public void setForkJoinPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * @param neuronsPerTask
+	 *            The maximum number of neurons updated by one task (default
+	 *            1024). Networks which are not larger are updated without the
+	 *            pool.
+	 */
+	public void setNeuronsPerTask(int neuronsPerTask) {
+		if (neuronsPerTask < 1) {
+			throw new IllegalArgumentException("The number of neurons per task must be positive");
+		}
+		this.neuronsPerTask = neuronsPerTask;
+	}
+
+	/**
+	 * @return The number of all neurons in the network
+	 */
+	public int getNumNeurons() {
+		return numNeurons;
+	}
+
+	/**
+	 * @return The number of the stored synapses
+	 */
+	public int getNumSynapses() {
+		return rowStart[numNeurons];
+	}
+
+	/**
+	 * @param neuronIdx
+	 *            The index of the neuron
+	 * @return The current voltage state of the neuron
+	 */
+	public double getV(int neuronIdx) {
+		return v[neuronIdx];
+	}
+
+	/**
+	 * @param neuronIdx
+	 *            The index of the neuron
+	 * @return The current recovery variable state of the neuron
+	 */
+	public double getU(int neuronIdx) {
+		return u[neuronIdx];
+	}
+
+	/**
+	 * Copies the current voltage states of all neurons into the given array.
+	 *
+	 * @param target
+	 *            The array with at least one element per neuron (Output
+	 *            parameter)
+	 */
+	public void copyVoltages(double[] target) {
+		System.arraycopy(v, 0, target, 0, numNeurons);
+	}
+
+	/**
+	 * Writes the current v and u states back into the given models.
+	 *
+	 * @param models
+	 *            The models in the same order as they were passed to the
+	 *            constructor
+	 */
+	public void writeBack(List<Model> models) {
+		int n = 0;
+		for (Model model : models) {
+			model.v = v[n];
+			model.u = u[n];
+			n++;
+		}
+	}
+
+}
@@ -0,0 +1,123 @@
+/** SpikeEvents.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.model;
+
+/**
+ * Contains the indices of all neurons which have spiked at each time step of a
+ * voltage data set.
+ *
+ * <p />
+ * The indices are stored in one flat array. The neurons which have spiked at
+ * the time step t are stored in ascending order from
+ * {@code getNeurons()[getStart(t)]} to {@code getNeurons()[getEnd(t) - 1]}.
+ *
+ * <p />
+ * Most of the time only a few neurons are spiking, so that the synaptic input
+ * of a neuron can be calculated by only adding the weights of the spiking
+ * neurons instead of checking the voltage values of all neurons.
+ *
+ * @author Leah Lackner
+ */
+public class SpikeEvents {
+
+	private final int[] offsets;
+	private final int[] neurons;
+
+	/**
+	 * Determines the spiking neurons for each time step of the given voltage
+	 * data.
+	 *
+	 * @param vs
+	 *            The voltage data, indexed by time step and neuron
+	 * @param threshold
+	 *            A neuron has spiked at a time step if its voltage value is
+	 *            equal to or greater than this threshold
+	 */
+	public SpikeEvents(double[][] vs, double threshold) {
+		offsets = new int[vs.length + 1];
+
+		int count = 0;
+		for (int t = 0; t < vs.length; t++) {
+			for (int n = 0; n < vs[t].length; n++) {
+				if (vs[t][n] >= threshold) {
+					count++;
+				}
+			}
+		}
+
+		neurons = new int[count];
+		int k = 0;
+		for (int t = 0; t < vs.length; t++) {
+			offsets[t] = k;
+			for (int n = 0; n < vs[t].length; n++) {
+				if (vs[t][n] >= threshold) {
+					neurons[k++] = n;
+				}
+			}
+		}
+		offsets[vs.length] = k;
+	}
+
+	/**
+	 * Determines the spiking neurons for each time step of the given voltage
+	 * data with the spike recognition threshold of the model.
+	 *
+	 * @param vs
+	 *            The voltage data, indexed by time step and neuron
+	 *
+	 * @see ValueBorders#SPIKE_RECOGNITION
+	 */
+	public SpikeEvents(double[][] vs) {
+		this(vs, ValueBorders.SPIKE_RECOGNITION);
+	}
+
+	/**
+	 * @param t
+	 *            The time step
+	 * @return The position of the first spiking neuron of the time step in
+	 *         the array returned by {@link #getNeurons()}
+	 */
+	public int getStart(int t) {
+		return offsets[t];
+	}
+
+	/**
+	 * @param t
+	 *            The time step
+	 * @return The position after the last spiking neuron of the time step in
+	 *         the array returned by {@link #getNeurons()}
+	 */
+	public int getEnd(int t) {
+		return offsets[t + 1];
+	}
+
+	/**
+	 * @param t
+	 *            The time step
+	 * @return The number of neurons which have spiked at the time step
+	 */
+	public int getCount(int t) {
+		return offsets[t + 1] - offsets[t];
+	}
+
+	/**
+	 * @return The flat array of the spiking neuron indices of all time steps.
+	 *         The array must not be modified.
+	 */
+	public int[] getNeurons() {
+		return neurons;
+	}
+
+	/**
+	 * @return The number of time steps
+	 */
+	public int getTimesteps() {
+		return offsets.length - 1;
+	}
+
+}
@@ -0,0 +1,53 @@
+/** AbstractIntegrator.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.model.integration;
+
+import static de.hsmannheim.masterthesis.neuronreconstruction.impl.model.ValueBorders.SPIKE_RESET;
+
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.Model;
+
+/**
+ * Base class for the integrators containing the model equations.
+ * 
+ * @author Leah Lackner
+ */
+public abstract class AbstractIntegrator implements Integrator {
+
+	/**
+	 * Calculates the factor of the reset condition. The factor is nearly 1 if
+	 * the voltage value has reached the spike reset value, otherwise it is
+	 * nearly 0.
+	 */
+	protected static double resetFactor(double v) {
+		return 1.0 / (1.0 - Math.exp(10000 * (SPIKE_RESET - v)));
+	}
+
+	/**
+	 * Applies the reset condition to the model.
+	 */
+	protected static void reset(Model model) {
+		double h = resetFactor(model.v);
+		model.v = model.v * (1.0 - h) + model.c * h;
+		model.u = model.u + model.d * h;
+	}
+
+	/**
+	 * The derivative of the voltage value.
+	 */
+	protected static double dv(Model model, double v, double u, double input) {
+		return model.p1 * v * v + model.p2 * v + model.p3 - u + model.p4 * input;
+	}
+
+	/**
+	 * The derivative of the recovery variable.
+	 */
+	protected static double du(Model model, double v, double u) {
+		return model.a * (model.b * v - u);
+	}
+
+}
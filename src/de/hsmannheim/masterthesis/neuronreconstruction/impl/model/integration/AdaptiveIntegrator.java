@@ -0,0 +1,219 @@
+/** AdaptiveIntegrator.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.model.integration;
+
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.Model;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.ValueBorders;
+
+/**
+ * An integrator with an adaptive step size.
+ *
+ * <p />
+ * Each step is calculated with the Heun method and the difference to the
+ * forward Euler method is used as error estimation. The step size is
+ * increased up to a multiple of the delta t value of the measured data while
+ * the neuron is quiescent and decreased down to a fraction of the delta t
+ * value while the error is too large, i.e. during the upswing of a spike.
+ * Above the refinement voltage and directly after a reset the steps are never
+ * larger than the delta t value of the measured data.
+ *
+ * <p />
+ * During a step which covers multiple time steps of the measured data the
+ * mean input of the covered time steps is used. The resulting voltage values
+ * are linearly interpolated onto the time grid of the measured data.
+ *
+ * @author Leah Lackner
+ */
+public class AdaptiveIntegrator extends AbstractIntegrator {
+
+	/**
+	 * Above this voltage value the step size is restricted to the delta t
+	 * value of the measured data.
+	 */
+	private static final double REFINEMENT_VOLTAGE = ValueBorders.SPIKE_RECOGNITION - 50;
+
+	/**
+	 * Tolerance to compare the time in units of the time steps of the
+	 * measured data.
+	 */
+	private static final double TIME_EPSILON = 1e-9;
+
+	private final double absoluteTolerance;
+	private final double relativeTolerance;
+	private final double minStep;
+	private final double maxStep;
+
+	/**
+	 * Creates an adaptive integrator with the default settings.
+	 */
+	public AdaptiveIntegrator() {
+		this(0.05, 1e-3, 1 / 16.0, 16);
+	}
+
+	/**
+	 * Creates an adaptive integrator.
+	 *
+	 * @param absoluteTolerance
+	 *            The absolute tolerance of the error estimation per step
+	 * @param relativeTolerance
+	 *            The relative tolerance of the error estimation per step
+	 * @param minStep
+	 *            The minimum step size as fraction of the delta t value of the
+	 *            measured data
+	 * @param maxStep
+	 *            The maximum step size as multiple of the delta t value of the
+	 *            measured data
+	 */
+	public AdaptiveIntegrator(double absoluteTolerance, double relativeTolerance, double minStep, double maxStep) {
+		if (minStep <= 0 || minStep > 1 || maxStep < 1) {
+			throw new IllegalArgumentException("Invalid step size range");
+		}
+		this.absoluteTolerance = absoluteTolerance;
+		this.relativeTolerance = relativeTolerance;
+		this.minStep = minStep;
+		this.maxStep = maxStep;
+	}
+
+	@Override
+	public void step(Model model, double dt, double input) {
+		double[] state = { model.v, model.u, 0, 0 };
+		double time = 0;
+		double h = 1;
+		while (time < 1 - TIME_EPSILON) {
+			double hStep = Math.min(h, 1 - time);
+			h = advance(model, state, dt, hStep, null, null, 0, input);
+			time += state[2];
+		}
+		model.v = state[0];
+		model.u = state[1];
+	}
+
+	@Override
+	public void integrate(Model model, double dt, double[] inputs, double[] vOut) {
+		int n = inputs.length;
+
+		// prefix sums to calculate the mean input of a step
+		double[] cumulativeInputs = new double[n + 1];
+		for (int j = 0; j < n; j++) {
+			cumulativeInputs[j + 1] = cumulativeInputs[j] + inputs[j];
+		}
+
+		double[] state = { model.v, model.u, 0, 0 };
+		double time = 0;
+		double h = 1;
+		int next = 1;
+		while (next <= n) {
+			double hStep = Math.min(h, n - time);
+			h = advance(model, state, dt, hStep, inputs, cumulativeInputs, time, 0);
+			double newTime = time + state[2];
+			if (Math.abs(newTime - Math.rint(newTime)) < TIME_EPSILON) {
+				newTime = Math.rint(newTime);
+			}
+
+			// resample the step onto the time grid of the measured data
+			while (next <= n && next <= newTime) {
+				double w = (next - time) / (newTime - time);
+				vOut[next - 1] = state[3] + w * (state[0] - state[3]);
+				next++;
+			}
+			time = newTime;
+		}
+		model.v = state[0];
+		model.u = state[1];
+	}
+
+	/**
+	 * Applies the reset condition and calculates one accepted step.
+	 *
+	 * @param state
+	 *            v, u, the length of the accepted step and the voltage value
+	 *            after the reset at the beginning of the step (Input and
+	 *            output parameter)
+	 * @param hStep
+	 *            The proposed step size in time steps of the measured data
+	 * @param inputs
+	 *            The inputs of the time steps of the measured data or null if
+	 *            the constant input is used
+	 * @param cumulativeInputs
+	 *            The prefix sums of the inputs
+	 * @param time
+	 *            The time at the beginning of the step in time steps of the
+	 *            measured data
+	 * @param constantInput
+	 *            The input if no inputs array is given
+	 *
+	 * @return The proposed size of the next step
+	 */
+	private double advance(Model model, double[] state, double dt, double hStep, double[] inputs,
+			double[] cumulativeInputs, double time, double constantInput) {
+		double v = state[0];
+		double u = state[1];
+
+		// reset condition, as in the forward Euler method
+		double hReset = resetFactor(v);
+		v = v * (1.0 - hReset) + model.c * hReset;
+		u = u + model.d * hReset;
+
+		if (v >= REFINEMENT_VOLTAGE || hReset > 0.5) {
+			hStep = Math.min(hStep, 1);
+		}
+
+		double err;
+		double vNew;
+		double uNew;
+		while (true) {
+			double step = hStep * dt;
+			double input = inputs == null ? constantInput : meanInput(inputs, cumulativeInputs, time, time + hStep);
+
+			double fv0 = dv(model, v, u, input);
+			double fu0 = du(model, v, u);
+			double vEuler = v + step * fv0;
+			double uEuler = u + step * fu0;
+
+			double fv1 = dv(model, vEuler, uEuler, input);
+			double fu1 = du(model, vEuler, uEuler);
+			vNew = v + step / 2 * (fv0 + fv1);
+			uNew = u + step / 2 * (fu0 + fu1);
+
+			err = Math.max(Math.abs(vNew - vEuler) / (absoluteTolerance + relativeTolerance * Math.abs(vNew)),
+					Math.abs(uNew - uEuler) / (absoluteTolerance + relativeTolerance * Math.abs(uNew)));
+
+			if (err <= 1 || hStep <= minStep || !Double.isFinite(err)) {
+				break;
+			}
+			hStep = Math.max(minStep, hStep * Math.max(0.2, 0.9 / Math.sqrt(err)));
+		}
+
+		state[0] = vNew;
+		state[1] = uNew;
+		state[2] = hStep;
+		state[3] = v;
+
+		if (!(err > 0)) {
+			return maxStep;
+		}
+		return Math.max(minStep, Math.min(maxStep, hStep * Math.min(2, 0.9 / Math.sqrt(err))));
+	}
+
+	/**
+	 * Calculates the mean of the piecewise constant input between the given
+	 * times (in time steps of the measured data).
+	 */
+	private static double meanInput(double[] inputs, double[] cumulativeInputs, double from, double to) {
+		int fromIdx = (int) Math.floor(from + TIME_EPSILON);
+		int toIdx = (int) Math.floor(to - TIME_EPSILON);
+		if (fromIdx >= toIdx) {
+			return inputs[Math.min(fromIdx, inputs.length - 1)];
+		}
+		// partial first and last time step, whole time steps in between
+		double sum = inputs[fromIdx] * (fromIdx + 1 - from) + cumulativeInputs[toIdx] - cumulativeInputs[fromIdx + 1]
+				+ inputs[toIdx] * (to - toIdx);
+		return sum / (to - from);
+	}
+
+}
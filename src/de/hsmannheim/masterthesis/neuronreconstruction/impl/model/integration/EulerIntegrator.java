@@ -0,0 +1,25 @@
+/** EulerIntegrator.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.model.integration;
+
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.Model;
+
+/**
+ * The forward Euler method with the delta t value of the measured data. This
+ * is the method described in the thesis.
+ * 
+ * @author Leah Lackner
+ */
+public class EulerIntegrator extends AbstractIntegrator {
+
+	@Override
+	public void step(Model model, double dt, double input) {
+		model.calculateModel(dt, input);
+	}
+
+}
@@ -0,0 +1,45 @@
+/** ExponentialEulerIntegrator.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.model.integration;
+
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.Model;
+
+/**
+ * The exponential Euler method with the delta t value of the measured data.
+ * 
+ * <p />
+ * The voltage equation is linearised at the current voltage value and the
+ * linear part is solved exactly. The recovery variable is solved exactly for
+ * the voltage value at the beginning of the step. The method is more stable
+ * than the forward Euler method for larger delta t values.
+ * 
+ * @author Leah Lackner
+ */
+public class ExponentialEulerIntegrator extends AbstractIntegrator {
+
+	@Override
+	public void step(Model model, double dt, double input) {
+		reset(model);
+
+		double v = model.v;
+		double u = model.u;
+
+		// v <- v + (exp(J * dt) - 1) / J * f(v), J = df/dv
+		double f = dv(model, v, u, input);
+		double j = 2 * model.p1 * v + model.p2;
+		if (Math.abs(j * dt) < 1e-9) {
+			model.v = v + dt * f;
+		} else {
+			model.v = v + Math.expm1(j * dt) / j * f;
+		}
+
+		// u <- b * v + (u - b * v) * exp(-a * dt)
+		model.u = model.b * v + (u - model.b * v) * Math.exp(-model.a * dt);
+	}
+
+}
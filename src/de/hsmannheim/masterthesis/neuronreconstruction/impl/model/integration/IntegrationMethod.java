@@ -0,0 +1,30 @@
+/** IntegrationMethod.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.model.integration;
+
+/**
+ * Java enumeration containing all implemented integrators.
+ * 
+ * @author Leah Lackner
+ */
+public enum IntegrationMethod {
+
+	EULER(new EulerIntegrator()), EXPONENTIAL_EULER(new ExponentialEulerIntegrator()), RUNGE_KUTTA_4(
+			new RungeKutta4Integrator()), ADAPTIVE(new AdaptiveIntegrator());
+
+	private IntegrationMethod(Integrator integrator) {
+		this.integrator = integrator;
+	}
+
+	private Integrator integrator;
+
+	public Integrator getIntegrator() {
+		return integrator;
+	}
+
+}
@@ -0,0 +1,67 @@
+/** Integrator.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.model.integration;
+
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.Model;
+
+/**
+ * Interface for all numerical methods which solve the differential equations
+ * of the model.
+ * 
+ * <p />
+ * Implementations have to apply the reset condition of the model (see the
+ * {@code Model} class) before the differential equations are solved for a
+ * step, in the same way as the original forward Euler method does it.
+ * 
+ * @see de.hsmannheim.masterthesis.neuronreconstruction.impl.model.Model
+ * 
+ * @author Leah Lackner
+ */
+public interface Integrator {
+
+	/**
+	 * Calculates the model for one time step of the measured data. The new v
+	 * and u values are stored in the model.
+	 * 
+	 * @param model
+	 *            The model
+	 * @param dt
+	 *            The delta t value of the measured data
+	 * @param input
+	 *            The input which is injected into the neuron during the time
+	 *            step
+	 */
+	void step(Model model, double dt, double input);
+
+	/**
+	 * Calculates the model for multiple time steps of the measured data. The
+	 * resulting voltage values are resampled onto the time grid of the
+	 * measured data, so that {@code vOut[j]} contains the voltage value after
+	 * the time step j. The final v and u values are stored in the model.
+	 * 
+	 * <p />
+	 * The default implementation calls {@link #step} for each time step.
+	 * 
+	 * @param model
+	 *            The model
+	 * @param dt
+	 *            The delta t value of the measured data
+	 * @param inputs
+	 *            The input which is injected into the neuron for each time
+	 *            step
+	 * @param vOut
+	 *            The resulting voltage values (Output parameter)
+	 */
+	default void integrate(Model model, double dt, double[] inputs, double[] vOut) {
+		for (int j = 0; j < inputs.length; j++) {
+			step(model, dt, inputs[j]);
+			vOut[j] = model.v;
+		}
+	}
+
+}
@@ -0,0 +1,43 @@
+/** RungeKutta4Integrator.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.model.integration;
+
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.Model;
+
+/**
+ * The classical fourth order Runge-Kutta method with the delta t value of the
+ * measured data. The input is constant during each step.
+ * 
+ * @author Leah Lackner
+ */
+public class RungeKutta4Integrator extends AbstractIntegrator {
+
+	@Override
+	public void step(Model model, double dt, double input) {
+		reset(model);
+
+		double v = model.v;
+		double u = model.u;
+
+		double kv1 = dv(model, v, u, input);
+		double ku1 = du(model, v, u);
+
+		double kv2 = dv(model, v + dt / 2 * kv1, u + dt / 2 * ku1, input);
+		double ku2 = du(model, v + dt / 2 * kv1, u + dt / 2 * ku1);
+
+		double kv3 = dv(model, v + dt / 2 * kv2, u + dt / 2 * ku2, input);
+		double ku3 = du(model, v + dt / 2 * kv2, u + dt / 2 * ku2);
+
+		double kv4 = dv(model, v + dt * kv3, u + dt * ku3, input);
+		double ku4 = du(model, v + dt * kv3, u + dt * ku3);
+
+		model.v = v + dt / 6 * (kv1 + 2 * kv2 + 2 * kv3 + kv4);
+		model.u = u + dt / 6 * (ku1 + 2 * ku2 + 2 * ku3 + ku4);
+	}
+
+}
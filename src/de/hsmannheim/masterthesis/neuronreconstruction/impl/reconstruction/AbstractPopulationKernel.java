@@ -0,0 +1,381 @@
+/** AbstractPopulationKernel.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction;
+
+import java.util.Map;
+import java.util.Random;
+
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.Model;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.SpikeEvents;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.integration.IntegrationMethod;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.modes.ReconstructionModeAbstract;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.spikecomparison.SpikeTrainErrorBound;
+
+/**
+ * Evaluates a block of individuals of one generation at once.
+ *
+ * <p />
+ * All individuals of a generation are reconstructed for the same neuron, so
+ * they share the same input and the same measured spikes of the other
+ * neurons. The parameters and states of the models are held in primitive
+ * arrays with one lane per individual and all lanes are advanced by one time
+ * step per loop iteration. The inner loops over the lanes contain no
+ * dependencies between the lanes, so that they can be vectorised by the JIT
+ * compiler.
+ *
+ * <p />
+ * This class contains the steps of the evaluation, which are the same for
+ * each precision. The subclasses hold the lanes in arrays of their primitive
+ * type and implement the loops over the lanes. The individuals are read from
+ * and written to a {@link PopulationArena}. A kernel can be reused for any
+ * number of evaluations without allocating new buffers. Individuals with
+ * invalid results are replaced and recalculated on their own in the same way
+ * as {@link Individual#recalculate} does it.
+ *
+ * <p />
+ * If the arena has a finite evaluation cutoff, a lower bound of the fitness
+ * value of each lane is calculated periodically during the simulation (see
+ * {@link SpikeTrainErrorBound}). A lane whose bound exceeds the cutoff is
+ * aborted: its bound is stored as its fitness value and the lane is replaced
+ * by the last active lane, so the remaining lanes stay contiguous. The results
+ * of the completely evaluated lanes are not changed by the abort.
+ *
+ * @author Leah Lackner
+ */
+public abstract class AbstractPopulationKernel {
+
+	/**
+	 * The number of time steps between two checks of the lower bounds
+	 */
+	private static final int BOUND_CHECK_INTERVAL = 64;
+
+	protected final int capacity;
+	protected final int numNeurons;
+
+	/**
+	 * The number of the active lanes
+	 */
+	protected int lanes;
+
+	/**
+	 * The slot of the arena which is evaluated in each lane
+	 */
+	private final int[] laneSlot;
+
+	/**
+	 * The sums of the squared voltage errors of the lanes, used for the lower
+	 * bounds
+	 */
+	private final double[] singleStepError;
+	private final double[] overallError;
+
+	/**
+	 * The lower bound for the last used measures
+	 */
+	private SpikeTrainErrorBound errorBound;
+	private Map<Class<?>, Double> errorBoundMeasures;
+
+	/**
+	 * Buffers which are reused by all evaluations of the kernel.
+	 */
+	private Model scratch;
+	private double[] realPotentials;
+
+	/**
+	 * @param capacity
+	 *            The maximum number of individuals which are evaluated at once
+	 * @param numNeurons
+	 *            The number of all neurons in the network
+	 */
+	protected AbstractPopulationKernel(int capacity, int numNeurons) {
+		this.capacity = capacity;
+		this.numNeurons = numNeurons;
+
+		laneSlot = new int[capacity];
+		singleStepError = new double[capacity];
+		overallError = new double[capacity];
+	}
+
+	/**
+	 * Recalculate the individuals from the slot {@code from} (inclusive) to the
+	 * slot {@code to} (exclusive) of the next generation of the arena. The
+	 * evaluation of an individual is aborted if its fitness value exceeds the
+	 * evaluation cutoff of the arena.
+	 *
+	 * @param arena
+	 *            The population
+	 * @param from
+	 *            The slot of the first individual
+	 * @param to
+	 *            The slot after the last individual
+	 * @param mode
+	 *            the parameter ranges
+	 * @param seed
+	 *            The seed of the generation. The individual with the slot i
+	 *            uses a random instance with the seed {@code seed + i}.
+	 * @param context
+	 *            the measured data and the values derived from it
+	 * @param measures
+	 *            The measures used for the fitness evaluation
+	 */
+	public void evaluate(PopulationArena arena, int from, int to, ReconstructionModeAbstract mode, long seed,
+			DatasetContext context, Map<Class<?>, Double> measures) {
+		evaluate(arena, from, to, mode, seed, context, measures, true);
+	}
+
+	/**
+	 * @param replaceInvalid
+	 *            false if individuals with an infinite fitness value are kept
+	 *            instead of being replaced
+	 * @see #evaluate(PopulationArena, int, int, ReconstructionModeAbstract,
+	 *      long, DatasetContext, Map)
+	 */
+	void evaluate(PopulationArena arena, int from, int to, ReconstructionModeAbstract mode, long seed,
+			DatasetContext context, Map<Class<?>, Double> measures, boolean replaceInvalid) {
+		if (to - from > capacity) {
+			throw new IllegalArgumentException("Too many individuals for the kernel");
+		}
+		lanes = to - from;
+		if (lanes == 0) {
+			return;
+		}
+		int neuronIdx = arena.getNeuronIndex();
+		double[][] vs = context.getVs();
+		int inputIdxAfterTuning = context.getInputIdxAfterTuning();
+		SpikeEvents presynapticSpikes = context.getPresynapticSpikes();
+		loadData(context, neuronIdx);
+		allocateTraces(vs.length - inputIdxAfterTuning);
+		if (scratch == null || scratch.neuronIndex != neuronIdx) {
+			scratch = new Model(numNeurons, neuronIdx);
+		}
+
+		// 1: Tuning of the u variable
+		for (int l = 0; l < lanes; l++) {
+			laneSlot[l] = from + l;
+			load(l, arena, from + l);
+			setU(l, arena.getNext(from + l, PopulationArena.START_U));
+		}
+		for (int i = 1; i < inputIdxAfterTuning; i++) {
+			setMeasuredVoltage(i);
+			step(i, presynapticSpikes, i - 1);
+		}
+
+		// 2: Reconstruction of the weights, this is done for each individual
+		// on its own with double precision. The results are stored in the
+		// arena.
+		for (int l = 0; l < lanes; l++) {
+			arena.copyNextTo(from + l, scratch);
+			scratch.u = getU(l);
+			scratch.v = vs[inputIdxAfterTuning][neuronIdx];
+			IndividualReconstructionData.reconstructWeightsOfTunedModel(scratch, context);
+			arena.storeNext(from + l, scratch, 0);
+
+			load(l, arena, from + l);
+			storeTunedU(l);
+		}
+
+		int length = realPotentials.length;
+		for (int i = inputIdxAfterTuning, j = 0; i < vs.length; i++, j++) {
+			realPotentials[j] = vs[i][neuronIdx];
+		}
+
+		// 3: Calculate the single step changes
+		restoreTunedU();
+		for (int i = inputIdxAfterTuning, j = 0; i < vs.length; i++, j++) {
+			setMeasuredVoltage(i);
+			step(i, presynapticSpikes, i - 1);
+			recordSingleStep(j);
+		}
+
+		// The single step errors are known now, the overall errors are
+		// summed up during the simulation in the same order as by the measure
+		double cutoff = arena.getEvaluationCutoff();
+		boolean bounded = cutoff < Double.POSITIVE_INFINITY && getErrorBound(measures).isBounded();
+		if (bounded) {
+			for (int l = 0; l < lanes; l++) {
+				singleStepError[l] = (1 / (double) length)
+						* addSquaredErrors(l, 0, realPotentials, 0, length, true);
+				overallError[l] = 0;
+			}
+			abortLanes(arena, cutoff, length);
+		}
+
+		// 4: Compute the whole simulation
+		restoreTunedU();
+		setMeasuredVoltage(inputIdxAfterTuning);
+		int checked = 0;
+		for (int i = inputIdxAfterTuning, j = 0; i < vs.length && lanes > 0; i++, j++) {
+			step(i, presynapticSpikes, i - 1);
+			record(j);
+
+			if (bounded && j + 1 - checked == BOUND_CHECK_INTERVAL) {
+				for (int l = 0; l < lanes; l++) {
+					overallError[l] = addSquaredErrors(l, overallError[l], realPotentials, checked, j + 1, false);
+				}
+				checked = j + 1;
+				abortLanes(arena, cutoff, length);
+			}
+		}
+
+		// 5: Calculate the fitness values
+		for (int l = 0; l < lanes; l++) {
+			int slot = laneSlot[l];
+			double fitness = compareSpikeTrains(l, realPotentials, context.getDt(), measures);
+			if (Double.isFinite(fitness) || !replaceInvalid) {
+				arena.setNextFitness(slot, fitness);
+			} else {
+				// Replace the individual as Individual.recalculate would do it
+				Random r = new Random(seed + slot);
+				Individual ind = new Individual(new Model(mode, r, numNeurons, neuronIdx));
+				ind.recalculate(mode, r, context, IntegrationMethod.EULER.getIntegrator(), measures);
+				arena.storeNext(slot, ind.getModel(), ind.getFitness());
+			}
+		}
+	}
+
+	/**
+	 * @return The lower bound for the given measures, which is reused as long
+	 *         as the same measures are used
+	 */
+	private SpikeTrainErrorBound getErrorBound(Map<Class<?>, Double> measures) {
+		if (errorBoundMeasures != measures) {
+			errorBound = new SpikeTrainErrorBound(measures);
+			errorBoundMeasures = measures;
+		}
+		return errorBound;
+	}
+
+	/**
+	 * Aborts all lanes whose lower bound exceeds the cutoff. The fitness value
+	 * of an aborted individual is its lower bound. A lane with a non-finite
+	 * error (a diverging or NaN voltage) is never aborted, because the
+	 * normalised bound of such a lane is not infinite. It is simulated
+	 * completely, so the invalid individual is replaced as without the cutoff.
+	 */
+	private void abortLanes(PopulationArena arena, double cutoff, int length) {
+		int l = 0;
+		while (l < lanes) {
+			double bound = Double.isFinite(singleStepError[l]) && Double.isFinite(overallError[l])
+					? errorBound.getLowerBound(singleStepError[l], (1 / (double) length) * overallError[l])
+					: Double.NaN;
+			if (bound > cutoff) {
+				arena.setNextFitness(laneSlot[l], bound);
+				arena.setNextAborted(laneSlot[l], true);
+				removeLane(l);
+			} else {
+				l++;
+			}
+		}
+	}
+
+	/**
+	 * Replaces the given lane by the last lane and removes the last lane.
+	 */
+	private void removeLane(int lane) {
+		int last = --lanes;
+		if (lane == last) {
+			return;
+		}
+		moveLane(lane, last);
+		laneSlot[lane] = laneSlot[last];
+		singleStepError[lane] = singleStepError[last];
+		overallError[lane] = overallError[last];
+	}
+
+	/**
+	 * Allocates the trace buffers if they do not have the given length.
+	 */
+	private void allocateTraces(int length) {
+		if (realPotentials == null || realPotentials.length != length) {
+			realPotentials = new double[length];
+			allocateModelTraces(length);
+		}
+	}
+
+	/**
+	 * Takes the input and voltage data of the neuron and the dt value for the
+	 * following simulations.
+	 */
+	protected abstract void loadData(DatasetContext context, int neuronIdx);
+
+	/**
+	 * Allocates the simulated traces of all lanes with the given length.
+	 */
+	protected abstract void allocateModelTraces(int length);
+
+	/**
+	 * Copies the parameters and weights of the model into the given lane.
+	 */
+	protected abstract void load(int lane, PopulationArena arena, int slot);
+
+	protected abstract double getU(int lane);
+
+	protected abstract void setU(int lane, double value);
+
+	/**
+	 * Keeps the current u value of the lane as its tuned u value.
+	 */
+	protected abstract void storeTunedU(int lane);
+
+	/**
+	 * Sets the u values of all lanes to their tuned u values.
+	 */
+	protected abstract void restoreTunedU();
+
+	/**
+	 * Sets the voltage of all lanes to the measured voltage of the time step.
+	 */
+	protected abstract void setMeasuredVoltage(int i);
+
+	/**
+	 * Calculates all lanes for one time step. The arithmetic is the same as in
+	 * {@link Model#calculateNetwork(double, SpikeEvents, int, double)}.
+	 *
+	 * @param i
+	 *            The time step of the input
+	 * @param presynapticSpikes
+	 *            The measured spikes
+	 * @param t
+	 *            The time step of the spikes
+	 */
+	protected abstract void step(int i, SpikeEvents presynapticSpikes, int t);
+
+	/**
+	 * Stores the voltage of all lanes as the value j of their single step
+	 * traces.
+	 */
+	protected abstract void recordSingleStep(int j);
+
+	/**
+	 * Stores the voltage of all lanes as the value j of their simulated
+	 * traces.
+	 */
+	protected abstract void record(int j);
+
+	/**
+	 * Adds the squared differences between the measured trace and the single
+	 * step or the simulated trace of a lane from {@code from} (inclusive) to
+	 * {@code to} (exclusive) to the given sum, in the order of the time
+	 * steps.
+	 */
+	protected abstract double addSquaredErrors(int lane, double sum, double[] realPotentials, int from, int to,
+			boolean singleStep);
+
+	/**
+	 * @return The fitness value of the traces of a lane
+	 */
+	protected abstract double compareSpikeTrains(int lane, double[] realPotentials, double dt,
+			Map<Class<?>, Double> measures);
+
+	/**
+	 * Copies the values of the lane {@code last} into the lane {@code lane}.
+	 * The traces are swapped, so that no buffer is shared by two lanes.
+	 */
+	protected abstract void moveLane(int lane, int last);
+
+}
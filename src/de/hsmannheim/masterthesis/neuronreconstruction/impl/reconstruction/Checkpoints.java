@@ -0,0 +1,304 @@
+/** Checkpoints.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The binary checkpoints of the Genetic Algorithm of a reconstruction, which
+ * allow to resume an aborted reconstruction.
+ *
+ * <p />
+ * Each neuron has its own checkpoint file, which contains the current
+ * generation of the neuron in the order of the ranking (records, fitness
+ * values and aborted flags), the state of the random instance of the neuron
+ * and the counters of the stopping criteria. After the reconstruction of a
+ * neuron is finished, its checkpoint only contains the best individual.
+ *
+ * <p />
+ * The state is copied by the thread of the neuron and written by a separate
+ * thread, so the Genetic Algorithm does not wait for the file system. A
+ * checkpoint is written into a temporary file, which replaces the old
+ * checkpoint by an atomic rename, so a checkpoint file is always complete.
+ *
+ * @author Leah Lackner
+ */
+class Checkpoints {
+
+	/**
+	 * "NRCP"
+	 */
+	private static final int MAGIC = 0x4e524350;
+	private static final int VERSION = 1;
+
+	private final File directory;
+
+	/**
+	 * Writes the checkpoints in the order in which they are taken
+	 */
+	private final ExecutorService writer;
+
+	/**
+	 * The first error of the writer, which is thrown by the next call
+	 */
+	private final AtomicReference<IOException> error = new AtomicReference<>();
+
+	/**
+	 * The state of the Genetic Algorithm of one neuron.
+	 */
+	static class NeuronState {
+
+		final int neuron;
+		final boolean completed;
+		final int generation;
+		final double lastFitness;
+		final int lastFitnessSameCount;
+		final long randomState;
+		final int size;
+		final int recordLength;
+		final double[] records;
+		final double[] fitness;
+		final boolean[] aborted;
+
+		private NeuronState(int neuron, boolean completed, int generation, double lastFitness,
+				int lastFitnessSameCount, long randomState, int size, int recordLength, double[] records,
+				double[] fitness, boolean[] aborted) {
+			this.neuron = neuron;
+			this.completed = completed;
+			this.generation = generation;
+			this.lastFitness = lastFitness;
+			this.lastFitnessSameCount = lastFitnessSameCount;
+			this.randomState = randomState;
+			this.size = size;
+			this.recordLength = recordLength;
+			this.records = records;
+			this.fitness = fitness;
+			this.aborted = aborted;
+		}
+
+		/**
+		 * Copies the state of the current generation of a population.
+		 *
+		 * @param neuron
+		 *            The index of the neuron
+		 * @param completed
+		 *            true if the reconstruction of the neuron is finished,
+		 *            then only the best individual is copied
+		 * @param generation
+		 *            The number of the current generation
+		 * @param lastFitness
+		 *            The last changed best fitness value
+		 * @param lastFitnessSameCount
+		 *            The number of generations without change
+		 * @param r
+		 *            The random instance of the neuron
+		 * @param population
+		 *            The population
+		 * @return The copied state
+		 */
+		static NeuronState of(int neuron, boolean completed, int generation, double lastFitness,
+				int lastFitnessSameCount, RestorableRandom r, PopulationArena population) {
+			int size = completed ? 1 : population.size();
+			int recordLength = population.getRecordLength();
+			double[] records = new double[size * recordLength];
+			double[] fitness = new double[size];
+			boolean[] aborted = new boolean[size];
+			for (int rank = 0; rank < size; rank++) {
+				population.copyRecord(rank, records, rank * recordLength);
+				fitness[rank] = population.getFitness(rank);
+				aborted[rank] = population.isAborted(rank);
+			}
+			return new NeuronState(neuron, completed, generation, lastFitness, lastFitnessSameCount,
+					r.getState(), size, recordLength, records, fitness, aborted);
+		}
+
+		/**
+		 * Restores the current generation of a population and the state of
+		 * the random instance. The individuals are added in the order of the
+		 * ranking, so the ranking of the population is the same as before.
+		 *
+		 * @param population
+		 *            An empty population with the same record length
+		 * @param r
+		 *            The random instance of the neuron
+		 */
+		void restore(PopulationArena population, RestorableRandom r) {
+			if (population.getRecordLength() != recordLength) {
+				throw new IllegalStateException("The checkpoint of the neuron " + neuron
+						+ " belongs to a network with a different number of neurons");
+			}
+			population.clearNext();
+			for (int rank = 0; rank < size; rank++) {
+				int slot = population.addRecordToNext(records, rank * recordLength);
+				population.setNextFitness(slot, fitness[rank]);
+				population.setNextAborted(slot, aborted[rank]);
+			}
+			population.swap();
+			r.setState(randomState);
+		}
+	}
+
+	/**
+	 * @param directory
+	 *            The directory of the checkpoint files
+	 * @param resume
+	 *            true to keep the existing checkpoints, false to delete them
+	 * @throws IOException
+	 */
+	Checkpoints(String directory, boolean resume) throws IOException {
+		this.directory = new File(directory);
+		if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+			throw new IOException("Could not create the checkpoint directory " + directory);
+		}
+		if (!resume) {
+			File[] files = this.directory.listFiles((dir, name) -> name.startsWith("neuron-"));
+			if (files != null) {
+				for (File file : files) {
+					if (!file.delete()) {
+						throw new IOException("Could not delete the old checkpoint " + file);
+					}
+				}
+			}
+		}
+		writer = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "checkpoint-writer");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Writes a checkpoint asynchronously. The checkpoint replaces the last
+	 * checkpoint of the neuron.
+	 *
+	 * @throws IOException
+	 *             if a previous checkpoint could not be written
+	 */
+	void write(NeuronState state) throws IOException {
+		throwError();
+		writer.execute(() -> {
+			try {
+				writeFile(state);
+			} catch (IOException e) {
+				error.compareAndSet(null, e);
+			}
+		});
+	}
+
+	private void writeFile(NeuronState state) throws IOException {
+		File target = getFile(state.neuron);
+		File tmp = new File(directory, target.getName() + ".tmp");
+		try (FileOutputStream fos = new FileOutputStream(tmp);
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(state.neuron);
+			out.writeBoolean(state.completed);
+			out.writeInt(state.generation);
+			out.writeDouble(state.lastFitness);
+			out.writeInt(state.lastFitnessSameCount);
+			out.writeLong(state.randomState);
+			out.writeInt(state.size);
+			out.writeInt(state.recordLength);
+			for (double value : state.records) {
+				out.writeDouble(value);
+			}
+			for (int rank = 0; rank < state.size; rank++) {
+				out.writeDouble(state.fitness[rank]);
+				out.writeBoolean(state.aborted[rank]);
+			}
+			out.flush();
+			fos.getFD().sync();
+		}
+		Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+				StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Reads the last checkpoint of a neuron.
+	 *
+	 * @param neuron
+	 *            The index of the neuron
+	 * @return The state of the neuron, null if there is no checkpoint
+	 * @throws IOException
+	 */
+	NeuronState read(int neuron) throws IOException {
+		File file = getFile(neuron);
+		if (!file.isFile()) {
+			return null;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException("The file " + file + " is not a checkpoint of this version");
+			}
+			if (in.readInt() != neuron) {
+				throw new IOException("The file " + file + " belongs to another neuron");
+			}
+			boolean completed = in.readBoolean();
+			int generation = in.readInt();
+			double lastFitness = in.readDouble();
+			int lastFitnessSameCount = in.readInt();
+			long randomState = in.readLong();
+			int size = in.readInt();
+			int recordLength = in.readInt();
+			double[] records = new double[size * recordLength];
+			for (int i = 0; i < records.length; i++) {
+				records[i] = in.readDouble();
+			}
+			double[] fitness = new double[size];
+			boolean[] aborted = new boolean[size];
+			for (int rank = 0; rank < size; rank++) {
+				fitness[rank] = in.readDouble();
+				aborted[rank] = in.readBoolean();
+			}
+			return new NeuronState(neuron, completed, generation, lastFitness, lastFitnessSameCount, randomState,
+					size, recordLength, records, fitness, aborted);
+		}
+	}
+
+	/**
+	 * Waits until all checkpoints are written and stops the writer.
+	 *
+	 * @throws IOException
+	 *             if a checkpoint could not be written
+	 */
+	void close() throws IOException {
+		writer.shutdown();
+		try {
+			writer.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			throw new RuntimeException("Interrupted while writing the checkpoints", e);
+		}
+		throwError();
+	}
+
+	private void throwError() throws IOException {
+		IOException e = error.get();
+		if (e != null) {
+			throw e;
+		}
+	}
+
+	private File getFile(int neuron) {
+		return new File(directory, "neuron-" + neuron + ".bin");
+	}
+
+}
@@ -0,0 +1,331 @@
+/** DatasetContext.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction;
+
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.SpikeEvents;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.ValueBorders;
+
+/**
+ * Contains the measured data of a reconstruction together with all values
+ * which are derived from the measured data but do not depend on the
+ * parameters of an individual.
+ *
+ * <p />
+ * The context is created once per reconstruction and shared read-only by all
+ * individuals and worker threads. The arrays returned by the getters must not
+ * be modified.
+ *
+ * <p />
+ * The following values are precomputed:
+ * <ul>
+ * <li>the spiking neurons of each time step (voltage above the spike
+ * recognition value), which determine the synaptic input of a neuron</li>
+ * <li>a bit-packed raster and the lists of the neurons which reached the spike
+ * reset value, which are used by the weight estimation</li>
+ * <li>the unweighted presynaptic terms of the weight estimation, i.e. the
+ * equation matrix which only depends on the measured spikes (computed on
+ * demand for each neuron)</li>
+ * <li>single precision copies of the voltage and input traces of each neuron
+ * (computed on demand)</li>
+ * </ul>
+ *
+ * @author Leah Lackner
+ */
+public class DatasetContext {
+
+	private final double[][] inputs;
+	private final double[][] vs;
+	private final double dt;
+	private final int inputIdxAfterTuning;
+	private final int numNeurons;
+
+	private final SpikeEvents presynapticSpikes;
+	private final SpikeEvents resetSpikes;
+
+	/**
+	 * Bit {@code n % 64} of {@code resetRaster[t * rasterWords + n / 64]} is
+	 * set if the neuron n has reached the spike reset value at time step t.
+	 */
+	private final long[] resetRaster;
+	private final int rasterWords;
+
+	/**
+	 * The equation matrices of the weight estimation for each neuron. They are
+	 * computed on demand and may be released by the garbage collector, because
+	 * they can be recomputed at any time.
+	 */
+	private final AtomicReferenceArray<SoftReference<double[][]>> weightEquationMatrices;
+
+	/**
+	 * The single precision traces for each neuron, computed on demand.
+	 */
+	private final AtomicReferenceArray<float[]> voltageTracesFloat;
+	private final AtomicReferenceArray<float[]> inputTracesFloat;
+
+	/**
+	 * true if the data is only a section of the measured data
+	 */
+	private final boolean section;
+
+	/**
+	 * The contexts of the sections of the data by their numbers of time steps
+	 * before and after the tuning index, created on demand
+	 */
+	private final Map<Long, DatasetContext> sections = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates the context for the given data and precomputes the spikes.
+	 *
+	 * @param inputs
+	 *            The input data (current)
+	 * @param vs
+	 *            The voltage data
+	 * @param dt
+	 *            The dt value for the solving of the differential equations
+	 * @param inputIdxAfterTuning
+	 *            The time step until the u value is tuned (before the
+	 *            reconstruction is started)
+	 */
+	public DatasetContext(double[][] inputs, double[][] vs, double dt, int inputIdxAfterTuning) {
+		this(inputs, vs, dt, inputIdxAfterTuning, false);
+	}
+
+	private DatasetContext(double[][] inputs, double[][] vs, double dt, int inputIdxAfterTuning, boolean section) {
+		this.inputs = inputs;
+		this.vs = vs;
+		this.dt = dt;
+		this.inputIdxAfterTuning = inputIdxAfterTuning;
+		this.numNeurons = vs[0].length;
+		this.section = section;
+
+		presynapticSpikes = new SpikeEvents(vs, ValueBorders.SPIKE_RECOGNITION);
+		resetSpikes = new SpikeEvents(vs, ValueBorders.SPIKE_RESET);
+
+		rasterWords = (numNeurons + 63) / 64;
+		resetRaster = new long[vs.length * rasterWords];
+		int[] neurons = resetSpikes.getNeurons();
+		for (int t = 0; t < vs.length; t++) {
+			for (int k = resetSpikes.getStart(t); k < resetSpikes.getEnd(t); k++) {
+				int n = neurons[k];
+				resetRaster[t * rasterWords + (n >>> 6)] |= 1L << (n & 63);
+			}
+		}
+
+		weightEquationMatrices = new AtomicReferenceArray<>(numNeurons);
+		voltageTracesFloat = new AtomicReferenceArray<>(numNeurons);
+		inputTracesFloat = new AtomicReferenceArray<>(numNeurons);
+	}
+
+	/**
+	 * Returns the context of a section of the data around the tuning index,
+	 * which is used to evaluate individuals with a lower fidelity: The u
+	 * variable is tuned with the last time steps before the tuning index and
+	 * the model is compared with the first time steps after it. The rows of
+	 * the data are shared and the contexts are created once for each section.
+	 *
+	 * @param tuningTimesteps
+	 *            The number of time steps before the tuning index, in [2,
+	 *            {@link #getInputIdxAfterTuning()}]
+	 * @param evaluationTimesteps
+	 *            The number of time steps from the tuning index on, in [2,
+	 *            {@link #getTimesteps()} - {@link #getInputIdxAfterTuning()}]
+	 * @return The context of the section, this context if the section is the
+	 *         whole data
+	 */
+	public DatasetContext getSection(int tuningTimesteps, int evaluationTimesteps) {
+		if (tuningTimesteps < 2 || tuningTimesteps > inputIdxAfterTuning || evaluationTimesteps < 2
+				|| evaluationTimesteps > vs.length - inputIdxAfterTuning) {
+			throw new IllegalArgumentException("The section must be within the data");
+		}
+		if (tuningTimesteps == inputIdxAfterTuning && evaluationTimesteps == vs.length - inputIdxAfterTuning) {
+			return this;
+		}
+		long key = (long) tuningTimesteps << 32 | evaluationTimesteps;
+		return sections.computeIfAbsent(key, k -> {
+			int from = inputIdxAfterTuning - tuningTimesteps;
+			int to = inputIdxAfterTuning + evaluationTimesteps;
+			return new DatasetContext(Arrays.copyOfRange(inputs, from, to), Arrays.copyOfRange(vs, from, to), dt,
+					tuningTimesteps, true);
+		});
+	}
+
+	/**
+	 * @return true if the data is only a section of the measured data, see
+	 *         {@link #getSection(int, int)}
+	 */
+	public boolean isSection() {
+		return section;
+	}
+
+	/**
+	 * @return The input data (current)
+	 */
+	public double[][] getInputs() {
+		return inputs;
+	}
+
+	/**
+	 * @return The voltage data
+	 */
+	public double[][] getVs() {
+		return vs;
+	}
+
+	/**
+	 * @return The dt value for the solving of the differential equations
+	 */
+	public double getDt() {
+		return dt;
+	}
+
+	/**
+	 * @return The time step until the u value is tuned
+	 */
+	public int getInputIdxAfterTuning() {
+		return inputIdxAfterTuning;
+	}
+
+	/**
+	 * @return The number of all neurons in the network
+	 */
+	public int getNumNeurons() {
+		return numNeurons;
+	}
+
+	/**
+	 * @return The number of time steps of the data
+	 */
+	public int getTimesteps() {
+		return vs.length;
+	}
+
+	/**
+	 * @return The neurons whose voltage value is equal to or greater than the
+	 *         spike recognition value for each time step
+	 */
+	public SpikeEvents getPresynapticSpikes() {
+		return presynapticSpikes;
+	}
+
+	/**
+	 * @return The neurons whose voltage value is equal to or greater than the
+	 *         spike reset value for each time step
+	 */
+	public SpikeEvents getResetSpikes() {
+		return resetSpikes;
+	}
+
+	/**
+	 * @param t
+	 *            The time step
+	 * @param neuronIdx
+	 *            The index of the neuron
+	 * @return true if the voltage value of the neuron is equal to or greater
+	 *         than the spike reset value at the time step
+	 */
+	public boolean hasReachedReset(int t, int neuronIdx) {
+		return (resetRaster[t * rasterWords + (neuronIdx >>> 6)] & (1L << (neuronIdx & 63))) != 0;
+	}
+
+	/**
+	 * @param neuronIdx
+	 *            The index of the neuron
+	 * @return The voltage values of the neuron for all time steps with single
+	 *         precision
+	 */
+	public float[] getVoltageTraceFloat(int neuronIdx) {
+		float[] trace = voltageTracesFloat.get(neuronIdx);
+		if (trace == null) {
+			trace = toFloatTrace(vs, neuronIdx);
+			voltageTracesFloat.set(neuronIdx, trace);
+		}
+		return trace;
+	}
+
+	/**
+	 * @param neuronIdx
+	 *            The index of the neuron
+	 * @return The input values of the neuron for all time steps with single
+	 *         precision
+	 */
+	public float[] getInputTraceFloat(int neuronIdx) {
+		float[] trace = inputTracesFloat.get(neuronIdx);
+		if (trace == null) {
+			trace = toFloatTrace(inputs, neuronIdx);
+			inputTracesFloat.set(neuronIdx, trace);
+		}
+		return trace;
+	}
+
+	private static float[] toFloatTrace(double[][] values, int neuronIdx) {
+		float[] trace = new float[values.length];
+		for (int t = 0; t < values.length; t++) {
+			trace[t] = (float) values[t][neuronIdx];
+		}
+		return trace;
+	}
+
+	/**
+	 * Returns the equation matrix of the weight estimation for the given
+	 * neuron. The matrix only depends on the measured spikes and is the same
+	 * for all individuals of the neuron. See
+	 * {@code IndividualReconstructionData} for the weight estimation.
+	 *
+	 * @param neuronIdx
+	 *            The index of the neuron
+	 * @return A copy of the matrix, which may be modified by the caller
+	 */
+	public double[][] getWeightEquationMatrix(int neuronIdx) {
+		SoftReference<double[][]> reference = weightEquationMatrices.get(neuronIdx);
+		double[][] matrix = reference == null ? null : reference.get();
+		if (matrix == null) {
+			// Concurrent computations yield the same matrix, so it does not
+			// matter which one is stored.
+			matrix = createWeightEquationMatrix(neuronIdx);
+			weightEquationMatrices.set(neuronIdx, new SoftReference<>(matrix));
+		}
+
+		double[][] copy = new double[numNeurons][];
+		for (int n = 0; n < numNeurons; n++) {
+			copy[n] = matrix[n].clone();
+		}
+		return copy;
+	}
+
+	/**
+	 * Sums up the products of the spikes of each pair of neurons for all time
+	 * steps at which the given neuron has not spiked in the time step before.
+	 * The order of the summation is the same as in the original weight
+	 * estimation, so that the results are exactly the same.
+	 */
+	private double[][] createWeightEquationMatrix(int neuronIdx) {
+		double[][] matrix = new double[numNeurons][numNeurons];
+		int[] neurons = resetSpikes.getNeurons();
+
+		for (int t = inputIdxAfterTuning + 1; t < vs.length; t++) {
+			if (hasReachedReset(t - 1, neuronIdx))
+				continue;
+
+			int start = resetSpikes.getStart(t - 1);
+			int end = resetSpikes.getEnd(t - 1);
+			for (int k0 = start; k0 < end; k0++) {
+				for (int k1 = start; k1 < end; k1++) {
+					matrix[neurons[k0]][neurons[k1]] += 1 / dt;
+				}
+			}
+		}
+		return matrix;
+	}
+
+}
@@ -0,0 +1,664 @@
+/** DistributedEvaluator.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction;
+
+import static de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.DistributedProtocol.BATCH;
+import static de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.DistributedProtocol.ERROR;
+import static de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.DistributedProtocol.MAGIC;
+import static de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.DistributedProtocol.RESULT;
+import static de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.DistributedProtocol.SHUTDOWN;
+import static de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.DistributedProtocol.VERSION;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.modes.ReconstructionMode;
+
+/**
+ * Evaluates the next generation of a population on remote
+ * {@link EvaluationWorker}s (coordinator of the distributed evaluation).
+ *
+ * <p />
+ * The data set is sent once to each worker when the evaluator is created.
+ * Each generation is split into batches, which are sent to the workers with
+ * free capacity. A worker receives at most twice as many batches as it has
+ * threads, so the faster workers receive more batches.
+ *
+ * <p />
+ * If the connection to a worker is lost or the worker does not answer within
+ * the timeout while it has unfinished batches, the worker is removed and its
+ * batches are sent to the other workers again. When there are no batches left
+ * to send, batches which take much longer than the average batch are sent to
+ * a second worker as well, the first result is used. If no worker is left,
+ * the remaining batches are evaluated locally in the same way as without
+ * workers, i.e. by the work queue of the reconstruction.
+ *
+ * <p />
+ * The messages to a worker are written by a thread of the connection, never
+ * while the lock is held. A worker which stops reading blocks only its own
+ * thread and is removed like a lost worker when it does not answer within the
+ * timeout.
+ *
+ * <p />
+ * The individual of slot i is evaluated with the random instance
+ * {@code new Random(seed + i)} on every worker, so the results are the same
+ * as those of the local evaluation. The evaluator can be used by several
+ * threads at once.
+ *
+ * @author Leah Lackner
+ */
+class DistributedEvaluator implements Closeable {
+
+	/**
+	 * Batches are only sent to a second worker if they take longer than this
+	 * time and longer than {@link #STRAGGLER_FACTOR} times the average time of
+	 * a batch.
+	 */
+	private static final long STRAGGLER_MIN_MILLIS = 2000;
+	private static final int STRAGGLER_FACTOR = 4;
+
+	private static final long WAIT_MILLIS = 50;
+
+	/**
+	 * The time in milliseconds in which the workers must take the shutdown
+	 * message when the evaluator is closed
+	 */
+	private static final long CLOSE_MILLIS = 1000;
+
+	/**
+	 * Ends the thread which writes the messages to a worker
+	 */
+	private static final Message STOP = out -> {
+	};
+
+	private final DatasetContext context;
+	private final int batchSize;
+
+	/**
+	 * Guards all following fields and the states of the workers and batches.
+	 */
+	private final Object lock = new Object();
+
+	private final List<WorkerConnection> workers = new ArrayList<>();
+	private final ArrayDeque<Batch> pending = new ArrayDeque<>();
+	private final Map<Long, Batch> batches = new HashMap<>();
+
+	private long nextBatchId;
+	private long completedBatches;
+	private long completedBatchMillis;
+	private long resubmittedBatches;
+	private long speculativeBatches;
+	private long localBatches;
+	private boolean closed;
+
+	/**
+	 * Connects to the workers and sends the data set to them. Workers which
+	 * are not available are reported and skipped.
+	 *
+	 * @param addresses
+	 *            The addresses of the workers (host:port)
+	 * @param timeout
+	 *            The time in milliseconds after which a worker with unfinished
+	 *            batches is considered to be lost
+	 * @param context
+	 *            The measured data and the values derived from it
+	 * @param mode
+	 *            The reconstruction mode
+	 * @param measures
+	 *            Map containing the measures to be used in the fitness
+	 *            evaluation along with their assigned weight values
+	 * @param options
+	 *            The options of the evaluation
+	 */
+	DistributedEvaluator(List<String> addresses, int timeout, DatasetContext context, ReconstructionMode mode,
+			Map<Class<?>, Double> measures, ReconstructionOptions options) {
+		this.context = context;
+		this.batchSize = options.getBatchSize();
+
+		for (String address : addresses) {
+			WorkerConnection worker = null;
+			try {
+				worker = new WorkerConnection(address, timeout);
+				worker.sendDataset(mode, measures, options);
+				synchronized (lock) {
+					worker.alive = true;
+					workers.add(worker);
+				}
+				Thread reader = new Thread(worker::readResults, "DistributedEvaluator-" + address);
+				reader.setDaemon(true);
+				reader.start();
+			} catch (IOException | RuntimeException e) {
+				if (worker != null) {
+					worker.stop();
+				}
+				System.err.println("Worker " + address + " is not available: " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Evaluates the slots of the next generation which are left over when no
+	 * worker is available, in the same way as without the distributed
+	 * evaluation.
+	 */
+	interface LocalEvaluation {
+
+		/**
+		 * Evaluates the slots from {@code from} (inclusive) to {@code to}
+		 * (exclusive) with the seed of the generation and waits until all of
+		 * them are evaluated.
+		 */
+		void evaluate(int from, int to);
+	}
+
+	/**
+	 * Evaluates the individuals of the next generation from the slot
+	 * {@code from} (inclusive) to the slot {@code to} (exclusive) and waits
+	 * until all of them are evaluated. If no worker is left, all unfinished
+	 * batches are passed to the local evaluation at once, so a local
+	 * evaluation in parallel is as fast as a run without workers.
+	 *
+	 * @param seed
+	 *            The seed of the generation
+	 * @param population
+	 *            The population of the Genetic Algorithm
+	 * @param from
+	 *            The first slot
+	 * @param to
+	 *            The slot after the last slot
+	 * @param localEvaluation
+	 *            The evaluation of the batches if no worker is available
+	 */
+	void evaluate(long seed, PopulationArena population, int from, int to, LocalEvaluation localEvaluation) {
+		List<Batch> own = new ArrayList<>();
+		synchronized (lock) {
+			for (int blockFrom = from; blockFrom < to; blockFrom += batchSize) {
+				Batch batch = new Batch(nextBatchId++, population, blockFrom, Math.min(blockFrom + batchSize, to),
+						seed);
+				own.add(batch);
+				batches.put(batch.id, batch);
+				pending.addLast(batch);
+			}
+			dispatch();
+		}
+
+		while (true) {
+			List<Batch> local = new ArrayList<>();
+			synchronized (lock) {
+				if (isDone(own)) {
+					return;
+				}
+				if (getLiveWorkers() == 0) {
+					// All unfinished batches are pending when no worker is left
+					for (Batch batch : own) {
+						if (!batch.done) {
+							batch.done = true;
+							pending.remove(batch);
+							batches.remove(batch.id);
+							localBatches++;
+							local.add(batch);
+						}
+					}
+				} else {
+					sendStragglers();
+					dispatch();
+					try {
+						lock.wait(WAIT_MILLIS);
+					} catch (InterruptedException e) {
+						throw new RuntimeException("Interrupted while waiting for the workers", e);
+					}
+				}
+			}
+
+			// The batches are in the order of their slots, consecutive
+			// batches are evaluated together
+			int i = 0;
+			while (i < local.size()) {
+				int localFrom = local.get(i).from;
+				int localTo = local.get(i).to;
+				for (i++; i < local.size() && local.get(i).from == localTo; i++) {
+					localTo = local.get(i).to;
+				}
+				localEvaluation.evaluate(localFrom, localTo);
+			}
+		}
+	}
+
+	private static boolean isDone(List<Batch> own) {
+		for (Batch batch : own) {
+			if (!batch.done)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Sends the pending batches to the workers with free capacity. Must be
+	 * called with the lock.
+	 */
+	private void dispatch() {
+		for (WorkerConnection worker : new ArrayList<>(workers)) {
+			while (worker.alive && worker.inFlight.size() < worker.capacity && !pending.isEmpty()) {
+				Batch batch = pending.pollFirst();
+				if (!batch.done) {
+					worker.send(batch);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sends the batches which take much longer than the average batch to a
+	 * second worker, if no other batch is waiting. Must be called with the
+	 * lock.
+	 */
+	private void sendStragglers() {
+		if (!pending.isEmpty() || completedBatches == 0)
+			return;
+
+		long threshold = Math.max(STRAGGLER_MIN_MILLIS, STRAGGLER_FACTOR * completedBatchMillis / completedBatches);
+		long now = System.currentTimeMillis();
+		for (Batch batch : batches.values()) {
+			if (batch.done || batch.assigned.size() != 1 || now - batch.sentAt < threshold)
+				continue;
+			for (WorkerConnection worker : workers) {
+				if (worker.alive && worker.inFlight.size() < worker.capacity && !batch.assigned.contains(worker)) {
+					speculativeBatches++;
+					worker.send(batch);
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return The number of workers which are still connected
+	 */
+	int getLiveWorkers() {
+		synchronized (lock) {
+			int live = 0;
+			for (WorkerConnection worker : workers) {
+				if (worker.alive)
+					live++;
+			}
+			return live;
+		}
+	}
+
+	/**
+	 * @return The number of batches which were sent again after a worker was
+	 *         lost
+	 */
+	long getResubmittedBatches() {
+		synchronized (lock) {
+			return resubmittedBatches;
+		}
+	}
+
+	/**
+	 * @return The number of batches which were sent to a second worker
+	 *         because the first worker was too slow
+	 */
+	long getSpeculativeBatches() {
+		synchronized (lock) {
+			return speculativeBatches;
+		}
+	}
+
+	/**
+	 * @return The number of batches which were evaluated locally because no
+	 *         worker was left
+	 */
+	long getLocalBatches() {
+		synchronized (lock) {
+			return localBatches;
+		}
+	}
+
+	@Override
+	public String toString() {
+		synchronized (lock) {
+			return "workers=" + getLiveWorkers() + "/" + workers.size() + ";batches=" + completedBatches
+					+ ";resubmitted=" + resubmittedBatches + ";speculative=" + speculativeBatches + ";local="
+					+ localBatches;
+		}
+	}
+
+	/**
+	 * Tells the workers that the reconstruction is done and closes the
+	 * connections.
+	 */
+	@Override
+	public void close() {
+		List<WorkerConnection> open = new ArrayList<>();
+		synchronized (lock) {
+			closed = true;
+			for (WorkerConnection worker : workers) {
+				if (worker.alive) {
+					worker.alive = false;
+					worker.outgoing.add(out -> out.writeByte(SHUTDOWN));
+					worker.outgoing.add(STOP);
+					open.add(worker);
+				}
+			}
+		}
+
+		// A worker which does not take the shutdown message is closed anyway
+		long deadline = System.currentTimeMillis() + CLOSE_MILLIS;
+		for (WorkerConnection worker : open) {
+			try {
+				worker.writer.join(Math.max(1, deadline - System.currentTimeMillis()));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			worker.closeSocket();
+		}
+	}
+
+	/**
+	 * A message to a worker, which is written by the thread of the connection.
+	 */
+	private interface Message {
+
+		void write(DataOutputStream out) throws IOException;
+	}
+
+	/**
+	 * A part of a generation which is evaluated by one worker.
+	 */
+	private static class Batch {
+
+		final long id;
+		final PopulationArena population;
+		final int from;
+		final int to;
+		final long seed;
+
+		/**
+		 * The records of the individuals, read when the batch is created
+		 */
+		final double[] records;
+
+		final List<WorkerConnection> assigned = new ArrayList<>(2);
+		long sentAt;
+		boolean done;
+
+		Batch(long id, PopulationArena population, int from, int to, long seed) {
+			this.id = id;
+			this.population = population;
+			this.from = from;
+			this.to = to;
+			// the individual i of the batch is the individual from + i of the
+			// generation
+			this.seed = seed + from;
+
+			int recordLength = population.getRecordLength();
+			records = new double[(to - from) * recordLength];
+			for (int slot = from; slot < to; slot++) {
+				population.copyNextRecord(slot, records, (slot - from) * recordLength);
+			}
+		}
+	}
+
+	/**
+	 * The connection to one worker.
+	 */
+	private class WorkerConnection {
+
+		final String address;
+		final Socket socket;
+		final DataInputStream in;
+		final DataOutputStream out;
+		final LinkedBlockingQueue<Message> outgoing = new LinkedBlockingQueue<>();
+		final Thread writer;
+		final List<Batch> inFlight = new ArrayList<>();
+		int capacity;
+
+		/**
+		 * true from the answer to the data set until the worker is lost or the
+		 * evaluator is closed
+		 */
+		boolean alive;
+
+		WorkerConnection(String address, int timeout) throws IOException {
+			this.address = address;
+			int separator = address.lastIndexOf(':');
+			if (separator < 0) {
+				throw new IllegalArgumentException("The address " + address + " has no port");
+			}
+			socket = new Socket();
+			socket.connect(new InetSocketAddress(address.substring(0, separator),
+					Integer.parseInt(address.substring(separator + 1))), timeout);
+			socket.setTcpNoDelay(true);
+			socket.setSoTimeout(timeout);
+			in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+			writer = new Thread(this::writeMessages, "DistributedEvaluator-" + address + "-writer");
+			writer.setDaemon(true);
+			writer.start();
+		}
+
+		/**
+		 * Sends the header and the data set and reads the answer of the
+		 * worker.
+		 */
+		void sendDataset(ReconstructionMode mode, Map<Class<?>, Double> measures, ReconstructionOptions options)
+				throws IOException {
+			boolean batchEvaluation = options.isBatchEvaluation();
+			int batchSize = options.getBatchSize();
+			String integrationMethod = options.getIntegrationMethod().name();
+			String precision = options.getPrecision().name();
+			outgoing.add(out -> {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeUTF(mode.name());
+				out.writeBoolean(batchEvaluation);
+				out.writeInt(batchSize);
+				out.writeUTF(integrationMethod);
+				out.writeUTF(precision);
+				out.writeInt(measures.size());
+				for (Map.Entry<Class<?>, Double> entry : measures.entrySet()) {
+					out.writeUTF(entry.getKey().getName());
+					out.writeDouble(entry.getValue());
+				}
+				out.writeDouble(context.getDt());
+				out.writeInt(context.getInputIdxAfterTuning());
+				out.writeInt(context.getTimesteps());
+				out.writeInt(context.getNumNeurons());
+				DistributedProtocol.writeMatrix(out, context.getInputs());
+				DistributedProtocol.writeMatrix(out, context.getVs());
+			});
+
+			// The answer is read with the timeout, so a worker which does not
+			// read the data set is not available
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Unknown protocol");
+			}
+			capacity = 2 * in.readInt();
+		}
+
+		/**
+		 * Assigns a batch to the worker and passes it to the thread of the
+		 * connection. Must be called with the lock. If the batch can not be
+		 * written, it is sent again by {@link #fail(String)}.
+		 */
+		void send(Batch batch) {
+			inFlight.add(batch);
+			if (batch.assigned.isEmpty()) {
+				batch.sentAt = System.currentTimeMillis();
+			}
+			batch.assigned.add(this);
+
+			int neuronIndex = batch.population.getNeuronIndex();
+			outgoing.add(out -> {
+				out.writeByte(BATCH);
+				out.writeLong(batch.id);
+				out.writeInt(neuronIndex);
+				out.writeLong(batch.seed);
+				out.writeInt(batch.to - batch.from);
+				DistributedProtocol.writeDoubles(out, batch.records);
+			});
+		}
+
+		/**
+		 * Writes the messages to the worker until the connection is stopped.
+		 */
+		void writeMessages() {
+			try {
+				while (true) {
+					Message message = outgoing.take();
+					if (message == STOP)
+						return;
+					message.write(out);
+					out.flush();
+				}
+			} catch (IOException e) {
+				synchronized (lock) {
+					if (alive && !closed) {
+						fail(describe(e));
+					}
+				}
+				closeSocket();
+			} catch (InterruptedException e) {
+				closeSocket();
+			}
+		}
+
+		/**
+		 * Reads the results of the worker until the connection is closed.
+		 */
+		void readResults() {
+			try {
+				while (true) {
+					byte type;
+					try {
+						type = in.readByte();
+					} catch (SocketTimeoutException e) {
+						synchronized (lock) {
+							if (!alive)
+								return;
+							if (inFlight.isEmpty())
+								continue;
+						}
+						throw new IOException("No answer within the timeout");
+					}
+
+					if (type == RESULT) {
+						long batchId = in.readLong();
+						int count = in.readInt();
+						int recordLength = context.getNumNeurons() + PopulationArena.WEIGHTS;
+						double[] result = DistributedProtocol.readDoubles(in, count * (recordLength + 1));
+						complete(batchId, result, recordLength);
+					} else if (type == ERROR) {
+						long batchId = in.readLong();
+						throw new IOException("Batch " + batchId + " failed: " + in.readUTF());
+					} else {
+						throw new IOException("Unknown message " + type);
+					}
+				}
+			} catch (IOException e) {
+				synchronized (lock) {
+					if (alive && !closed) {
+						fail(describe(e));
+					}
+				}
+			}
+		}
+
+		/**
+		 * Stores the evaluated individuals in the population, unless the
+		 * batch was already completed by another worker.
+		 */
+		private void complete(long batchId, double[] result, int recordLength) {
+			synchronized (lock) {
+				Batch batch = batches.get(batchId);
+				if (batch != null) {
+					inFlight.remove(batch);
+				}
+				if (batch == null || batch.done) {
+					return;
+				}
+
+				for (int slot = batch.from; slot < batch.to; slot++) {
+					int offset = (slot - batch.from) * (recordLength + 1);
+					batch.population.setNextRecord(slot, result, offset);
+					batch.population.setNextFitness(slot, result[offset + recordLength]);
+				}
+				batch.done = true;
+				batches.remove(batchId);
+				for (WorkerConnection worker : batch.assigned) {
+					worker.inFlight.remove(batch);
+				}
+
+				completedBatches++;
+				completedBatchMillis += System.currentTimeMillis() - batch.sentAt;
+				lock.notifyAll();
+			}
+		}
+
+		/**
+		 * Removes the worker and sends its unfinished batches again. Must be
+		 * called with the lock. Closing the socket also ends a write which is
+		 * blocked by the worker.
+		 */
+		private void fail(String reason) {
+			alive = false;
+			stop();
+
+			int resubmitted = 0;
+			for (Batch batch : inFlight) {
+				batch.assigned.remove(this);
+				if (!batch.done && batch.assigned.isEmpty()) {
+					pending.addFirst(batch);
+					resubmitted++;
+				}
+			}
+			inFlight.clear();
+			resubmittedBatches += resubmitted;
+			System.err.println("Worker " + address + " lost (" + reason + "), " + resubmitted
+					+ " batch(es) are sent again");
+			lock.notifyAll();
+		}
+
+		private String describe(IOException e) {
+			return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+		}
+
+		/**
+		 * Ends the thread of the connection and closes the socket without
+		 * waiting for the messages which are not written yet.
+		 */
+		void stop() {
+			outgoing.clear();
+			outgoing.add(STOP);
+			closeSocket();
+		}
+
+		void closeSocket() {
+			try {
+				socket.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+}
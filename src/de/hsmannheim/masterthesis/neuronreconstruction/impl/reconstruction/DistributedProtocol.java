@@ -0,0 +1,91 @@
+/** DistributedProtocol.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Constants and helper methods of the binary protocol between the
+ * {@link DistributedEvaluator} (coordinator) and the {@link EvaluationWorker}s.
+ *
+ * <p />
+ * All values are written with {@link DataOutputStream}, i.e. big endian.
+ * After connecting, the coordinator sends the header and the data set once:
+ *
+ * <pre>
+ * int MAGIC, int VERSION
+ * UTF reconstruction mode, boolean batch evaluation, int batch size,
+ * UTF integration method, UTF precision
+ * int number of measures, (UTF class name, double weight) per measure
+ * double dt, int inputIdxAfterTuning, int time steps, int neurons
+ * double[time steps * neurons] inputs, double[time steps * neurons] voltages
+ * </pre>
+ *
+ * The worker answers with {@code int MAGIC, int threads}. Then the
+ * coordinator sends batches and the worker answers each batch with a result or
+ * an error, in any order:
+ *
+ * <pre>
+ * BATCH:    byte 1, long id, int neuron, long seed, int count,
+ *           double[count * record length] records
+ * RESULT:   byte 2, long id, int count,
+ *           double[count * (record length + 1)] records and fitness values
+ * SHUTDOWN: byte 3
+ * ERROR:    byte 4, long id, UTF message
+ * </pre>
+ *
+ * The records are those of {@link PopulationArena#copyNextRecord}. The
+ * individual i of a batch is evaluated with the random instance
+ * {@code new Random(seed + i)}.
+ *
+ * @author Leah Lackner
+ */
+final class DistributedProtocol {
+
+	static final int MAGIC = 0x4E524543;
+	static final int VERSION = 1;
+
+	static final byte BATCH = 1;
+	static final byte RESULT = 2;
+	static final byte SHUTDOWN = 3;
+	static final byte ERROR = 4;
+
+	private DistributedProtocol() {
+	}
+
+	static void writeDoubles(DataOutputStream out, double[] values) throws IOException {
+		for (double value : values) {
+			out.writeDouble(value);
+		}
+	}
+
+	static double[] readDoubles(DataInputStream in, int count) throws IOException {
+		double[] values = new double[count];
+		for (int i = 0; i < count; i++) {
+			values[i] = in.readDouble();
+		}
+		return values;
+	}
+
+	static void writeMatrix(DataOutputStream out, double[][] values) throws IOException {
+		for (double[] row : values) {
+			writeDoubles(out, row);
+		}
+	}
+
+	static double[][] readMatrix(DataInputStream in, int rows, int columns) throws IOException {
+		double[][] values = new double[rows][];
+		for (int i = 0; i < rows; i++) {
+			values[i] = readDoubles(in, columns);
+		}
+		return values;
+	}
+
+}
@@ -0,0 +1,237 @@
+/** EvaluationWorker.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction;
+
+import static de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.DistributedProtocol.BATCH;
+import static de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.DistributedProtocol.ERROR;
+import static de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.DistributedProtocol.MAGIC;
+import static de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.DistributedProtocol.RESULT;
+import static de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.DistributedProtocol.SHUTDOWN;
+import static de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.DistributedProtocol.VERSION;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.integration.IntegrationMethod;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.modes.ReconstructionMode;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.modes.ReconstructionModeAbstract;
+
+/**
+ * Evaluates the fitness values of individuals for a
+ * {@link DistributedEvaluator} on another machine or in another JVM. The
+ * worker listens on a port and receives the data set once per connection,
+ * then it evaluates the received batches with its own threads and sends the
+ * evaluated individuals back. See {@link DistributedProtocol} for the
+ * messages.
+ *
+ * <p />
+ * Usage: {@code EvaluationWorker [port [threads]]}. The port 0 chooses a free
+ * port, the chosen port is printed to the standard output.
+ *
+ * @author Leah Lackner
+ */
+public class EvaluationWorker {
+
+	public static final int DEFAULT_PORT = 7531;
+
+	private final ServerSocket serverSocket;
+	private final int threads;
+
+	/**
+	 * Opens the server socket of the worker.
+	 *
+	 * @param port
+	 *            The port of the worker, 0 for a free port
+	 * @param threads
+	 *            The number of threads which evaluate the batches of a
+	 *            coordinator
+	 * @throws IOException
+	 */
+	public EvaluationWorker(int port, int threads) throws IOException {
+		if (threads < 1) {
+			throw new IllegalArgumentException("The number of threads must be positive");
+		}
+		this.serverSocket = new ServerSocket(port);
+		this.threads = threads;
+	}
+
+	/**
+	 * @return The port of the worker
+	 */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Accepts connections of coordinators until the worker is closed. Each
+	 * connection is served by its own thread.
+	 */
+	public void run() {
+		while (!serverSocket.isClosed()) {
+			try {
+				Socket socket = serverSocket.accept();
+				Thread thread = new Thread(() -> serve(socket), "EvaluationWorker-" + socket.getPort());
+				thread.setDaemon(true);
+				thread.start();
+			} catch (IOException e) {
+				if (!serverSocket.isClosed()) {
+					System.err.println("Could not accept a connection: " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Closes the server socket, open connections are not affected.
+	 *
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		serverSocket.close();
+	}
+
+	/**
+	 * Serves the connection of one coordinator.
+	 */
+	private void serve(Socket socket) {
+		ExecutorService executor = null;
+		try (Socket s = socket;
+				DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()))) {
+			s.setTcpNoDelay(true);
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException("Unknown protocol");
+			}
+
+			// The data set and the settings of the evaluation
+			ReconstructionModeAbstract mode = ReconstructionMode.valueOf(in.readUTF()).getMode();
+			ReconstructionOptions options = new ReconstructionOptions();
+			options.setBatchEvaluation(in.readBoolean());
+			options.setBatchSize(in.readInt());
+			options.setIntegrationMethod(IntegrationMethod.valueOf(in.readUTF()));
+			options.setPrecision(Precision.valueOf(in.readUTF()));
+
+			// The measures are used in the same order as by the coordinator
+			int numMeasures = in.readInt();
+			Map<Class<?>, Double> measures = new LinkedHashMap<>();
+			for (int i = 0; i < numMeasures; i++) {
+				String className = in.readUTF();
+				try {
+					measures.put(Class.forName(className), in.readDouble());
+				} catch (ClassNotFoundException e) {
+					throw new IOException("Unknown measure " + className, e);
+				}
+			}
+
+			double dt = in.readDouble();
+			int inputIdxAfterTuning = in.readInt();
+			int timesteps = in.readInt();
+			int numNeurons = in.readInt();
+			double[][] inputs = DistributedProtocol.readMatrix(in, timesteps, numNeurons);
+			double[][] vs = DistributedProtocol.readMatrix(in, timesteps, numNeurons);
+			DatasetContext context = new DatasetContext(inputs, vs, dt, inputIdxAfterTuning);
+			GenerationEvaluator evaluator = new GenerationEvaluator(options, numNeurons);
+
+			out.writeInt(MAGIC);
+			out.writeInt(threads);
+			out.flush();
+
+			executor = Executors.newFixedThreadPool(threads);
+			while (true) {
+				byte type = in.readByte();
+				if (type == SHUTDOWN) {
+					break;
+				}
+				if (type != BATCH) {
+					throw new IOException("Unknown message " + type);
+				}
+
+				long batchId = in.readLong();
+				int neuronIdx = in.readInt();
+				long seed = in.readLong();
+				int count = in.readInt();
+				PopulationArena population = new PopulationArena(count, numNeurons, neuronIdx, false);
+				int recordLength = population.getRecordLength();
+				double[] records = DistributedProtocol.readDoubles(in, count * recordLength);
+				for (int i = 0; i < count; i++) {
+					population.addRecordToNext(records, i * recordLength);
+				}
+
+				executor.execute(() -> {
+					try {
+						evaluator.evaluate(mode, seed, population, 0, count, context, measures);
+
+						double[] result = new double[count * (recordLength + 1)];
+						for (int i = 0; i < count; i++) {
+							population.copyNextRecord(i, result, i * (recordLength + 1));
+							result[i * (recordLength + 1) + recordLength] = population.getNextFitness(i);
+						}
+						synchronized (out) {
+							out.writeByte(RESULT);
+							out.writeLong(batchId);
+							out.writeInt(count);
+							DistributedProtocol.writeDoubles(out, result);
+							out.flush();
+						}
+					} catch (RuntimeException e) {
+						sendError(socket, out, batchId, e);
+					} catch (IOException e) {
+						// the reading thread notices the closed connection
+						closeQuietly(socket);
+					}
+				});
+			}
+		} catch (IOException e) {
+			System.err.println("Connection to the coordinator lost: " + e.getMessage());
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+		}
+	}
+
+	private static void sendError(Socket socket, DataOutputStream out, long batchId, RuntimeException error) {
+		try {
+			synchronized (out) {
+				out.writeByte(ERROR);
+				out.writeLong(batchId);
+				out.writeUTF(String.valueOf(error));
+				out.flush();
+			}
+		} catch (IOException e) {
+			closeQuietly(socket);
+		}
+	}
+
+	private static void closeQuietly(Socket socket) {
+		try {
+			socket.close();
+		} catch (IOException e) {
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+		EvaluationWorker worker = new EvaluationWorker(port, threads);
+		System.out.println("Evaluation worker listening on port " + worker.getPort());
+		System.out.flush();
+		worker.run();
+	}
+
+}
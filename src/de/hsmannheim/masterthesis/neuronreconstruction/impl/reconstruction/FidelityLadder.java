@@ -0,0 +1,194 @@
+/** FidelityLadder.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction;
+
+/**
+ * Evaluates the next generation of a population by successive halving over
+ * the length of the measured data.
+ *
+ * <p />
+ * The individuals are first evaluated with a short section of the data
+ * around the tuning index: The u variable is tuned with the last part of the
+ * tuning data and the model is compared with the first part of the data after
+ * it (see {@link DatasetContext#getSection(int, int)}). Both parts are halved
+ * for each level below the last level, so the costs of the lowest levels are
+ * only a fraction of a complete evaluation. Only the best fraction of the
+ * individuals of a level is promoted to the next level, up to the last level,
+ * which uses the whole data. The copies of the best individuals of the current
+ * generation are always promoted, so they keep their exact fitness values.
+ *
+ * <p />
+ * Each level evaluates the original records of its individuals (i.e. the
+ * inherited states and weights), so the results of the last level are the
+ * same as without the lower levels, except for the random instances of
+ * invalid individuals. The individuals which did not reach the last level
+ * keep the result of their last level and are marked as aborted, so they are
+ * ranked after all completely evaluated individuals.
+ *
+ * <p />
+ * An instance belongs to one population and must not be used by several
+ * threads at once.
+ *
+ * @author Leah Lackner
+ */
+class FidelityLadder {
+
+	/**
+	 * Evaluates the whole next generation of an arena.
+	 */
+	interface Evaluation {
+
+		/**
+		 * @param seed
+		 *            The seed of the evaluation
+		 * @param arena
+		 *            The arena, whose next generation is evaluated
+		 * @param context
+		 *            The data of the fidelity level
+		 */
+		void evaluate(long seed, PopulationArena arena, DatasetContext context);
+	}
+
+	/**
+	 * The sections of the data of each level, the last level uses the whole
+	 * data
+	 */
+	private final DatasetContext[] contexts;
+	private final double promotion;
+
+	/**
+	 * The arena in which the individuals of a level are evaluated
+	 */
+	private PopulationArena staging;
+
+	/**
+	 * The original records of the next generation
+	 */
+	private double[] records;
+	private double[] record;
+
+	/**
+	 * The number of evaluations per level of the last evaluated generation
+	 */
+	private final int[] evaluated;
+
+	/**
+	 * @param context
+	 *            The measured data
+	 * @param levels
+	 *            The number of fidelity levels
+	 * @param promotion
+	 *            The fraction of the individuals of a level which are
+	 *            promoted to the next level, in (0, 1]
+	 */
+	FidelityLadder(DatasetContext context, int levels, double promotion) {
+		if (levels < 1) {
+			throw new IllegalArgumentException("At least one fidelity level is needed");
+		}
+		contexts = new DatasetContext[levels];
+		int tuning = context.getInputIdxAfterTuning();
+		int evaluation = context.getTimesteps() - tuning;
+		for (int level = 0; level < levels; level++) {
+			int shift = Math.min(levels - 1 - level, 30);
+			contexts[level] = context.getSection(Math.min(tuning, Math.max(2, tuning >> shift)),
+					Math.min(evaluation, Math.max(2, evaluation >> shift)));
+		}
+		this.promotion = promotion;
+		evaluated = new int[levels];
+	}
+
+	/**
+	 * Evaluates the next generation of a population level by level. The
+	 * population is not swapped.
+	 *
+	 * @param population
+	 *            The population, whose next generation is evaluated
+	 * @param protectedSlots
+	 *            The number of slots at the beginning of the next generation
+	 *            which are always promoted
+	 * @param seed
+	 *            The seed of the generation
+	 * @param evaluation
+	 *            The evaluation of the individuals of a level
+	 */
+	void evaluate(PopulationArena population, int protectedSlots, long seed, Evaluation evaluation) {
+		int size = population.nextSize();
+		int recordLength = population.getRecordLength();
+		if (staging == null || records.length < size * recordLength) {
+			staging = new PopulationArena(size, population.getNumNeurons(), population.getNeuronIndex(), false);
+			records = new double[size * recordLength];
+			record = new double[recordLength];
+		}
+		for (int slot = 0; slot < size; slot++) {
+			population.copyNextRecord(slot, records, slot * recordLength);
+		}
+
+		int[] candidates = new int[size];
+		for (int slot = 0; slot < size; slot++) {
+			candidates[slot] = slot;
+		}
+		int count = size;
+		for (int level = 0; level < contexts.length; level++) {
+			boolean last = level == contexts.length - 1;
+			evaluated[level] = count;
+
+			staging.clearNext();
+			for (int k = 0; k < count; k++) {
+				staging.addRecordToNext(records, candidates[k] * recordLength);
+			}
+			staging.setEvaluationCutoff(last ? population.getEvaluationCutoff() : Double.POSITIVE_INFINITY);
+			evaluation.evaluate(seed, staging, contexts[level]);
+
+			for (int k = 0; k < count; k++) {
+				staging.copyNextRecord(k, record, 0);
+				population.setNextRecord(candidates[k], record, 0);
+				population.setNextFitness(candidates[k], staging.getNextFitness(k));
+				population.setNextAborted(candidates[k], !last || staging.isNextAborted(k));
+			}
+			if (!last) {
+				count = promote(candidates, count, protectedSlots);
+			}
+		}
+	}
+
+	/**
+	 * Keeps the best fraction and the protected slots of the candidates of the
+	 * staging arena, in the order of their slots.
+	 *
+	 * @return The number of promoted candidates
+	 */
+	private int promote(int[] candidates, int count, int protectedSlots) {
+		boolean[] promoted = new boolean[count];
+		staging.selectBestNext(Math.max(1, (int) Math.ceil(count * promotion)), promoted);
+		int promotedCount = 0;
+		for (int k = 0; k < count; k++) {
+			if (promoted[k] || candidates[k] < protectedSlots) {
+				candidates[promotedCount++] = candidates[k];
+			}
+		}
+		return promotedCount;
+	}
+
+	/**
+	 * The number of evaluated individuals and the length of the data of each
+	 * level of the last evaluated generation.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int level = 0; level < contexts.length; level++) {
+			if (level > 0) {
+				sb.append(';');
+			}
+			sb.append("level").append(level).append('=').append(evaluated[level]).append('x')
+					.append(contexts[level].getTimesteps());
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,242 @@
+/** FitnessCache.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache for the results of the fitness evaluation, so that individuals
+ * which were already evaluated (e.g. the survivors of the last generation or
+ * duplicates produced by the crossover) are not simulated again.
+ *
+ * <p />
+ * The key of an individual contains all values which are read by the
+ * evaluation: the index of the neuron, the parameters a, b, c, d, p1 - p4, the
+ * start value of u and the inherited weights, which are used during the tuning
+ * of u. The value is the evaluated record (tuned u, v and reconstructed
+ * weights) together with the fitness value, so a cached result is exactly the
+ * same as a new evaluation.
+ *
+ * <p />
+ * The cache is split into segments, each of which evicts its least recently
+ * used entries when it is full. The segments are locked independently, so the
+ * cache can be used by several threads at once.
+ *
+ * @author Leah Lackner
+ */
+class FitnessCache {
+
+	private static final int SEGMENTS = 16;
+
+	private final Segment[] segments;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * @param capacity
+	 *            The maximum number of cached individuals
+	 */
+	FitnessCache(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("The capacity of the cache must be positive");
+		}
+		segments = new Segment[SEGMENTS];
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment(Math.max(1, (capacity + SEGMENTS - 1) / SEGMENTS));
+		}
+	}
+
+	/**
+	 * Creates the key of an individual.
+	 *
+	 * @param neuronIdx
+	 *            The index of the neuron
+	 * @param record
+	 *            The record of the individual before the evaluation (see
+	 *            {@link PopulationArena#copyNextRecord})
+	 * @return The key
+	 */
+	static Key createKey(int neuronIdx, double[] record) {
+		// u and v are overwritten by the evaluation
+		long[] bits = new long[record.length - 2];
+		int k = 0;
+		for (int field = 0; field < record.length; field++) {
+			if (field != PopulationArena.U && field != PopulationArena.V) {
+				bits[k++] = Double.doubleToLongBits(record[field]);
+			}
+		}
+		return new Key(neuronIdx, bits);
+	}
+
+	/**
+	 * @param key
+	 *            The key of the individual
+	 * @return The evaluated record followed by the fitness value, or null if
+	 *         the individual is not cached. The array must not be modified.
+	 */
+	double[] get(Key key) {
+		double[] result = segmentOf(key).get(key);
+		if (result == null) {
+			misses.increment();
+		} else {
+			hits.increment();
+		}
+		return result;
+	}
+
+	/**
+	 * @param key
+	 *            The key of the individual
+	 * @param result
+	 *            The evaluated record followed by the fitness value. The array
+	 *            is stored and must not be modified afterwards.
+	 */
+	void put(Key key, double[] result) {
+		segmentOf(key).put(key, result);
+	}
+
+	private Segment segmentOf(Key key) {
+		return segments[(key.hash ^ (key.hash >>> 16)) & (SEGMENTS - 1)];
+	}
+
+	/**
+	 * @return The number of lookups which found a result
+	 */
+	long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return The number of lookups which did not find a result
+	 */
+	long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return The ratio of the successful lookups to all lookups
+	 */
+	double getHitRate() {
+		long hits = getHits();
+		long lookups = hits + getMisses();
+		return lookups == 0 ? 0 : hits / (double) lookups;
+	}
+
+	/**
+	 * @return The number of results which were removed because the cache was
+	 *         full
+	 */
+	long getEvictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * @return The number of cached results
+	 */
+	int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "hits=%d;misses=%d;hitRate=%.4f;evictions=%d;size=%d", getHits(),
+				getMisses(), getHitRate(), getEvictions(), size());
+	}
+
+	/**
+	 * The key of an individual, see {@link FitnessCache#createKey}.
+	 */
+	static final class Key {
+
+		private final int neuronIdx;
+		private final long[] bits;
+		private final int hash;
+
+		private Key(int neuronIdx, long[] bits) {
+			this.neuronIdx = neuronIdx;
+			this.bits = bits;
+			this.hash = 31 * neuronIdx + Arrays.hashCode(bits);
+		}
+
+		/**
+		 * @param record
+		 *            The record of the individual after the evaluation
+		 * @return true if the parameters of the record are those of the key,
+		 *         i.e. the individual was not replaced during the evaluation
+		 */
+		boolean hasParametersOf(double[] record) {
+			for (int field = PopulationArena.A; field <= PopulationArena.P4; field++) {
+				if (bits[field] != Double.doubleToLongBits(record[field]))
+					return false;
+			}
+			return true;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return hash == other.hash && neuronIdx == other.neuronIdx && Arrays.equals(bits, other.bits);
+		}
+	}
+
+	/**
+	 * A part of the cache with its own lock and LRU order.
+	 */
+	private class Segment extends LinkedHashMap<Key, double[]> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int capacity;
+
+		Segment(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		public synchronized double[] get(Object key) {
+			return super.get(key);
+		}
+
+		@Override
+		public synchronized double[] put(Key key, double[] value) {
+			return super.put(key, value);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, double[]> eldest) {
+			if (size() > capacity) {
+				evictions.increment();
+				return true;
+			}
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,257 @@
+/** FloatPopulationKernel.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction;
+
+import static de.hsmannheim.masterthesis.neuronreconstruction.impl.model.ValueBorders.SPIKE_RESET;
+
+import java.util.Map;
+
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.SpikeEvents;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.spikecomparison.SpikeTrainComparator;
+
+/**
+ * Evaluates a block of individuals of one generation at once with single
+ * precision (see {@link AbstractPopulationKernel}).
+ *
+ * <p />
+ * The parameters, the states, the weights and the simulated traces of the
+ * lanes are stored as float values and the model equations are calculated
+ * with single precision. Therefore twice as many lanes fit into a vector
+ * register and only half of the memory is transferred per time step. The
+ * weight estimation and the fitness evaluation are still done with double
+ * precision.
+ *
+ * <p />
+ * The results differ slightly from those of the {@link PopulationKernel}. The
+ * differences can be checked with the {@link PrecisionValidation}.
+ *
+ * @author Leah Lackner
+ */
+public class FloatPopulationKernel extends AbstractPopulationKernel {
+
+	private final float[] a;
+	private final float[] b;
+	private final float[] c;
+	private final float[] d;
+	private final float[] p1;
+	private final float[] p2;
+	private final float[] p3;
+	private final float[] p4;
+
+	private final float[] v;
+	private final float[] u;
+	private final float[] tunedU;
+	private final float[] synapticInput;
+
+	/**
+	 * The weights of all lanes. The weight from the neuron {@code pre} of the
+	 * lane {@code lane} is stored at {@code weights[pre * capacity + lane]}.
+	 */
+	private final float[] weights;
+
+	/**
+	 * The data of the current evaluation
+	 */
+	private float[] voltageTrace;
+	private float[] inputTrace;
+	private float dt;
+
+	/**
+	 * Buffers which are reused by all evaluations of the kernel.
+	 */
+	private float[][] modelPotentialsSingleStep;
+	private float[][] modelPotentials;
+	private double[] modelPotentialsDouble;
+	private double[] modelPotentialsSingleStepDouble;
+
+	/**
+	 * Creates a kernel for the given number of individuals.
+	 *
+	 * @param capacity
+	 *            The maximum number of individuals which are evaluated at once
+	 * @param numNeurons
+	 *            The number of all neurons in the network
+	 */
+	public FloatPopulationKernel(int capacity, int numNeurons) {
+		super(capacity, numNeurons);
+
+		a = new float[capacity];
+		b = new float[capacity];
+		c = new float[capacity];
+		d = new float[capacity];
+		p1 = new float[capacity];
+		p2 = new float[capacity];
+		p3 = new float[capacity];
+		p4 = new float[capacity];
+
+		v = new float[capacity];
+		u = new float[capacity];
+		tunedU = new float[capacity];
+		synapticInput = new float[capacity];
+
+		weights = new float[capacity * numNeurons];
+	}
+
+	@Override
+	protected void loadData(DatasetContext context, int neuronIdx) {
+		voltageTrace = context.getVoltageTraceFloat(neuronIdx);
+		inputTrace = context.getInputTraceFloat(neuronIdx);
+		dt = (float) context.getDt();
+	}
+
+	@Override
+	protected void allocateModelTraces(int length) {
+		modelPotentialsSingleStep = new float[capacity][length];
+		modelPotentials = new float[capacity][length];
+		modelPotentialsDouble = new double[length];
+		modelPotentialsSingleStepDouble = new double[length];
+	}
+
+	@Override
+	protected void load(int lane, PopulationArena arena, int slot) {
+		a[lane] = (float) arena.getNext(slot, PopulationArena.A);
+		b[lane] = (float) arena.getNext(slot, PopulationArena.B);
+		c[lane] = (float) arena.getNext(slot, PopulationArena.C);
+		d[lane] = (float) arena.getNext(slot, PopulationArena.D);
+		p1[lane] = (float) arena.getNext(slot, PopulationArena.P1);
+		p2[lane] = (float) arena.getNext(slot, PopulationArena.P2);
+		p3[lane] = (float) arena.getNext(slot, PopulationArena.P3);
+		p4[lane] = (float) arena.getNext(slot, PopulationArena.P4);
+		for (int pre = 0; pre < numNeurons; pre++) {
+			weights[pre * capacity + lane] = (float) arena.getNext(slot, PopulationArena.WEIGHTS + pre);
+		}
+	}
+
+	@Override
+	protected double getU(int lane) {
+		return u[lane];
+	}
+
+	@Override
+	protected void setU(int lane, double value) {
+		u[lane] = (float) value;
+	}
+
+	@Override
+	protected void storeTunedU(int lane) {
+		tunedU[lane] = u[lane];
+	}
+
+	@Override
+	protected void restoreTunedU() {
+		System.arraycopy(tunedU, 0, u, 0, lanes);
+	}
+
+	@Override
+	protected void setMeasuredVoltage(int i) {
+		fill(v, voltageTrace[i]);
+	}
+
+	/**
+	 * Calculates all lanes for one time step with single precision.
+	 */
+	@Override
+	protected void step(int i, SpikeEvents presynapticSpikes, int t) {
+		fill(synapticInput, inputTrace[i]);
+
+		int[] spikingNeurons = presynapticSpikes.getNeurons();
+		for (int k = presynapticSpikes.getStart(t), end = presynapticSpikes.getEnd(t); k < end; k++) {
+			int column = spikingNeurons[k] * capacity;
+			for (int l = 0; l < lanes; l++) {
+				synapticInput[l] += weights[column + l];
+			}
+		}
+
+		for (int l = 0; l < lanes; l++) {
+			float vl = v[l];
+			float ul = u[l];
+			float h = 1.0f / (1.0f - (float) Math.exp(10000 * (SPIKE_RESET - vl)));
+			float v1 = vl * (1.0f - h) + c[l] * h;
+			float u1 = ul + d[l] * h;
+
+			v[l] = v1 + dt * (p1[l] * v1 * v1 + p2[l] * v1 + p3[l] - u1 + p4[l] * synapticInput[l]);
+			u[l] = u1 + dt * (a[l] * (b[l] * v1 - u1));
+		}
+	}
+
+	@Override
+	protected void recordSingleStep(int j) {
+		for (int l = 0; l < lanes; l++) {
+			modelPotentialsSingleStep[l][j] = v[l];
+		}
+	}
+
+	@Override
+	protected void record(int j) {
+		for (int l = 0; l < lanes; l++) {
+			modelPotentials[l][j] = v[l];
+		}
+	}
+
+	@Override
+	protected double addSquaredErrors(int lane, double sum, double[] realPotentials, int from, int to,
+			boolean singleStep) {
+		float[] trace = singleStep ? modelPotentialsSingleStep[lane] : modelPotentials[lane];
+		for (int k = from; k < to; k++) {
+			double error = realPotentials[k] - trace[k];
+			sum += error * error;
+		}
+		return sum;
+	}
+
+	/**
+	 * The traces are converted to double values for the comparison.
+	 */
+	@Override
+	protected double compareSpikeTrains(int lane, double[] realPotentials, double dt,
+			Map<Class<?>, Double> measures) {
+		float[] potentials = modelPotentials[lane];
+		float[] potentialsSingleStep = modelPotentialsSingleStep[lane];
+		for (int j = 0; j < potentials.length; j++) {
+			modelPotentialsDouble[j] = potentials[j];
+			modelPotentialsSingleStepDouble[j] = potentialsSingleStep[j];
+		}
+		return SpikeTrainComparator.compareSpikeTrains(realPotentials, modelPotentialsDouble,
+				modelPotentialsSingleStepDouble, dt, measures);
+	}
+
+	@Override
+	protected void moveLane(int lane, int last) {
+		a[lane] = a[last];
+		b[lane] = b[last];
+		c[lane] = c[last];
+		d[lane] = d[last];
+		p1[lane] = p1[last];
+		p2[lane] = p2[last];
+		p3[lane] = p3[last];
+		p4[lane] = p4[last];
+		v[lane] = v[last];
+		u[lane] = u[last];
+		tunedU[lane] = tunedU[last];
+		for (int pre = 0; pre < numNeurons; pre++) {
+			weights[pre * capacity + lane] = weights[pre * capacity + last];
+		}
+
+		float[] tmp = modelPotentials[lane];
+		modelPotentials[lane] = modelPotentials[last];
+		modelPotentials[last] = tmp;
+		tmp = modelPotentialsSingleStep[lane];
+		modelPotentialsSingleStep[lane] = modelPotentialsSingleStep[last];
+		modelPotentialsSingleStep[last] = tmp;
+	}
+
+	/**
+	 * Set the value for all used lanes of the given state array.
+	 */
+	private void fill(float[] state, float value) {
+		for (int l = 0; l < lanes; l++) {
+			state[l] = value;
+		}
+	}
+
+}
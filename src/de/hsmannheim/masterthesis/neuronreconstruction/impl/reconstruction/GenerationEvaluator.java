@@ -0,0 +1,170 @@
+/** GenerationEvaluator.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction;
+
+import java.util.Map;
+import java.util.Random;
+
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.integration.IntegrationMethod;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.integration.Integrator;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.modes.ReconstructionModeAbstract;
+
+/**
+ * Evaluates the individuals of the next generation of a
+ * {@link PopulationArena} in the calling thread, either in blocks by the
+ * population kernels or one by one by {@link Individual#recalculate}, as
+ * configured by the {@link ReconstructionOptions}.
+ *
+ * <p />
+ * The kernels are created once for each thread and reused, so an instance can
+ * be used by several threads at once.
+ *
+ * <p />
+ * If the fitness cache is enabled, the individuals which were already
+ * evaluated are taken from the {@link FitnessCache}. Only the remaining
+ * individuals are evaluated, each with the random instance of its slot, so the
+ * results are the same as without the cache.
+ *
+ * @author Leah Lackner
+ */
+class GenerationEvaluator {
+
+	private final ReconstructionOptions options;
+
+	/**
+	 * The kernels of the worker threads for the batch evaluation
+	 */
+	private final ThreadLocal<PopulationKernel> kernels;
+	private final ThreadLocal<FloatPopulationKernel> floatKernels;
+
+	/**
+	 * The cache of the evaluated individuals, null if it is disabled
+	 */
+	private final FitnessCache cache;
+
+	/**
+	 * @param options
+	 *            The options of the reconstruction
+	 * @param numNeurons
+	 *            The number of all neurons in the network
+	 */
+	GenerationEvaluator(ReconstructionOptions options, int numNeurons) {
+		this.options = options;
+		kernels = ThreadLocal.withInitial(() -> new PopulationKernel(options.getBatchSize(), numNeurons));
+		floatKernels = ThreadLocal.withInitial(() -> new FloatPopulationKernel(options.getBatchSize(), numNeurons));
+		cache = options.getFitnessCacheSize() > 0 ? new FitnessCache(options.getFitnessCacheSize()) : null;
+	}
+
+	/**
+	 * @return The cache of the evaluated individuals, null if it is disabled
+	 */
+	FitnessCache getCache() {
+		return cache;
+	}
+
+	/**
+	 * Evaluates the individuals of the next generation from the slot
+	 * {@code from} (inclusive) to the slot {@code to} (exclusive) in the
+	 * current thread. The individual of slot i uses the random instance
+	 * {@code new Random(seed + i)} in both kinds of evaluation.
+	 *
+	 * @param mode
+	 *            The used parameter set
+	 * @param seed
+	 *            The seed of the generation
+	 * @param population
+	 *            The population of the Genetic Algorithm
+	 * @param from
+	 *            The first slot
+	 * @param to
+	 *            The slot after the last slot
+	 * @param context
+	 *            The measured data and the values derived from it
+	 * @param measures
+	 *            Map containing the measures to be used in the fitness
+	 *            evaluation along with their assigned weight values
+	 */
+	void evaluate(ReconstructionModeAbstract mode, long seed, PopulationArena population, int from, int to,
+			DatasetContext context, Map<Class<?>, Double> measures) {
+		// The results of a section of the data are not comparable with the
+		// cached results
+		if (cache == null || context.isSection()) {
+			evaluateAll(mode, seed, population, from, to, context, measures);
+			return;
+		}
+
+		// Take the known individuals from the cache
+		int recordLength = population.getRecordLength();
+		double[] record = new double[recordLength];
+		FitnessCache.Key[] keys = new FitnessCache.Key[to - from];
+		for (int slot = from; slot < to; slot++) {
+			population.copyNextRecord(slot, record, 0);
+			FitnessCache.Key key = FitnessCache.createKey(population.getNeuronIndex(), record);
+			double[] cached = cache.get(key);
+			if (cached != null) {
+				population.setNextRecord(slot, cached, 0);
+				population.setNextFitness(slot, cached[recordLength]);
+			} else {
+				keys[slot - from] = key;
+			}
+		}
+
+		// Evaluate the consecutive slots which are not cached
+		int runFrom = -1;
+		for (int slot = from; slot <= to; slot++) {
+			boolean missing = slot < to && keys[slot - from] != null;
+			if (missing && runFrom < 0) {
+				runFrom = slot;
+			} else if (!missing && runFrom >= 0) {
+				evaluateAll(mode, seed, population, runFrom, slot, context, measures);
+				runFrom = -1;
+			}
+		}
+
+		// Individuals which were replaced because of an invalid fitness value
+		// depend on the random instance of their slot and are not cached,
+		// neither are individuals whose evaluation was aborted
+		for (int slot = from; slot < to; slot++) {
+			FitnessCache.Key key = keys[slot - from];
+			if (key == null || population.isNextAborted(slot))
+				continue;
+			double[] result = new double[recordLength + 1];
+			population.copyNextRecord(slot, result, 0);
+			result[recordLength] = population.getNextFitness(slot);
+			if (Double.isFinite(result[recordLength]) && key.hasParametersOf(result)) {
+				cache.put(key, result);
+			}
+		}
+	}
+
+	/**
+	 * Evaluates all individuals of the given slots without the cache.
+	 */
+	private void evaluateAll(ReconstructionModeAbstract mode, long seed, PopulationArena population, int from,
+			int to, DatasetContext context, Map<Class<?>, Double> measures) {
+		if (options.isBatchEvaluation() && options.getIntegrationMethod() == IntegrationMethod.EULER) {
+			int batchSize = options.getBatchSize();
+			for (int blockFrom = from; blockFrom < to; blockFrom += batchSize) {
+				int blockTo = Math.min(blockFrom + batchSize, to);
+				if (options.getPrecision() == Precision.SINGLE) {
+					floatKernels.get().evaluate(population, blockFrom, blockTo, mode, seed, context, measures);
+				} else {
+					kernels.get().evaluate(population, blockFrom, blockTo, mode, seed, context, measures);
+				}
+			}
+		} else {
+			Integrator integrator = options.getIntegrationMethod().getIntegrator();
+			for (int slot = from; slot < to; slot++) {
+				Individual ind = new Individual(population.toNextModel(slot));
+				ind.recalculate(mode, new Random(seed + slot), context, integrator, measures);
+				population.storeNext(slot, ind.getModel(), ind.getFitness());
+			}
+		}
+	}
+
+}
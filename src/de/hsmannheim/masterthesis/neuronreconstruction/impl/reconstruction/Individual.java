@@ -11,6 +11,9 @@ import java.util.Map;
 import java.util.Random;
 
 import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.Model;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.SpikeEvents;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.integration.IntegrationMethod;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.integration.Integrator;
 import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.modes.ReconstructionModeAbstract;
 import de.hsmannheim.masterthesis.neuronreconstruction.impl.spikecomparison.SpikeTrainComparator;
 
@@ -70,52 +73,23 @@ public class Individual implements Comparable<Individual> {
 	 */
 	public void recalculate(ReconstructionModeAbstract mode, Random r, double[][] inputs, double[][] vs, double dt,
 			int inputIdxAfterTuning, Map<Class<?>, Double> measures) {
-		while (true) {
-			model = IndividualReconstructionData.reconstructValuesOfModel(this, r, inputs, vs, dt, inputIdxAfterTuning);
-
-			// Various intermediate results are computed.
-			// This is done because otherwise each error function would have to
-			// compute these results by itself, which would increase the overall
-			// reconstruction time.
-
-			// Store the input and voltage values without the values of the
-			// u-tuning
-			double[] realPotentials = new double[vs.length - inputIdxAfterTuning];
-			double[] realInputs = new double[inputs.length - inputIdxAfterTuning];
-			for (int i = inputIdxAfterTuning, j = 0; i < inputs.length; i++, j++) {
-				realPotentials[j] = vs[i][model.neuronIndex];
-				realInputs[j] = inputs[i][model.neuronIndex];
-			}
-
-			// calculate the single step changes
-			double[] modelPotentialsSingleStep = new double[realPotentials.length];
-			modelPotentialsSingleStep[0] = realPotentials[0];
-
-			Model model = new Model(this.model);
-			for (int i = inputIdxAfterTuning, j = 0; i < inputs.length; i++, j++) {
-				model.v = vs[i][model.neuronIndex];
-				model.calculateNetwork(dt, vs[i - 1], inputs[i][model.neuronIndex]);
-
-				modelPotentialsSingleStep[j] = model.v;
-			}
-
-			// compute the whole simulation
-			double[] modelPotentials = new double[realPotentials.length];
-			modelPotentials[0] = realPotentials[0];
-
-			model = new Model(this.model);
-			model.v = realPotentials[0];
-			for (int i = inputIdxAfterTuning, j = 0; i < inputs.length; i++, j++) {
-				model.calculateNetwork(dt, vs[i - 1], inputs[i][model.neuronIndex]);
-
-				modelPotentials[j] = model.v;
-			}
+		// The values derived from the measured data are the same for all
+		// simulations of the individual, so they have to be computed only once.
+		recalculate(mode, r, new DatasetContext(inputs, vs, dt, inputIdxAfterTuning),
+				IntegrationMethod.EULER.getIntegrator(), measures);
+	}
 
-			// Calculate the fitness value
-			// In order to do this all the intermediate results of the spike
-			// trains are handed over to the spike comparison function.
-			fitness = SpikeTrainComparator.compareSpikeTrains(realPotentials, modelPotentials,
-					modelPotentialsSingleStep, dt, measures);
+	/**
+	 * Recalculate the individual with the shared data of the reconstruction
+	 * and the given integrator.
+	 * 
+	 * @see #recalculate(ReconstructionModeAbstract, Random, double[][],
+	 *      double[][], double, int, Map)
+	 */
+	void recalculate(ReconstructionModeAbstract mode, Random r, DatasetContext context, Integrator integrator,
+			Map<Class<?>, Double> measures) {
+		while (true) {
+			calculateFitness(r, context, integrator, measures);
 			// Replace the individual if it is invalid in regard to the
 			// individual validation
 			if (Double.isFinite(fitness)) {
@@ -126,6 +100,97 @@ public class Individual implements Comparable<Individual> {
 		}
 	}
 
+	/**
+	 * Reconstructs the model and calculates its fitness value once. In
+	 * contrast to {@link #recalculate} the model is not replaced if the
+	 * fitness value is infinite.
+	 * 
+	 * @param r
+	 *            the random instance
+	 * @param context
+	 *            the measured data and the values derived from it
+	 * @param integrator
+	 *            the integrator used for the simulations
+	 * @param measures
+	 *            The measures used for the fitness evaluation
+	 */
+	void calculateFitness(Random r, DatasetContext context, Integrator integrator, Map<Class<?>, Double> measures) {
+		double[][] inputs = context.getInputs();
+		double[][] vs = context.getVs();
+		double dt = context.getDt();
+		int inputIdxAfterTuning = context.getInputIdxAfterTuning();
+		SpikeEvents presynapticSpikes = context.getPresynapticSpikes();
+
+		model = IndividualReconstructionData.reconstructValuesOfModel(this, r, context, integrator);
+
+		// Various intermediate results are computed.
+		// This is done because otherwise each error function would have to
+		// compute these results by itself, which would increase the overall
+		// reconstruction time.
+
+		// Store the input and voltage values without the values of the
+		// u-tuning
+		double[] realPotentials = new double[vs.length - inputIdxAfterTuning];
+		double[] networkInputs = new double[inputs.length - inputIdxAfterTuning];
+		for (int i = inputIdxAfterTuning, j = 0; i < inputs.length; i++, j++) {
+			realPotentials[j] = vs[i][model.neuronIndex];
+			networkInputs[j] = model.getNetworkInput(presynapticSpikes, i - 1, inputs[i][model.neuronIndex]);
+		}
+
+		// calculate the single step changes
+		double[] modelPotentialsSingleStep = new double[realPotentials.length];
+		modelPotentialsSingleStep[0] = realPotentials[0];
+
+		Model model = new Model(this.model);
+		for (int i = inputIdxAfterTuning, j = 0; i < inputs.length; i++, j++) {
+			model.v = vs[i][model.neuronIndex];
+			integrator.step(model, dt, networkInputs[j]);
+
+			modelPotentialsSingleStep[j] = model.v;
+		}
+
+		// compute the whole simulation
+		double[] modelPotentials = new double[realPotentials.length];
+		modelPotentials[0] = realPotentials[0];
+
+		// The integrator resamples the result onto the time grid of the
+		// measured data
+		model = new Model(this.model);
+		model.v = realPotentials[0];
+		integrator.integrate(model, dt, networkInputs, modelPotentials);
+
+		// Calculate the fitness value
+		// In order to do this all the intermediate results of the spike
+		// trains are handed over to the spike comparison function.
+		fitness = SpikeTrainComparator.compareSpikeTrains(realPotentials, modelPotentials, modelPotentialsSingleStep,
+				dt, measures);
+	}
+
+	/**
+	 * Set the result of a recalculation which was done outside of the
+	 * individual, e.g. by the {@link PopulationKernel}.
+	 * 
+	 * @param model
+	 *            the reconstructed model
+	 * @param fitness
+	 *            the fitness of the reconstructed model
+	 */
+	void setResult(Model model, double fitness) {
+		this.model = model;
+		this.fitness = fitness;
+	}
+
+	/**
+	 * Replace the internal model, e.g. because the old model yielded infinite
+	 * results.
+	 * 
+	 * @param model
+	 *            the new model
+	 */
+	void replaceModel(Model model) {
+		this.model = model;
+	}
+
 	/**
 	 * @return return the internal neuron model of the individual
 	 */
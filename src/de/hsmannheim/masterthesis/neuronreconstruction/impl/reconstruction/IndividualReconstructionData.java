@@ -10,7 +10,8 @@ package de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction;
 import java.util.Random;
 
 import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.Model;
-import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.ValueBorders;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.SpikeEvents;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.integration.Integrator;
 import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.math.GaussianElimination;
 
 /**
@@ -23,54 +24,72 @@ public class IndividualReconstructionData {
 	private Model model;
 	@SuppressWarnings("unused")
 	private Random r;
+	private DatasetContext context;
 	private double[][] inputs;
 	private double[][] vs;
+	private Integrator integrator;
 	private double dt;
 	private int inputIdxAfterTuning;
 
-	private double[][] isSpike;
 	private double[] uGuess;
 	private double[] vFactorGuess;
 
-	private double spikeval = ValueBorders.SPIKE_RESET;
+	public static Model reconstructValuesOfModel(Individual individual, Random r, DatasetContext context,
+			Integrator integrator) {
+		// The model is copied once, all further steps work on the copy
+		IndividualReconstructionData reconstr = new IndividualReconstructionData(new Model(individual.getModel()), r,
+				context, integrator, true);
+		return reconstr.model;
+	}
 
-	public static Model reconstructValuesOfModel(Individual individual, Random r, double[][] inputs, double[][] vs,
-			double dt, int inputIdxAfterTuning) {
-		IndividualReconstructionData reconstr = new IndividualReconstructionData(new Individual(individual), r, inputs,
-				vs, dt, inputIdxAfterTuning);
+	/**
+	 * Reconstructs the weights of a model for which the tuning of the u
+	 * variable was already done, e.g. by the {@link PopulationKernel}.
+	 * 
+	 * @param tunedModel
+	 *            The model with the tuned u and v values. The weights of this
+	 *            model instance are overwritten.
+	 * @param context
+	 *            the measured data and the values derived from it
+	 * 
+	 * @return The model with the reconstructed weights
+	 */
+	public static Model reconstructWeightsOfTunedModel(Model tunedModel, DatasetContext context) {
+		IndividualReconstructionData reconstr = new IndividualReconstructionData(tunedModel, null, context, null,
+				false);
 		return reconstr.model;
 	}
 
 	/**
-	 * Initialises the reconstruction data for the given individual and the
-	 * given data sets.
+	 * Initialises the reconstruction data for the given model and the given
+	 * data sets.
 	 * 
-	 * @param individual
-	 *            The individual containing the model
+	 * @param model
+	 *            The model to be reconstructed
 	 * @param r
 	 *            The random instance
-	 * @param inputs
-	 *            the input values (currents)
-	 * @param vs
-	 *            the voltage values
-	 * @param dt
-	 *            the dt value for the solving of the differential equations
-	 * @param inputIdxAfterTuning
-	 *            the index at which the input data is split apart.
+	 * @param context
+	 *            the measured data and the values derived from it
+	 * @param integrator
+	 *            the integrator used for the tuning of the u variable
+	 * @param tuneU
+	 *            false if the u value of the model is already tuned
 	 */
-	private IndividualReconstructionData(Individual individual, Random r, double[][] inputs, double[][] vs, double dt,
-			int inputIdxAfterTuning) {
-		this.model = individual.getModel();
+	private IndividualReconstructionData(Model model, Random r, DatasetContext context, Integrator integrator,
+			boolean tuneU) {
+		this.model = model;
 
 		this.r = r;
-		this.inputs = inputs;
-		this.vs = vs;
-		this.dt = dt;
-		this.inputIdxAfterTuning = inputIdxAfterTuning;
+		this.context = context;
+		this.inputs = context.getInputs();
+		this.vs = context.getVs();
+		this.integrator = integrator;
+		this.dt = context.getDt();
+		this.inputIdxAfterTuning = context.getInputIdxAfterTuning();
 
 		// modifyParameters();
 
-		doReconstruction();
+		doReconstruction(tuneU);
 	}
 
 	/**
@@ -166,19 +185,18 @@ public class IndividualReconstructionData {
 	/**
 	 * Do the reconstruction of the other model parameters (u and weights).
 	 */
-	private void doReconstruction() {
-		reconstructOtherValues();
+	private void doReconstruction(boolean tuneU) {
+		if (tuneU) {
+			reconstructOtherValues();
+		}
 
 		if (vs[0].length > 1) {
-			isSpike = new double[vs.length][vs[0].length];
 			uGuess = new double[vs.length];
 			vFactorGuess = new double[vs.length];
 
-			reconstructSpikes();
 			reconstructUAndVFactor();
 			reconstructWeights();
 
-			isSpike = null;
 			uGuess = null;
 			vFactorGuess = null;
 		}
@@ -188,28 +206,16 @@ public class IndividualReconstructionData {
 	 * Tuning of the u variable
 	 */
 	private void reconstructOtherValues() {
-		model = new Model(model);
+		SpikeEvents presynapticSpikes = context.getPresynapticSpikes();
 		model.u = model.startU;
 		for (int i = 1; i < inputIdxAfterTuning; i++) {
 			model.v = vs[i][model.neuronIndex];
-			model.calculateNetwork(dt, vs[i - 1], inputs[i][model.neuronIndex]);
+			integrator.step(model, dt,
+					model.getNetworkInput(presynapticSpikes, i - 1, inputs[i][model.neuronIndex]));
 		}
 		this.model.v = vs[inputIdxAfterTuning][model.neuronIndex];
 	}
 
-	/**
-	 * Determine spike timings for the weight estimation
-	 * 
-	 * Adopted from the implementations of the preceding theses.
-	 */
-	private void reconstructSpikes() {
-		for (int t = 1; t < vs.length; t++) {
-			for (int n = 0; n < model.numNeurons; n++) {
-				isSpike[t][n] = (vs[t - 1][n] >= spikeval) ? 1 : 0;
-			}
-		}
-	}
-
 	/**
 	 * Determine intermediate u and v values for the weight estimation
 	 * 
@@ -235,7 +241,9 @@ public class IndividualReconstructionData {
 
 			// add d to uguess if membrane potential threshold is reached
 			// (neuron has spiked)
-			if (isSpike[t - 1][model.neuronIndex] != 0)
+			// The spike of the time step t - 1 is determined by the voltage
+			// value of the time step t - 2.
+			if (t >= 2 && context.hasReachedReset(t - 2, model.neuronIndex))
 				uGuess[t] = uGuess[t - 1] + d;
 
 			// calculate Vfactorguess, because we don't know the weight
@@ -248,30 +256,42 @@ public class IndividualReconstructionData {
 	/**
 	 * Calculate the weights
 	 * 
+	 * The spikes of the time step t are determined by the voltage values of
+	 * the time step t - 1. The matrix of the equation system only depends on
+	 * these spikes, so it is taken from the {@link DatasetContext}. Only the
+	 * right-hand side has to be calculated for each model.
+	 * 
 	 * Adopted from the implementations of the preceding theses.
 	 */
 	private void reconstructWeights() {
-		double[][] matrix = new double[model.numNeurons][model.numNeurons];
+		double[][] matrix = context.getWeightEquationMatrix(model.neuronIndex);
 		double[] b = new double[model.numNeurons];
 
+		SpikeEvents resetSpikes = context.getResetSpikes();
+		int[] spikingNeurons = resetSpikes.getNeurons();
+
 		// for each time step where the neuron has not spiked at time step t and
 		// t-1
 		for (int t = inputIdxAfterTuning + 1; t < vs.length; t++) {
 
 			// calculate only if neuron not spiked at t-1 and t
-			if (vs[t - 1][model.neuronIndex] >= spikeval)
+			if (context.hasReachedReset(t - 1, model.neuronIndex))
 				continue;
 
 			// equation is multiplied by 1/dt to get rid of factor dt
 			double wSolution = 1 / dt * (vs[t][model.neuronIndex] - vFactorGuess[t]) - inputs[t - 1][model.neuronIndex];
 
-			// fill the equation matrix
-			for (int n00 = 0; n00 < model.numNeurons; n00++) {
-				b[n00] += 1 / dt * isSpike[t][n00] * wSolution;
-			}
-			for (int n00 = 0; n00 < model.numNeurons; n00++) {
-				for (int n11 = 0; n11 < model.numNeurons; n11++) {
-					matrix[n00][n11] += 1 / dt * isSpike[t][n00] * isSpike[t][n11];
+			// fill the equation vector, the terms of the neurons which have
+			// not spiked are zero
+			if (Double.isFinite(wSolution)) {
+				for (int k = resetSpikes.getStart(t - 1); k < resetSpikes.getEnd(t - 1); k++) {
+					b[spikingNeurons[k]] += 1 / dt * wSolution;
+				}
+			} else {
+				// zero times infinity is not zero
+				for (int n00 = 0; n00 < model.numNeurons; n00++) {
+					double isSpike = context.hasReachedReset(t - 1, n00) ? 1 : 0;
+					b[n00] += 1 / dt * isSpike * wSolution;
 				}
 			}
 		}
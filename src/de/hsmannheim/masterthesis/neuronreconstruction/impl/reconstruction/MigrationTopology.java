@@ -0,0 +1,66 @@
+/** MigrationTopology.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction;
+
+import java.util.Random;
+
+/**
+ * Java enumeration containing the topologies for the migration between the
+ * islands of the island model. The topology determines from which islands an
+ * island receives the best individuals.
+ *
+ * @author Leah Lackner
+ */
+public enum MigrationTopology {
+
+	/**
+	 * Each island receives the individuals of the island before it, the
+	 * first island those of the last island.
+	 */
+	RING,
+
+	/**
+	 * Each island receives the individuals of all other islands.
+	 */
+	FULLY_CONNECTED,
+
+	/**
+	 * Each island receives the individuals of a randomly chosen other island,
+	 * which is chosen again for each migration.
+	 */
+	RANDOM;
+
+	/**
+	 * @param island
+	 *            The index of the receiving island
+	 * @param numIslands
+	 *            The number of all islands (at least 2)
+	 * @param r
+	 *            The random instance (only used by {@link #RANDOM})
+	 * @return The indices of the islands which send their best individuals to
+	 *         the given island
+	 */
+	public int[] getSourceIslands(int island, int numIslands, Random r) {
+		switch (this) {
+		case RING:
+			return new int[] { (island + numIslands - 1) % numIslands };
+		case FULLY_CONNECTED:
+			int[] sources = new int[numIslands - 1];
+			for (int i = 0, k = 0; i < numIslands; i++) {
+				if (i != island)
+					sources[k++] = i;
+			}
+			return sources;
+		case RANDOM:
+			return new int[] { (island + 1 + r.nextInt(numIslands - 1)) % numIslands };
+		default:
+			throw new IllegalStateException("Unknown topology " + this);
+		}
+	}
+
+}
@@ -0,0 +1,892 @@
+/** PopulationArena.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.Model;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.modes.ReconstructionModeAbstract;
+
+/**
+ * Stores the individuals of the Genetic Algorithm for one neuron in
+ * contiguous primitive buffers instead of {@link Individual} and
+ * {@link Model} objects.
+ *
+ * <p />
+ * The arena contains two generations: The current generation, which is sorted
+ * by the fitness values and from which the parents are selected, and the next
+ * generation, which is bred and evaluated. The individuals of the next
+ * generation are addressed by their slot, the individuals of the current
+ * generation by their rank. After the next generation is evaluated
+ * {@link #swap()} makes it the current generation and reuses the buffers of
+ * the old generation, so no memory is allocated during the Genetic Algorithm.
+ *
+ * <p />
+ * Each slot contains the parameters, the states and the weights of a model as
+ * described by the field constants. The values can be stored on the heap or
+ * off the heap in direct buffers.
+ *
+ * <p />
+ * An evaluation can be aborted if a lower bound of the fitness value of an
+ * individual exceeds the cutoff of the generation (see
+ * {@link #setEvaluationCutoff(double)}). The fitness value of an aborted
+ * individual is its lower bound. Aborted individuals are ranked after all
+ * completely evaluated individuals, so the ranking of the completely evaluated
+ * individuals is the same as without the abort. The individuals which were
+ * only evaluated with a section of the data by the {@link FidelityLadder} are
+ * marked as aborted as well.
+ *
+ * <p />
+ * The ranking is an index array sorted by the primitive fitness values. The
+ * whole generation is ranked, because the rank selection uses the rank of
+ * every individual. Large generations are ranked in parallel. If only the
+ * best individuals of a generation are needed,
+ * {@link #selectBestNext(int, boolean[])} selects them without sorting.
+ *
+ * @author Leah Lackner
+ */
+public class PopulationArena {
+
+	public static final int A = 0;
+	public static final int B = 1;
+	public static final int C = 2;
+	public static final int D = 3;
+	public static final int P1 = 4;
+	public static final int P2 = 5;
+	public static final int P3 = 6;
+	public static final int P4 = 7;
+	public static final int U = 8;
+	public static final int V = 9;
+	public static final int START_U = 10;
+
+	/**
+	 * The weight from the neuron {@code pre} is stored in the field
+	 * {@code WEIGHTS + pre}.
+	 */
+	public static final int WEIGHTS = 11;
+
+	private final int capacity;
+	private final int numNeurons;
+	private final int neuronIndex;
+	private final int stride;
+
+	private DoubleBuffer current;
+	private DoubleBuffer next;
+
+	private double[] currentFitness;
+	private double[] nextFitness;
+
+	private boolean[] currentAborted;
+	private boolean[] nextAborted;
+
+	/**
+	 * The evaluation of an individual of the next generation can be aborted if
+	 * its fitness value exceeds this value.
+	 */
+	private double evaluationCutoff = Double.POSITIVE_INFINITY;
+
+	private int currentSize;
+	private int nextSize;
+
+	/**
+	 * The size from which on the halves of a range of the ranking are sorted
+	 * by different threads
+	 */
+	private static final int PARALLEL_RANKING_THRESHOLD = 8192;
+
+	/**
+	 * The slot of the current generation for each rank.
+	 */
+	private int[] ranking;
+	private int[] rankingBuffer;
+
+	/**
+	 * The fitness values of the current generation as bits, allocated by the
+	 * first calculation of the diversity
+	 */
+	private long[] diversityBuffer;
+
+	/**
+	 * Creates an empty arena.
+	 *
+	 * @param capacity
+	 *            The maximum number of individuals per generation
+	 * @param numNeurons
+	 *            The number of all neurons in the network
+	 * @param neuronIndex
+	 *            The index of the reconstructed neuron
+	 * @param offHeap
+	 *            true to store the models in direct buffers off the heap
+	 */
+	public PopulationArena(int capacity, int numNeurons, int neuronIndex, boolean offHeap) {
+		this.capacity = capacity;
+		this.numNeurons = numNeurons;
+		this.neuronIndex = neuronIndex;
+		this.stride = WEIGHTS + numNeurons;
+
+		long size = (long) capacity * stride;
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("The population is too large for the arena");
+		}
+		current = allocate((int) size, offHeap);
+		next = allocate((int) size, offHeap);
+
+		currentFitness = new double[capacity];
+		nextFitness = new double[capacity];
+
+		currentAborted = new boolean[capacity];
+		nextAborted = new boolean[capacity];
+
+		ranking = new int[capacity];
+		rankingBuffer = new int[capacity];
+	}
+
+	private static DoubleBuffer allocate(int size, boolean offHeap) {
+		if (offHeap) {
+			return ByteBuffer.allocateDirect(size * Double.BYTES).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+		}
+		return DoubleBuffer.allocate(size);
+	}
+
+	/**
+	 * Makes the next generation the current generation and sorts it by the
+	 * fitness values. Individuals with the same fitness value keep the order
+	 * of their slots, aborted individuals are ranked last. The old current
+	 * generation is cleared and used for the next generation. Large
+	 * generations are sorted by the threads of the common fork/join pool,
+	 * which results in the same ranking.
+	 */
+	public void swap() {
+		DoubleBuffer tmp = current;
+		current = next;
+		next = tmp;
+
+		double[] tmpFitness = currentFitness;
+		currentFitness = nextFitness;
+		nextFitness = tmpFitness;
+
+		boolean[] tmpAborted = currentAborted;
+		currentAborted = nextAborted;
+		nextAborted = tmpAborted;
+
+		currentSize = nextSize;
+		nextSize = 0;
+
+		for (int i = 0; i < currentSize; i++) {
+			ranking[i] = i;
+		}
+		if (currentSize >= PARALLEL_RANKING_THRESHOLD) {
+			ForkJoinPool.commonPool().invoke(new RankingSort(0, currentSize));
+		} else {
+			sortRanking(0, currentSize);
+		}
+	}
+
+	/**
+	 * Stable merge sort of the ranking by the fitness values.
+	 */
+	private void sortRanking(int from, int to) {
+		if (to - from < 2) {
+			return;
+		}
+		int middle = (from + to) >>> 1;
+		sortRanking(from, middle);
+		sortRanking(middle, to);
+		mergeRanking(from, middle, to);
+	}
+
+	/**
+	 * The merge sort of the ranking whose halves are sorted in parallel down
+	 * to the threshold. The ranges are split at the same indices as by
+	 * {@link #sortRanking(int, int)}.
+	 */
+	private class RankingSort extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+
+		RankingSort(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from < PARALLEL_RANKING_THRESHOLD) {
+				sortRanking(from, to);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new RankingSort(from, middle), new RankingSort(middle, to));
+			mergeRanking(from, middle, to);
+		}
+	}
+
+	/**
+	 * Merges the two sorted halves of a range of the ranking. The buffer is
+	 * only used in the range, so disjoint ranges can be merged at once.
+	 */
+	private void mergeRanking(int from, int middle, int to) {
+		if (compare(ranking[middle - 1], ranking[middle]) <= 0) {
+			return;
+		}
+
+		System.arraycopy(ranking, from, rankingBuffer, from, to - from);
+		int left = from;
+		int right = middle;
+		for (int i = from; i < to; i++) {
+			if (right >= to || left < middle
+					&& compare(rankingBuffer[left], rankingBuffer[right]) <= 0) {
+				ranking[i] = rankingBuffer[left++];
+			} else {
+				ranking[i] = rankingBuffer[right++];
+			}
+		}
+	}
+
+	/**
+	 * Compares two slots of the current generation, aborted individuals are
+	 * greater than completely evaluated individuals.
+	 */
+	private int compare(int slot1, int slot2) {
+		if (currentAborted[slot1] != currentAborted[slot2]) {
+			return currentAborted[slot1] ? 1 : -1;
+		}
+		return Double.compare(currentFitness[slot1], currentFitness[slot2]);
+	}
+
+	/**
+	 * Compares two slots of the next generation in the order of the ranking,
+	 * individuals with the same fitness value are ordered by their slots.
+	 */
+	private int compareNext(int slot1, int slot2) {
+		if (nextAborted[slot1] != nextAborted[slot2]) {
+			return nextAborted[slot1] ? 1 : -1;
+		}
+		int result = Double.compare(nextFitness[slot1], nextFitness[slot2]);
+		return result != 0 ? result : Integer.compare(slot1, slot2);
+	}
+
+	/**
+	 * Selects the best individuals of the next generation without sorting it
+	 * (quickselect). The selected individuals are the first individuals of
+	 * the ranking after {@link #swap()}.
+	 *
+	 * @param count
+	 *            The number of selected individuals
+	 * @param selected
+	 *            The selected slots are set to true, the other slots of the
+	 *            next generation to false (Output parameter)
+	 */
+	public void selectBestNext(int count, boolean[] selected) {
+		count = Math.min(count, nextSize);
+		int[] slots = rankingBuffer;
+		for (int slot = 0; slot < nextSize; slot++) {
+			slots[slot] = slot;
+			selected[slot] = false;
+		}
+		// Partition the slots until the best ones are before the given index
+		int left = 0;
+		int right = nextSize - 1;
+		while (left < right) {
+			int pivot = slots[(left + right) >>> 1];
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (compareNext(slots[i], pivot) < 0) {
+					i++;
+				}
+				while (compareNext(slots[j], pivot) > 0) {
+					j--;
+				}
+				if (i <= j) {
+					int tmp = slots[i];
+					slots[i] = slots[j];
+					slots[j] = tmp;
+					i++;
+					j--;
+				}
+			}
+			if (count - 1 <= j) {
+				right = j;
+			} else if (count - 1 >= i) {
+				left = i;
+			} else {
+				break;
+			}
+		}
+		for (int k = 0; k < count; k++) {
+			selected[slots[k]] = true;
+		}
+	}
+
+	/**
+	 * Inserts an evaluated individual into the current generation if it is
+	 * better than the worst individual, which is removed. The individual is
+	 * ranked after the individuals with the same fitness value. This is used
+	 * by the steady state mode, in which there is no next generation.
+	 *
+	 * @param source
+	 *            The array containing the record
+	 * @param offset
+	 *            The index of the first value of the record in the array
+	 * @param fitness
+	 *            The fitness value of the individual
+	 * @return The rank of the individual, -1 if it is not better than the
+	 *         worst individual
+	 * @see #getRecordLength()
+	 */
+	public int insert(double[] source, int offset, double fitness) {
+		if (currentSize == 0) {
+			return -1;
+		}
+		int slot = ranking[currentSize - 1];
+		if (!currentAborted[slot] && Double.compare(fitness, currentFitness[slot]) >= 0) {
+			return -1;
+		}
+		int target = slot * stride;
+		for (int field = 0; field < stride; field++) {
+			current.put(target + field, source[offset + field]);
+		}
+		currentFitness[slot] = fitness;
+		currentAborted[slot] = false;
+
+		// Binary search for the first rank which is greater than the
+		// individual, the worst rank is the old position of the slot
+		int low = 0;
+		int high = currentSize - 1;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (compare(ranking[middle], slot) > 0) {
+				high = middle;
+			} else {
+				low = middle + 1;
+			}
+		}
+		System.arraycopy(ranking, low, ranking, low + 1, currentSize - 1 - low);
+		ranking[low] = slot;
+		return low;
+	}
+
+	/**
+	 * Adds a copy of an individual of the current generation to the next
+	 * generation.
+	 *
+	 * @param rank
+	 *            The rank of the individual in the current generation
+	 * @return The slot of the copy in the next generation
+	 */
+	public int addCopyToNext(int rank) {
+		int slot = addToNext();
+		copyToNext(rank, slot);
+		return slot;
+	}
+
+	/**
+	 * Copies an individual of the current generation into a slot of the next
+	 * generation, e.g. into a slot reserved by {@link #reserveNext(int)}.
+	 * Different slots can be written by different threads at once.
+	 *
+	 * @param rank
+	 *            The rank of the individual in the current generation
+	 * @param slot
+	 *            The slot in the next generation
+	 */
+	public void copyToNext(int rank, int slot) {
+		int source = ranking[rank] * stride;
+		int target = slot * stride;
+		for (int field = 0; field < stride; field++) {
+			next.put(target + field, current.get(source + field));
+		}
+		nextFitness[slot] = 0;
+	}
+
+	/**
+	 * Adds a model with random values to the next generation. The random
+	 * values are generated in the same way as by
+	 * {@link Model#Model(ReconstructionModeAbstract, Random, int, int)}.
+	 *
+	 * @param mode
+	 *            The parameter range for the model generation
+	 * @param r
+	 *            The random object
+	 * @return The slot of the model in the next generation
+	 */
+	public int addRandomToNext(ReconstructionModeAbstract mode, Random r) {
+		int slot = addToNext();
+		setRandomNext(mode, r, slot);
+		return slot;
+	}
+
+	/**
+	 * Sets a slot of the next generation to a model with random values in the
+	 * same way as {@link #addRandomToNext(ReconstructionModeAbstract, Random)},
+	 * e.g. a slot reserved by {@link #reserveNext(int)}. Different slots can be
+	 * written by different threads at once.
+	 *
+	 * @param mode
+	 *            The parameter range for the model generation
+	 * @param r
+	 *            The random object
+	 * @param slot
+	 *            The slot in the next generation
+	 */
+	public void setRandomNext(ReconstructionModeAbstract mode, Random r, int slot) {
+		setNext(slot, A, Model.generate(r, mode.getMinA(), mode.getMaxA()));
+		setNext(slot, B, Model.generate(r, mode.getMinB(), mode.getMaxB()));
+		setNext(slot, C, Model.generate(r, mode.getMinC(), mode.getMaxC()));
+		setNext(slot, D, Model.generate(r, mode.getMinD(), mode.getMaxD()));
+		setNext(slot, P1, Model.generate(r, mode.getMinP1(), mode.getMaxP1()));
+		setNext(slot, P2, Model.generate(r, mode.getMinP2(), mode.getMaxP2()));
+		setNext(slot, P3, Model.generate(r, mode.getMinP3(), mode.getMaxP3()));
+		setNext(slot, P4, Model.generate(r, mode.getMinP4(), mode.getMaxP4()));
+		double u = Model.generate(r, mode.getMinU(), mode.getMaxU());
+		setNext(slot, U, u);
+		setNext(slot, START_U, u);
+		setNext(slot, V, 0);
+		for (int pre = 0; pre < numNeurons; pre++) {
+			setNext(slot, WEIGHTS + pre, 0);
+		}
+		nextFitness[slot] = 0;
+	}
+
+	/**
+	 * Adds a copy of the given model to the next generation.
+	 *
+	 * @param model
+	 *            The model
+	 * @return The slot of the model in the next generation
+	 */
+	public int addModelToNext(Model model) {
+		int slot = addToNext();
+		storeNext(slot, model, 0);
+		return slot;
+	}
+
+	/**
+	 * Adds an individual with the values of a record to the next generation.
+	 *
+	 * @param source
+	 *            The array containing the record
+	 * @param offset
+	 *            The index of the first value of the record in the array
+	 * @return The slot of the individual in the next generation
+	 * @see #getRecordLength()
+	 */
+	public int addRecordToNext(double[] source, int offset) {
+		int slot = addToNext();
+		setNextRecord(slot, source, offset);
+		nextFitness[slot] = 0;
+		return slot;
+	}
+
+	private int addToNext() {
+		return reserveNext(1);
+	}
+
+	/**
+	 * Adds empty slots to the next generation. The slots must be filled
+	 * before the next generation is evaluated, e.g. by
+	 * {@link #copyToNext(int, int)} and
+	 * {@link #setRandomNext(ReconstructionModeAbstract, Random, int)}, which
+	 * can be called by several threads for different slots.
+	 *
+	 * @param count
+	 *            The number of slots
+	 * @return The first of the reserved slots
+	 */
+	public int reserveNext(int count) {
+		if (count < 0 || nextSize + count > capacity) {
+			throw new IllegalStateException("The next generation is full");
+		}
+		int first = nextSize;
+		for (int slot = first; slot < first + count; slot++) {
+			nextAborted[slot] = false;
+			nextFitness[slot] = 0;
+		}
+		nextSize += count;
+		return first;
+	}
+
+	/**
+	 * @param slot
+	 *            The slot in the next generation
+	 * @param field
+	 *            The field constant
+	 * @return The value of the field
+	 */
+	public double getNext(int slot, int field) {
+		return next.get(slot * stride + field);
+	}
+
+	/**
+	 * @param slot
+	 *            The slot in the next generation
+	 * @param field
+	 *            The field constant
+	 * @param value
+	 *            The new value of the field
+	 */
+	public void setNext(int slot, int field, double value) {
+		next.put(slot * stride + field, value);
+	}
+
+	/**
+	 * @param slot
+	 *            The slot in the next generation
+	 * @param fitness
+	 *            The fitness value of the model
+	 */
+	public void setNextFitness(int slot, double fitness) {
+		nextFitness[slot] = fitness;
+	}
+
+	/**
+	 * @param slot
+	 *            The slot in the next generation
+	 * @return The fitness value of the model
+	 */
+	public double getNextFitness(int slot) {
+		return nextFitness[slot];
+	}
+
+	/**
+	 * Marks the evaluation of an individual of the next generation as aborted.
+	 * The fitness value of the individual must be the lower bound at which the
+	 * evaluation was aborted or the fitness value of the last evaluated
+	 * fidelity level.
+	 *
+	 * @param slot
+	 *            The slot in the next generation
+	 * @param aborted
+	 *            true if the evaluation was aborted
+	 */
+	public void setNextAborted(int slot, boolean aborted) {
+		nextAborted[slot] = aborted;
+	}
+
+	/**
+	 * @param slot
+	 *            The slot in the next generation
+	 * @return true if the evaluation of the individual was aborted
+	 */
+	public boolean isNextAborted(int slot) {
+		return nextAborted[slot];
+	}
+
+	/**
+	 * Sets the cutoff for the evaluation of the next generation. The
+	 * evaluation of an individual can be aborted as soon as a lower bound of
+	 * its fitness value exceeds the cutoff.
+	 *
+	 * @param cutoff
+	 *            The cutoff, {@link Double#POSITIVE_INFINITY} to evaluate all
+	 *            individuals completely
+	 */
+	public void setEvaluationCutoff(double cutoff) {
+		evaluationCutoff = cutoff;
+	}
+
+	/**
+	 * @return The cutoff for the evaluation of the next generation
+	 */
+	public double getEvaluationCutoff() {
+		return evaluationCutoff;
+	}
+
+	/**
+	 * Copies the values of an individual of the next generation into an array.
+	 * The values are ordered as described by the field constants.
+	 *
+	 * @param slot
+	 *            The slot in the next generation
+	 * @param target
+	 *            The array for the record (Output parameter)
+	 * @param offset
+	 *            The index of the first value of the record in the array
+	 * @see #getRecordLength()
+	 */
+	public void copyNextRecord(int slot, double[] target, int offset) {
+		int source = slot * stride;
+		for (int field = 0; field < stride; field++) {
+			target[offset + field] = next.get(source + field);
+		}
+	}
+
+	/**
+	 * Overwrites the values of an individual of the next generation with the
+	 * values of a record. The fitness value is not changed.
+	 *
+	 * @param slot
+	 *            The slot in the next generation
+	 * @param source
+	 *            The array containing the record
+	 * @param offset
+	 *            The index of the first value of the record in the array
+	 * @see #getRecordLength()
+	 */
+	public void setNextRecord(int slot, double[] source, int offset) {
+		int target = slot * stride;
+		for (int field = 0; field < stride; field++) {
+			next.put(target + field, source[offset + field]);
+		}
+	}
+
+	/**
+	 * Removes the last added individual from the next generation.
+	 */
+	public void removeLastNext() {
+		if (nextSize == 0) {
+			throw new IllegalStateException("The next generation is empty");
+		}
+		nextSize--;
+	}
+
+	/**
+	 * Removes all individuals from the next generation.
+	 */
+	public void clearNext() {
+		nextSize = 0;
+	}
+
+	/**
+	 * Copies the model of the next generation into an existing model instance.
+	 *
+	 * @param slot
+	 *            The slot in the next generation
+	 * @param model
+	 *            The model with a weight array for all neurons (Output
+	 *            parameter)
+	 */
+	public void copyNextTo(int slot, Model model) {
+		copyTo(next, slot, model);
+	}
+
+	/**
+	 * Stores a model and its fitness value in the next generation.
+	 *
+	 * @param slot
+	 *            The slot in the next generation
+	 * @param model
+	 *            The model
+	 * @param fitness
+	 *            The fitness value of the model
+	 */
+	public void storeNext(int slot, Model model, double fitness) {
+		int offset = slot * stride;
+		next.put(offset + A, model.a);
+		next.put(offset + B, model.b);
+		next.put(offset + C, model.c);
+		next.put(offset + D, model.d);
+		next.put(offset + P1, model.p1);
+		next.put(offset + P2, model.p2);
+		next.put(offset + P3, model.p3);
+		next.put(offset + P4, model.p4);
+		next.put(offset + U, model.u);
+		next.put(offset + V, model.v);
+		next.put(offset + START_U, model.startU);
+		for (int pre = 0; pre < numNeurons; pre++) {
+			next.put(offset + WEIGHTS + pre, model.weights[pre]);
+		}
+		nextFitness[slot] = fitness;
+	}
+
+	/**
+	 * @param slot
+	 *            The slot in the next generation
+	 * @return A new model instance with the values of the slot
+	 */
+	public Model toNextModel(int slot) {
+		Model model = new Model(numNeurons, neuronIndex);
+		copyTo(next, slot, model);
+		return model;
+	}
+
+	/**
+	 * @param rank
+	 *            The rank in the current generation
+	 * @return A new model instance with the values of the individual
+	 */
+	public Model toModel(int rank) {
+		Model model = new Model(numNeurons, neuronIndex);
+		copyTo(current, ranking[rank], model);
+		return model;
+	}
+
+	/**
+	 * @param rank
+	 *            The rank in the current generation
+	 * @return A new individual with the values of the individual
+	 */
+	public Individual toIndividual(int rank) {
+		Individual ind = new Individual(toModel(rank));
+		ind.setResult(ind.getModel(), getFitness(rank));
+		return ind;
+	}
+
+	private void copyTo(DoubleBuffer buffer, int slot, Model model) {
+		int offset = slot * stride;
+		model.a = buffer.get(offset + A);
+		model.b = buffer.get(offset + B);
+		model.c = buffer.get(offset + C);
+		model.d = buffer.get(offset + D);
+		model.p1 = buffer.get(offset + P1);
+		model.p2 = buffer.get(offset + P2);
+		model.p3 = buffer.get(offset + P3);
+		model.p4 = buffer.get(offset + P4);
+		model.u = buffer.get(offset + U);
+		model.v = buffer.get(offset + V);
+		model.startU = buffer.get(offset + START_U);
+		for (int pre = 0; pre < numNeurons; pre++) {
+			model.weights[pre] = buffer.get(offset + WEIGHTS + pre);
+		}
+	}
+
+	/**
+	 * Copies the values of an individual of the current generation into an
+	 * array. The values are ordered as described by the field constants.
+	 *
+	 * @param rank
+	 *            The rank in the current generation
+	 * @param target
+	 *            The array for the record (Output parameter)
+	 * @param offset
+	 *            The index of the first value of the record in the array
+	 * @see #getRecordLength()
+	 */
+	public void copyRecord(int rank, double[] target, int offset) {
+		int source = ranking[rank] * stride;
+		for (int field = 0; field < stride; field++) {
+			target[offset + field] = current.get(source + field);
+		}
+	}
+
+	/**
+	 * @param rank
+	 *            The rank in the current generation
+	 * @param field
+	 *            The field constant
+	 * @return The value of the field
+	 */
+	public double get(int rank, int field) {
+		return current.get(ranking[rank] * stride + field);
+	}
+
+	/**
+	 * @param rank
+	 *            The rank in the current generation
+	 * @return The slot which the individual had in the next generation before
+	 *         the last {@link #swap()}
+	 */
+	public int getSlot(int rank) {
+		return ranking[rank];
+	}
+
+	/**
+	 * @param rank
+	 *            The rank in the current generation
+	 * @return The fitness value of the individual
+	 */
+	public double getFitness(int rank) {
+		return currentFitness[ranking[rank]];
+	}
+
+	/**
+	 * @param rank
+	 *            The rank in the current generation
+	 * @return true if the evaluation of the individual was aborted, the
+	 *         fitness value is then a lower bound of the actual fitness value
+	 */
+	public boolean isAborted(int rank) {
+		return currentAborted[ranking[rank]];
+	}
+
+	/**
+	 * @return The number of individuals of the current generation whose
+	 *         evaluation was aborted
+	 */
+	public int getAbortedCount() {
+		// The aborted individuals are ranked last
+		int count = 0;
+		for (int rank = currentSize - 1; rank >= 0 && isAborted(rank); rank--) {
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * @return The number of individuals in the current generation
+	 */
+	public int size() {
+		return currentSize;
+	}
+
+	/**
+	 * @return The number of individuals in the next generation
+	 */
+	public int nextSize() {
+		return nextSize;
+	}
+
+	/**
+	 * @return The number of values of an individual, i.e. the parameters,
+	 *         the states and the weights
+	 */
+	public int getRecordLength() {
+		return stride;
+	}
+
+	/**
+	 * @return The number of all neurons in the network
+	 */
+	public int getNumNeurons() {
+		return numNeurons;
+	}
+
+	/**
+	 * @return The index of the reconstructed neuron
+	 */
+	public int getNeuronIndex() {
+		return neuronIndex;
+	}
+
+	/**
+	 * Calculate the diversity of the current generation, i.e. the number of
+	 * different fitness values divided by the number of individuals. The
+	 * ranking is not required to be sorted by the fitness values, e.g. the
+	 * aborted individuals are ranked after all others.
+	 *
+	 * @return The diversity
+	 */
+	public double getDiversity() {
+		if (diversityBuffer == null) {
+			diversityBuffer = new long[capacity];
+		}
+		for (int slot = 0; slot < currentSize; slot++) {
+			diversityBuffer[slot] = Double.doubleToLongBits(currentFitness[slot]);
+		}
+		// Equal fitness values are adjacent after sorting
+		Arrays.sort(diversityBuffer, 0, currentSize);
+		int different = 0;
+		for (int i = 0; i < currentSize; i++) {
+			if (i == 0 || diversityBuffer[i] != diversityBuffer[i - 1]) {
+				different++;
+			}
+		}
+		return different / (double) currentSize;
+	}
+
+}
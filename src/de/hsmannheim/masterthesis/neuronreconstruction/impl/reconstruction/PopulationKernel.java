@@ -0,0 +1,235 @@
+/** PopulationKernel.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction;
+
+import static de.hsmannheim.masterthesis.neuronreconstruction.impl.model.ValueBorders.SPIKE_RESET;
+
+import java.util.Map;
+
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.SpikeEvents;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.spikecomparison.SpikeTrainComparator;
+
+/**
+ * Evaluates a block of individuals of one generation at once with double
+ * precision (see {@link AbstractPopulationKernel}).
+ *
+ * <p />
+ * The results are the same as those of {@link Individual#recalculate} with the
+ * forward Euler method, which is the only method supported by the kernel.
+ *
+ * @author Leah Lackner
+ */
+public class PopulationKernel extends AbstractPopulationKernel {
+
+	private final double[] a;
+	private final double[] b;
+	private final double[] c;
+	private final double[] d;
+	private final double[] p1;
+	private final double[] p2;
+	private final double[] p3;
+	private final double[] p4;
+
+	private final double[] v;
+	private final double[] u;
+	private final double[] tunedU;
+	private final double[] synapticInput;
+
+	/**
+	 * The weights of all lanes. The weight from the neuron {@code pre} of the
+	 * lane {@code lane} is stored at {@code weights[pre * capacity + lane]}.
+	 */
+	private final double[] weights;
+
+	/**
+	 * The data of the current evaluation
+	 */
+	private double[][] inputs;
+	private double[][] vs;
+	private int neuronIdx;
+	private double dt;
+
+	/**
+	 * Buffers which are reused by all evaluations of the kernel.
+	 */
+	private double[][] modelPotentialsSingleStep;
+	private double[][] modelPotentials;
+
+	/**
+	 * Creates a kernel for the given number of individuals.
+	 *
+	 * @param capacity
+	 *            The maximum number of individuals which are evaluated at once
+	 * @param numNeurons
+	 *            The number of all neurons in the network
+	 */
+	public PopulationKernel(int capacity, int numNeurons) {
+		super(capacity, numNeurons);
+
+		a = new double[capacity];
+		b = new double[capacity];
+		c = new double[capacity];
+		d = new double[capacity];
+		p1 = new double[capacity];
+		p2 = new double[capacity];
+		p3 = new double[capacity];
+		p4 = new double[capacity];
+
+		v = new double[capacity];
+		u = new double[capacity];
+		tunedU = new double[capacity];
+		synapticInput = new double[capacity];
+
+		weights = new double[capacity * numNeurons];
+	}
+
+	@Override
+	protected void loadData(DatasetContext context, int neuronIdx) {
+		inputs = context.getInputs();
+		vs = context.getVs();
+		this.neuronIdx = neuronIdx;
+		dt = context.getDt();
+	}
+
+	@Override
+	protected void allocateModelTraces(int length) {
+		modelPotentialsSingleStep = new double[capacity][length];
+		modelPotentials = new double[capacity][length];
+	}
+
+	@Override
+	protected void load(int lane, PopulationArena arena, int slot) {
+		a[lane] = arena.getNext(slot, PopulationArena.A);
+		b[lane] = arena.getNext(slot, PopulationArena.B);
+		c[lane] = arena.getNext(slot, PopulationArena.C);
+		d[lane] = arena.getNext(slot, PopulationArena.D);
+		p1[lane] = arena.getNext(slot, PopulationArena.P1);
+		p2[lane] = arena.getNext(slot, PopulationArena.P2);
+		p3[lane] = arena.getNext(slot, PopulationArena.P3);
+		p4[lane] = arena.getNext(slot, PopulationArena.P4);
+		for (int pre = 0; pre < numNeurons; pre++) {
+			weights[pre * capacity + lane] = arena.getNext(slot, PopulationArena.WEIGHTS + pre);
+		}
+	}
+
+	@Override
+	protected double getU(int lane) {
+		return u[lane];
+	}
+
+	@Override
+	protected void setU(int lane, double value) {
+		u[lane] = value;
+	}
+
+	@Override
+	protected void storeTunedU(int lane) {
+		tunedU[lane] = u[lane];
+	}
+
+	@Override
+	protected void restoreTunedU() {
+		System.arraycopy(tunedU, 0, u, 0, lanes);
+	}
+
+	@Override
+	protected void setMeasuredVoltage(int i) {
+		fill(v, vs[i][neuronIdx]);
+	}
+
+	@Override
+	protected void step(int i, SpikeEvents presynapticSpikes, int t) {
+		fill(synapticInput, inputs[i][neuronIdx]);
+
+		int[] spikingNeurons = presynapticSpikes.getNeurons();
+		for (int k = presynapticSpikes.getStart(t), end = presynapticSpikes.getEnd(t); k < end; k++) {
+			int column = spikingNeurons[k] * capacity;
+			for (int l = 0; l < lanes; l++) {
+				synapticInput[l] += weights[column + l];
+			}
+		}
+
+		for (int l = 0; l < lanes; l++) {
+			double vl = v[l];
+			double ul = u[l];
+			double h = 1.0 / (1.0 - Math.exp(10000 * (SPIKE_RESET - vl)));
+			double v1 = vl * (1.0 - h) + c[l] * h;
+			double u1 = ul + d[l] * h;
+
+			v[l] = v1 + dt * (p1[l] * v1 * v1 + p2[l] * v1 + p3[l] - u1 + p4[l] * synapticInput[l]);
+			u[l] = u1 + dt * (a[l] * (b[l] * v1 - u1));
+		}
+	}
+
+	@Override
+	protected void recordSingleStep(int j) {
+		for (int l = 0; l < lanes; l++) {
+			modelPotentialsSingleStep[l][j] = v[l];
+		}
+	}
+
+	@Override
+	protected void record(int j) {
+		for (int l = 0; l < lanes; l++) {
+			modelPotentials[l][j] = v[l];
+		}
+	}
+
+	@Override
+	protected double addSquaredErrors(int lane, double sum, double[] realPotentials, int from, int to,
+			boolean singleStep) {
+		double[] trace = singleStep ? modelPotentialsSingleStep[lane] : modelPotentials[lane];
+		for (int k = from; k < to; k++) {
+			double error = realPotentials[k] - trace[k];
+			sum += error * error;
+		}
+		return sum;
+	}
+
+	@Override
+	protected double compareSpikeTrains(int lane, double[] realPotentials, double dt,
+			Map<Class<?>, Double> measures) {
+		return SpikeTrainComparator.compareSpikeTrains(realPotentials, modelPotentials[lane],
+				modelPotentialsSingleStep[lane], dt, measures);
+	}
+
+	@Override
+	protected void moveLane(int lane, int last) {
+		a[lane] = a[last];
+		b[lane] = b[last];
+		c[lane] = c[last];
+		d[lane] = d[last];
+		p1[lane] = p1[last];
+		p2[lane] = p2[last];
+		p3[lane] = p3[last];
+		p4[lane] = p4[last];
+		v[lane] = v[last];
+		u[lane] = u[last];
+		tunedU[lane] = tunedU[last];
+		for (int pre = 0; pre < numNeurons; pre++) {
+			weights[pre * capacity + lane] = weights[pre * capacity + last];
+		}
+
+		double[] tmp = modelPotentials[lane];
+		modelPotentials[lane] = modelPotentials[last];
+		modelPotentials[last] = tmp;
+		tmp = modelPotentialsSingleStep[lane];
+		modelPotentialsSingleStep[lane] = modelPotentialsSingleStep[last];
+		modelPotentialsSingleStep[last] = tmp;
+	}
+
+	/**
+	 * Set the value for all used lanes of the given state array.
+	 */
+	private void fill(double[] state, double value) {
+		for (int l = 0; l < lanes; l++) {
+			state[l] = value;
+		}
+	}
+
+}
@@ -0,0 +1,240 @@
+/** PopulationTransfer.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.Model;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.ValueBorders;
+
+/**
+ * Transfers the best individuals (elites) of the reconstructed neurons into
+ * the initial populations of the following neurons of a network.
+ *
+ * <p />
+ * Neurons of the same type have similar intrinsic parameters, so a neuron
+ * receives the elites of the reconstructed neurons (donors) whose measured
+ * voltage traces have the most similar firing statistics: the spike rate,
+ * the coefficient of variation of the interspike intervals and the mean
+ * voltage between the spikes. Each statistic is normalised by its standard
+ * deviation over all neurons of the network. Only the intrinsic parameters
+ * are transferred, the weights of a transferred individual are 0 as the
+ * weights of a random individual.
+ *
+ * <p />
+ * The elites are published by the threads of the neurons, so an instance can
+ * be shared by concurrent neurons.
+ *
+ * @author Leah Lackner
+ */
+class PopulationTransfer {
+
+	/**
+	 * The normalised firing statistics by the index of the neuron
+	 */
+	private final double[][] statistics;
+
+	/**
+	 * The elites of the reconstructed neurons, null for the other neurons
+	 */
+	private final AtomicReferenceArray<List<Model>> elites;
+
+	/**
+	 * Calculates the firing statistics of the measured voltage traces.
+	 *
+	 * @param context
+	 *            The data of the reconstruction
+	 */
+	PopulationTransfer(DatasetContext context) {
+		double[][] vs = context.getVs();
+		int numNeurons = context.getNumNeurons();
+		statistics = new double[numNeurons][];
+		for (int n = 0; n < numNeurons; n++) {
+			statistics[n] = calculateStatistics(vs, n);
+		}
+		normalise(statistics);
+		elites = new AtomicReferenceArray<>(numNeurons);
+	}
+
+	/**
+	 * @return The spike rate (spikes per time step), the coefficient of
+	 *         variation of the interspike intervals (0 with less than two
+	 *         intervals) and the mean voltage of the time steps without a
+	 *         spike
+	 */
+	private static double[] calculateStatistics(double[][] vs, int n) {
+		int spikes = 0;
+		int lastSpike = -1;
+		double intervalSum = 0;
+		double intervalSquareSum = 0;
+		double voltageSum = 0;
+		int voltageCount = 0;
+		for (int t = 0; t < vs.length; t++) {
+			double v = vs[t][n];
+			if (v < ValueBorders.SPIKE_RECOGNITION) {
+				voltageSum += v;
+				voltageCount++;
+			} else if (t == 0 || vs[t - 1][n] < ValueBorders.SPIKE_RECOGNITION) {
+				// A spike can last several time steps, only its first one is
+				// counted
+				if (lastSpike >= 0) {
+					double interval = t - lastSpike;
+					intervalSum += interval;
+					intervalSquareSum += interval * interval;
+				}
+				lastSpike = t;
+				spikes++;
+			}
+		}
+		double variation = 0;
+		int intervals = spikes - 1;
+		if (intervals >= 2) {
+			double mean = intervalSum / intervals;
+			double variance = Math.max(0, intervalSquareSum / intervals - mean * mean);
+			variation = Math.sqrt(variance) / mean;
+		}
+		return new double[] { vs.length > 0 ? (double) spikes / vs.length : 0, variation,
+				voltageCount > 0 ? voltageSum / voltageCount : ValueBorders.SPIKE_RECOGNITION };
+	}
+
+	/**
+	 * Divides each statistic by its standard deviation over all neurons. A
+	 * statistic which is the same for all neurons is set to 0.
+	 */
+	private static void normalise(double[][] statistics) {
+		int numNeurons = statistics.length;
+		if (numNeurons == 0) {
+			return;
+		}
+		for (int i = 0; i < statistics[0].length; i++) {
+			double sum = 0;
+			for (double[] neuronStatistics : statistics) {
+				sum += neuronStatistics[i];
+			}
+			double mean = sum / numNeurons;
+			double squareSum = 0;
+			for (double[] neuronStatistics : statistics) {
+				squareSum += (neuronStatistics[i] - mean) * (neuronStatistics[i] - mean);
+			}
+			double deviation = Math.sqrt(squareSum / numNeurons);
+			for (double[] neuronStatistics : statistics) {
+				neuronStatistics[i] = deviation > 0 ? (neuronStatistics[i] - mean) / deviation : 0;
+			}
+		}
+	}
+
+	/**
+	 * @return The distance of the firing statistics of two neurons
+	 */
+	double getDistance(int n1, int n2) {
+		double sum = 0;
+		for (int i = 0; i < statistics[n1].length; i++) {
+			double difference = statistics[n1][i] - statistics[n2][i];
+			sum += difference * difference;
+		}
+		return Math.sqrt(sum);
+	}
+
+	/**
+	 * Publishes the elites of a reconstructed neuron.
+	 *
+	 * @param neuronIdx
+	 *            The index of the neuron
+	 * @param population
+	 *            The last generation of the neuron
+	 * @param count
+	 *            The maximum number of elites, aborted individuals are not
+	 *            published
+	 */
+	void publish(int neuronIdx, PopulationArena population, int count) {
+		List<Model> neuronElites = new ArrayList<>(count);
+		for (int rank = 0; rank < Math.min(count, population.size()); rank++) {
+			if (!population.isAborted(rank)) {
+				neuronElites.add(population.toModel(rank));
+			}
+		}
+		elites.set(neuronIdx, Collections.unmodifiableList(neuronElites));
+	}
+
+	/**
+	 * @param neuronIdx
+	 *            The index of the receiving neuron
+	 * @param maxDonors
+	 *            The maximum number of donors
+	 * @return The reconstructed neurons with the most similar firing
+	 *         statistics, the most similar one first
+	 */
+	List<Integer> getDonors(int neuronIdx, int maxDonors) {
+		List<Integer> donors = new ArrayList<>();
+		for (int n = 0; n < elites.length(); n++) {
+			List<Model> neuronElites = elites.get(n);
+			if (n != neuronIdx && neuronElites != null && !neuronElites.isEmpty()) {
+				donors.add(n);
+			}
+		}
+		// A stable sort prefers the lower index for equal distances
+		donors.sort((n1, n2) -> Double.compare(getDistance(neuronIdx, n1), getDistance(neuronIdx, n2)));
+		return donors.size() > maxDonors ? new ArrayList<>(donors.subList(0, maxDonors)) : donors;
+	}
+
+	/**
+	 * Creates the transferred individuals of a neuron. The donors contribute
+	 * their elites in turns, the best elites first.
+	 *
+	 * @param neuronIdx
+	 *            The index of the receiving neuron
+	 * @param numNeurons
+	 *            The number of all neurons in the network
+	 * @param donors
+	 *            The donors returned by {@link #getDonors(int, int)}
+	 * @param count
+	 *            The maximum number of individuals
+	 * @return The models with the intrinsic parameters of the elites
+	 */
+	List<Model> getModels(int neuronIdx, int numNeurons, List<Integer> donors, int count) {
+		List<Model> models = new ArrayList<>(count);
+		for (int i = 0; models.size() < count; i++) {
+			boolean added = false;
+			for (int donor : donors) {
+				List<Model> donorElites = elites.get(donor);
+				if (i < donorElites.size() && models.size() < count) {
+					models.add(toReceiver(donorElites.get(i), numNeurons, neuronIdx));
+					added = true;
+				}
+			}
+			if (!added) {
+				break;
+			}
+		}
+		return models;
+	}
+
+	/**
+	 * @return A model of the receiving neuron with the intrinsic parameters
+	 *         of the elite and the start values of a random model
+	 */
+	private static Model toReceiver(Model elite, int numNeurons, int neuronIdx) {
+		Model model = new Model(numNeurons, neuronIdx);
+		model.a = elite.a;
+		model.b = elite.b;
+		model.c = elite.c;
+		model.d = elite.d;
+		model.p1 = elite.p1;
+		model.p2 = elite.p2;
+		model.p3 = elite.p3;
+		model.p4 = elite.p4;
+		model.u = elite.startU;
+		model.startU = elite.startU;
+		model.v = 0;
+		return model;
+	}
+
+}
@@ -0,0 +1,30 @@
+/** Precision.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction;
+
+/**
+ * Java enumeration containing the floating point precisions of the fitness
+ * evaluation.
+ * 
+ * @author Leah Lackner
+ */
+public enum Precision {
+
+	/**
+	 * All values are stored and calculated with double precision.
+	 */
+	DOUBLE,
+
+	/**
+	 * The traces and the simulations of the {@link FloatPopulationKernel} are
+	 * stored and calculated with single precision. The weight estimation and
+	 * the fitness evaluation still use double precision.
+	 */
+	SINGLE
+
+}
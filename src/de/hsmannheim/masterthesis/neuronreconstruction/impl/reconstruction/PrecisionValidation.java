@@ -0,0 +1,164 @@
+/** PrecisionValidation.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.integration.IntegrationMethod;
+
+/**
+ * Compares the fitness values of the single precision evaluation with the
+ * fitness values of the double precision evaluation for the best individuals
+ * of a population.
+ *
+ * <p />
+ * Both evaluations start from the same models, so the differences are only
+ * caused by the precision of the u tuning and the simulations.
+ *
+ * @author Leah Lackner
+ */
+public class PrecisionValidation {
+
+	private final double[] singleFitness;
+	private final double[] doubleFitness;
+
+	private PrecisionValidation(double[] singleFitness, double[] doubleFitness) {
+		this.singleFitness = singleFitness;
+		this.doubleFitness = doubleFitness;
+	}
+
+	/**
+	 * Evaluates the best individuals of the current generation again with
+	 * single and with double precision. The arena is not modified.
+	 *
+	 * @param arena
+	 *            The population
+	 * @param count
+	 *            The number of the best individuals to be validated
+	 * @param context
+	 *            The measured data and the values derived from it
+	 * @param measures
+	 *            The measures used for the fitness evaluation
+	 *
+	 * @return The result of the validation
+	 */
+	public static PrecisionValidation validate(PopulationArena arena, int count, DatasetContext context,
+			Map<Class<?>, Double> measures) {
+		count = Math.min(count, arena.size());
+
+		PopulationArena copies = new PopulationArena(Math.max(1, count), arena.getNumNeurons(),
+				arena.getNeuronIndex(), false);
+		for (int i = 0; i < count; i++) {
+			copies.addModelToNext(arena.toModel(i));
+		}
+		new FloatPopulationKernel(Math.max(1, count), arena.getNumNeurons()).evaluate(copies, 0, count, null, 0,
+				context, measures, false);
+
+		double[] singleFitness = new double[count];
+		double[] doubleFitness = new double[count];
+		for (int i = 0; i < count; i++) {
+			singleFitness[i] = copies.getNextFitness(i);
+
+			Individual doubleIndividual = new Individual(arena.toModel(i));
+			doubleIndividual.calculateFitness(new Random(0), context, IntegrationMethod.EULER.getIntegrator(),
+					measures);
+			doubleFitness[i] = doubleIndividual.getFitness();
+		}
+		return new PrecisionValidation(singleFitness, doubleFitness);
+	}
+
+	/**
+	 * @return The number of the validated individuals
+	 */
+	public int getCount() {
+		return singleFitness.length;
+	}
+
+	/**
+	 * @param i
+	 *            The rank of the individual in the population
+	 * @return The fitness value with single precision
+	 */
+	public double getSingleFitness(int i) {
+		return singleFitness[i];
+	}
+
+	/**
+	 * @param i
+	 *            The rank of the individual in the population
+	 * @return The fitness value with double precision
+	 */
+	public double getDoubleFitness(int i) {
+		return doubleFitness[i];
+	}
+
+	/**
+	 * @return The maximum absolute difference of the fitness values
+	 */
+	public double getMaxDrift() {
+		double max = 0;
+		for (int i = 0; i < singleFitness.length; i++) {
+			max = Math.max(max, Math.abs(singleFitness[i] - doubleFitness[i]));
+		}
+		return max;
+	}
+
+	/**
+	 * @return The mean absolute difference of the fitness values
+	 */
+	public double getMeanDrift() {
+		if (singleFitness.length == 0) {
+			return 0;
+		}
+		double sum = 0;
+		for (int i = 0; i < singleFitness.length; i++) {
+			sum += Math.abs(singleFitness[i] - doubleFitness[i]);
+		}
+		return sum / singleFitness.length;
+	}
+
+	/**
+	 * @return The maximum difference of the fitness values relative to the
+	 *         fitness values with double precision
+	 */
+	public double getMaxRelativeDrift() {
+		double max = 0;
+		for (int i = 0; i < singleFitness.length; i++) {
+			double drift = Math.abs(singleFitness[i] - doubleFitness[i]);
+			if (drift > 0) {
+				max = Math.max(max, drift / Math.abs(doubleFitness[i]));
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * @return true if the validated individuals are in the same order with
+	 *         both precisions
+	 */
+	public boolean isRankingPreserved() {
+		for (int i = 0; i < singleFitness.length; i++) {
+			for (int j = i + 1; j < singleFitness.length; j++) {
+				if (Double.compare(singleFitness[i], singleFitness[j]) != Double.compare(doubleFitness[i],
+						doubleFitness[j])) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "individuals=%d; max drift=%g; mean drift=%g; max relative drift=%g; ranking preserved=%b",
+				getCount(), getMaxDrift(), getMeanDrift(), getMaxRelativeDrift(), isRankingPreserved());
+	}
+
+}
@@ -0,0 +1,117 @@
+/** RandomStreams.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction;
+
+import java.util.Random;
+
+/**
+ * A deterministic hierarchy of random streams of one reconstruction (run).
+ *
+ * <p />
+ * The seed of each stream is derived from the seed of the run and the key
+ * (neuron, generation, individual, purpose), or (neuron, generation, purpose)
+ * for a stream of a whole generation, by the mixing function of
+ * SplitMix64 (the generator behind {@link java.util.SplittableRandom}), which
+ * is applied after each part of the key. So the seed of a stream does not
+ * depend on the order in which the streams are requested, and the
+ * individuals of a generation can be bred and evaluated by any number of
+ * threads with the same results. The streams are {@link Random} instances,
+ * because the genetic operators are defined on them.
+ *
+ * <p />
+ * An instance is immutable and can be shared by all threads.
+ *
+ * @author Leah Lackner
+ */
+class RandomStreams {
+
+	/**
+	 * The stream which breeds an individual (in generation 0 the random
+	 * individuals of the initial population)
+	 */
+	static final int BREEDING = 0;
+
+	/**
+	 * The stream which evaluates an individual, i.e. replaces an invalid
+	 * individual by a random one
+	 */
+	static final int EVALUATION = 1;
+
+	/**
+	 * The increment of SplitMix64 (the odd number closest to 2^64 divided by
+	 * the golden ratio)
+	 */
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	private final long seed;
+
+	/**
+	 * @param seed
+	 *            The seed of the run
+	 */
+	RandomStreams(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * @param neuron
+	 *            The index of the neuron
+	 * @param generation
+	 *            The generation, 0 for the initial population
+	 * @param individual
+	 *            The slot of the individual in the generation
+	 * @param purpose
+	 *            {@link #BREEDING} or {@link #EVALUATION}
+	 * @return The seed of the stream with the given key
+	 */
+	long seed(int neuron, int generation, int individual, int purpose) {
+		long h = mix64(seed + GOLDEN_GAMMA * (neuron + 1L));
+		h = mix64(h + GOLDEN_GAMMA * (generation + 1L));
+		h = mix64(h + GOLDEN_GAMMA * (individual + 1L));
+		return mix64(h + GOLDEN_GAMMA * (purpose + 1L));
+	}
+
+	/**
+	 * @param neuron
+	 *            The index of the neuron
+	 * @param generation
+	 *            The generation, 0 for the initial population
+	 * @param purpose
+	 *            {@link #BREEDING} or {@link #EVALUATION}
+	 * @return The seed of the stream of a whole generation, e.g. the seed of
+	 *         an evaluation, which derives the random instances of the
+	 *         individuals from it (see {@link GenerationEvaluator})
+	 */
+	long seed(int neuron, int generation, int purpose) {
+		long h = mix64(seed + GOLDEN_GAMMA * (neuron + 1L));
+		h = mix64(h + GOLDEN_GAMMA * (generation + 1L));
+		return mix64(h - GOLDEN_GAMMA * (purpose + 1L));
+	}
+
+	/**
+	 * Resets a random instance to the start of the stream with the given key,
+	 * so one instance can be reused for the streams of several individuals.
+	 *
+	 * @return The given random instance
+	 * @see #seed(int, int, int, int)
+	 */
+	Random reset(Random r, int neuron, int generation, int individual, int purpose) {
+		r.setSeed(seed(neuron, generation, individual, purpose));
+		return r;
+	}
+
+	/**
+	 * The finalizer of SplitMix64 (variant 13 of the MurmurHash3 finalizer).
+	 */
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+}
@@ -0,0 +1,174 @@
+/** RankSelection.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Selects the ranks of the parents with the Exponential Selection Method
+ * described in the thesis in constant time.
+ *
+ * <p />
+ * The selection method starts at a random rank and adds up the selection
+ * weights of the following ranks (wrapping around after the last rank) until
+ * the sum exceeds a random value p in [0, 1). The rank at which the sum
+ * exceeds p is selected. This needs up to one exponential function per rank
+ * and selected parent.
+ *
+ * <p />
+ * The probability of a rank j follows from the sums of the weights of the
+ * ranks before it: if the walk started t ranks before j, it reaches j with the
+ * sum C_t and selects j if p is in [C_t, C_t + w_j). So the probability is the
+ * mean over all start ranks of the length of the part of this interval which
+ * lies in [0, 1), where the walks longer than one round are counted as further
+ * start ranks. The probabilities are calculated once for each population size
+ * and stored in an alias table (Walker's method), so a rank is selected with
+ * two random numbers independently of the population size.
+ *
+ * @author Leah Lackner
+ */
+class RankSelection {
+
+	/**
+	 * The tables of the used population sizes
+	 */
+	private static final Map<Integer, RankSelection> TABLES = new ConcurrentHashMap<>();
+
+	private final int size;
+
+	/**
+	 * The probability to keep the rank of a column of the alias table
+	 */
+	private final double[] probability;
+
+	/**
+	 * The rank which is selected instead of the rank of a column
+	 */
+	private final int[] alias;
+
+	/**
+	 * @param size
+	 *            The size of the population
+	 * @return The selection for the given size, which is shared by all threads
+	 */
+	static RankSelection forSize(int size) {
+		return TABLES.computeIfAbsent(size, RankSelection::new);
+	}
+
+	private RankSelection(int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException("The population must not be empty");
+		}
+		this.size = size;
+
+		double[] weights = new double[size];
+		for (int rank = 0; rank < size; rank++) {
+			weights[rank] = calculateProbability(size, rank);
+		}
+		double[] selectionProbabilities = calculateSelectionProbabilities(weights);
+
+		probability = new double[size];
+		alias = new int[size];
+		buildAliasTable(selectionProbabilities);
+	}
+
+	/**
+	 * Calculates the probability of each rank to be selected by the walk over
+	 * the ranks.
+	 */
+	private static double[] calculateSelectionProbabilities(double[] weights) {
+		int size = weights.length;
+		double[] result = new double[size];
+		for (int rank = 0; rank < size; rank++) {
+			if (weights[rank] == 0)
+				continue;
+
+			// Go back from the rank until the sum of the weights exceeds 1,
+			// i.e. no start rank further away can reach the rank
+			double sum = 0;
+			double length = 0;
+			for (int t = 1; sum < 1; t++) {
+				length += Math.min(1, sum + weights[rank]) - sum;
+				sum += weights[Math.floorMod(rank - t, size)];
+			}
+			result[rank] = length / size;
+		}
+		return result;
+	}
+
+	/**
+	 * Builds the alias table with Vose's method.
+	 */
+	private void buildAliasTable(double[] selectionProbabilities) {
+		double total = 0;
+		for (double p : selectionProbabilities) {
+			total += p;
+		}
+
+		double[] scaled = new double[size];
+		int[] small = new int[size];
+		int[] large = new int[size];
+		int numSmall = 0;
+		int numLarge = 0;
+		for (int rank = 0; rank < size; rank++) {
+			scaled[rank] = selectionProbabilities[rank] / total * size;
+			if (scaled[rank] < 1) {
+				small[numSmall++] = rank;
+			} else {
+				large[numLarge++] = rank;
+			}
+		}
+
+		while (numSmall > 0 && numLarge > 0) {
+			int less = small[--numSmall];
+			int more = large[--numLarge];
+			probability[less] = scaled[less];
+			alias[less] = more;
+			scaled[more] = scaled[more] + scaled[less] - 1;
+			if (scaled[more] < 1) {
+				small[numSmall++] = more;
+			} else {
+				large[numLarge++] = more;
+			}
+		}
+		// The remaining columns are full except for rounding errors
+		while (numLarge > 0) {
+			int rank = large[--numLarge];
+			probability[rank] = 1;
+			alias[rank] = rank;
+		}
+		while (numSmall > 0) {
+			int rank = small[--numSmall];
+			probability[rank] = 1;
+			alias[rank] = rank;
+		}
+	}
+
+	/**
+	 * Select a random rank.
+	 *
+	 * @param r
+	 *            The random instance
+	 * @return The rank
+	 */
+	int select(Random r) {
+		int column = r.nextInt(size);
+		return r.nextDouble() < probability[column] ? column : alias[column];
+	}
+
+	/**
+	 * Calculate the probability for selecting with the Exponential Selection
+	 * Method.
+	 */
+	private static double calculateProbability(int size, int rank) {
+		return Math.max(0, 1 - Math.exp(-.005 * (size - (size * .05) - rank)));
+	}
+
+}
@@ -12,20 +12,32 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
 
 import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.Model;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.SparseNetworkSimulator;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.integration.IntegrationMethod;
 import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.gui.GUI;
 import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.modes.ReconstructionMode;
 import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.modes.ReconstructionModeAbstract;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.optimizer.OptimizationProblem;
 
 /**
  * Main implementation of the reconstruction. Contains also the implementation
@@ -37,6 +49,82 @@ public class Reconstruction {
 
 	private GUI gui;
 
+	private final ReconstructionOptions options;
+
+	/**
+	 * Evaluates the individuals in the threads of the work queue
+	 */
+	private GenerationEvaluator evaluator;
+
+	/**
+	 * Evaluates the individuals on remote workers if workers are configured
+	 */
+	private DistributedEvaluator distributedEvaluator;
+
+	/**
+	 * The keyed random streams of the generational Genetic Algorithm, null if
+	 * the neurons use their random instances
+	 */
+	private RandomStreams streams;
+
+	/**
+	 * The checkpoints of the neurons, null if the checkpoints are disabled
+	 */
+	private Checkpoints checkpoints;
+
+	/**
+	 * The models of previous reconstructions in the initial populations, null
+	 * if there are no warm start sources
+	 */
+	private WarmStart warmStart;
+
+	/**
+	 * The elites of the reconstructed neurons for the following neurons, null
+	 * if the population transfer is disabled
+	 */
+	private PopulationTransfer transfer;
+
+	/**
+	 * true if each neuron writes its own log file
+	 */
+	private boolean neuronLogs;
+
+	/**
+	 * The number of neurons which are reconstructed at once
+	 */
+	private int concurrentNeurons;
+
+	/**
+	 * The number of all evaluations and of the aborted evaluations of all
+	 * neurons of the current reconstruction, see
+	 * {@link ReconstructionOptions#setEarlyTerminationRank(int)}
+	 */
+	private final LongAdder evaluations = new LongAdder();
+	private final LongAdder abortedEvaluations = new LongAdder();
+
+	/**
+	 * The fitness values of the reconstructed models of the last
+	 * reconstruction
+	 */
+	private double[] fitnessValues;
+
+	/**
+	 * Creates a reconstruction with the default options.
+	 */
+	public Reconstruction() {
+		this(new ReconstructionOptions());
+	}
+
+	/**
+	 * Creates a reconstruction with the given options.
+	 * 
+	 * @param options
+	 *            The options of the reconstruction
+	 */
+	public Reconstruction(ReconstructionOptions options) {
+		this.options = options;
+	}
+
 	/**
 	 * Reconstructs a model for one neuron of input.
 	 * 
@@ -157,127 +245,1343 @@ public class Reconstruction {
 			int abortWhenNoChangeAfterGenerationThreshold, double mutationRate, int inputIdxAfterTuning,
 			boolean guiEnabled, ReconstructionMode modeWrapper, String outputPath, Map<Class<?>, Double> measures)
 			throws IOException {
-		cleanOldLogFiles(outputPath);
+		// The measured data and the values derived from it are shared by all
+		// fitness evaluations of the reconstruction
+		DatasetContext context = new DatasetContext(inputs, vs, dt, inputIdxAfterTuning);
+
+		return reconstruct(datasetName, r, context, populationSize, fitnessThreshold, generationThreshold,
+				abortWhenNoChangeAfterGenerationThreshold, mutationRate, guiEnabled, modeWrapper, outputPath,
+				measures);
+	}
+
+	/**
+	 * Reconstructs a model for multiple neurons of the measured data of a
+	 * context. The context can be shared by several reconstructions of the
+	 * same data, e.g. by the configurations of a parameter sweep, so the
+	 * values derived from the data are only computed once.
+	 * 
+	 * @param context
+	 *            The measured data, the dt value and the time step until the u
+	 *            value is tuned
+	 * @return The reconstructed models
+	 * @throws IOException
+	 * 
+	 * @see #reconstruct(String, Random, double[][], double[][], double, int,
+	 *      double, int, int, double, int, boolean, ReconstructionMode, String,
+	 *      Map)
+	 */
+	public List<Model> reconstruct(String datasetName, Random r, DatasetContext context, int populationSize,
+			double fitnessThreshold, int generationThreshold, int abortWhenNoChangeAfterGenerationThreshold,
+			double mutationRate, boolean guiEnabled, ReconstructionMode modeWrapper, String outputPath,
+			Map<Class<?>, Double> measures) throws IOException {
+		// The arguments are checked before anything is written into the output
+		// directory
+		options.validate();
+		if (options.getIslands() > 1 && populationSize < 2 * options.getIslands()) {
+			throw new IllegalArgumentException("Each island needs at least two individuals");
+		}
+		// The warm start models are loaded before the old log files are
+		// removed, so the output directory can be one of the sources
+		warmStart = options.getWarmStartSources().isEmpty() ? null
+				: WarmStart.load(options.getWarmStartSources(), context.getNumNeurons());
+		if (!options.isResume()) {
+			cleanOldLogFiles(outputPath);
+		}
 		new File(outputPath).mkdirs();
 
-		ReconstructionModeAbstract mode = modeWrapper.getMode();
-		int numNeurons = inputs[0].length;
+		double[][] inputs = context.getInputs();
+		double[][] vs = context.getVs();
+		double dt = context.getDt();
+		int inputIdxAfterTuning = context.getInputIdxAfterTuning();
+
+		ReconstructionModeAbstract mode = modeWrapper.getMode();
+		int numNeurons = context.getNumNeurons();
+
+		log(outputPath, "description,neuron,fitness,diversity,time,time_generation");
+		if (warmStart != null) {
+			log(outputPath, "Warm start (models=" + warmStart.size() + "),,,,,");
+		}
+
+		// A shared queue limits the threads of all reconstructions which use
+		// it and is not shut down by them
+		WorkQueue parallelQueue = options.getWorkQueue() != null ? options.getWorkQueue() : new WorkQueue();
+		List<Model> bestInds = new ArrayList<>(numNeurons);
+		fitnessValues = new double[numNeurons];
+		// The threads, connections and files are released even if the
+		// reconstruction of a neuron fails
+		try {
+			evaluator = new GenerationEvaluator(options, numNeurons);
+			evaluations.reset();
+			abortedEvaluations.reset();
+			if (!options.getWorkers().isEmpty()) {
+				distributedEvaluator = new DistributedEvaluator(options.getWorkers(), options.getWorkerTimeout(),
+						context, modeWrapper, measures, options);
+			}
+			// The streams are drawn before the seeds of the neurons, so the
+			// results do not depend on the number of concurrent neurons
+			streams = options.isKeyedRandomStreams() ? new RandomStreams(r.nextLong()) : null;
+			checkpoints = options.getCheckpointInterval() > 0 || options.isResume()
+					? new Checkpoints(outputPath + "/checkpoints", options.isResume()) : null;
+			transfer = options.getTransferFraction() > 0 ? new PopulationTransfer(context) : null;
+			long startTime = System.currentTimeMillis();
+
+			// Initialise the GUI only if it is enabled
+			if (guiEnabled) {
+				gui = new GUI(datasetName, inputs, vs, dt, inputIdxAfterTuning, generationThreshold, fitnessThreshold,
+						populationSize, abortWhenNoChangeAfterGenerationThreshold, mutationRate);
+			}
+
+			// The GUI shows only one neuron at once
+			concurrentNeurons = guiEnabled ? 1 : Math.min(options.getConcurrentNeurons(), numNeurons);
+			neuronLogs = concurrentNeurons > 1;
+			// Each neuron uses its own random instance if several neurons are
+			// reconstructed at once or if the states of the random instances are
+			// written into the checkpoints
+			long[] seeds = null;
+			if (concurrentNeurons > 1 || checkpoints != null) {
+				seeds = new long[numNeurons];
+				for (int n = 0; n < numNeurons; n++) {
+					seeds[n] = r.nextLong();
+				}
+			}
+			if (concurrentNeurons <= 1) {
+				// For each neuron of the network
+				for (int n = 0; n < numNeurons; n++) {
+					Random neuronRandom = seeds != null ? createNeuronRandom(seeds[n]) : r;
+					Individual bestInd = reconstructNeuron(n, neuronRandom, mode, parallelQueue, context, startTime,
+							populationSize, fitnessThreshold, generationThreshold,
+							abortWhenNoChangeAfterGenerationThreshold, mutationRate, outputPath, measures);
+					bestInds.add(bestInd.getModel());
+					fitnessValues[n] = bestInd.getFitness();
+
+					if (guiEnabled)
+						gui.actionUpdateOverall(n);
+					System.err.flush();
+				}
+			} else {
+				// Several neurons are reconstructed at once. Their evaluations
+				// share the worker threads of the queue, so that the workers are
+				// busy while the other neurons breed or sort their generations.
+				// Each neuron uses its own random instance, so the results do not
+				// depend on the order in which the generations are processed.
+				long[] neuronSeeds = seeds;
+				ExecutorService neuronExecutor = Executors.newFixedThreadPool(concurrentNeurons);
+				try {
+					List<Future<Individual>> results = new ArrayList<>(numNeurons);
+					for (int n = 0; n < numNeurons; n++) {
+						final int neuronIdx = n;
+						results.add(neuronExecutor.submit(() -> reconstructNeuron(neuronIdx,
+								createNeuronRandom(neuronSeeds[neuronIdx]), mode, parallelQueue, context, startTime,
+								populationSize, fitnessThreshold, generationThreshold,
+								abortWhenNoChangeAfterGenerationThreshold, mutationRate, outputPath, measures)));
+					}
+					for (int n = 0; n < numNeurons; n++) {
+						Individual bestInd = results.get(n).get();
+						bestInds.add(bestInd.getModel());
+						fitnessValues[n] = bestInd.getFitness();
+					}
+				} catch (InterruptedException e) {
+					throw new RuntimeException("Interrupted while reconstructing the neurons", e);
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof IOException) {
+						throw (IOException) e.getCause();
+					}
+					throw new RuntimeException("Error while reconstructing the neurons", e.getCause());
+				} finally {
+					neuronExecutor.shutdownNow();
+				}
+			}
+			if (evaluator.getCache() != null) {
+				log(outputPath, "Fitness cache (" + evaluator.getCache() + "),,,,,");
+			}
+			if (options.getEarlyTerminationRank() > 0) {
+				log(outputPath, "Early termination (evaluations=" + evaluations.sum() + ";aborted="
+						+ abortedEvaluations.sum() + "),,,,,");
+			}
+			if (distributedEvaluator != null) {
+				log(outputPath, "Distributed evaluation (" + distributedEvaluator + "),,,,,");
+			}
+		} finally {
+			if (parallelQueue != options.getWorkQueue()) {
+				parallelQueue.shutdown();
+			}
+			if (distributedEvaluator != null) {
+				distributedEvaluator.close();
+				distributedEvaluator = null;
+			}
+			if (checkpoints != null) {
+				Checkpoints closed = checkpoints;
+				checkpoints = null;
+				closed.close();
+			}
+		}
+
+		// Simulate the whole network to attain the data for the written results
+		double[][] vsReconstructed = calculateAFullNetworkSimulation(inputs, vs, bestInds, inputIdxAfterTuning, dt);
+
+		// Produce the spike timing graphic if the GUI is enabled
+		if (guiEnabled) {
+			gui.actionReconstructionIsDone(vs, vsReconstructed);
+		}
+		writeResults(inputs, vs, vsReconstructed, bestInds, outputPath);
+		if (options.isModelBundle() || warmStart != null) {
+			WarmStart.writeBundle(outputPath + "/" + WarmStart.BUNDLE, bestInds, fitnessValues);
+		}
+		warmStart = null;
+		transfer = null;
+
+		return bestInds;
+	}
+
+	/**
+	 * @return The random instance of a neuron, whose state can be written into
+	 *         the checkpoints if they are enabled
+	 */
+	private Random createNeuronRandom(long seed) {
+		return checkpoints != null ? new RestorableRandom(seed) : new Random(seed);
+	}
+
+	/**
+	 * Loads the models which a warm start with the given sources seeds into
+	 * the initial populations (see
+	 * {@link ReconstructionOptions#setWarmStartSources(List)}).
+	 *
+	 * @param sources
+	 *            The output directories and model bundles
+	 * @param numNeurons
+	 *            The number of all neurons in the network
+	 * @return The distinct models by the index of the neuron, the best ones
+	 *         first
+	 * @throws IOException
+	 */
+	public static List<List<Model>> loadWarmStartModels(List<String> sources, int numNeurons) throws IOException {
+		WarmStart loaded = WarmStart.load(sources, numNeurons);
+		List<List<Model>> models = new ArrayList<>(numNeurons);
+		for (int n = 0; n < numNeurons; n++) {
+			models.add(loaded.getModels(n));
+		}
+		return models;
+	}
+
+	/**
+	 * @return The fitness values of the models of the last reconstruction, by
+	 *         the index of the neuron, null before the first reconstruction
+	 */
+	public double[] getFitnessValues() {
+		return fitnessValues == null ? null : fitnessValues.clone();
+	}
+
+	/**
+	 * Runs the Genetic Algorithm for one neuron of the network.
+	 * 
+	 * @param n
+	 *            The index of the neuron
+	 * @param r
+	 *            The random instance of the neuron
+	 * @param startTime
+	 *            The start time of the whole reconstruction
+	 * 
+	 * @return The best individual
+	 * 
+	 * @see #reconstruct(String, Random, double[][], double[][], double, int,
+	 *      double, int, int, double, int, boolean, ReconstructionMode, String,
+	 *      Map)
+	 */
+	private Individual reconstructNeuron(int n, Random r, ReconstructionModeAbstract mode, WorkQueue parallelQueue,
+			DatasetContext context, long startTime, int populationSize, double fitnessThreshold,
+			int generationThreshold, int abortWhenNoChangeAfterGenerationThreshold, double mutationRate,
+			String outputPath, Map<Class<?>, Double> measures) throws IOException {
+		int numNeurons = context.getNumNeurons();
+		Checkpoints.NeuronState resumed = checkpoints != null && options.isResume() ? checkpoints.read(n) : null;
+		if (resumed == null) {
+			initLogFiles(outputPath, n, numNeurons);
+		}
+
+		if (options.getOptimizer() != null) {
+			return reconstructNeuronWithOptimizer(n, r, mode, parallelQueue, context, startTime, populationSize,
+					fitnessThreshold, generationThreshold, abortWhenNoChangeAfterGenerationThreshold, outputPath,
+					measures);
+		}
+		if (options.isSteadyState()) {
+			return reconstructNeuronSteadyState(n, r, mode, parallelQueue, context, startTime, populationSize,
+					fitnessThreshold, generationThreshold, abortWhenNoChangeAfterGenerationThreshold, mutationRate,
+					outputPath, measures);
+		}
+		if (options.getIslands() > 1) {
+			return reconstructNeuronWithIslands(n, r, mode, parallelQueue, context, startTime, populationSize,
+					fitnessThreshold, generationThreshold, abortWhenNoChangeAfterGenerationThreshold, mutationRate,
+					outputPath, measures);
+		}
+
+		PopulationArena population = new PopulationArena(populationSize, numNeurons, n,
+				options.isOffHeapPopulation());
+		FidelityLadder ladder = createFidelityLadder(context);
+		SurrogateScreening screening = null;
+		double lastFitness;
+		int lastFitnessSameCount;
+		int generationCount;
+		if (resumed != null) {
+			// Continue with the state of the last checkpoint
+			resumed.restore(population, (RestorableRandom) r);
+			lastFitness = resumed.lastFitness;
+			lastFitnessSameCount = resumed.lastFitnessSameCount;
+			generationCount = resumed.generation;
+			if (resumed.completed) {
+				log(outputPath, n, "Resumed finished neuron after " + generationCount + " generation(s)," + n + ","
+						+ population.getFitness(0) + ",,,");
+				publishElites(n, population, populationSize);
+				return population.toIndividual(0);
+			}
+			log(outputPath, n, "Resumed from generation " + generationCount + "," + n + ","
+					+ population.getFitness(0) + ",,,");
+		} else {
+			// 1: Generate an initial population with N individuals
+			log(outputPath, n, "Generating initial population,,,");
+			List<Model> transferred = transferModels(n, numNeurons, populationSize, outputPath);
+			generateInitialPopulation(n, r, mode, parallelQueue, population, populationSize, transferred);
+
+			// 2: Calculate the fitness values for the initial generation.
+			log(outputPath, n, "Starting reconstruction,,,");
+			recalculateFitness(mode, n, r, parallelQueue, population, context, 0, measures, ladder, 0);
+			if (options.isSurrogateScreening()) {
+				screening = new SurrogateScreening(mode, populationSize, SURROGATE_GENERATIONS,
+						options.getSurrogateQuantile());
+				screening.train(population);
+			}
+			String timeStrGeneration1 = toTime(startTime, System.currentTimeMillis());
+			log(outputPath, n, "Generation 0," + n + "," + population.getFitness(0) + ","
+					+ population.getDiversity() + "," + timeStrGeneration1 + "," + timeStrGeneration1);
+			logModel(outputPath, population.toIndividual(0), n);
+
+			lastFitness = population.getFitness(0);
+			lastFitnessSameCount = 0;
+			generationCount = 0;
+			writeCheckpoint(n, r, population, generationCount, lastFitness, lastFitnessSameCount);
+		}
+
+		// 3: Run the Genetic Algorithm
+		while (population.getFitness(0) > fitnessThreshold && generationCount < generationThreshold) {
+			generationCount++;
+			long startTimeGeneration = System.currentTimeMillis();
+
+			// The next generation is bred in the second buffer of the arena
+			int eliteSlots = breedNextGeneration(mode, r, n, generationCount, parallelQueue, population,
+					populationSize, mutationRate, screening);
+
+			// Determine the fitness values of the whole population, the
+			// next generation becomes the current generation
+			recalculateFitness(mode, n, r, parallelQueue, population, context, generationCount, measures, ladder,
+					eliteSlots);
+			log(outputPath, n,
+					"Generation " + generationCount + "," + n + "," + population.getFitness(0) + ","
+							+ population.getDiversity() + "," + toTime(startTime, System.currentTimeMillis()) + ","
+							+ toTime(startTimeGeneration, System.currentTimeMillis()));
+			logModel(outputPath, population.toIndividual(0), n);
+			if (screening != null) {
+				screening.train(population);
+				log(outputPath, n, "Surrogate screening (" + screening + ")," + n + ",,,,");
+			}
+			if (ladder != null) {
+				log(outputPath, n, "Fidelity levels (" + ladder + ")," + n + ",,,,");
+			}
+
+			// Abort if the fitness value has not changed for a specified
+			// number of generations
+			boolean stagnated = false;
+			if (population.getFitness(0) == lastFitness) {
+				lastFitnessSameCount++;
+				stagnated = lastFitnessSameCount > abortWhenNoChangeAfterGenerationThreshold;
+			} else {
+				lastFitness = population.getFitness(0);
+				lastFitnessSameCount = 0;
+			}
+			writeCheckpoint(n, r, population, generationCount, lastFitness, lastFitnessSameCount);
+			if (stagnated) {
+				break;
+			}
+		}
+		// Report the differences of the single precision evaluation
+		validatePrecision(n, population, context, outputPath, measures);
+
+		// Extract the best individual
+		Individual bestInd = population.toIndividual(0);
+		log(outputPath, n, "Finnished after " + generationCount + " generation(s),," + bestInd.getFitness() + ","
+				+ population.getDiversity() + "," + toTime(startTime, System.currentTimeMillis()) + ",");
+		if (checkpoints != null && options.getCheckpointInterval() > 0) {
+			checkpoints.write(Checkpoints.NeuronState.of(n, true, generationCount, lastFitness, lastFitnessSameCount,
+					(RestorableRandom) r, population));
+		}
+		publishElites(n, population, populationSize);
+
+		return bestInd;
+	}
+
+	/**
+	 * Compares the single precision fitness values of the best individuals of
+	 * the last generation with their double precision values and logs the
+	 * differences, if the single precision batch evaluation is used and the
+	 * validation is enabled (see
+	 * {@link ReconstructionOptions#setPrecisionValidationCount(int)}).
+	 */
+	private void validatePrecision(int n, PopulationArena population, DatasetContext context, String outputPath,
+			Map<Class<?>, Double> measures) throws IOException {
+		if (options.getPrecision() == Precision.SINGLE && options.isBatchEvaluation()
+				&& options.getIntegrationMethod() == IntegrationMethod.EULER
+				&& options.getPrecisionValidationCount() > 0) {
+			PrecisionValidation validation = PrecisionValidation.validate(population,
+					options.getPrecisionValidationCount(), context, measures);
+			log(outputPath, n, "Precision validation (" + validation + ")," + n + ","
+					+ validation.getDoubleFitness(0) + ",,,");
+		}
+	}
+
+	/**
+	 * Generates the initial population of a neuron, the warm start models
+	 * and the transferred models first and random individuals for the
+	 * remaining slots.
+	 */
+	private void generateInitialPopulation(int n, Random r, ReconstructionModeAbstract mode, WorkQueue parallelQueue,
+			PopulationArena population, int populationSize, List<Model> transferred) {
+		int seeded = seedInitialPopulation(n, mode, slotRandoms(r, n, 0), population, populationSize, transferred);
+		if (streams != null) {
+			// Each slot has its own stream, so the individuals are generated
+			// in parallel
+			int first = population.reserveNext(populationSize - seeded);
+			runBlocks(parallelQueue, first, first + populationSize - seeded, BREEDING_BLOCK_SIZE, (from, to) -> {
+				IntFunction<Random> randoms = slotRandoms(r, n, 0);
+				for (int slot = from; slot < to; slot++) {
+					population.setRandomNext(mode, randoms.apply(slot), slot);
+				}
+			});
+		} else {
+			for (int i = seeded; i < populationSize; i++) {
+				population.addRandomToNext(mode, r);
+			}
+		}
+	}
+
+	/**
+	 * Adds the warm start models of a neuron to the next generation of a
+	 * population (see {@link ReconstructionOptions#setWarmStartSources(List)}).
+	 * The best models are added unchanged. If there are less models than
+	 * warm start slots, the remaining slots get mutated copies of the models.
+	 * The transferred models are added after them (see
+	 * {@link ReconstructionOptions#setTransferFraction(double)}).
+	 *
+	 * @param randoms
+	 *            The random instance by the slot, which mutates the copies
+	 * @param size
+	 *            The size of the population
+	 * @param transferred
+	 *            The models returned by
+	 *            {@link #transferModels(int, int, int, String)}
+	 * @return The number of added individuals
+	 */
+	private int seedInitialPopulation(int n, ReconstructionModeAbstract mode, IntFunction<Random> randoms,
+			PopulationArena population, int size, List<Model> transferred) {
+		int count = 0;
+		List<Model> models = warmStart != null ? warmStart.getModels(n) : null;
+		if (models != null && !models.isEmpty()) {
+			count = Math.min(size, (int) Math.ceil(options.getWarmStartFraction() * size));
+			for (int i = 0; i < count; i++) {
+				int slot = population.addModelToNext(models.get(i % models.size()));
+				if (i >= models.size()) {
+					Random slotRandom = randoms.apply(slot);
+					for (int m = 0; m < options.getWarmStartMutations(); m++) {
+						mutate(mode, slotRandom, population, slot);
+					}
+				}
+			}
+		}
+		int transferSlots = Math.min(size - count,
+				Math.min(transferred.size(), (int) Math.ceil(options.getTransferFraction() * size)));
+		for (int i = 0; i < transferSlots; i++) {
+			population.addModelToNext(transferred.get(i));
+		}
+		return count + transferSlots;
+	}
+
+	/**
+	 * Creates the transferred models of a neuron from the elites of the most
+	 * similar reconstructed neurons and logs the donors.
+	 *
+	 * @return The models, empty if the population transfer is disabled or
+	 *         there are no donors
+	 */
+	private List<Model> transferModels(int n, int numNeurons, int populationSize, String outputPath)
+			throws IOException {
+		if (transfer == null) {
+			return Collections.emptyList();
+		}
+		List<Integer> donors = transfer.getDonors(n, options.getTransferDonors());
+		List<Model> models = transfer.getModels(n, numNeurons, donors,
+				(int) Math.ceil(options.getTransferFraction() * populationSize));
+		StringBuilder donorList = new StringBuilder();
+		for (int donor : donors) {
+			donorList.append(donorList.length() > 0 ? " " : "").append(donor);
+		}
+		log(outputPath, n, "Population transfer (donors=" + donorList + ";models=" + models.size() + ")," + n
+				+ ",,,,");
+		return models;
+	}
+
+	/**
+	 * Publishes the best individuals of a reconstructed neuron for the
+	 * population transfer, if it is enabled.
+	 */
+	private void publishElites(int n, PopulationArena population, int populationSize) {
+		if (transfer != null) {
+			transfer.publish(n, population, (int) Math.ceil(options.getTransferFraction() * populationSize));
+		}
+	}
+
+	/**
+	 * Writes a checkpoint of a neuron if the checkpoints are enabled and the
+	 * generation is a multiple of the checkpoint interval.
+	 */
+	private void writeCheckpoint(int n, Random r, PopulationArena population, int generation, double lastFitness,
+			int lastFitnessSameCount) throws IOException {
+		int interval = options.getCheckpointInterval();
+		if (checkpoints != null && interval > 0 && generation % interval == 0) {
+			checkpoints.write(Checkpoints.NeuronState.of(n, false, generation, lastFitness, lastFitnessSameCount,
+					(RestorableRandom) r, population));
+		}
+	}
+
+	/**
+	 * Runs the Genetic Algorithm for one neuron of the network with the
+	 * island model. The population is split into sub-populations (islands),
+	 * which evolve independently. Each island is processed by one task of the
+	 * work queue, which breeds and evaluates the generations of the island in
+	 * its own thread. The islands are only synchronised every
+	 * {@link ReconstructionOptions#getMigrationInterval()} generations, when
+	 * the best individuals of the islands migrate to their neighbours and
+	 * replace the worst individuals there. The stopping criteria are checked
+	 * at the same time.
+	 * 
+	 * @see #reconstructNeuron(int, Random, ReconstructionModeAbstract,
+	 *      WorkQueue, DatasetContext, long, int, double, int, int, double,
+	 *      String, Map)
+	 */
+	private Individual reconstructNeuronWithIslands(int n, Random r, ReconstructionModeAbstract mode,
+			WorkQueue parallelQueue, DatasetContext context, long startTime, int populationSize,
+			double fitnessThreshold, int generationThreshold, int abortWhenNoChangeAfterGenerationThreshold,
+			double mutationRate, String outputPath, Map<Class<?>, Double> measures) throws IOException {
+		int numIslands = options.getIslands();
+
+		// 1: Generate an initial population for each island, each island uses
+		// its own random instance
+		log(outputPath, n, "Generating initial population,,,");
+		List<Model> transferred = transferModels(n, context.getNumNeurons(), populationSize, outputPath);
+		Island[] islands = new Island[numIslands];
+		for (int k = 0; k < numIslands; k++) {
+			int islandSize = populationSize / numIslands + (k < populationSize % numIslands ? 1 : 0);
+			islands[k] = new Island(new PopulationArena(islandSize, context.getNumNeurons(), n,
+					options.isOffHeapPopulation()), islandSize, new Random(r.nextLong()),
+					createFidelityLadder(context));
+		}
+
+		// 2: Calculate the fitness values for the initial generations.
+		log(outputPath, n, "Starting reconstruction,,,");
+		runIslands(parallelQueue, islands, island -> {
+			int seeded = seedInitialPopulation(n, mode, slot -> island.r, island.population, island.size,
+					transferred);
+			for (int i = seeded; i < island.size; i++) {
+				island.population.addRandomToNext(mode, island.r);
+			}
+			evaluateIsland(mode, island, context, measures, 0);
+		});
+		Island best = getBestIsland(islands);
+		String timeStrGeneration1 = toTime(startTime, System.currentTimeMillis());
+		log(outputPath, n, "Generation 0," + n + "," + best.population.getFitness(0) + "," + getDiversity(islands)
+				+ "," + timeStrGeneration1 + "," + timeStrGeneration1);
+		logModel(outputPath, best.population.toIndividual(0), n);
+
+		double lastFitness = best.population.getFitness(0);
+		int lastFitnessSameCount = 0;
+
+		// 3: Run the Genetic Algorithm on all islands until the next migration
+		int generationCount = 0;
+		while (best.population.getFitness(0) > fitnessThreshold && generationCount < generationThreshold) {
+			int generations = Math.min(options.getMigrationInterval(), generationThreshold - generationCount);
+			long startTimeGeneration = System.currentTimeMillis();
+
+			int firstGeneration = generationCount + 1;
+			runIslands(parallelQueue, islands, island -> {
+				for (int g = 0; g < generations && island.population.getFitness(0) > fitnessThreshold; g++) {
+					// The island is already processed by a task of the queue
+					int eliteSlots = breedNextGeneration(mode, island.r, n, firstGeneration + g, null,
+							island.population, island.size, mutationRate, null);
+					evaluateIsland(mode, island, context, measures, eliteSlots);
+				}
+			});
+			generationCount += generations;
+
+			best = getBestIsland(islands);
+			log(outputPath, n,
+					"Generation " + generationCount + "," + n + "," + best.population.getFitness(0) + ","
+							+ getDiversity(islands) + "," + toTime(startTime, System.currentTimeMillis()) + ","
+							+ toTime(startTimeGeneration, System.currentTimeMillis()));
+			logModel(outputPath, best.population.toIndividual(0), n);
+			if (gui != null) {
+				gui.actionUpdatePerNeuronAfter(n, best.population.toIndividual(0), generationCount);
+			}
+
+			// Abort if the fitness value has not changed for a specified
+			// number of generations
+			if (best.population.getFitness(0) == lastFitness) {
+				lastFitnessSameCount += generations;
+				if (lastFitnessSameCount > abortWhenNoChangeAfterGenerationThreshold) {
+					break;
+				}
+			} else {
+				lastFitness = best.population.getFitness(0);
+				lastFitnessSameCount = 0;
+			}
+
+			if (best.population.getFitness(0) > fitnessThreshold && generationCount < generationThreshold) {
+				migrate(islands, r);
+			}
+		}
+		// Report the differences of the single precision evaluation
+		validatePrecision(n, best.population, context, outputPath, measures);
+
+		// Extract the best individual of all islands
+		Individual bestInd = best.population.toIndividual(0);
+		log(outputPath, n, "Finnished after " + generationCount + " generation(s),," + bestInd.getFitness() + ","
+				+ getDiversity(islands) + "," + toTime(startTime, System.currentTimeMillis()) + ",");
+		publishElites(n, best.population, populationSize);
+
+		return bestInd;
+	}
+
+	/**
+	 * Runs the steady state Genetic Algorithm for one neuron of the network.
+	 * After the initial generation there are no generations anymore: Each
+	 * worker task repeatedly breeds a few offspring from the ranked population,
+	 * evaluates them without holding the lock of the population and inserts
+	 * them, whereby the worst individuals are removed. So the workers never
+	 * wait for the slowest evaluation of a generation.
+	 * 
+	 * <p />
+	 * The population size evaluations are counted as one generation, after
+	 * which the best individual is logged and the stagnation is checked. The
+	 * generation threshold limits the number of evaluations to the generation
+	 * threshold times the population size. The order of the insertions depends
+	 * on the timing of the workers, so the results are not reproducible.
+	 * 
+	 * @see #reconstructNeuron(int, Random, ReconstructionModeAbstract,
+	 *      WorkQueue, DatasetContext, long, int, double, int, int, double,
+	 *      String, Map)
+	 */
+	private Individual reconstructNeuronSteadyState(int n, Random r, ReconstructionModeAbstract mode,
+			WorkQueue parallelQueue, DatasetContext context, long startTime, int populationSize,
+			double fitnessThreshold, int generationThreshold, int abortWhenNoChangeAfterGenerationThreshold,
+			double mutationRate, String outputPath, Map<Class<?>, Double> measures) throws IOException {
+		int numNeurons = context.getNumNeurons();
+
+		// 1: Generate and evaluate an initial population with N individuals
+		log(outputPath, n, "Generating initial population,,,");
+		PopulationArena population = new PopulationArena(populationSize, numNeurons, n,
+				options.isOffHeapPopulation());
+		int seeded = seedInitialPopulation(n, mode, slot -> r, population, populationSize,
+				transferModels(n, numNeurons, populationSize, outputPath));
+		for (int i = seeded; i < populationSize; i++) {
+			population.addRandomToNext(mode, r);
+		}
+		log(outputPath, n, "Starting reconstruction,,,");
+		recalculateFitness(mode, n, r, parallelQueue, population, context, 0, measures);
+		String timeStrGeneration1 = toTime(startTime, System.currentTimeMillis());
+		log(outputPath, n, "Generation 0," + n + "," + population.getFitness(0) + "," + population.getDiversity() + ","
+				+ timeStrGeneration1 + "," + timeStrGeneration1);
+		logModel(outputPath, population.toIndividual(0), n);
+
+		// 2: Start the workers, the neurons which are reconstructed at once
+		// share the worker threads
+		int workers = Math.max(1, parallelQueue.getNumberOfWorker() / concurrentNeurons);
+		int offspringPerTask = 1;
+		if (options.isBatchEvaluation() && options.getIntegrationMethod() == IntegrationMethod.EULER) {
+			offspringPerTask = Math.max(1, Math.min(options.getBatchSize(), populationSize / workers));
+		}
+		long budget = (long) generationThreshold * populationSize;
+		SteadyState state = new SteadyState(workers);
+		for (int w = 0; w < workers; w++) {
+			Random workerRandom = new Random(r.nextLong());
+			int capacity = offspringPerTask;
+			parallelQueue.execute(() -> {
+				try {
+					runSteadyStateWorker(mode, workerRandom, population, state, capacity, budget, fitnessThreshold,
+							mutationRate, context, measures);
+				} catch (RuntimeException e) {
+					state.error.compareAndSet(null, e);
+					state.stop = true;
+				} finally {
+					state.workerFinished();
+				}
+			});
+		}
+
+		// 3: Log the progress after each generation and check the stagnation
+		double lastFitness = population.getFitness(0);
+		int lastFitnessSameCount = 0;
+		int generationCount = 0;
+		long startTimeGeneration = System.currentTimeMillis();
+		while (true) {
+			// The workers wake the driver up after each evaluated batch
+			try {
+				if (!state.awaitEvaluated((generationCount + 1L) * populationSize)) {
+					break;
+				}
+			} catch (InterruptedException e) {
+				// Stop the workers and pass the interrupt on to the caller
+				state.stop = true;
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted while reconstructing the neuron " + n, e);
+			}
+			generationCount++;
+			Individual best;
+			double diversity;
+			synchronized (population) {
+				best = population.toIndividual(0);
+				diversity = population.getDiversity();
+			}
+			log(outputPath, n,
+					"Generation " + generationCount + "," + n + "," + best.getFitness() + "," + diversity + ","
+							+ toTime(startTime, System.currentTimeMillis()) + ","
+							+ toTime(startTimeGeneration, System.currentTimeMillis()));
+			logModel(outputPath, best, n);
+			if (gui != null) {
+				gui.actionUpdatePerNeuronAfter(n, best, generationCount);
+			}
+			startTimeGeneration = System.currentTimeMillis();
+
+			// Abort if the fitness value has not changed for a specified
+			// number of generations
+			if (best.getFitness() == lastFitness) {
+				lastFitnessSameCount++;
+				if (lastFitnessSameCount > abortWhenNoChangeAfterGenerationThreshold) {
+					state.stop = true;
+				}
+			} else {
+				lastFitness = best.getFitness();
+				lastFitnessSameCount = 0;
+			}
+		}
+		if (state.error.get() != null) {
+			throw state.error.get();
+		}
+		// Report the differences of the single precision evaluation
+		validatePrecision(n, population, context, outputPath, measures);
+
+		// Extract the best individual
+		Individual bestInd = population.toIndividual(0);
+		log(outputPath, n, "Finnished after " + generationCount + " generation(s) (evaluations="
+				+ state.evaluated.get() + ";inserted=" + state.inserted.get() + "),," + bestInd.getFitness()
+				+ "," + population.getDiversity() + "," + toTime(startTime, System.currentTimeMillis()) + ",");
+		publishElites(n, population, populationSize);
+
+		return bestInd;
+	}
+
+	/**
+	 * Breeds, evaluates and inserts offspring until the evaluation budget is
+	 * used up, the fitness threshold is reached or the driver stops the
+	 * workers. The population is the lock for all accesses to the population.
+	 */
+	private void runSteadyStateWorker(ReconstructionModeAbstract mode, Random r, PopulationArena population,
+			SteadyState state, int capacity, long budget, double fitnessThreshold, double mutationRate,
+			DatasetContext context, Map<Class<?>, Double> measures) {
+		PopulationArena offspring = new PopulationArena(capacity, population.getNumNeurons(),
+				population.getNeuronIndex(), options.isOffHeapPopulation());
+		double[] record = new double[population.getRecordLength()];
+		while (!state.stop) {
+			long first = state.issued.getAndAdd(capacity);
+			if (first >= budget) {
+				break;
+			}
+			int count = (int) Math.min(capacity, budget - first);
+
+			// Breed the offspring from the current ranking
+			offspring.clearNext();
+			synchronized (population) {
+				for (int i = 0; i < count; i++) {
+					int rank1 = selectIndex(r, population.size());
+					int rank2 = selectIndex(r, population.size());
+					population.copyRecord(rank1, record, 0);
+					int slot = offspring.addRecordToNext(record, 0);
+					for (int field : CROSSOVER_FIELDS) {
+						if (r.nextBoolean()) {
+							offspring.setNext(slot, field, population.get(rank2, field));
+						}
+					}
+					if (r.nextDouble() <= mutationRate) {
+						mutate(mode, r, offspring, slot);
+					}
+				}
+				offspring.setEvaluationCutoff(getEvaluationCutoff(population));
+			}
+
+			// Evaluate them without blocking the other workers
+			long seed = r.nextLong();
+			if (distributedEvaluator != null) {
+				distributedEvaluator.evaluate(seed, offspring, 0, count,
+						(from, to) -> evaluator.evaluate(mode, seed, offspring, from, to, context, measures));
+			} else {
+				evaluator.evaluate(mode, seed, offspring, 0, count, context, measures);
+			}
+
+			// Insert them, aborted individuals are not better than the cutoff
+			// and are discarded
+			int aborted = 0;
+			int inserted = 0;
+			synchronized (population) {
+				for (int slot = 0; slot < count; slot++) {
+					if (offspring.isNextAborted(slot)) {
+						aborted++;
+						continue;
+					}
+					offspring.copyNextRecord(slot, record, 0);
+					if (population.insert(record, 0, offspring.getNextFitness(slot)) >= 0) {
+						inserted++;
+					}
+				}
+				if (population.getFitness(0) <= fitnessThreshold) {
+					state.stop = true;
+				}
+			}
+			state.inserted.addAndGet(inserted);
+			state.addEvaluated(count);
+			if (options.getEarlyTerminationRank() > 0) {
+				evaluations.add(count);
+				abortedEvaluations.add(aborted);
+			}
+		}
+	}
+
+	/**
+	 * Reconstructs one neuron of the network with the optimizer of the
+	 * options instead of the Genetic Algorithm.
+	 * 
+	 * @see #reconstructNeuron(int, Random, ReconstructionModeAbstract,
+	 *      WorkQueue, DatasetContext, long, int, double, int, int, double,
+	 *      String, Map)
+	 */
+	private Individual reconstructNeuronWithOptimizer(int n, Random r, ReconstructionModeAbstract mode,
+			WorkQueue parallelQueue, DatasetContext context, long startTime, int populationSize,
+			double fitnessThreshold, int generationThreshold, int abortWhenNoChangeAfterGenerationThreshold,
+			String outputPath, Map<Class<?>, Double> measures) throws IOException {
+		log(outputPath, n, "Starting reconstruction (" + options.getOptimizer().getClass().getSimpleName() + "),,,");
+		NeuronProblem problem = new NeuronProblem(n, r, mode, parallelQueue, context, startTime, populationSize,
+				fitnessThreshold, generationThreshold, abortWhenNoChangeAfterGenerationThreshold, outputPath, measures);
+		try {
+			options.getOptimizer().optimize(problem, new Random(r.nextLong()));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		if (problem.best == null) {
+			throw new IllegalStateException("The optimizer did not evaluate any candidate");
+		}
+
+		log(outputPath, n, "Finnished after " + problem.generationCount + " generation(s) (evaluations="
+				+ problem.evaluated + "),," + problem.best.getFitness() + ",," + toTime(startTime, System.currentTimeMillis())
+				+ ",");
+		return problem.best;
+	}
+
+	/**
+	 * The reconstruction of a neuron as seen by an optimizer. The candidates
+	 * are evaluated in parallel in the same way as a generation of the Genetic
+	 * Algorithm.
+	 */
+	private class NeuronProblem implements OptimizationProblem {
+
+		private final int n;
+		private final Random r;
+		private final ReconstructionModeAbstract mode;
+		private final WorkQueue parallelQueue;
+		private final DatasetContext context;
+		private final long startTime;
+		private final int populationSize;
+		private final double fitnessThreshold;
+		private final long budget;
+		private final int abortWhenNoChangeAfterGenerationThreshold;
+		private final String outputPath;
+		private final Map<Class<?>, Double> measures;
+
+		/**
+		 * The fields of the free parameters with their bounds, and the values
+		 * of all other fields
+		 */
+		private final int[] fields;
+		private final double[] min;
+		private final double[] max;
+		private final double[] record;
+
+		private PopulationArena population;
+		private int capacity;
+
+		Individual best;
+		long evaluated;
+		int generationCount;
+		private double lastFitness = Double.NaN;
+		private int lastFitnessSameCount;
+		private long startTimeGeneration;
+
+		NeuronProblem(int n, Random r, ReconstructionModeAbstract mode, WorkQueue parallelQueue,
+				DatasetContext context, long startTime, int populationSize, double fitnessThreshold,
+				int generationThreshold, int abortWhenNoChangeAfterGenerationThreshold, String outputPath,
+				Map<Class<?>, Double> measures) {
+			this.n = n;
+			this.r = r;
+			this.mode = mode;
+			this.parallelQueue = parallelQueue;
+			this.context = context;
+			this.startTime = startTime;
+			this.populationSize = populationSize;
+			this.fitnessThreshold = fitnessThreshold;
+			this.budget = (long) generationThreshold * populationSize;
+			this.abortWhenNoChangeAfterGenerationThreshold = abortWhenNoChangeAfterGenerationThreshold;
+			this.outputPath = outputPath;
+			this.measures = measures;
+			this.startTimeGeneration = System.currentTimeMillis();
+
+			// The parameters in the order of the model, the start value of u
+			// is the only free state
+			int[] allFields = { PopulationArena.A, PopulationArena.B, PopulationArena.C, PopulationArena.D,
+					PopulationArena.P1, PopulationArena.P2, PopulationArena.P3, PopulationArena.P4,
+					PopulationArena.START_U };
+			double[] allMin = { mode.getMinA(), mode.getMinB(), mode.getMinC(), mode.getMinD(), mode.getMinP1(),
+					mode.getMinP2(), mode.getMinP3(), mode.getMinP4(), mode.getMinU() };
+			double[] allMax = { mode.getMaxA(), mode.getMaxB(), mode.getMaxC(), mode.getMaxD(), mode.getMaxP1(),
+					mode.getMaxP2(), mode.getMaxP3(), mode.getMaxP4(), mode.getMaxU() };
+
+			record = new double[PopulationArena.WEIGHTS + context.getNumNeurons()];
+			int free = 0;
+			for (int i = 0; i < allFields.length; i++) {
+				if (allMax[i] > allMin[i]) {
+					free++;
+				} else {
+					record[allFields[i]] = allMin[i];
+				}
+			}
+			fields = new int[free];
+			min = new double[free];
+			max = new double[free];
+			for (int i = 0, k = 0; i < allFields.length; i++) {
+				if (allMax[i] > allMin[i]) {
+					fields[k] = allFields[i];
+					min[k] = allMin[i];
+					max[k] = allMax[i];
+					k++;
+				}
+			}
+		}
+
+		@Override
+		public int getDimension() {
+			return fields.length;
+		}
+
+		@Override
+		public double[] evaluate(double[][] candidates) {
+			int count = candidates.length;
+			if (population == null || capacity < count) {
+				population = new PopulationArena(count, context.getNumNeurons(), n, options.isOffHeapPopulation());
+				capacity = count;
+			}
+			population.clearNext();
+			for (double[] candidate : candidates) {
+				toRecord(candidate);
+				population.addRecordToNext(record, 0);
+			}
+			recalculateFitness(mode, n, r, parallelQueue, population, context, generationCount, measures);
+
+			// Individuals with an invalid simulation were replaced by random
+			// individuals, whose fitness value does not belong to the
+			// candidate
+			double[] result = new double[count];
+			for (int rank = 0; rank < count; rank++) {
+				int slot = population.getSlot(rank);
+				toRecord(candidates[slot]);
+				boolean replaced = false;
+				for (int field : fields) {
+					replaced |= population.get(rank, field) != record[field];
+				}
+				result[slot] = replaced ? Double.POSITIVE_INFINITY : population.getFitness(rank);
+			}
+			if (best == null || population.getFitness(0) < best.getFitness()) {
+				best = population.toIndividual(0);
+			}
+
+			// Log the progress after each population size evaluations
+			evaluated += count;
+			try {
+				while (evaluated >= (generationCount + 1L) * populationSize) {
+					generationCount++;
+					log(outputPath, n,
+							"Generation " + generationCount + "," + n + "," + best.getFitness() + ","
+									+ population.getDiversity() + "," + toTime(startTime, System.currentTimeMillis())
+									+ "," + toTime(startTimeGeneration, System.currentTimeMillis()));
+					logModel(outputPath, best, n);
+					if (gui != null) {
+						gui.actionUpdatePerNeuronAfter(n, best, generationCount);
+					}
+					startTimeGeneration = System.currentTimeMillis();
+
+					if (best.getFitness() == lastFitness) {
+						lastFitnessSameCount++;
+					} else {
+						lastFitness = best.getFitness();
+						lastFitnessSameCount = 0;
+					}
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return result;
+		}
+
+		/**
+		 * Writes the parameters of a candidate into the record, the weights
+		 * are 0 as those of a random individual.
+		 */
+		private void toRecord(double[] candidate) {
+			for (int i = 0; i < fields.length; i++) {
+				record[fields[i]] = min[i] + (max[i] - min[i]) * candidate[i];
+			}
+			record[PopulationArena.U] = record[PopulationArena.START_U];
+		}
+
+		@Override
+		public boolean isFinished() {
+			return evaluated >= budget || best != null && best.getFitness() <= fitnessThreshold
+					|| lastFitnessSameCount > abortWhenNoChangeAfterGenerationThreshold;
+		}
+	}
+
+	/**
+	 * The shared state of the workers of the steady state mode.
+	 */
+	private static class SteadyState {
+
+		/**
+		 * The number of reserved evaluations of the budget
+		 */
+		final AtomicLong issued = new AtomicLong();
+
+		/**
+		 * The number of completed and inserted evaluations
+		 */
+		final AtomicLong evaluated = new AtomicLong();
+		final AtomicLong inserted = new AtomicLong();
+
+		final AtomicReference<RuntimeException> error = new AtomicReference<>();
+		volatile boolean stop;
+
+		/**
+		 * The number of running workers, guarded by the state
+		 */
+		private int running;
+
+		SteadyState(int workers) {
+			running = workers;
+		}
+
+		/**
+		 * Counts the completed evaluations of a worker and wakes up the
+		 * driver.
+		 */
+		synchronized void addEvaluated(long count) {
+			evaluated.addAndGet(count);
+			notifyAll();
+		}
+
+		/**
+		 * Counts a finished worker and wakes up the driver.
+		 */
+		synchronized void workerFinished() {
+			running--;
+			notifyAll();
+		}
+
+		/**
+		 * Blocks until the given number of evaluations is completed or all
+		 * workers are finished.
+		 *
+		 * @return true if the evaluations are completed
+		 * @throws InterruptedException
+		 */
+		synchronized boolean awaitEvaluated(long count) throws InterruptedException {
+			while (evaluated.get() < count && running > 0) {
+				wait();
+			}
+			return evaluated.get() >= count;
+		}
+	}
+
+	/**
+	 * A sub-population of the island model with its own random instance.
+	 */
+	private static class Island {
+
+		final PopulationArena population;
+		final int size;
+		final Random r;
+
+		/**
+		 * The fidelity levels of the evaluation, null if disabled
+		 */
+		final FidelityLadder ladder;
+
+		Island(PopulationArena population, int size, Random r, FidelityLadder ladder) {
+			this.population = population;
+			this.size = size;
+			this.r = r;
+			this.ladder = ladder;
+		}
+	}
+
+	/**
+	 * Runs the given work for each island as a task of the work queue and
+	 * waits until all islands are processed.
+	 */
+	private void runIslands(WorkQueue parallelQueue, Island[] islands, Consumer<Island> work) {
+		runBlocks(parallelQueue, 0, islands.length, 1, (from, to) -> work.accept(islands[from]));
+	}
+
+	/**
+	 * A block of indices which is processed by one task.
+	 */
+	private interface BlockWork {
+
+		/**
+		 * @param from
+		 *            The first index of the block
+		 * @param to
+		 *            The index after the last index of the block
+		 */
+		void run(int from, int to);
+	}
+
+	/**
+	 * Splits a range of indices into blocks, runs the given work for each
+	 * block as a task of the work queue and waits until all blocks are
+	 * processed. Must not be called by a task of the queue.
+	 */
+	private void runBlocks(WorkQueue parallelQueue, int from, int to, int blockSize, BlockWork work) {
+		runBlocks(parallelQueue, from, to, blockSize, work, null);
+	}
 
-		log(outputPath, "description,neuron,fitness,diversity,time,time_generation");
+	/**
+	 * @param progress
+	 *            Called periodically by the waiting thread until all blocks
+	 *            are processed, or null
+	 * @see #runBlocks(WorkQueue, int, int, int, BlockWork)
+	 */
+	private void runBlocks(WorkQueue parallelQueue, int from, int to, int blockSize, BlockWork work,
+			Runnable progress) {
+		int blocks = (to - from + blockSize - 1) / blockSize;
+		CountDownLatch latch = new CountDownLatch(blocks);
+		AtomicReference<RuntimeException> error = new AtomicReference<>();
+		for (int blockFrom = from; blockFrom < to; blockFrom += blockSize) {
+			int start = blockFrom;
+			int end = Math.min(blockFrom + blockSize, to);
+			parallelQueue.execute(() -> {
+				try {
+					work.run(start, end);
+				} catch (RuntimeException e) {
+					error.compareAndSet(null, e);
+				} finally {
+					latch.countDown();
+				}
+			});
+		}
+		try {
+			if (progress == null) {
+				latch.await();
+			} else {
+				while (!latch.await(PROGRESS_INTERVAL, TimeUnit.MILLISECONDS)) {
+					progress.run();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for the tasks", e);
+		}
+		if (error.get() != null) {
+			throw error.get();
+		}
+	}
 
-		WorkQueue parallelQueue = new WorkQueue();
-		long startTime = System.currentTimeMillis();
+	/**
+	 * Evaluates the next generation of an island in the current thread and
+	 * makes it the current generation.
+	 * 
+	 * @param protectedSlots
+	 *            The number of slots at the beginning of the next generation
+	 *            which are always evaluated with the whole data
+	 */
+	private void evaluateIsland(ReconstructionModeAbstract mode, Island island, DatasetContext context,
+			Map<Class<?>, Double> measures, int protectedSlots) {
+		long seed = island.r.nextLong();
+		publishEvaluationCutoff(island.population);
+		if (island.ladder != null) {
+			island.ladder.evaluate(island.population, protectedSlots, seed,
+					(levelSeed, arena, levelContext) -> evaluateIslandArena(mode, levelSeed, arena, levelContext,
+							measures));
+		} else {
+			evaluateIslandArena(mode, seed, island.population, context, measures);
+		}
+		island.population.swap();
+		countAbortedEvaluations(island.population);
+	}
 
-		// Initialise the GUI only if it is enabled
-		if (guiEnabled) {
-			gui = new GUI(datasetName, inputs, vs, dt, inputIdxAfterTuning, generationThreshold, fitnessThreshold,
-					populationSize, abortWhenNoChangeAfterGenerationThreshold, mutationRate);
+	/**
+	 * Evaluates the whole next generation of an arena in the current thread.
+	 */
+	private void evaluateIslandArena(ReconstructionModeAbstract mode, long seed, PopulationArena arena,
+			DatasetContext context, Map<Class<?>, Double> measures) {
+		if (distributedEvaluator != null && !context.isSection()) {
+			distributedEvaluator.evaluate(seed, arena, 0, arena.nextSize(),
+					(from, to) -> evaluator.evaluate(mode, seed, arena, from, to, context, measures));
+		} else {
+			evaluator.evaluate(mode, seed, arena, 0, arena.nextSize(), context, measures);
 		}
+	}
 
-		List<Model> bestInds = new LinkedList<>();
+	/**
+	 * @return The fidelity levels of the evaluation of a population, null if
+	 *         all individuals are evaluated with the whole data
+	 */
+	private FidelityLadder createFidelityLadder(DatasetContext context) {
+		if (options.getFidelityLevels() == 1) {
+			return null;
+		}
+		return new FidelityLadder(context, options.getFidelityLevels(), options.getFidelityPromotion());
+	}
 
-		// For each neuron of the network
-		for (int n = 0; n < numNeurons; n++) {
-			initLogFiles(outputPath, n, numNeurons);
+	/**
+	 * Sets the fitness value of the k-th best individual of the current
+	 * generation as the cutoff for the evaluation of the next generation. If
+	 * the early termination is disabled or the current generation has less
+	 * than k completely evaluated individuals, all individuals are evaluated
+	 * completely. The workers of the distributed evaluation do not know the
+	 * cutoff, so it is not used for the local fallback either.
+	 */
+	private void publishEvaluationCutoff(PopulationArena population) {
+		population.setEvaluationCutoff(getEvaluationCutoff(population));
+	}
 
-			// 1: Generate an initial population with N individuals
-			log(outputPath, "Generating initial population,,,");
-			List<Individual> population = new ArrayList<>(populationSize);
-			for (int i = 0; i < populationSize; i++) {
-				population.add(new Individual(new Model(mode, r, numNeurons, n)));
-			}
+	/**
+	 * @return The cutoff for the evaluation of the individuals bred from the
+	 *         current generation, see
+	 *         {@link #publishEvaluationCutoff(PopulationArena)}
+	 */
+	private double getEvaluationCutoff(PopulationArena population) {
+		int rank = options.getEarlyTerminationRank();
+		if (distributedEvaluator == null && options.getOptimizer() == null && rank > 0 && rank <= population.size()
+				&& !population.isAborted(rank - 1)) {
+			return population.getFitness(rank - 1);
+		}
+		return Double.POSITIVE_INFINITY;
+	}
 
-			// 2: Calculate the fitness values for the initial generation.
-			log(outputPath, "Starting reconstruction,,,");
-			recalculateFitness(mode, n, r, parallelQueue, population, inputs, vs, dt, inputIdxAfterTuning, 0, measures);
-			String timeStrGeneration1 = toTime(startTime, System.currentTimeMillis());
-			log(outputPath, "Generation 0," + n + "," + population.get(0).getFitness() + "," + getDiversity(population)
-					+ "," + timeStrGeneration1 + "," + timeStrGeneration1);
-			logModel(outputPath, population.get(0), n);
-
-			double lastFitness = population.get(0).getFitness();
-			int lastFitnessSameCount = 0;
-
-			// 3: Run the Genetic Algorithm
-			int generationCount = 0;
-			while (population.get(0).getFitness() > fitnessThreshold && generationCount < generationThreshold) {
-				generationCount++;
-				long startTimeGeneration = System.currentTimeMillis();
-
-				List<Individual> nextGeneration = new ArrayList<>(populationSize);
-				// add 1% of the best individuals of the last generation to the
-				// new generation
-				double percentForSurvive = nextGeneration.size() / (double) 100;
-				percentForSurvive = Math.max(1, percentForSurvive);
-				for (int i = 0; i < percentForSurvive; i++) {
-					// add the model as it is
-					nextGeneration.add(new Individual(new Model(population.get(i).getModel())));
-
-					// add a mutated version of the best 1% of the individuals,
-					// so that 2% of the population of the next generation are
-					// already generated
-					Model bestIndMutated = new Model(population.get(i).getModel());
-					mutate(mode, r, bestIndMutated);
-					nextGeneration.add(new Individual(bestIndMutated));
-				}
+	/**
+	 * Adds the evaluations of the current generation to the statistics of the
+	 * early termination.
+	 */
+	private void countAbortedEvaluations(PopulationArena population) {
+		if (options.getEarlyTerminationRank() > 0) {
+			evaluations.add(population.size());
+			abortedEvaluations.add(population.getAbortedCount());
+		}
+	}
 
-				// Generate new generation by crossover and mutation
-				while (nextGeneration.size() < populationSize) {
-					Individual ind1 = select(r, population);
-					Individual ind2 = select(r, population);
+	/**
+	 * Exchanges the best individuals between the islands. The emigrants of all
+	 * islands are determined before any island is changed, so the result
+	 * does not depend on the order of the islands.
+	 * 
+	 * @param islands
+	 *            The islands
+	 * @param r
+	 *            The random instance used by the topology
+	 */
+	private void migrate(Island[] islands, Random r) {
+		int migrants = options.getMigrants();
+		if (migrants == 0)
+			return;
 
-					Model newModel = crossover(r, ind1.getModel(), ind2.getModel());
-					if (r.nextDouble() <= mutationRate) {
-						mutate(mode, r, newModel);
-					}
-					nextGeneration.add(new Individual(newModel));
-				}
+		Model[][] emigrants = new Model[islands.length][];
+		double[][] emigrantFitness = new double[islands.length][];
+		boolean[][] emigrantAborted = new boolean[islands.length][];
+		for (int k = 0; k < islands.length; k++) {
+			PopulationArena population = islands[k].population;
+			int count = Math.min(migrants, population.size());
+			emigrants[k] = new Model[count];
+			emigrantFitness[k] = new double[count];
+			emigrantAborted[k] = new boolean[count];
+			for (int rank = 0; rank < count; rank++) {
+				emigrants[k][rank] = population.toModel(rank);
+				emigrantFitness[k][rank] = population.getFitness(rank);
+				emigrantAborted[k][rank] = population.isAborted(rank);
+			}
+		}
 
-				// Determine the fitness values of the whole population
-				recalculateFitness(mode, n, r, parallelQueue, nextGeneration, inputs, vs, dt, inputIdxAfterTuning,
-						generationCount, measures);
-				population = nextGeneration;
-				log(outputPath,
-						"Generation " + generationCount + "," + n + "," + population.get(0).getFitness() + ","
-								+ getDiversity(population) + "," + toTime(startTime, System.currentTimeMillis()) + ","
-								+ toTime(startTimeGeneration, System.currentTimeMillis()));
-				logModel(outputPath, population.get(0), n);
-
-				// Abort if the fitness value has not changed for a specified
-				// number of generations
-				if (population.get(0).getFitness() == lastFitness) {
-					lastFitnessSameCount++;
-					if (lastFitnessSameCount > abortWhenNoChangeAfterGenerationThreshold) {
-						break;
-					}
-				} else {
-					lastFitness = population.get(0).getFitness();
-					lastFitnessSameCount = 0;
+		for (int k = 0; k < islands.length; k++) {
+			PopulationArena population = islands[k].population;
+			int[] sources = options.getMigrationTopology().getSourceIslands(k, islands.length, r);
+			int immigrants = 0;
+			for (int source : sources) {
+				immigrants += emigrants[source].length;
+			}
+			// the best individual of the island always survives
+			immigrants = Math.min(immigrants, population.size() - 1);
+
+			// The worst individuals are replaced, the fitness values of all
+			// individuals are already known
+			for (int rank = 0; rank < population.size() - immigrants; rank++) {
+				int slot = population.addCopyToNext(rank);
+				population.setNextFitness(slot, population.getFitness(rank));
+				population.setNextAborted(slot, population.isAborted(rank));
+			}
+			for (int source : sources) {
+				for (int i = 0; i < emigrants[source].length && population.nextSize() < population.size(); i++) {
+					int slot = population.addModelToNext(emigrants[source][i]);
+					population.setNextFitness(slot, emigrantFitness[source][i]);
+					population.setNextAborted(slot, emigrantAborted[source][i]);
 				}
 			}
-			// Extract the best individual
-			Individual bestInd = population.get(0);
-			log(outputPath, "Finnished after " + generationCount + " generation(s),," + bestInd.getFitness() + ","
-					+ getDiversity(population) + "," + toTime(startTime, System.currentTimeMillis()) + ",");
-
-			bestInds.add(bestInd.getModel());
-
-			if (guiEnabled)
-				gui.actionUpdateOverall(n);
-			System.err.flush();
+			population.swap();
 		}
-		parallelQueue.shutdown();
-
-		// Simulate the whole network to attain the data for the written results
-		double[][] vsReconstructed = calculateAFullNetworkSimulation(inputs, vs, bestInds, inputIdxAfterTuning, dt);
+	}
 
-		// Produce the spike timing graphic if the GUI is enabled
-		if (guiEnabled) {
-			gui.actionReconstructionIsDone(vs, vsReconstructed);
+	/**
+	 * @return The island with the best individual (the first one if several
+	 *         islands have the same best fitness value)
+	 */
+	private static Island getBestIsland(Island[] islands) {
+		Island best = islands[0];
+		for (Island island : islands) {
+			if (island.population.getFitness(0) < best.population.getFitness(0)) {
+				best = island;
+			}
 		}
-		writeResults(inputs, vs, vsReconstructed, bestInds, outputPath);
+		return best;
+	}
 
-		return bestInds;
+	/**
+	 * @return The mean diversity value of all islands, weighted by the sizes
+	 *         of the islands
+	 */
+	private static double getDiversity(Island[] islands) {
+		double diversity = 0;
+		int size = 0;
+		for (Island island : islands) {
+			diversity += island.population.getDiversity() * island.population.size();
+			size += island.population.size();
+		}
+		return diversity / size;
 	}
 
 	/**
@@ -292,16 +1596,10 @@ public class Reconstruction {
 	 * @param parallelQueue
 	 *            Internal object used for the parallelisation of the algorithm
 	 * @param population
-	 *            The population of the Genetic Algorithm
-	 * @param inputs
-	 *            The input data (currents)
-	 * @param vs
-	 *            The voltage data
-	 * @param dt
-	 *            The dt value for the solving of the differential equations
-	 * @param inputIdxAfterTuning
-	 *            The time step until the u value is tuned (before the
-	 *            reconstruction is started)
+	 *            The population of the Genetic Algorithm. The next generation
+	 *            is evaluated and becomes the current generation.
+	 * @param context
+	 *            The measured data and the values derived from it
 	 * @param generation
 	 *            The current generation
 	 * @param measures
@@ -313,56 +1611,46 @@ public class Reconstruction {
 	 *            manually set.
 	 */
 	private void recalculateFitness(ReconstructionModeAbstract mode, int neuronIdx, Random r, WorkQueue parallelQueue,
-			List<Individual> population, double[][] inputs, double[][] vs, double dt, int inputIdxAfterTuning,
-			int generation, Map<Class<?>, Double> measures) {
+			PopulationArena population, DatasetContext context, int generation, Map<Class<?>, Double> measures) {
+		recalculateFitness(mode, neuronIdx, r, parallelQueue, population, context, generation, measures, null, 0);
+	}
+
+	/**
+	 * Recalculate the fitness values of a population of the Genetic Algorithm,
+	 * optionally with several fidelity levels.
+	 * 
+	 * @param ladder
+	 *            The fidelity levels of the evaluation, null to evaluate all
+	 *            individuals with the whole data
+	 * @param protectedSlots
+	 *            The number of slots at the beginning of the next generation
+	 *            which are always evaluated with the whole data
+	 * @see #recalculateFitness(ReconstructionModeAbstract, int, Random,
+	 *      WorkQueue, PopulationArena, DatasetContext, int, Map)
+	 */
+	private void recalculateFitness(ReconstructionModeAbstract mode, int neuronIdx, Random r, WorkQueue parallelQueue,
+			PopulationArena population, DatasetContext context, int generation, Map<Class<?>, Double> measures,
+			FidelityLadder ladder, int protectedSlots) {
 		long beginFunction = System.currentTimeMillis();
 		if (gui != null) {
 			gui.actionUpdatePerGenerationCount(0);
-			gui.actionUpdatePerNeuron(neuronIdx, new Individual(population.get(0)), generation);
+			gui.actionUpdatePerNeuron(neuronIdx, new Individual(population.toNextModel(0)), generation);
 		}
 		// Reconstruct the individuals in parallel.
-		// A seed is deterministically generated by using the random instance to
-		// get reproducible results.
-		// The atomic integer is used to get the number of already computed
-		// individuals without race conditions.
-		long seed = r.nextLong();
-		AtomicLong atLong = new AtomicLong(0);
-		for (int i = 0; i < population.size(); i++) {
-			Individual ind = population.get(i);
-
-			final long rseed = seed + i;
-
-			parallelQueue.execute(() -> {
-				ind.recalculate(mode, new Random(rseed), inputs, vs, dt, inputIdxAfterTuning, measures);
-				atLong.incrementAndGet();
-			});
-		}
-		// Wait until all individuals are reconstructed.
-		long lastVal = 0;
-		while (true) {
-			long atLongVal = atLong.get();
-			if (gui != null) {
-				gui.actionUpdatePerGenerationCount((int) atLongVal);
-			}
-			if (atLongVal == population.size())
-				break;
-			if (population.size() >= 10000 && atLongVal % (population.size() / 10) == 0 && atLongVal != 0
-					&& atLongVal != lastVal) {
-				System.err.println("Individual " + atLongVal + "/" + population.size());
-				System.err.flush();
-			}
-			if (atLongVal != lastVal) {
-				lastVal = atLongVal;
-			}
-			try {
-				Thread.sleep(1);
-			} catch (InterruptedException e) {
-			}
+		// A seed is deterministically generated by using the random instance
+		// or the stream of the generation to get reproducible results.
+		long seed = streams != null ? streams.seed(neuronIdx, generation, RandomStreams.EVALUATION) : r.nextLong();
+		publishEvaluationCutoff(population);
+		if (ladder != null) {
+			ladder.evaluate(population, protectedSlots, seed, (levelSeed, arena,
+					levelContext) -> evaluateNext(mode, levelSeed, parallelQueue, arena, levelContext, measures));
+		} else {
+			evaluateNext(mode, seed, parallelQueue, population, context, measures);
 		}
-		parallelQueue.waitForEndOfWork();
 		// Sort the population so that they are sorted suitable for the
 		// selection method described in the thesis.
-		Collections.sort(population);
+		population.swap();
+		countAbortedEvaluations(population);
 		if (gui != null) {
 			long sleeptime = 600 - (System.currentTimeMillis() - beginFunction);
 			if (sleeptime > 0)
@@ -371,8 +1659,193 @@ public class Reconstruction {
 				} catch (InterruptedException e) {
 				}
 			gui.actionUpdatePerGenerationCount(population.size());
-			gui.actionUpdatePerNeuronAfter(neuronIdx, new Individual(population.get(0)), generation);
+			gui.actionUpdatePerNeuronAfter(neuronIdx, population.toIndividual(0), generation);
+		}
+	}
+
+	/**
+	 * Evaluates the whole next generation of an arena in parallel and waits
+	 * until all individuals are evaluated. A section of the data is always
+	 * evaluated locally, because the workers of the distributed evaluation
+	 * only know the whole data.
+	 */
+	private void evaluateNext(ReconstructionModeAbstract mode, long seed, WorkQueue parallelQueue,
+			PopulationArena population, DatasetContext context, Map<Class<?>, Double> measures) {
+		int populationSize = population.nextSize();
+		if (distributedEvaluator != null && !context.isSection()) {
+			// The workers evaluate the individuals in blocks with the same
+			// random instances. The blocks which are left over when no worker
+			// is available are evaluated by the queue as in a local run.
+			distributedEvaluator.evaluate(seed, population, 0, populationSize, (from,
+					to) -> evaluateLocally(mode, seed, parallelQueue, population, from, to, context, measures));
+			if (gui != null) {
+				gui.actionUpdatePerGenerationCount(populationSize);
+			}
+		} else {
+			evaluateLocally(mode, seed, parallelQueue, population, 0, populationSize, context, measures);
+		}
+	}
+
+	/**
+	 * Evaluates the slots of the next generation of an arena from
+	 * {@code first} (inclusive) to {@code last} (exclusive) by the tasks of
+	 * the queue and waits until all of them are evaluated.
+	 */
+	private void evaluateLocally(ReconstructionModeAbstract mode, long seed, WorkQueue parallelQueue,
+			PopulationArena population, int first, int last, DatasetContext context,
+			Map<Class<?>, Double> measures) {
+		int populationSize = last - first;
+		// Evaluate the individuals in blocks, each block uses its own kernel,
+		// or one by one. The random instances are the same in both cases. The
+		// kernels of the worker threads are reused.
+		int blockSize = options.isBatchEvaluation() && options.getIntegrationMethod() == IntegrationMethod.EULER
+				? options.getBatchSize() : 1;
+		// The number of already computed individuals, which is only used for
+		// the progress
+		AtomicLong evaluated = new AtomicLong(0);
+		long[] lastVal = { 0 };
+		runBlocks(parallelQueue, first, last, blockSize, (from, to) -> {
+			evaluator.evaluate(mode, seed, population, from, to, context, measures);
+			evaluated.addAndGet(to - from);
+		}, () -> {
+			long evaluatedVal = evaluated.get();
+			if (gui != null) {
+				gui.actionUpdatePerGenerationCount((int) evaluatedVal);
+			}
+			// Print the progress for each tenth of the population. The
+			// counter is increased by whole blocks in the batch evaluation.
+			if (populationSize >= 10000 && evaluatedVal / (populationSize / 10) != lastVal[0] / (populationSize / 10)) {
+				System.err.println("Individual " + evaluatedVal + "/" + populationSize);
+				System.err.flush();
+			}
+			lastVal[0] = evaluatedVal;
+		});
+		if (gui != null) {
+			gui.actionUpdatePerGenerationCount(populationSize);
+		}
+	}
+
+	/**
+	 * Breeds the next generation of a population by elitism, crossover and
+	 * mutation. With the keyed random streams each offspring is bred with the
+	 * stream of its slot, so the offspring are bred in parallel by the tasks
+	 * of the work queue, unless they are prescreened by the surrogate, whose
+	 * decisions depend on the order of the offspring.
+	 * 
+	 * @param mode
+	 *            The used parameter set
+	 * @param r
+	 *            The random instance of the neuron
+	 * @param neuronIdx
+	 *            The index of the neuron
+	 * @param generation
+	 *            The bred generation
+	 * @param parallelQueue
+	 *            The queue which breeds the offspring, null to breed them in
+	 *            the current thread
+	 * @param population
+	 *            The population, the next generation is written into the
+	 *            second buffer
+	 * @param populationSize
+	 *            The size of the next generation
+	 * @param mutationRate
+	 *            The mutation rate used in the Genetic Algorithm
+	 * @param screening
+	 *            The surrogate which prescreens the offspring, null to
+	 *            evaluate all offspring
+	 * @return The number of slots at the beginning of the next generation
+	 *         which contain the best individuals of the last generation and
+	 *         their mutated copies
+	 */
+	private int breedNextGeneration(ReconstructionModeAbstract mode, Random r, int neuronIdx, int generation,
+			WorkQueue parallelQueue, PopulationArena population, int populationSize, double mutationRate,
+			SurrogateScreening screening) {
+		IntFunction<Random> randoms = slotRandoms(r, neuronIdx, generation);
+		// add 1% of the best individuals of the last generation to the
+		// new generation
+		double percentForSurvive = population.nextSize() / (double) 100;
+		percentForSurvive = Math.max(1, percentForSurvive);
+		for (int i = 0; i < percentForSurvive; i++) {
+			// add the model as it is
+			population.addCopyToNext(i);
+
+			// add a mutated version of the best 1% of the individuals,
+			// so that 2% of the population of the next generation are
+			// already generated
+			int bestIndMutated = population.addCopyToNext(i);
+			mutate(mode, randoms.apply(bestIndMutated), population, bestIndMutated);
+		}
+		int eliteSlots = population.nextSize();
+
+		// Generate new generation by crossover and mutation
+		if (streams != null && parallelQueue != null && screening == null) {
+			int first = population.reserveNext(populationSize - population.nextSize());
+			runBlocks(parallelQueue, first, populationSize, BREEDING_BLOCK_SIZE, (from, to) -> {
+				IntFunction<Random> blockRandoms = slotRandoms(r, neuronIdx, generation);
+				for (int slot = from; slot < to; slot++) {
+					breedOffspring(mode, blockRandoms.apply(slot), population, slot, mutationRate);
+				}
+			});
+			return eliteSlots;
+		}
+
+		// Offspring which are not predicted to be competitive are bred again
+		// with the continued random instance of their slot.
+		int attempts = 0;
+		Random slotRandom = null;
+		while (population.nextSize() < populationSize) {
+			if (attempts == 0) {
+				slotRandom = randoms.apply(population.nextSize());
+			}
+			int newModel = population.reserveNext(1);
+			breedOffspring(mode, slotRandom, population, newModel, mutationRate);
+			if (screening != null && attempts < SurrogateScreening.MAX_ATTEMPTS
+					&& !screening.accept(population, newModel)) {
+				population.removeLastNext();
+				attempts++;
+			} else {
+				attempts = 0;
+			}
+		}
+		return eliteSlots;
+	}
+
+	/**
+	 * Breeds an offspring of two selected parents of the current generation
+	 * into a slot of the next generation.
+	 */
+	private void breedOffspring(ReconstructionModeAbstract mode, Random r, PopulationArena population, int slot,
+			double mutationRate) {
+		int ind1 = selectIndex(r, population.size());
+		int ind2 = selectIndex(r, population.size());
+
+		crossover(r, population, ind1, ind2, slot);
+		if (r.nextDouble() <= mutationRate) {
+			mutate(mode, r, population, slot);
+		}
+	}
+
+	/**
+	 * Returns the random instances of the individuals of a generation. With
+	 * the keyed random streams each slot has its own stream, so the bred
+	 * individuals do not depend on the order in which the slots are bred.
+	 * Otherwise all slots share the random instance of the neuron.
+	 * 
+	 * @param r
+	 *            The random instance of the neuron
+	 * @param neuronIdx
+	 *            The index of the neuron
+	 * @param generation
+	 *            The bred generation, 0 for the initial population
+	 * @return The random instance by the slot, which is reset for each slot
+	 *         and must only be used by one thread
+	 */
+	private IntFunction<Random> slotRandoms(Random r, int neuronIdx, int generation) {
+		if (streams == null) {
+			return slot -> r;
 		}
+		Random slotRandom = new Random();
+		return slot -> streams.reset(slotRandom, neuronIdx, generation, slot, RandomStreams.BREEDING);
 	}
 
 	/**
@@ -387,10 +1860,12 @@ public class Reconstruction {
 			@Override
 			public boolean accept(File dir, String name) {
 				return name.startsWith("fitness_") && name.endsWith(".csv") || name.equals("reconstruction.log")
+						|| name.startsWith("reconstruction_neuron-") && name.endsWith(".log")
 						|| name.startsWith("model_") && name.endsWith(".csv")
 						|| name.startsWith("weights_") && name.endsWith(".csv")
 						|| name.startsWith("targetmodel_") && name.endsWith(".csv")
-						|| name.startsWith("targetweights_") && name.endsWith(".csv");
+						|| name.startsWith("targetweights_") && name.endsWith(".csv")
+						|| name.equals(WarmStart.BUNDLE);
 			}
 		});
 
@@ -413,30 +1888,60 @@ public class Reconstruction {
 
 		try (BufferedWriter bfInput = new BufferedWriter(
 				new FileWriter(outputPath + "/fitness_neuron-" + neuronIdx + ".csv", true))) {
-			bfInput.write("fitness");
+			bfInput.write(FITNESS_LOG_HEADER);
 			bfInput.write(System.lineSeparator());
 		}
 		try (BufferedWriter bfInput = new BufferedWriter(
 				new FileWriter(outputPath + "/model_neuron-" + neuronIdx + ".csv", true))) {
-			bfInput.write("a;b;c;d;p1;p2;p3;p4;u;startU;v");
+			bfInput.write(MODEL_LOG_HEADER);
 			bfInput.write(System.lineSeparator());
 		}
 		try (BufferedWriter bfInput = new BufferedWriter(
 				new FileWriter(outputPath + "/weights_neuron-" + neuronIdx + ".csv", true))) {
-			for (int i = 0; i < maxNeurons; i++) {
-				bfInput.write("" + i);
-				if (i + 1 < maxNeurons) {
-					bfInput.write(";");
-				}
-			}
+			bfInput.write(getWeightsLogHeader(maxNeurons));
 			bfInput.write(System.lineSeparator());
 		}
 	}
 
+	/**
+	 * @return The header of the weights log file of a neuron, the indices of
+	 *         the presynaptic neurons
+	 */
+	static String getWeightsLogHeader(int numNeurons) {
+		StringBuilder header = new StringBuilder();
+		for (int i = 0; i < numNeurons; i++) {
+			header.append(i);
+			if (i + 1 < numNeurons) {
+				header.append(";");
+			}
+		}
+		return header.toString();
+	}
+
+	/**
+	 * Log the progress of the reconstruction of a neuron. If several neurons
+	 * are reconstructed at once, the message is also written to the log file
+	 * of the neuron.
+	 */
+	private void log(String outputPath, int neuronIdx, String message) throws IOException {
+		log(outputPath, message);
+
+		if (outputPath == null || !neuronLogs)
+			return;
+
+		synchronized (this) {
+			try (BufferedWriter bfInput = new BufferedWriter(
+					new FileWriter(outputPath + "/reconstruction_neuron-" + neuronIdx + ".log", true))) {
+				bfInput.write(message);
+				bfInput.write(System.lineSeparator());
+			}
+		}
+	}
+
 	/**
 	 * Log the progress during a reconstruction attempt in a file.
 	 */
-	private void log(String outputPath, String message) throws IOException {
+	private synchronized void log(String outputPath, String message) throws IOException {
 		System.out.println(message);
 		System.out.flush();
 
@@ -555,80 +2060,25 @@ public class Reconstruction {
 	 */
 	private double[][] calculateAFullNetworkSimulation(double[][] inputs, double[][] vs, List<Model> neurons,
 			int inputIdxAfterTuning, double dt) {
-		// Clone the models so that the original model instances are not
-		// modified
-		List<Model> nNeurons = new LinkedList<>();
-		for (Model m : neurons) {
-			nNeurons.add(new Model(m));
-		}
+		// The simulator copies the models so that the original model
+		// instances are not modified
+		SparseNetworkSimulator network = new SparseNetworkSimulator(neurons);
+
 		// Calculate the network and put all intermediate voltage values in the
 		// result array
 		double[][] calculatedVValues = new double[vs.length][vs[0].length];
-		for (int i = inputIdxAfterTuning; i < inputs.length; i++) {
-			for (int n = 0; n < inputs[0].length; n++) {
-				calculatedVValues[i][n] = nNeurons.get(n).v;
-			}
-			Model.calculateNetwork(dt, nNeurons, inputs[i]);
-		}
+		network.simulate(inputIdxAfterTuning, inputs.length, dt,
+				(t, input) -> System.arraycopy(inputs[t], 0, input, 0, input.length),
+				(t, v) -> System.arraycopy(v, 0, calculatedVValues[t], 0, v.length));
 		return calculatedVValues;
 	}
 
-	/**
-	 * Calculate the diversity in the given population.
-	 * 
-	 * The formula is described in the thesis in more detail.
-	 */
-	private double getDiversity(List<Individual> population) {
-		Map<Double, Integer> diversityCheckSet = new HashMap<>();
-
-		for (Individual ind : population) {
-			double fitness = ind.getFitness();
-			Integer number = diversityCheckSet.get(fitness);
-			if (number == null) {
-				number = 1;
-			} else {
-				number++;
-			}
-			diversityCheckSet.put(fitness, number);
-		}
-		return diversityCheckSet.size() / (double) population.size();
-	}
-
-	/**
-	 * Return a random individual with respect to the implemented selection
-	 * method and the probability distribution.
-	 */
-	private Individual select(Random r, List<Individual> population) {
-		return population.get(selectIndex(r, population.size()));
-	}
-
 	/**
 	 * Select a random index out of a generation by relying on the implemented
 	 * selection method of the Genetic Algorithm.
 	 */
 	private static int selectIndex(Random r, int populationSize) {
-		int chosenInd = 0;
-
-		double p = r.nextDouble();
-		double cumulativeProbability = 0.0;
-		int i = r.nextInt(populationSize);
-		while (p >= cumulativeProbability) {
-			cumulativeProbability += calculateProbability(populationSize, i);
-			if (p <= cumulativeProbability) {
-				chosenInd = i;
-			}
-			i++;
-			i %= populationSize;
-		}
-		return chosenInd;
-	}
-
-	/**
-	 * Calculate the probability for selecting with the Exponential Selection
-	 * Method.
-	 */
-	private static double calculateProbability(int size, int rank) {
-		return Math.max(0, 1 - Math.exp(-.005 * (size - (size * .05) - rank)));
+		return RankSelection.forSize(populationSize).select(r);
 	}
 
 	/**
@@ -685,6 +2135,51 @@ public class Reconstruction {
 		return mr;
 	}
 
+	/**
+	 * Do crossover by combining two individuals of the current generation of
+	 * the arena in the same way as {@link #crossover(Random, Model, Model)}.
+	 * 
+	 * @param slot
+	 *            The slot of the new individual in the next generation
+	 */
+	private void crossover(Random r, PopulationArena arena, int rank1, int rank2, int slot) {
+		arena.copyToNext(rank1, slot);
+		for (int field : CROSSOVER_FIELDS) {
+			if (r.nextBoolean()) {
+				arena.setNext(slot, field, arena.get(rank2, field));
+			}
+		}
+	}
+
+	/**
+	 * The headers of the fitness and model log files of a neuron
+	 */
+	static final String FITNESS_LOG_HEADER = "fitness";
+	static final String MODEL_LOG_HEADER = "a;b;c;d;p1;p2;p3;p4;u;startU;v";
+
+	/**
+	 * The number of generations whose individuals are used by the surrogate
+	 */
+	private static final int SURROGATE_GENERATIONS = 4;
+
+	/**
+	 * The number of individuals which are bred by one task
+	 */
+	private static final int BREEDING_BLOCK_SIZE = 512;
+
+	/**
+	 * The interval of the progress updates while an evaluation is awaited, in
+	 * milliseconds
+	 */
+	private static final long PROGRESS_INTERVAL = 20;
+
+	/**
+	 * The fields of the arena which are combined by the crossover, in the
+	 * order of {@link #crossover(Random, Model, Model)}.
+	 */
+	private static final int[] CROSSOVER_FIELDS = { PopulationArena.A, PopulationArena.B, PopulationArena.C,
+			PopulationArena.D, PopulationArena.P1, PopulationArena.P2, PopulationArena.P3, PopulationArena.START_U };
+
 	/**
 	 * Mutate a model instance by mutating one of its parameters.
 	 */
@@ -718,6 +2213,52 @@ public class Reconstruction {
 		}
 	}
 
+	/**
+	 * Mutate an individual of the next generation of the arena in the same way
+	 * as {@link #mutate(ReconstructionModeAbstract, Random, Model)}.
+	 */
+	private void mutate(ReconstructionModeAbstract mode, Random r, PopulationArena arena, int slot) {
+		int param = r.nextInt(8);
+		int field = CROSSOVER_FIELDS[param];
+		double minValue;
+		double maxValue;
+		switch (param) {
+		case 0:
+			minValue = mode.getMinA();
+			maxValue = mode.getMaxA();
+			break;
+		case 1:
+			minValue = mode.getMinB();
+			maxValue = mode.getMaxB();
+			break;
+		case 2:
+			minValue = mode.getMinC();
+			maxValue = mode.getMaxC();
+			break;
+		case 3:
+			minValue = mode.getMinD();
+			maxValue = mode.getMaxD();
+			break;
+		case 4:
+			minValue = mode.getMinP1();
+			maxValue = mode.getMaxP1();
+			break;
+		case 5:
+			minValue = mode.getMinP2();
+			maxValue = mode.getMaxP2();
+			break;
+		case 6:
+			minValue = mode.getMinP3();
+			maxValue = mode.getMaxP3();
+			break;
+		default:
+			minValue = mode.getMinU();
+			maxValue = mode.getMaxU();
+			break;
+		}
+		arena.setNext(slot, field, incrementGrayCode(r, arena.getNext(slot, field), minValue, maxValue));
+	}
+
 	/**
 	 * Increments a value in Gray Code representation.
 	 * 
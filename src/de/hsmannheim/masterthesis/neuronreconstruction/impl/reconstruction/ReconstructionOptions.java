@@ -0,0 +1,869 @@
+/** ReconstructionOptions.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.integration.IntegrationMethod;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.optimizer.Optimizer;
+
+/**
+ * Optional settings of a reconstruction which affect how the reconstruction
+ * is computed. The settings of the Genetic Algorithm itself are still passed
+ * directly to {@link Reconstruction#reconstruct}.
+ *
+ * <p />
+ * A newly created instance contains the default settings.
+ *
+ * @author Leah Lackner
+ */
+public class ReconstructionOptions {
+
+	private boolean batchEvaluation = true;
+
+	private int batchSize = 64;
+
+	private IntegrationMethod integrationMethod = IntegrationMethod.EULER;
+
+	private Precision precision = Precision.DOUBLE;
+
+	private int precisionValidationCount = 10;
+
+	private boolean offHeapPopulation = false;
+
+	private int concurrentNeurons = 1;
+
+	private int islands = 1;
+
+	private int migrationInterval = 10;
+
+	private int migrants = 1;
+
+	private MigrationTopology migrationTopology = MigrationTopology.RING;
+
+	private List<String> workers = Collections.emptyList();
+
+	private int workerTimeout = 60000;
+
+	private int fitnessCacheSize = 65536;
+
+	private int earlyTerminationRank = 0;
+
+	private boolean steadyState = false;
+
+	private Optimizer optimizer = null;
+
+	private boolean surrogateScreening = false;
+
+	private double surrogateQuantile = 0.5;
+
+	private int fidelityLevels = 1;
+
+	private double fidelityPromotion = 0.25;
+
+	private WorkQueue workQueue = null;
+
+	private boolean keyedRandomStreams = false;
+
+	private int checkpointInterval = 0;
+
+	private boolean resume = false;
+
+	private List<String> warmStartSources = Collections.emptyList();
+
+	private double warmStartFraction = 0.1;
+
+	private int warmStartMutations = 2;
+
+	private boolean modelBundle = false;
+
+	private double transferFraction = 0;
+
+	private int transferDonors = 2;
+
+	/**
+	 * Checks whether the options can be combined. This is done by
+	 * {@link Reconstruction#reconstruct} before anything is written into the
+	 * output directory.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the options contain a combination which is not supported
+	 */
+	public void validate() {
+		boolean checkpoints = checkpointInterval > 0 || resume;
+		if (checkpoints && (optimizer != null || steadyState || islands > 1 || surrogateScreening)) {
+			throw new IllegalArgumentException("The checkpoints can only be used by the generational Genetic "
+					+ "Algorithm without islands and without the surrogate screening");
+		}
+		if (fidelityLevels > 1 && (optimizer != null || steadyState)) {
+			throw new IllegalArgumentException(
+					"The fidelity levels can only be used by the generational Genetic Algorithm");
+		}
+		if (keyedRandomStreams && (optimizer != null || steadyState || islands > 1)) {
+			throw new IllegalArgumentException("The keyed random streams can only be used by the generational "
+					+ "Genetic Algorithm without islands");
+		}
+		if (!warmStartSources.isEmpty() && optimizer != null) {
+			throw new IllegalArgumentException("The warm start can only be used by the Genetic Algorithm");
+		}
+		if (transferFraction > 0 && (optimizer != null || checkpoints)) {
+			throw new IllegalArgumentException(
+					"The population transfer can only be used by the Genetic Algorithm without checkpoints");
+		}
+		if (optimizer != null && (islands > 1 || steadyState)) {
+			throw new IllegalArgumentException(
+					"An optimizer can not be combined with the island model or the steady state mode");
+		}
+		if (steadyState && islands > 1) {
+			throw new IllegalArgumentException("The steady state mode can not be combined with the island model");
+		}
+		if (earlyTerminationRank > 0 && (!batchEvaluation || integrationMethod != IntegrationMethod.EULER)) {
+			throw new IllegalArgumentException(
+					"The early termination can only be used by the batch evaluation with the forward Euler method");
+		}
+	}
+
+	/**
+	 * @return true if the individuals of a generation are evaluated in blocks
+	 *         by the {@link PopulationKernel}. The kernel is only used with
+	 *         the forward Euler method.
+	 */
+	public boolean isBatchEvaluation() {
+		return batchEvaluation;
+	}
+
+	/**
+	 * Enables or disables the evaluation of the individuals in blocks. If it is
+	 * disabled, each individual is simulated on its own by
+	 * {@link Individual#recalculate}. Both variants yield the same results.
+	 *
+	 * @param batchEvaluation
+	 *            true to enable the batch evaluation (default)
+	 */
+	public void setBatchEvaluation(boolean batchEvaluation) {
+		this.batchEvaluation = batchEvaluation;
+	}
+
+	/**
+	 * @return The maximum number of individuals which are simulated together
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * @param batchSize
+	 *            The maximum number of individuals which are simulated together
+	 *            (default 64)
+	 */
+	public void setBatchSize(int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("The batch size must be positive");
+		}
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * @return The method used to solve the differential equations of the
+	 *         model during the fitness evaluation
+	 */
+	public IntegrationMethod getIntegrationMethod() {
+		return integrationMethod;
+	}
+
+	/**
+	 * @param integrationMethod
+	 *            The method used to solve the differential equations of the
+	 *            model during the fitness evaluation (default forward Euler)
+	 */
+	public void setIntegrationMethod(IntegrationMethod integrationMethod) {
+		this.integrationMethod = integrationMethod;
+	}
+
+	/**
+	 * @return The precision of the batch evaluation
+	 */
+	public Precision getPrecision() {
+		return precision;
+	}
+
+	/**
+	 * Sets the precision of the batch evaluation. The single precision is only
+	 * used if the batch evaluation is enabled and the forward Euler method is
+	 * used, otherwise the individuals are evaluated with double precision.
+	 *
+	 * @param precision
+	 *            The precision of the traces and the simulations (default
+	 *            double)
+	 */
+	public void setPrecision(Precision precision) {
+		this.precision = precision;
+	}
+
+	/**
+	 * @return The number of the best individuals of each neuron which are
+	 *         evaluated again with double precision after a single precision
+	 *         reconstruction
+	 */
+	public int getPrecisionValidationCount() {
+		return precisionValidationCount;
+	}
+
+	/**
+	 * @param precisionValidationCount
+	 *            The number of the best individuals of each neuron which are
+	 *            evaluated again with double precision after a single
+	 *            precision reconstruction (default 10, 0 disables the
+	 *            validation). The fitness differences are written to the log.
+	 */
+	public void setPrecisionValidationCount(int precisionValidationCount) {
+		if (precisionValidationCount < 0) {
+			throw new IllegalArgumentException("The validation count must not be negative");
+		}
+		this.precisionValidationCount = precisionValidationCount;
+	}
+
+	/**
+	 * @return true if the individuals are stored off the heap
+	 */
+	public boolean isOffHeapPopulation() {
+		return offHeapPopulation;
+	}
+
+	/**
+	 * @param offHeapPopulation
+	 *            true to store the individuals of the {@link PopulationArena}
+	 *            in direct buffers off the heap (default false)
+	 */
+	public void setOffHeapPopulation(boolean offHeapPopulation) {
+		this.offHeapPopulation = offHeapPopulation;
+	}
+
+	/**
+	 * @return The maximum number of neurons which are reconstructed at once
+	 */
+	public int getConcurrentNeurons() {
+		return concurrentNeurons;
+	}
+
+	/**
+	 * Sets the maximum number of neurons which are reconstructed at once. The
+	 * fitness evaluations of all neurons share the same worker threads, so
+	 * that the workers are busy while a neuron breeds or sorts its next
+	 * generation. Each neuron then uses its own random instance, which is
+	 * derived from the random instance of the reconstruction, so the results
+	 * are reproducible but differ from a reconstruction of one neuron at a
+	 * time. Each neuron also writes its own log file. The option is ignored
+	 * if the graphical user interface is enabled.
+	 *
+	 * @param concurrentNeurons
+	 *            The maximum number of neurons which are reconstructed at once
+	 *            (default 1)
+	 */
+	public void setConcurrentNeurons(int concurrentNeurons) {
+		if (concurrentNeurons < 1) {
+			throw new IllegalArgumentException("The number of concurrent neurons must be positive");
+		}
+		this.concurrentNeurons = concurrentNeurons;
+	}
+
+	/**
+	 * @return The number of islands of the population of a neuron
+	 */
+	public int getIslands() {
+		return islands;
+	}
+
+	/**
+	 * Sets the number of islands of the island model. The population of a
+	 * neuron is split into this number of sub-populations, which evolve
+	 * independently on their own worker threads and only exchange their best
+	 * individuals every {@link #getMigrationInterval()} generations. Each
+	 * island uses its own random instance, so the results are reproducible
+	 * but differ from a reconstruction with a single population.
+	 *
+	 * @param islands
+	 *            The number of islands (default 1, which disables the island
+	 *            model)
+	 */
+	public void setIslands(int islands) {
+		if (islands < 1) {
+			throw new IllegalArgumentException("The number of islands must be positive");
+		}
+		this.islands = islands;
+	}
+
+	/**
+	 * @return The number of generations between two migrations
+	 */
+	public int getMigrationInterval() {
+		return migrationInterval;
+	}
+
+	/**
+	 * @param migrationInterval
+	 *            The number of generations between two migrations (default
+	 *            10)
+	 */
+	public void setMigrationInterval(int migrationInterval) {
+		if (migrationInterval < 1) {
+			throw new IllegalArgumentException("The migration interval must be positive");
+		}
+		this.migrationInterval = migrationInterval;
+	}
+
+	/**
+	 * @return The number of the best individuals which an island sends to
+	 *         each of its neighbours
+	 */
+	public int getMigrants() {
+		return migrants;
+	}
+
+	/**
+	 * @param migrants
+	 *            The number of the best individuals which an island sends to
+	 *            each of its neighbours (default 1). They replace the worst
+	 *            individuals of the receiving island.
+	 */
+	public void setMigrants(int migrants) {
+		if (migrants < 0) {
+			throw new IllegalArgumentException("The number of migrants must not be negative");
+		}
+		this.migrants = migrants;
+	}
+
+	/**
+	 * @return The topology of the migration between the islands
+	 */
+	public MigrationTopology getMigrationTopology() {
+		return migrationTopology;
+	}
+
+	/**
+	 * @param migrationTopology
+	 *            The topology of the migration between the islands (default
+	 *            ring)
+	 */
+	public void setMigrationTopology(MigrationTopology migrationTopology) {
+		this.migrationTopology = migrationTopology;
+	}
+
+	/**
+	 * @return The addresses of the {@link EvaluationWorker}s (host:port)
+	 */
+	public List<String> getWorkers() {
+		return workers;
+	}
+
+	/**
+	 * Sets the addresses of the {@link EvaluationWorker}s which evaluate the
+	 * fitness values instead of the local threads. The results are the same
+	 * as those of the local evaluation. If no worker is available, the
+	 * individuals are evaluated locally.
+	 *
+	 * @param workers
+	 *            The addresses of the workers (host:port, default none)
+	 */
+	public void setWorkers(List<String> workers) {
+		this.workers = Collections.unmodifiableList(new ArrayList<>(workers));
+	}
+
+	/**
+	 * @return The time in milliseconds after which a worker which does not
+	 *         answer is considered to be lost
+	 */
+	public int getWorkerTimeout() {
+		return workerTimeout;
+	}
+
+	/**
+	 * @param workerTimeout
+	 *            The time in milliseconds after which a worker which does not
+	 *            answer is considered to be lost (default 60000). Its batches
+	 *            are sent to the other workers.
+	 */
+	public void setWorkerTimeout(int workerTimeout) {
+		if (workerTimeout < 1) {
+			throw new IllegalArgumentException("The worker timeout must be positive");
+		}
+		this.workerTimeout = workerTimeout;
+	}
+
+	/**
+	 * @return The maximum number of evaluated individuals which are cached
+	 */
+	public int getFitnessCacheSize() {
+		return fitnessCacheSize;
+	}
+
+	/**
+	 * Sets the size of the cache of the evaluated individuals. Individuals
+	 * which are found in the cache are not simulated again. The cached results
+	 * are exactly the same as new evaluations, so the cache does not change
+	 * the results of the reconstruction.
+	 *
+	 * @param fitnessCacheSize
+	 *            The maximum number of cached individuals (default 65536, 0
+	 *            disables the cache)
+	 */
+	public void setFitnessCacheSize(int fitnessCacheSize) {
+		if (fitnessCacheSize < 0) {
+			throw new IllegalArgumentException("The size of the fitness cache must not be negative");
+		}
+		this.fitnessCacheSize = fitnessCacheSize;
+	}
+
+	/**
+	 * @return The rank whose fitness value is the cutoff for the early
+	 *         termination of the evaluation, 0 if it is disabled
+	 */
+	public int getEarlyTerminationRank() {
+		return earlyTerminationRank;
+	}
+
+	/**
+	 * Enables the early termination of the fitness evaluation. The fitness
+	 * value of the k-th best individual of a generation is the cutoff for the
+	 * evaluation of the next generation. The evaluation of an individual is
+	 * aborted as soon as a lower bound of its fitness value exceeds the
+	 * cutoff. The lower bound is the fitness value of an aborted individual,
+	 * aborted individuals are ranked after all completely evaluated
+	 * individuals. If less than k individuals of a generation were evaluated
+	 * completely, the next generation is evaluated without a cutoff.
+	 *
+	 * <p />
+	 * The early termination requires the batch evaluation with the forward
+	 * Euler method (see {@link #validate()}). The distributed evaluation and
+	 * the optimizers evaluate all individuals completely.
+	 *
+	 * @param earlyTerminationRank
+	 *            The rank k (default 0, which disables the early termination)
+	 */
+	public void setEarlyTerminationRank(int earlyTerminationRank) {
+		if (earlyTerminationRank < 0) {
+			throw new IllegalArgumentException("The early termination rank must not be negative");
+		}
+		this.earlyTerminationRank = earlyTerminationRank;
+	}
+
+	/**
+	 * @return true if the steady state Genetic Algorithm is used
+	 */
+	public boolean isSteadyState() {
+		return steadyState;
+	}
+
+	/**
+	 * Enables the steady state Genetic Algorithm. Only the initial generation
+	 * is evaluated at once. Afterwards the worker threads continuously breed
+	 * offspring from the ranked population, evaluate them and replace the worst
+	 * individuals, so no worker waits for the end of a generation. The
+	 * population size evaluations count as one generation for the stopping
+	 * criteria and the logs. The results depend on the timing of the workers
+	 * and are not reproducible. The steady state mode can not be combined with
+	 * the island model.
+	 *
+	 * @param steadyState
+	 *            true to use the steady state mode (default false)
+	 */
+	public void setSteadyState(boolean steadyState) {
+		this.steadyState = steadyState;
+	}
+
+	/**
+	 * @return The optimizer which is used instead of the Genetic Algorithm,
+	 *         null if the Genetic Algorithm is used
+	 */
+	public Optimizer getOptimizer() {
+		return optimizer;
+	}
+
+	/**
+	 * Sets the optimizer which reconstructs the parameters instead of the
+	 * Genetic Algorithm, e.g. a
+	 * {@link de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.optimizer.CmaEsOptimizer}
+	 * or a
+	 * {@link de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.optimizer.DifferentialEvolutionOptimizer}.
+	 * The optimizer gets the same evaluation budget as the Genetic Algorithm
+	 * (the generation threshold times the population size), the population
+	 * size evaluations count as one generation for the stopping criteria and
+	 * the logs. An optimizer can not be combined with the island model or the
+	 * steady state mode, and its evaluations are never terminated early.
+	 *
+	 * @param optimizer
+	 *            The optimizer, null for the Genetic Algorithm (default)
+	 */
+	public void setOptimizer(Optimizer optimizer) {
+		this.optimizer = optimizer;
+	}
+
+	/**
+	 * @return true if the offspring are prescreened by a surrogate model
+	 */
+	public boolean isSurrogateScreening() {
+		return surrogateScreening;
+	}
+
+	/**
+	 * Enables the prescreening of the offspring by a surrogate model, which
+	 * predicts the fitness values from the parameters by the nearest evaluated
+	 * individuals of the last generations. Only offspring which are predicted
+	 * to be competitive are evaluated, the others are bred again. The accuracy
+	 * of the predictions and the number of saved evaluations are logged after
+	 * each generation. The prescreening is only used by the generational
+	 * Genetic Algorithm without islands.
+	 *
+	 * @param surrogateScreening
+	 *            true to prescreen the offspring (default false)
+	 */
+	public void setSurrogateScreening(boolean surrogateScreening) {
+		this.surrogateScreening = surrogateScreening;
+	}
+
+	/**
+	 * @return The quantile of the fitness values of the current generation up
+	 *         to which an offspring is competitive
+	 */
+	public double getSurrogateQuantile() {
+		return surrogateQuantile;
+	}
+
+	/**
+	 * @param surrogateQuantile
+	 *            The quantile of the fitness values of the current generation
+	 *            up to which an offspring is predicted to be competitive, in
+	 *            (0, 1] (default 0.5, i.e. the offspring must be predicted to
+	 *            be better than the median)
+	 */
+	public void setSurrogateQuantile(double surrogateQuantile) {
+		if (!(surrogateQuantile > 0 && surrogateQuantile <= 1)) {
+			throw new IllegalArgumentException("The surrogate quantile must be in (0, 1]");
+		}
+		this.surrogateQuantile = surrogateQuantile;
+	}
+
+	/**
+	 * @return The number of fidelity levels of the evaluation, 1 if all
+	 *         individuals are evaluated with the whole measured data
+	 */
+	public int getFidelityLevels() {
+		return fidelityLevels;
+	}
+
+	/**
+	 * Sets the number of fidelity levels of the successive halving
+	 * evaluation. With more than one level the offspring of a generation are
+	 * first evaluated with a section of the measured data around the tuning
+	 * index of the u variable, whose length is halved for each level below the
+	 * whole data. Only the best fraction of each level (see
+	 * {@link #setFidelityPromotion(double)}) and the copies of the best
+	 * individuals of the last generation are promoted to the next level. The
+	 * individuals which are not evaluated with the whole data are ranked after
+	 * all completely evaluated individuals, so the ranking of the best
+	 * individuals does not change. The levels are used by the generational
+	 * Genetic Algorithm with and without islands.
+	 *
+	 * @param fidelityLevels
+	 *            The number of levels, at least 1 (default 1, i.e. disabled)
+	 */
+	public void setFidelityLevels(int fidelityLevels) {
+		if (fidelityLevels < 1) {
+			throw new IllegalArgumentException("At least one fidelity level is needed");
+		}
+		this.fidelityLevels = fidelityLevels;
+	}
+
+	/**
+	 * @return The fraction of the individuals of a fidelity level which are
+	 *         promoted to the next level
+	 */
+	public double getFidelityPromotion() {
+		return fidelityPromotion;
+	}
+
+	/**
+	 * @param fidelityPromotion
+	 *            The fraction of the individuals of a fidelity level which are
+	 *            promoted to the next level, in (0, 1] (default 0.25)
+	 */
+	public void setFidelityPromotion(double fidelityPromotion) {
+		if (!(fidelityPromotion > 0 && fidelityPromotion <= 1)) {
+			throw new IllegalArgumentException("The fidelity promotion must be in (0, 1]");
+		}
+		this.fidelityPromotion = fidelityPromotion;
+	}
+
+	/**
+	 * @return The queue of the worker threads which is shared with other
+	 *         reconstructions, null if the reconstruction creates its own
+	 *         queue
+	 */
+	public WorkQueue getWorkQueue() {
+		return workQueue;
+	}
+
+	/**
+	 * Sets a queue of worker threads which is shared with other
+	 * reconstructions running at the same time, so the number of threads of
+	 * all evaluations is limited by the queue. The queue is not shut down by
+	 * the reconstruction.
+	 *
+	 * @param workQueue
+	 *            The shared queue, null to create a queue for each
+	 *            reconstruction (default null)
+	 */
+	public void setWorkQueue(WorkQueue workQueue) {
+		this.workQueue = workQueue;
+	}
+
+	/**
+	 * @return true if the generational Genetic Algorithm uses keyed random
+	 *         streams
+	 */
+	public boolean isKeyedRandomStreams() {
+		return keyedRandomStreams;
+	}
+
+	/**
+	 * Enables the keyed random streams. Instead of one random instance per
+	 * neuron, each individual is bred and each generation is evaluated with
+	 * its own random stream, whose seed is derived from the seed of the
+	 * reconstruction, the neuron, the generation and the slot of the
+	 * individual. So the results are the same for any number of threads and
+	 * concurrent neurons and do not depend on the order in which the
+	 * individuals are bred, and the initial population and the offspring are
+	 * generated in parallel by the worker threads (except for the offspring
+	 * prescreened by the surrogate). The results differ from the results
+	 * without the streams. The streams can only be used by the generational Genetic
+	 * Algorithm without islands.
+	 *
+	 * @param keyedRandomStreams
+	 *            true to use the keyed random streams (default false)
+	 */
+	public void setKeyedRandomStreams(boolean keyedRandomStreams) {
+		this.keyedRandomStreams = keyedRandomStreams;
+	}
+
+	/**
+	 * @return The number of generations after which a checkpoint is written,
+	 *         0 if no checkpoints are written
+	 */
+	public int getCheckpointInterval() {
+		return checkpointInterval;
+	}
+
+	/**
+	 * Enables the checkpoints of the generational Genetic Algorithm. The
+	 * state of each neuron (its current generation, the state of its random
+	 * instance and the counters of the stopping criteria) is written into the
+	 * directory checkpoints of the output directory every given number of
+	 * generations and after the neuron is finished, so an aborted
+	 * reconstruction can be continued (see {@link #setResume(boolean)}). The
+	 * checkpoints are written by a separate thread.
+	 *
+	 * <p />
+	 * With checkpoints each neuron uses its own random instance as with
+	 * several concurrent neurons, so the results are the same as with
+	 * concurrent neurons. The checkpoints can only be used by the
+	 * generational Genetic Algorithm without islands and without the
+	 * surrogate screening.
+	 *
+	 * @param checkpointInterval
+	 *            The number of generations between two checkpoints, 0 to
+	 *            disable the checkpoints (default 0)
+	 */
+	public void setCheckpointInterval(int checkpointInterval) {
+		if (checkpointInterval < 0) {
+			throw new IllegalArgumentException("The checkpoint interval must not be negative");
+		}
+		this.checkpointInterval = checkpointInterval;
+	}
+
+	/**
+	 * @return true if a reconstruction continues from the checkpoints in its
+	 *         output directory
+	 */
+	public boolean isResume() {
+		return resume;
+	}
+
+	/**
+	 * Continues an aborted reconstruction from the last checkpoints in its
+	 * output directory (see {@link #setCheckpointInterval(int)}). The
+	 * reconstruction must be started with the same data, random seed and
+	 * settings. The finished neurons are not reconstructed again, the other
+	 * neurons continue after the generation of their last checkpoint with the
+	 * same results as without the abort. The neurons without a checkpoint are
+	 * reconstructed from the beginning. The log files are not cleared, so
+	 * they contain the generations after the last checkpoint twice.
+	 *
+	 * @param resume
+	 *            true to continue from the checkpoints (default false)
+	 */
+	public void setResume(boolean resume) {
+		this.resume = resume;
+	}
+
+	/**
+	 * @return The output directories and model bundles of previous
+	 *         reconstructions whose models are used in the initial populations
+	 */
+	public List<String> getWarmStartSources() {
+		return warmStartSources;
+	}
+
+	/**
+	 * Starts the reconstruction from the models of previous reconstructions
+	 * (warm start). A source is either an output directory, whose log files
+	 * contain the best model of each generation, or a model bundle (the file
+	 * models.csv with the resulting models of a reconstruction, see
+	 * {@link #setModelBundle(boolean)}). The distinct models of each
+	 * neuron are sorted by their fitness values, the best ones are added to
+	 * the initial population (see {@link #setWarmStartFraction(double)}) and
+	 * the remaining individuals are random. The sources must belong to a
+	 * network with the same number of neurons. The warm start can not be
+	 * combined with an optimizer.
+	 *
+	 * @param warmStartSources
+	 *            The paths of the output directories and model bundles
+	 *            (default none)
+	 */
+	public void setWarmStartSources(List<String> warmStartSources) {
+		this.warmStartSources = Collections.unmodifiableList(new ArrayList<>(warmStartSources));
+	}
+
+	/**
+	 * @return The fraction of the initial population which is seeded with
+	 *         the warm start models
+	 */
+	public double getWarmStartFraction() {
+		return warmStartFraction;
+	}
+
+	/**
+	 * Sets the fraction of the initial population which is seeded with the
+	 * warm start models (see {@link #setWarmStartSources(List)}). If a neuron
+	 * has less models than seeded individuals, the other seeded individuals
+	 * are mutated copies of the models, so the Genetic Algorithm explores the
+	 * neighbourhood of the previous results.
+	 *
+	 * @param warmStartFraction
+	 *            The fraction between 0 and 1 (default 0.1)
+	 */
+	public void setWarmStartFraction(double warmStartFraction) {
+		if (!(warmStartFraction >= 0 && warmStartFraction <= 1)) {
+			throw new IllegalArgumentException("The warm start fraction must be between 0 and 1");
+		}
+		this.warmStartFraction = warmStartFraction;
+	}
+
+	/**
+	 * @return The number of mutations of a copy of a warm start model
+	 */
+	public int getWarmStartMutations() {
+		return warmStartMutations;
+	}
+
+	/**
+	 * Sets the number of mutations which are applied to a copy of a warm
+	 * start model (see {@link #setWarmStartFraction(double)}). Each mutation
+	 * changes one parameter as the mutation of the Genetic Algorithm.
+	 *
+	 * @param warmStartMutations
+	 *            The number of mutations, at least 1 (default 2)
+	 */
+	public void setWarmStartMutations(int warmStartMutations) {
+		if (warmStartMutations < 1) {
+			throw new IllegalArgumentException("A copy of a warm start model needs at least one mutation");
+		}
+		this.warmStartMutations = warmStartMutations;
+	}
+
+	/**
+	 * @return true if the resulting models are written into a model bundle
+	 */
+	public boolean isModelBundle() {
+		return modelBundle;
+	}
+
+	/**
+	 * Writes the resulting models and their fitness values into the file
+	 * models.csv of the output directory (model bundle), which can be used
+	 * as a warm start source by the following reconstructions (see
+	 * {@link #setWarmStartSources(List)}). A reconstruction with warm start
+	 * sources always writes a model bundle.
+	 *
+	 * @param modelBundle
+	 *            true to write the model bundle (default false)
+	 */
+	public void setModelBundle(boolean modelBundle) {
+		this.modelBundle = modelBundle;
+	}
+
+	/**
+	 * @return The fraction of the initial population of a neuron which is
+	 *         transferred from the reconstructed neurons, 0 if disabled
+	 */
+	public double getTransferFraction() {
+		return transferFraction;
+	}
+
+	/**
+	 * Seeds the initial population of each neuron with the intrinsic
+	 * parameters of the best individuals of the neurons which are already
+	 * reconstructed (population transfer). The donors are the reconstructed
+	 * neurons whose measured voltage traces have the most similar firing
+	 * statistics (spike rate, variation of the interspike intervals and mean
+	 * voltage between the spikes), see {@link #setTransferDonors(int)}.
+	 * Neurons of the same type start near their solution, so they need fewer
+	 * generations. The first neuron has no donors.
+	 *
+	 * <p />
+	 * With several concurrent neurons, the donors of a neuron are the neurons
+	 * which are finished when it starts, so the results depend on the timing.
+	 * The population transfer can only be used by the Genetic Algorithm
+	 * without checkpoints.
+	 *
+	 * @param transferFraction
+	 *            The fraction between 0 and 1, 0 to disable the transfer
+	 *            (default 0)
+	 */
+	public void setTransferFraction(double transferFraction) {
+		if (!(transferFraction >= 0 && transferFraction <= 1)) {
+			throw new IllegalArgumentException("The transfer fraction must be between 0 and 1");
+		}
+		this.transferFraction = transferFraction;
+	}
+
+	/**
+	 * @return The maximum number of donors of a neuron
+	 */
+	public int getTransferDonors() {
+		return transferDonors;
+	}
+
+	/**
+	 * Sets the maximum number of reconstructed neurons whose best individuals
+	 * are transferred into the initial population of a neuron (see
+	 * {@link #setTransferFraction(double)}). The donors contribute their best
+	 * individuals in turns, the most similar donor first.
+	 *
+	 * @param transferDonors
+	 *            The number of donors, at least 1 (default 2)
+	 */
+	public void setTransferDonors(int transferDonors) {
+		if (transferDonors < 1) {
+			throw new IllegalArgumentException("The population transfer needs at least one donor");
+		}
+		this.transferDonors = transferDonors;
+	}
+
+}
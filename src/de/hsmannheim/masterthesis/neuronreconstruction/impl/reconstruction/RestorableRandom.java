@@ -0,0 +1,75 @@
+/** RestorableRandom.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction;
+
+import java.util.Random;
+
+/**
+ * A random instance whose state can be read and restored, which is needed by
+ * the checkpoints of a reconstruction (see {@link Checkpoints}).
+ *
+ * <p />
+ * The state of {@link Random} is private, so this class implements the same
+ * linear congruential generator in {@link #next(int)}. All methods of
+ * {@link Random} are based on it, so a restorable random instance returns the
+ * same numbers as a {@link Random} with the same seed. Only the second
+ * Gaussian number which is cached by {@link Random#nextGaussian()} is not
+ * part of the state.
+ *
+ * @author Leah Lackner
+ */
+class RestorableRandom extends Random {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final long MULTIPLIER = 0x5DEECE66DL;
+	private static final long ADDEND = 0xBL;
+	private static final long MASK = (1L << 48) - 1;
+
+	/**
+	 * The state of the generator, it is set by the constructor of
+	 * {@link Random}
+	 */
+	private long state;
+
+	/**
+	 * @param seed
+	 *            The seed, as in {@link Random#Random(long)}
+	 */
+	RestorableRandom(long seed) {
+		super(seed);
+	}
+
+	@Override
+	public synchronized void setSeed(long seed) {
+		super.setSeed(seed);
+		state = (seed ^ MULTIPLIER) & MASK;
+	}
+
+	@Override
+	protected synchronized int next(int bits) {
+		state = (state * MULTIPLIER + ADDEND) & MASK;
+		return (int) (state >>> (48 - bits));
+	}
+
+	/**
+	 * @return The state of the generator
+	 */
+	synchronized long getState() {
+		return state;
+	}
+
+	/**
+	 * @param state
+	 *            A state returned by {@link #getState()}
+	 */
+	synchronized void setState(long state) {
+		this.state = state & MASK;
+	}
+
+}
@@ -0,0 +1,377 @@
+/** SurrogateScreening.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.modes.ReconstructionModeAbstract;
+
+/**
+ * Prescreening of the bred offspring by a surrogate model, which predicts the
+ * fitness value of an individual from its parameters without a simulation.
+ *
+ * <p />
+ * The surrogate is a k-nearest-neighbour regression over all evaluated
+ * individuals of the last generations: The parameters which are inherited by
+ * the offspring and not fixed by the reconstruction mode are normalised to [0, 1] by the bounds of the reconstruction
+ * mode, the prediction is the mean of the fitness values of the k nearest
+ * evaluated individuals weighted by their inverse distances. The evaluated
+ * individuals are stored in a ring buffer and indexed by a k-d tree, which is
+ * rebuilt after each generation.
+ *
+ * <p />
+ * An offspring is competitive if its prediction is not worse than the fitness
+ * value at the given quantile of the current generation. The predictions of
+ * the accepted offspring are compared with their fitness values after the
+ * evaluation, which is reported together with the number of rejected
+ * offspring.
+ *
+ * @author Leah Lackner
+ */
+class SurrogateScreening {
+
+	/**
+	 * The fields of the parameters which are inherited by the offspring
+	 */
+	private static final int[] PARAMETER_FIELDS = { PopulationArena.A, PopulationArena.B, PopulationArena.C,
+			PopulationArena.D, PopulationArena.P1, PopulationArena.P2, PopulationArena.P3, PopulationArena.START_U };
+
+	private static final int NEIGHBOURS = 8;
+
+	/**
+	 * The number of rejected offspring after which the next offspring is
+	 * accepted without screening
+	 */
+	static final int MAX_ATTEMPTS = 10;
+
+	/**
+	 * The fields of the parameters which are not fixed by the mode, with
+	 * their bounds
+	 */
+	private final int[] fields;
+	private final int dimension;
+	private final double[] min;
+	private final double[] range;
+	private final double quantile;
+
+	/**
+	 * The ring buffer of the evaluated individuals
+	 */
+	private final double[][] points;
+	private final double[] fitness;
+	private int size;
+	private int nextPoint;
+
+	/**
+	 * The k-d tree as a permutation of the points, the median of each
+	 * subrange is the node which splits it by the coordinate of its depth
+	 */
+	private final int[] tree;
+
+	/**
+	 * The fitness value at the quantile of the current generation
+	 */
+	private double threshold = Double.POSITIVE_INFINITY;
+
+	/**
+	 * The predictions for the slots of the next generation, NaN if the slot
+	 * was not screened
+	 */
+	private double[] predictions;
+
+	/**
+	 * The buffers of the nearest neighbour search
+	 */
+	private final double[] query;
+	private final int[] neighbours = new int[NEIGHBOURS];
+	private final double[] neighbourDistances = new double[NEIGHBOURS];
+	private int foundNeighbours;
+
+	/**
+	 * The statistics of the next generation and of the last evaluated
+	 * generation
+	 */
+	private int screened;
+	private int rejected;
+	private int lastScreened;
+	private int lastRejected;
+	private int compared;
+	private double absoluteError;
+	private double correlation = Double.NaN;
+
+	/**
+	 * @param mode
+	 *            The parameter ranges used for the normalisation
+	 * @param populationSize
+	 *            The size of the population
+	 * @param generations
+	 *            The number of generations whose individuals are kept
+	 * @param quantile
+	 *            The quantile of the fitness values of the current
+	 *            generation up to which an offspring is competitive
+	 */
+	SurrogateScreening(ReconstructionModeAbstract mode, int populationSize, int generations, double quantile) {
+		double[] mins = { mode.getMinA(), mode.getMinB(), mode.getMinC(), mode.getMinD(), mode.getMinP1(),
+				mode.getMinP2(), mode.getMinP3(), mode.getMinU() };
+		double[] maxs = { mode.getMaxA(), mode.getMaxB(), mode.getMaxC(), mode.getMaxD(), mode.getMaxP1(),
+				mode.getMaxP2(), mode.getMaxP3(), mode.getMaxU() };
+		int free = 0;
+		for (int i = 0; i < PARAMETER_FIELDS.length; i++) {
+			if (maxs[i] > mins[i]) {
+				free++;
+			}
+		}
+		dimension = free;
+		fields = new int[dimension];
+		min = new double[dimension];
+		range = new double[dimension];
+		for (int i = 0, k = 0; i < PARAMETER_FIELDS.length; i++) {
+			if (maxs[i] > mins[i]) {
+				fields[k] = PARAMETER_FIELDS[i];
+				min[k] = mins[i];
+				range[k] = maxs[i] - mins[i];
+				k++;
+			}
+		}
+		this.quantile = quantile;
+
+		int capacity = populationSize * generations;
+		points = new double[capacity][dimension];
+		fitness = new double[capacity];
+		tree = new int[capacity];
+		predictions = new double[populationSize];
+		Arrays.fill(predictions, Double.NaN);
+		query = new double[dimension];
+	}
+
+	/**
+	 * Adds the evaluated individuals of the current generation to the
+	 * surrogate and compares them with their predictions. Must be called
+	 * after each evaluation of a generation.
+	 *
+	 * @param population
+	 *            The population, whose current generation was evaluated
+	 */
+	void train(PopulationArena population) {
+		// Compare the predictions with the evaluated fitness values
+		compared = 0;
+		absoluteError = 0;
+		double sumPredicted = 0;
+		double sumActual = 0;
+		double sumPredictedSquared = 0;
+		double sumActualSquared = 0;
+		double sumProduct = 0;
+		for (int rank = 0; rank < population.size(); rank++) {
+			int slot = population.getSlot(rank);
+			double actual = population.getFitness(rank);
+			if (slot < predictions.length && !Double.isNaN(predictions[slot]) && Double.isFinite(actual)
+					&& !population.isAborted(rank)) {
+				double predicted = predictions[slot];
+				compared++;
+				absoluteError += Math.abs(predicted - actual);
+				sumPredicted += predicted;
+				sumActual += actual;
+				sumPredictedSquared += predicted * predicted;
+				sumActualSquared += actual * actual;
+				sumProduct += predicted * actual;
+			}
+		}
+		double covariance = compared * sumProduct - sumPredicted * sumActual;
+		double variances = (compared * sumPredictedSquared - sumPredicted * sumPredicted)
+				* (compared * sumActualSquared - sumActual * sumActual);
+		correlation = variances > 0 ? covariance / Math.sqrt(variances) : Double.NaN;
+
+		// Add the individuals with exact fitness values
+		for (int rank = 0; rank < population.size(); rank++) {
+			double value = population.getFitness(rank);
+			if (!Double.isFinite(value) || population.isAborted(rank)) {
+				continue;
+			}
+			for (int i = 0; i < dimension; i++) {
+				points[nextPoint][i] = normalize(i, population.get(rank, fields[i]));
+			}
+			fitness[nextPoint] = value;
+			nextPoint = (nextPoint + 1) % points.length;
+			size = Math.min(size + 1, points.length);
+		}
+		for (int i = 0; i < size; i++) {
+			tree[i] = i;
+		}
+		build(0, size, 0);
+
+		int thresholdRank = Math.min(population.size() - 1, (int) (quantile * population.size()));
+		threshold = population.getFitness(thresholdRank);
+		if (predictions.length < population.size()) {
+			predictions = new double[population.size()];
+		}
+		Arrays.fill(predictions, Double.NaN);
+		lastScreened = screened;
+		lastRejected = rejected;
+		screened = 0;
+		rejected = 0;
+	}
+
+	/**
+	 * Decides whether a bred offspring is evaluated.
+	 *
+	 * @param population
+	 *            The population
+	 * @param slot
+	 *            The slot of the offspring in the next generation
+	 * @return true if the offspring is predicted to be competitive
+	 */
+	boolean accept(PopulationArena population, int slot) {
+		if (size < NEIGHBOURS || dimension == 0) {
+			return true;
+		}
+		double predicted = predict(population, slot);
+		screened++;
+		if (predicted > threshold) {
+			rejected++;
+			return false;
+		}
+		predictions[slot] = predicted;
+		return true;
+	}
+
+	/**
+	 * Predicts the fitness value of an individual of the next generation.
+	 */
+	private double predict(PopulationArena population, int slot) {
+		for (int i = 0; i < dimension; i++) {
+			query[i] = normalize(i, population.getNext(slot, fields[i]));
+		}
+		foundNeighbours = 0;
+		search(0, size, 0);
+
+		double weightSum = 0;
+		double sum = 0;
+		for (int k = 0; k < foundNeighbours; k++) {
+			if (neighbourDistances[k] == 0) {
+				// An evaluated individual with the same parameters
+				return fitness[neighbours[k]];
+			}
+			double weight = 1 / Math.sqrt(neighbourDistances[k]);
+			weightSum += weight;
+			sum += weight * fitness[neighbours[k]];
+		}
+		return sum / weightSum;
+	}
+
+	private double normalize(int dim, double value) {
+		return (value - min[dim]) / range[dim];
+	}
+
+	/**
+	 * Builds the k-d tree of the subrange of the tree permutation.
+	 */
+	private void build(int from, int to, int depth) {
+		if (to - from < 2) {
+			return;
+		}
+		int middle = (from + to) >>> 1;
+		select(from, to - 1, middle, depth % dimension);
+		build(from, middle, depth + 1);
+		build(middle + 1, to, depth + 1);
+	}
+
+	/**
+	 * Quickselect of the k-th point of the subrange by the given coordinate.
+	 */
+	private void select(int left, int right, int k, int dim) {
+		while (left < right) {
+			double pivot = points[tree[(left + right) >>> 1]][dim];
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (points[tree[i]][dim] < pivot) {
+					i++;
+				}
+				while (points[tree[j]][dim] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					int tmp = tree[i];
+					tree[i] = tree[j];
+					tree[j] = tmp;
+					i++;
+					j--;
+				}
+			}
+			if (k <= j) {
+				right = j;
+			} else if (k >= i) {
+				left = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Searches the nearest neighbours of the query in the subrange of the
+	 * tree.
+	 */
+	private void search(int from, int to, int depth) {
+		if (from >= to) {
+			return;
+		}
+		int middle = (from + to) >>> 1;
+		int point = tree[middle];
+		double distance = 0;
+		for (int i = 0; i < dimension; i++) {
+			double diff = points[point][i] - query[i];
+			distance += diff * diff;
+		}
+		offer(point, distance);
+
+		int dim = depth % dimension;
+		double diff = query[dim] - points[point][dim];
+		if (diff < 0) {
+			search(from, middle, depth + 1);
+			if (foundNeighbours < NEIGHBOURS || diff * diff < neighbourDistances[foundNeighbours - 1]) {
+				search(middle + 1, to, depth + 1);
+			}
+		} else {
+			search(middle + 1, to, depth + 1);
+			if (foundNeighbours < NEIGHBOURS || diff * diff < neighbourDistances[foundNeighbours - 1]) {
+				search(from, middle, depth + 1);
+			}
+		}
+	}
+
+	/**
+	 * Inserts a point into the sorted list of the nearest neighbours.
+	 */
+	private void offer(int point, double distance) {
+		if (foundNeighbours == NEIGHBOURS && distance >= neighbourDistances[NEIGHBOURS - 1]) {
+			return;
+		}
+		int k = foundNeighbours < NEIGHBOURS ? foundNeighbours++ : NEIGHBOURS - 1;
+		while (k > 0 && neighbourDistances[k - 1] > distance) {
+			neighbourDistances[k] = neighbourDistances[k - 1];
+			neighbours[k] = neighbours[k - 1];
+			k--;
+		}
+		neighbourDistances[k] = distance;
+		neighbours[k] = point;
+	}
+
+	/**
+	 * The statistics of the last evaluated generation: the number of screened
+	 * and rejected (i.e. not evaluated) offspring and the accuracy of the
+	 * predictions of the accepted offspring.
+	 */
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "screened=%d;rejected=%d;compared=%d;meanAbsoluteError=%.6f;correlation=%.4f",
+				lastScreened, lastRejected, compared, compared > 0 ? absoluteError / compared : Double.NaN, correlation);
+	}
+
+}
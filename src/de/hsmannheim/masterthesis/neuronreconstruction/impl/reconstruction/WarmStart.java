@@ -0,0 +1,291 @@
+/** WarmStart.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.Model;
+
+/**
+ * The models of previous reconstructions, which are used as a part of the
+ * initial populations (warm start).
+ *
+ * <p />
+ * A source is either the output directory of a reconstruction, whose log
+ * files contain the best model of each generation together with its fitness
+ * value and weights, or a model bundle, i.e. the file models.csv which is
+ * written into the output directory after a reconstruction if it is enabled
+ * (see {@link ReconstructionOptions#setModelBundle(boolean)}) and contains
+ * the resulting models of all neurons. The models of each neuron are sorted
+ * by their fitness values (models without a fitness value last) and
+ * duplicates are removed. The fitness values of different sources are only
+ * comparable if they were calculated with the same data and measures.
+ *
+ * @author Leah Lackner
+ */
+class WarmStart {
+
+	/**
+	 * The file name of the model bundle
+	 */
+	static final String BUNDLE = "models.csv";
+
+	/**
+	 * The number of values of a model in the log files: a, b, c, d, p1, p2,
+	 * p3, p4, u, startU and v
+	 */
+	private static final int MODEL_VALUES = 11;
+
+	/**
+	 * The distinct models of each neuron, the best ones first
+	 */
+	private final List<List<Model>> models;
+
+	private WarmStart(List<List<Model>> models) {
+		this.models = models;
+	}
+
+	/**
+	 * A loaded model with the fitness value of its source.
+	 */
+	private static class Candidate {
+
+		final Model model;
+		final double fitness;
+
+		Candidate(Model model, double fitness) {
+			this.model = model;
+			this.fitness = fitness;
+		}
+	}
+
+	/**
+	 * Loads the models of all neurons from the given sources.
+	 *
+	 * @param sources
+	 *            The output directories and model bundles
+	 * @param numNeurons
+	 *            The number of all neurons in the network
+	 * @return The loaded models
+	 * @throws IOException
+	 *             if a source can not be read or belongs to a network with
+	 *             a different number of neurons
+	 */
+	static WarmStart load(List<String> sources, int numNeurons) throws IOException {
+		List<List<Candidate>> candidates = new ArrayList<>(numNeurons);
+		for (int n = 0; n < numNeurons; n++) {
+			candidates.add(new ArrayList<>());
+		}
+		for (String source : sources) {
+			File file = new File(source);
+			if (file.isDirectory()) {
+				for (int n = 0; n < numNeurons; n++) {
+					readLogs(file, n, numNeurons, candidates.get(n));
+				}
+			} else if (file.isFile()) {
+				readBundle(file, numNeurons, candidates);
+			} else {
+				throw new IOException("The warm start source " + source + " does not exist");
+			}
+		}
+
+		List<List<Model>> models = new ArrayList<>(numNeurons);
+		for (List<Candidate> neuronCandidates : candidates) {
+			// A stable sort keeps the order of the sources for equal values
+			neuronCandidates.sort((c1, c2) -> Double.compare(c1.fitness, c2.fitness));
+			List<Model> neuronModels = new ArrayList<>();
+			Set<String> known = new HashSet<>();
+			for (Candidate candidate : neuronCandidates) {
+				if (known.add(Arrays.toString(toValues(candidate.model)))) {
+					neuronModels.add(candidate.model);
+				}
+			}
+			models.add(neuronModels);
+		}
+		return new WarmStart(models);
+	}
+
+	/**
+	 * Reads the models which are logged for each generation of a neuron. The
+	 * headers are skipped, they are written again after each resumed
+	 * reconstruction.
+	 */
+	private static void readLogs(File directory, int neuronIdx, int numNeurons, List<Candidate> candidates)
+			throws IOException {
+		File fitnessFile = new File(directory, "fitness_neuron-" + neuronIdx + ".csv");
+		File modelFile = new File(directory, "model_neuron-" + neuronIdx + ".csv");
+		File weightsFile = new File(directory, "weights_neuron-" + neuronIdx + ".csv");
+		if (!fitnessFile.isFile() || !modelFile.isFile() || !weightsFile.isFile()) {
+			return;
+		}
+		List<double[]> fitness = readRows(fitnessFile, Reconstruction.FITNESS_LOG_HEADER);
+		List<double[]> values = readRows(modelFile, Reconstruction.MODEL_LOG_HEADER);
+		// The header of the weights contains numbers, so only the known
+		// header can be skipped
+		List<double[]> weights = readRows(weightsFile, Reconstruction.getWeightsLogHeader(numNeurons));
+		int rows = Math.min(fitness.size(), Math.min(values.size(), weights.size()));
+		for (int i = 0; i < rows; i++) {
+			if (values.get(i).length != MODEL_VALUES || weights.get(i).length != numNeurons) {
+				throw new IOException("The models in " + directory + " belong to a network with a different "
+						+ "number of neurons");
+			}
+			candidates.add(new Candidate(toModel(values.get(i), 0, weights.get(i), 0, numNeurons, neuronIdx),
+					fitness.get(i)[0]));
+		}
+	}
+
+	/**
+	 * Reads a model bundle, see {@link #writeBundle(String, List, double[])}.
+	 */
+	private static void readBundle(File file, int numNeurons, List<List<Candidate>> candidates)
+			throws IOException {
+		for (double[] row : readRows(file, null)) {
+			if (row.length != 2 + MODEL_VALUES + numNeurons) {
+				throw new IOException("The models in " + file + " belong to a network with a different number "
+						+ "of neurons");
+			}
+			int n = (int) row[0];
+			if (n < 0 || n >= numNeurons) {
+				throw new IOException("The models in " + file + " belong to a network with more neurons");
+			}
+			candidates.get(n).add(new Candidate(toModel(row, 2, row, 2 + MODEL_VALUES, numNeurons, n), row[1]));
+		}
+	}
+
+	/**
+	 * @param header
+	 *            The header of the file, which is skipped wherever it occurs,
+	 *            or null
+	 * @return The numeric rows of a semicolon separated file
+	 */
+	private static List<double[]> readRows(File file, String header) throws IOException {
+		List<double[]> rows = new ArrayList<>();
+		try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.equals(header)) {
+					continue;
+				}
+				String[] fields = line.split(";");
+				double[] row = new double[fields.length];
+				try {
+					for (int i = 0; i < fields.length; i++) {
+						row[i] = Double.parseDouble(fields[i]);
+					}
+				} catch (NumberFormatException e) {
+					// A header or an empty line
+					continue;
+				}
+				rows.add(row);
+			}
+		}
+		return rows;
+	}
+
+	private static Model toModel(double[] values, int valuesOffset, double[] weights, int weightsOffset,
+			int numNeurons, int neuronIdx) {
+		Model model = new Model(numNeurons, neuronIdx);
+		model.a = values[valuesOffset];
+		model.b = values[valuesOffset + 1];
+		model.c = values[valuesOffset + 2];
+		model.d = values[valuesOffset + 3];
+		model.p1 = values[valuesOffset + 4];
+		model.p2 = values[valuesOffset + 5];
+		model.p3 = values[valuesOffset + 6];
+		model.p4 = values[valuesOffset + 7];
+		model.u = values[valuesOffset + 8];
+		model.startU = values[valuesOffset + 9];
+		model.v = values[valuesOffset + 10];
+		System.arraycopy(weights, weightsOffset, model.weights, 0, numNeurons);
+		return model;
+	}
+
+	/**
+	 * @return The values of a model in the order of the log files, followed
+	 *         by its weights
+	 */
+	private static double[] toValues(Model model) {
+		double[] values = new double[MODEL_VALUES + model.weights.length];
+		values[0] = model.a;
+		values[1] = model.b;
+		values[2] = model.c;
+		values[3] = model.d;
+		values[4] = model.p1;
+		values[5] = model.p2;
+		values[6] = model.p3;
+		values[7] = model.p4;
+		values[8] = model.u;
+		values[9] = model.startU;
+		values[10] = model.v;
+		System.arraycopy(model.weights, 0, values, MODEL_VALUES, model.weights.length);
+		return values;
+	}
+
+	/**
+	 * Writes the resulting models of a reconstruction into a model bundle.
+	 * Each line contains the index of the neuron, the fitness value, the
+	 * values of the model in the order of the log files and the weights.
+	 *
+	 * @param file
+	 *            The path of the bundle
+	 * @param models
+	 *            The models by the index of their neurons
+	 * @param fitnessValues
+	 *            The fitness values of the models
+	 * @throws IOException
+	 */
+	static void writeBundle(String file, List<Model> models, double[] fitnessValues) throws IOException {
+		int numNeurons = models.size();
+		try (BufferedWriter bf = new BufferedWriter(new FileWriter(file))) {
+			bf.write("neuron;fitness;a;b;c;d;p1;p2;p3;p4;u;startU;v");
+			for (int i = 0; i < numNeurons; i++) {
+				bf.write(";w" + i);
+			}
+			bf.write(System.lineSeparator());
+			for (int n = 0; n < numNeurons; n++) {
+				bf.write(n + ";" + fitnessValues[n]);
+				for (double value : toValues(models.get(n))) {
+					bf.write(";" + value);
+				}
+				bf.write(System.lineSeparator());
+			}
+		}
+	}
+
+	/**
+	 * @param neuronIdx
+	 *            The index of the neuron
+	 * @return The distinct models of the neuron, the best ones first
+	 */
+	List<Model> getModels(int neuronIdx) {
+		return models.get(neuronIdx);
+	}
+
+	/**
+	 * @return The number of all loaded models
+	 */
+	int size() {
+		int size = 0;
+		for (List<Model> neuronModels : models) {
+			size += neuronModels.size();
+		}
+		return size;
+	}
+
+}
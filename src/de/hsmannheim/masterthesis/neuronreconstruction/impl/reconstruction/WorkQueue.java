@@ -30,9 +30,22 @@ public class WorkQueue {
 	 * Creates a new worker queue to handle tasks in a threadpool.
 	 */
 	public WorkQueue() {
+		this((int) (Runtime.getRuntime().availableProcessors() * 1.4));
+	}
+
+	/**
+	 * Creates a new worker queue with the given number of worker threads.
+	 * 
+	 * @param workerNumber
+	 *            The number of worker threads, at least 1
+	 */
+	public WorkQueue(int workerNumber) {
+		if (workerNumber < 1) {
+			throw new IllegalArgumentException("At least one worker thread is needed");
+		}
 		tasks = 0;
 
-		workerNumber = (int) (Runtime.getRuntime().availableProcessors() * 1.4);
+		this.workerNumber = workerNumber;
 
 		long keepAliveTime = 60;
 
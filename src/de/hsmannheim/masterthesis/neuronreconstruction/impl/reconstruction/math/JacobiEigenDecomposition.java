@@ -0,0 +1,103 @@
+/** JacobiEigenDecomposition.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.math;
+
+/**
+ * Implementation of the cyclic Jacobi eigenvalue algorithm for symmetric
+ * matrices.
+ *
+ * The algorithm is slower than the QR algorithm for large matrices, but it is
+ * simple and accurate for the small matrices of the parameter space.
+ *
+ * @author Leah Lackner
+ */
+public class JacobiEigenDecomposition {
+
+	private static final int MAX_SWEEPS = 100;
+
+	private JacobiEigenDecomposition() {
+	}
+
+	/**
+	 * Calculates the eigenvalues and eigenvectors of a symmetric matrix.
+	 *
+	 * @param matrix
+	 *            The symmetric matrix, which is not modified
+	 * @param eigenvalues
+	 *            The eigenvalues (Output parameter)
+	 * @param eigenvectors
+	 *            The eigenvectors, the eigenvector of the eigenvalue i is
+	 *            stored in the column i (Output parameter)
+	 */
+	public static void decompose(double[][] matrix, double[] eigenvalues, double[][] eigenvectors) {
+		int n = eigenvalues.length;
+		if (n != matrix.length || n != matrix[0].length || n != eigenvectors.length) {
+			throw new IllegalArgumentException("Matrix length mismatch");
+		}
+
+		double[][] a = new double[n][n];
+		for (int i = 0; i < n; i++) {
+			System.arraycopy(matrix[i], 0, a[i], 0, n);
+			for (int j = 0; j < n; j++) {
+				eigenvectors[i][j] = i == j ? 1 : 0;
+			}
+		}
+
+		for (int sweep = 0; sweep < MAX_SWEEPS; sweep++) {
+			double offDiagonal = 0;
+			for (int p = 0; p < n; p++) {
+				for (int q = p + 1; q < n; q++) {
+					offDiagonal += a[p][q] * a[p][q];
+				}
+			}
+			if (offDiagonal == 0) {
+				break;
+			}
+
+			for (int p = 0; p < n; p++) {
+				for (int q = p + 1; q < n; q++) {
+					if (a[p][q] == 0) {
+						continue;
+					}
+					// Rotation which eliminates a[p][q]
+					double theta = (a[q][q] - a[p][p]) / (2 * a[p][q]);
+					double t = Math.signum(theta) / (Math.abs(theta) + Math.sqrt(theta * theta + 1));
+					if (theta == 0) {
+						t = 1;
+					}
+					double c = 1 / Math.sqrt(t * t + 1);
+					double s = t * c;
+
+					for (int k = 0; k < n; k++) {
+						double akp = a[k][p];
+						double akq = a[k][q];
+						a[k][p] = c * akp - s * akq;
+						a[k][q] = s * akp + c * akq;
+					}
+					for (int k = 0; k < n; k++) {
+						double apk = a[p][k];
+						double aqk = a[q][k];
+						a[p][k] = c * apk - s * aqk;
+						a[q][k] = s * apk + c * aqk;
+					}
+					for (int k = 0; k < n; k++) {
+						double vkp = eigenvectors[k][p];
+						double vkq = eigenvectors[k][q];
+						eigenvectors[k][p] = c * vkp - s * vkq;
+						eigenvectors[k][q] = s * vkp + c * vkq;
+					}
+				}
+			}
+		}
+
+		for (int i = 0; i < n; i++) {
+			eigenvalues[i] = a[i][i];
+		}
+	}
+
+}
@@ -0,0 +1,245 @@
+/** CmaEsOptimizer.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.optimizer;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.math.JacobiEigenDecomposition;
+
+/**
+ * Implementation of the Covariance Matrix Adaptation Evolution Strategy
+ * (CMA-ES) with restarts and increasing population size (IPOP-CMA-ES).
+ *
+ * <p />
+ * The candidates are sampled from a normal distribution whose mean, step size
+ * and covariance matrix are adapted to the best candidates of each iteration,
+ * as described by Hansen ("The CMA Evolution Strategy: A Tutorial"). A
+ * candidate outside of the unit hypercube is evaluated at the nearest point of
+ * the hypercube, the squared distance to this point is added to its fitness
+ * value for the ranking. If the distribution converges or the best fitness
+ * value does not change anymore, the strategy is restarted at a random point
+ * with twice the number of candidates per iteration, until the problem is
+ * finished.
+ *
+ * @author Leah Lackner
+ */
+public class CmaEsOptimizer implements Optimizer {
+
+	private static final double INITIAL_STEP_SIZE = 0.3;
+
+	/**
+	 * The step size and the range of the fitness values at which the
+	 * strategy is restarted
+	 */
+	private static final double TOL_X = 1e-12;
+	private static final double TOL_FUN = 1e-12;
+
+	/**
+	 * The maximum condition number of the covariance matrix
+	 */
+	private static final double MAX_CONDITION = 1e14;
+
+	private final int initialLambda;
+
+	/**
+	 * Creates an optimizer with the default number of candidates per
+	 * iteration, 4 + 3 ln(n) for n free parameters.
+	 */
+	public CmaEsOptimizer() {
+		this(0);
+	}
+
+	/**
+	 * @param lambda
+	 *            The number of candidates per iteration of the first run, 0
+	 *            for the default value
+	 */
+	public CmaEsOptimizer(int lambda) {
+		if (lambda < 0 || lambda == 1) {
+			throw new IllegalArgumentException("The number of candidates must be at least 2");
+		}
+		this.initialLambda = lambda;
+	}
+
+	@Override
+	public void optimize(OptimizationProblem problem, Random r) {
+		int n = problem.getDimension();
+		if (n == 0) {
+			// The only candidate of a problem without free parameters
+			problem.evaluate(new double[1][0]);
+			return;
+		}
+		int lambda = initialLambda > 0 ? initialLambda : 4 + (int) (3 * Math.log(n));
+		while (!problem.isFinished()) {
+			run(problem, r, n, lambda);
+			lambda *= 2;
+		}
+	}
+
+	/**
+	 * One run of the strategy until it converges or the problem is finished.
+	 */
+	private void run(OptimizationProblem problem, Random r, int n, int lambda) {
+		// Strategy parameters
+		int mu = lambda / 2;
+		double[] weights = new double[mu];
+		double weightsSum = 0;
+		for (int i = 0; i < mu; i++) {
+			weights[i] = Math.log(mu + 0.5) - Math.log(i + 1);
+			weightsSum += weights[i];
+		}
+		double squaredSum = 0;
+		for (int i = 0; i < mu; i++) {
+			weights[i] /= weightsSum;
+			squaredSum += weights[i] * weights[i];
+		}
+		double muEff = 1 / squaredSum;
+
+		double cc = (4 + muEff / n) / (n + 4 + 2 * muEff / n);
+		double cs = (muEff + 2) / (n + muEff + 5);
+		double c1 = 2 / ((n + 1.3) * (n + 1.3) + muEff);
+		double cmu = Math.min(1 - c1, 2 * (muEff - 2 + 1 / muEff) / ((n + 2) * (n + 2) + muEff));
+		double damps = 1 + 2 * Math.max(0, Math.sqrt((muEff - 1) / (n + 1)) - 1) + cs;
+		double chiN = Math.sqrt(n) * (1 - 1 / (4.0 * n) + 1 / (21.0 * n * n));
+
+		// State of the distribution
+		double[] mean = new double[n];
+		for (int i = 0; i < n; i++) {
+			mean[i] = r.nextDouble();
+		}
+		double sigma = INITIAL_STEP_SIZE;
+		double[] pc = new double[n];
+		double[] ps = new double[n];
+		double[][] c = new double[n][n];
+		double[][] b = new double[n][n];
+		double[] d = new double[n];
+		for (int i = 0; i < n; i++) {
+			c[i][i] = 1;
+			b[i][i] = 1;
+			d[i] = 1;
+		}
+
+		double[][] z = new double[lambda][n];
+		double[][] y = new double[lambda][n];
+		double[][] x = new double[lambda][n];
+		double[][] clipped = new double[lambda][n];
+		double[] ranked = new double[lambda];
+		Integer[] order = new Integer[lambda];
+
+		int historyLength = 10 + (int) Math.ceil(30.0 * n / lambda);
+		double[] bestHistory = new double[historyLength];
+		for (int iteration = 0; !problem.isFinished(); iteration++) {
+			// Sample and evaluate the candidates
+			for (int k = 0; k < lambda; k++) {
+				for (int i = 0; i < n; i++) {
+					z[k][i] = r.nextGaussian();
+				}
+				for (int i = 0; i < n; i++) {
+					double sum = 0;
+					for (int j = 0; j < n; j++) {
+						sum += b[i][j] * d[j] * z[k][j];
+					}
+					y[k][i] = sum;
+					x[k][i] = mean[i] + sigma * sum;
+					clipped[k][i] = Math.min(1, Math.max(0, x[k][i]));
+				}
+			}
+			double[] fitness = problem.evaluate(clipped);
+			for (int k = 0; k < lambda; k++) {
+				double penalty = 0;
+				for (int i = 0; i < n; i++) {
+					double distance = x[k][i] - clipped[k][i];
+					penalty += distance * distance;
+				}
+				ranked[k] = fitness[k] + penalty;
+				order[k] = k;
+			}
+			Arrays.sort(order, (k1, k2) -> Double.compare(ranked[k1], ranked[k2]));
+
+			// Move the mean to the weighted mean of the best candidates
+			double[] yw = new double[n];
+			for (int i = 0; i < n; i++) {
+				double sum = 0;
+				for (int k = 0; k < mu; k++) {
+					sum += weights[k] * y[order[k]][i];
+				}
+				yw[i] = sum;
+				mean[i] += sigma * sum;
+			}
+
+			// Evolution paths, C^(-1/2) * yw = B * D^(-1) * B^T * yw
+			double[] tmp = new double[n];
+			for (int j = 0; j < n; j++) {
+				double sum = 0;
+				for (int i = 0; i < n; i++) {
+					sum += b[i][j] * yw[i];
+				}
+				tmp[j] = sum / d[j];
+			}
+			double psNorm = 0;
+			for (int i = 0; i < n; i++) {
+				double sum = 0;
+				for (int j = 0; j < n; j++) {
+					sum += b[i][j] * tmp[j];
+				}
+				ps[i] = (1 - cs) * ps[i] + Math.sqrt(cs * (2 - cs) * muEff) * sum;
+				psNorm += ps[i] * ps[i];
+			}
+			psNorm = Math.sqrt(psNorm);
+			boolean hsig = psNorm / Math.sqrt(1 - Math.pow(1 - cs, 2 * (iteration + 1))) / chiN < 1.4 + 2.0 / (n + 1);
+			for (int i = 0; i < n; i++) {
+				pc[i] = (1 - cc) * pc[i] + (hsig ? Math.sqrt(cc * (2 - cc) * muEff) * yw[i] : 0);
+			}
+
+			// Adapt the covariance matrix and the step size
+			double oldFactor = 1 - c1 - cmu + (hsig ? 0 : c1 * cc * (2 - cc));
+			for (int i = 0; i < n; i++) {
+				for (int j = 0; j <= i; j++) {
+					double rankMu = 0;
+					for (int k = 0; k < mu; k++) {
+						rankMu += weights[k] * y[order[k]][i] * y[order[k]][j];
+					}
+					c[i][j] = oldFactor * c[i][j] + c1 * pc[i] * pc[j] + cmu * rankMu;
+					c[j][i] = c[i][j];
+				}
+			}
+			sigma *= Math.exp((cs / damps) * (psNorm / chiN - 1));
+
+			JacobiEigenDecomposition.decompose(c, d, b);
+			double maxEigenvalue = 0;
+			double minEigenvalue = Double.POSITIVE_INFINITY;
+			for (int i = 0; i < n; i++) {
+				d[i] = Math.max(d[i], 0);
+				maxEigenvalue = Math.max(maxEigenvalue, d[i]);
+				minEigenvalue = Math.min(minEigenvalue, d[i]);
+				d[i] = Math.sqrt(d[i]);
+			}
+
+			// Restart if the distribution has converged, the covariance
+			// matrix is degenerated or the fitness values do not change
+			bestHistory[iteration % historyLength] = ranked[order[0]];
+			double historyRange = 0;
+			if (iteration >= historyLength) {
+				double min = Double.POSITIVE_INFINITY;
+				double max = Double.NEGATIVE_INFINITY;
+				for (double value : bestHistory) {
+					min = Math.min(min, value);
+					max = Math.max(max, value);
+				}
+				historyRange = max - min;
+			}
+			if (sigma * Math.sqrt(maxEigenvalue) < TOL_X || !(maxEigenvalue <= MAX_CONDITION * minEigenvalue)
+					|| iteration >= historyLength && historyRange <= TOL_FUN
+					|| !Double.isFinite(sigma)) {
+				return;
+			}
+		}
+	}
+
+}
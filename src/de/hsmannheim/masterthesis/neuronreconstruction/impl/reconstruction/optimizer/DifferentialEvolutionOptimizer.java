@@ -0,0 +1,124 @@
+/** DifferentialEvolutionOptimizer.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.optimizer;
+
+import java.util.Random;
+
+/**
+ * Implementation of the Differential Evolution (DE/rand/1/bin) by Storn and
+ * Price.
+ *
+ * <p />
+ * For each member of the population a trial vector is created by adding the
+ * scaled difference of two random members to a third one and crossing the
+ * result with the member. The trial vector replaces the member if its fitness
+ * value is not worse. All trial vectors of a generation are evaluated in one
+ * batch. A coordinate of a trial vector outside of the unit hypercube is set
+ * to the middle between the coordinate of the member and the violated bound.
+ *
+ * @author Leah Lackner
+ */
+public class DifferentialEvolutionOptimizer implements Optimizer {
+
+	private final int populationSize;
+	private final double differentialWeight;
+	private final double crossoverRate;
+
+	/**
+	 * Creates an optimizer with 10 members per free parameter, the
+	 * differential weight 0.5 and the crossover rate 0.9.
+	 */
+	public DifferentialEvolutionOptimizer() {
+		this(0, 0.5, 0.9);
+	}
+
+	/**
+	 * @param populationSize
+	 *            The number of members, 0 for 10 members per free parameter
+	 * @param differentialWeight
+	 *            The factor of the difference vector (F), in (0, 2]
+	 * @param crossoverRate
+	 *            The probability to take a coordinate from the mutated vector
+	 *            (CR), in [0, 1]
+	 */
+	public DifferentialEvolutionOptimizer(int populationSize, double differentialWeight, double crossoverRate) {
+		if (populationSize != 0 && populationSize < 4) {
+			throw new IllegalArgumentException("The population needs at least four members");
+		}
+		if (!(differentialWeight > 0 && differentialWeight <= 2)) {
+			throw new IllegalArgumentException("The differential weight must be in (0, 2]");
+		}
+		if (!(crossoverRate >= 0 && crossoverRate <= 1)) {
+			throw new IllegalArgumentException("The crossover rate must be in [0, 1]");
+		}
+		this.populationSize = populationSize;
+		this.differentialWeight = differentialWeight;
+		this.crossoverRate = crossoverRate;
+	}
+
+	@Override
+	public void optimize(OptimizationProblem problem, Random r) {
+		int n = problem.getDimension();
+		if (n == 0) {
+			// The only candidate of a problem without free parameters
+			problem.evaluate(new double[1][0]);
+			return;
+		}
+		int size = populationSize > 0 ? populationSize : Math.max(4, 10 * n);
+
+		double[][] members = new double[size][n];
+		for (int k = 0; k < size; k++) {
+			for (int i = 0; i < n; i++) {
+				members[k][i] = r.nextDouble();
+			}
+		}
+		double[] fitness = problem.evaluate(members);
+
+		double[][] trials = new double[size][n];
+		while (!problem.isFinished()) {
+			for (int k = 0; k < size; k++) {
+				// Three different members, which are not the target
+				int r1;
+				int r2;
+				int r3;
+				do {
+					r1 = r.nextInt(size);
+				} while (r1 == k);
+				do {
+					r2 = r.nextInt(size);
+				} while (r2 == k || r2 == r1);
+				do {
+					r3 = r.nextInt(size);
+				} while (r3 == k || r3 == r1 || r3 == r2);
+
+				int forced = r.nextInt(n);
+				for (int i = 0; i < n; i++) {
+					double value = members[k][i];
+					if (i == forced || r.nextDouble() < crossoverRate) {
+						value = members[r1][i] + differentialWeight * (members[r2][i] - members[r3][i]);
+						if (value < 0) {
+							value = members[k][i] / 2;
+						} else if (value > 1) {
+							value = (members[k][i] + 1) / 2;
+						}
+					}
+					trials[k][i] = value;
+				}
+			}
+
+			double[] trialFitness = problem.evaluate(trials);
+			for (int k = 0; k < size; k++) {
+				if (trialFitness[k] <= fitness[k] || !Double.isFinite(fitness[k])) {
+					System.arraycopy(trials[k], 0, members[k], 0, n);
+					fitness[k] = trialFitness[k];
+				}
+			}
+		}
+	}
+
+}
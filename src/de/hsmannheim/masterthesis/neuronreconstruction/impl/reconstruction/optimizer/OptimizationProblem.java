@@ -0,0 +1,47 @@
+/** OptimizationProblem.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.optimizer;
+
+/**
+ * The reconstruction of a neuron as seen by an {@link Optimizer}.
+ *
+ * <p />
+ * The candidates are points of the unit hypercube with one dimension for each
+ * free parameter of the reconstruction mode, i.e. each parameter whose
+ * minimum is less than its maximum. The problem maps the coordinates linearly
+ * to the parameter bounds of the mode.
+ *
+ * @author Leah Lackner
+ */
+public interface OptimizationProblem {
+
+	/**
+	 * @return The number of free parameters, 0 if the reconstruction mode
+	 *         fixes all parameters
+	 */
+	int getDimension();
+
+	/**
+	 * Evaluates a batch of candidates in parallel. A candidate whose
+	 * simulation is invalid gets the fitness value
+	 * {@link Double#POSITIVE_INFINITY}.
+	 *
+	 * @param candidates
+	 *            The candidates, each coordinate in [0, 1]
+	 * @return The fitness values of the candidates (lower is better)
+	 */
+	double[] evaluate(double[][] candidates);
+
+	/**
+	 * @return true if the optimisation has to stop, because the fitness
+	 *         threshold is reached, the evaluation budget is used up or the
+	 *         fitness value stagnates
+	 */
+	boolean isFinished();
+
+}
@@ -0,0 +1,40 @@
+/** Optimizer.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.optimizer;
+
+import java.util.Random;
+
+/**
+ * Interface for the optimisation strategies which can be used instead of the
+ * Genetic Algorithm to reconstruct the parameters of a neuron.
+ *
+ * <p />
+ * An optimizer only sees the normalised parameter space of an
+ * {@link OptimizationProblem} and requests the fitness values of its
+ * candidates in batches, so that the candidates of a batch are evaluated in
+ * parallel by the fitness pipeline of the reconstruction. The best evaluated
+ * individual and the stopping criteria are handled by the problem.
+ *
+ * @author Leah Lackner
+ */
+public interface Optimizer {
+
+	/**
+	 * Minimises the fitness value of the problem until
+	 * {@link OptimizationProblem#isFinished()} returns true. A problem without
+	 * free parameters has only one candidate (with no coordinates), which is
+	 * evaluated once.
+	 *
+	 * @param problem
+	 *            The problem
+	 * @param r
+	 *            The random instance of the optimizer
+	 */
+	void optimize(OptimizationProblem problem, Random r);
+
+}
@@ -0,0 +1,136 @@
+/** SpikeTrainErrorBound.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.impl.spikecomparison;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Calculates a lower bound of the result of
+ * {@link SpikeTrainComparator#compareSpikeTrains} while the model spike train
+ * is still simulated.
+ *
+ * <p />
+ * The voltage measures sum up non-negative errors over the time steps, so the
+ * sum of the already simulated time steps is a lower bound of their final
+ * value. The spike measures can only be calculated for the whole spike train,
+ * their lower bound is 0. The weighted combination of the measures does not
+ * decrease if a measure value increases, neither with manual weights nor with
+ * the weight adaptation, so the combination of the lower bounds is a lower
+ * bound of the final result. An invalid spike train results in an infinite
+ * value, which is never less than the bound.
+ *
+ * @author Leah Lackner
+ */
+public class SpikeTrainErrorBound {
+
+	private final SpikeTrainCmpInterface[] instances;
+	private final double[] weights;
+	private final boolean manual;
+
+	private final int voltageSingleIdx;
+	private final int voltageOverallIdx;
+
+	/**
+	 * Buffer for the normalised lower bounds of the measures
+	 */
+	private final double[] bounds;
+
+	/**
+	 * @param measures
+	 *            Map containing the measures (as Class<?> objects) to be used
+	 *            in the fitness evaluation along with their assigned weight
+	 *            values
+	 */
+	public SpikeTrainErrorBound(Map<Class<?>, Double> measures) {
+		instances = new SpikeTrainCmpInterface[measures.size()];
+		weights = new double[measures.size()];
+		bounds = new double[measures.size()];
+
+		int i = 0;
+		int single = -1;
+		int overall = -1;
+		boolean isManual = false;
+		for (Map.Entry<Class<?>, Double> entry : measures.entrySet()) {
+			try {
+				instances[i] = (SpikeTrainCmpInterface) entry.getKey().getConstructor().newInstance();
+			} catch (ReflectiveOperationException | IllegalArgumentException e) {
+				// It is a programming error if a reflection exception is thrown
+				// here
+				throw new RuntimeException(e);
+			}
+			if (entry.getKey() == VoltageSingleQualityMeasure.class)
+				single = i;
+			if (entry.getKey() == VoltageOverallQualityMeasure.class)
+				overall = i;
+
+			weights[i] = entry.getValue();
+			// see SpikeTrainComparator.sumMeasures
+			if (entry.getValue() != 1.0)
+				isManual = true;
+			i++;
+		}
+		voltageSingleIdx = single;
+		voltageOverallIdx = overall;
+		manual = isManual;
+	}
+
+	/**
+	 * @return true if at least one measure can be bounded before the whole
+	 *         spike train is simulated
+	 */
+	public boolean isBounded() {
+		return voltageSingleIdx >= 0 || voltageOverallIdx >= 0;
+	}
+
+	/**
+	 * Calculates the lower bound of the comparison result.
+	 *
+	 * @param voltageSingleError
+	 *            A lower bound of the value of the
+	 *            {@link VoltageSingleQualityMeasure} before the normalisation
+	 * @param voltageOverallError
+	 *            A lower bound of the value of the
+	 *            {@link VoltageOverallQualityMeasure} before the normalisation
+	 * @return The lower bound
+	 */
+	public double getLowerBound(double voltageSingleError, double voltageOverallError) {
+		Arrays.fill(bounds, 0);
+		if (voltageSingleIdx >= 0)
+			bounds[voltageSingleIdx] = normalizeLowerBound(instances[voltageSingleIdx], voltageSingleError);
+		if (voltageOverallIdx >= 0)
+			bounds[voltageOverallIdx] = normalizeLowerBound(instances[voltageOverallIdx], voltageOverallError);
+
+		double weightsSum = 0;
+		double errorSum = 0;
+		if (manual) {
+			for (int i = 0; i < bounds.length; i++) {
+				errorSum += bounds[i] * weights[i];
+				weightsSum += weights[i];
+			}
+		} else {
+			Arrays.sort(bounds);
+			for (int i = 0; i < bounds.length; i++) {
+				double weight = Math.pow(2, i);
+				errorSum += bounds[i] * weight;
+				weightsSum += weight;
+			}
+		}
+		return errorSum / weightsSum;
+	}
+
+	/**
+	 * The normalisation replaces 0 by a small positive value, which is not a
+	 * lower bound of the normalised values of larger errors.
+	 */
+	private static double normalizeLowerBound(SpikeTrainCmpInterface instance, double value) {
+		double normalized = instance.normalize(value);
+		return normalized <= 0.00000001 ? 0 : normalized;
+	}
+
+}
@@ -25,6 +25,11 @@ import de.hsmannheim.masterthesis.neuronreconstruction.tests.contestdata.RealNeu
 import de.hsmannheim.masterthesis.neuronreconstruction.tests.contestdata.RealNeuronOnlyVoltageSingle;
 import de.hsmannheim.masterthesis.neuronreconstruction.tests.contestdata.RealNeuronSingleNeuronSetAllSame;
 import de.hsmannheim.masterthesis.neuronreconstruction.tests.contestdata.RealNeuronSingleNeuronSetBalanced;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.contestdata.RealNeuronSweep;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.generateddata.EarlyTerminationKernelCheck;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.generateddata.FailingEvaluationCheck;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.generateddata.FixedParametersOptimizerCheck;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.generateddata.LargeNetworkSimulation;
 import de.hsmannheim.masterthesis.neuronreconstruction.tests.generateddata.OneNeuronAllSame;
 import de.hsmannheim.masterthesis.neuronreconstruction.tests.generateddata.OneNeuronAllSameShortRunning;
 import de.hsmannheim.masterthesis.neuronreconstruction.tests.generateddata.OneNeuronAllSameShortRunning2;
@@ -38,7 +43,13 @@ import de.hsmannheim.masterthesis.neuronreconstruction.tests.generateddata.OneNe
 import de.hsmannheim.masterthesis.neuronreconstruction.tests.generateddata.OneNeuronOnlySpikeTime;
 import de.hsmannheim.masterthesis.neuronreconstruction.tests.generateddata.OneNeuronOnlyVoltageOverall;
 import de.hsmannheim.masterthesis.neuronreconstruction.tests.generateddata.OneNeuronOnlyVoltageSingle;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.generateddata.OneNeuronSweep;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.generateddata.RejectedOptionsCheck;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.generateddata.StalledWorkerCheck;
 import de.hsmannheim.masterthesis.neuronreconstruction.tests.generateddata.TenNeuronsBalanced;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.generateddata.TenNeuronsConcurrent;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.generateddata.TenNeuronsDistributed;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.generateddata.WarmStartLogCheck;
 
 /**
  * As a main program this program can be used to access the different tests on
@@ -87,9 +98,22 @@ public class Main {
 		addTestClass("generatedData", OneNeuronOnlyVoltageSingle.class);
 
 		addTestClass("generatedData", TenNeuronsBalanced.class);
+		addTestClass("generatedData", TenNeuronsConcurrent.class);
+		addTestClass("generatedData", TenNeuronsDistributed.class);
 
 		addTestClass("generatedData", OneNeuronLongRunning.class);
 
+		addTestClass("generatedData", LargeNetworkSimulation.class);
+
+		addTestClass("generatedData", OneNeuronSweep.class);
+
+		addTestClass("generatedData", FailingEvaluationCheck.class);
+		addTestClass("generatedData", StalledWorkerCheck.class);
+		addTestClass("generatedData", EarlyTerminationKernelCheck.class);
+		addTestClass("generatedData", FixedParametersOptimizerCheck.class);
+		addTestClass("generatedData", RejectedOptionsCheck.class);
+		addTestClass("generatedData", WarmStartLogCheck.class);
+
 		addTestClass("contestdata", RealNeuronAllSame.class);
 		addTestClass("contestdata", RealNeuronBalanced.class);
 
@@ -110,6 +134,8 @@ public class Main {
 		addTestClass("contestdata", RealNeuronSingleNeuronSetAllSame.class);
 		addTestClass("contestdata", RealNeuronSingleNeuronSetBalanced.class);
 
+		addTestClass("contestdata", RealNeuronSweep.class);
+
 		System.out.println();
 		if (args != null && args.length == 1) {
 			boolean testResult = runTest(Integer.parseInt(args[0]) - 1);
@@ -0,0 +1,89 @@
+/** RealNeuronSweep.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.tests.contestdata;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.modes.ReconstructionMode;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.spikecomparison.SpikeFrequencyQualityMeasure;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.spikecomparison.SpikeTimeQualityMeasure;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.spikecomparison.VoltageOverallQualityMeasure;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.spikecomparison.VoltageSingleQualityMeasure;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.GeneralTestConfiguration;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.helper.SweepConfiguration;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.helper.SweepRunner;
+
+/**
+ * This is a random search over the settings of the tests using the neuron data
+ * from the contest. The data is read once and all configurations are
+ * reconstructed in one process and compared in one table. The measure weights
+ * are the ones of the balanced, all-same and main-measure tests.
+ * 
+ * @author Leah Lackner
+ */
+public class RealNeuronSweep {
+
+	public static final String DATASET_NAME = RealNeuronSweep.class.getSimpleName();
+
+	public static final int SEED = 22;
+
+	public static final double dt = GeneralTestConfiguration.DT;
+
+	public static final int CONFIGURATIONS = 50;
+	public static final int MIN_POPULATION_SIZE = 1000;
+	public static final int MAX_POPULATION_SIZE = 10000;
+	public static final double MIN_MUTATION_RATE = 0.2;
+	public static final double MAX_MUTATION_RATE = 0.6;
+	public static final int MIN_GENERATION_THRESHOLD = 10;
+	public static final int MAX_GENERATION_THRESHOLD = 20;
+
+	public static final int CONCURRENT_CONFIGURATIONS = 4;
+	public static final int THREADS = (int) (Runtime.getRuntime().availableProcessors() * 1.4);
+
+	public static final String INPUTFILE_CURRENT = "contestData/input/input.csv";
+	public static final String INPUTFILE_VOLTAGE = "contestData/input/voltage.csv";
+
+	public static final String OUTPUT_PATH = "contestdata-output/" + RealNeuronSweep.class.getSimpleName();
+
+	public static final ReconstructionMode RECONSTRUCTION_MODE = ReconstructionMode.IZHIKEVICH;
+
+	public static void main(String[] args) throws IOException {
+
+		List<Map<Class<?>, Double>> measures = new ArrayList<>();
+		measures.add(createMeasures(1.0, 1.0, 1.0, 1.0));
+		measures.add(createMeasures(2.0, 2.0, 2.0, 2.0));
+		measures.add(createMeasures(5.0, 1.0, 1.0, 1.0));
+		measures.add(createMeasures(1.0, 5.0, 1.0, 1.0));
+		measures.add(createMeasures(1.0, 1.0, 5.0, 1.0));
+		measures.add(createMeasures(1.0, 1.0, 1.0, 5.0));
+
+		List<SweepConfiguration> configurations = SweepConfiguration.randomSearch(CONFIGURATIONS, new Random(SEED),
+				MIN_POPULATION_SIZE, MAX_POPULATION_SIZE, MIN_MUTATION_RATE, MAX_MUTATION_RATE,
+				MIN_GENERATION_THRESHOLD, MAX_GENERATION_THRESHOLD, measures,
+				new ReconstructionMode[] { RECONSTRUCTION_MODE }, SEED);
+
+		SweepRunner.runContestData(DATASET_NAME, dt, INPUTFILE_CURRENT, INPUTFILE_VOLTAGE, configurations,
+				CONCURRENT_CONFIGURATIONS, THREADS, OUTPUT_PATH);
+	}
+
+	private static Map<Class<?>, Double> createMeasures(double spikeTime, double voltageSingle,
+			double voltageOverall, double spikeFrequency) {
+		Map<Class<?>, Double> spikeMeasures = new HashMap<>();
+		spikeMeasures.put(SpikeTimeQualityMeasure.class, spikeTime);
+		spikeMeasures.put(VoltageSingleQualityMeasure.class, voltageSingle);
+		spikeMeasures.put(VoltageOverallQualityMeasure.class, voltageOverall);
+		spikeMeasures.put(SpikeFrequencyQualityMeasure.class, spikeFrequency);
+		return spikeMeasures;
+	}
+
+}
@@ -0,0 +1,129 @@
+/** EarlyTerminationKernelCheck.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.tests.generateddata;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.AbstractPopulationKernel;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.DatasetContext;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.FloatPopulationKernel;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.PopulationArena;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.PopulationKernel;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.modes.ReconstructionMode;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.modes.ReconstructionModeAbstract;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.spikecomparison.SpikeFrequencyQualityMeasure;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.spikecomparison.SpikeTimeQualityMeasure;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.spikecomparison.VoltageOverallQualityMeasure;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.spikecomparison.VoltageSingleQualityMeasure;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.GeneralTestConfiguration;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.helper.GeneratedDataTestRunner;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.helper.GeneratedDataTestRunner.GeneratedData;
+
+/**
+ * This is a check of the early termination of the population kernels with
+ * invalid individuals. A block of random individuals contains one individual
+ * whose voltage diverges and one whose parameters are NaN. With a cutoff which
+ * aborts every valid individual, both invalid individuals must still be
+ * replaced in the same way as without the cutoff.
+ *
+ * @author Leah Lackner
+ */
+public class EarlyTerminationKernelCheck {
+
+	public static final int SEED = 41;
+
+	public static final int NUM_NEURONS = 3;
+
+	public static final int TIMESTEPS = 1000;
+	public static final double DT = GeneralTestConfiguration.DT;
+	public static final int INPUT_IDX_AFTER_TUNING = TIMESTEPS / 2;
+
+	public static final int INDIVIDUALS = 8;
+	public static final int DIVERGENT_SLOT = 2;
+	public static final int NAN_SLOT = 5;
+
+	/**
+	 * A cutoff which is exceeded by the lower bound of each valid individual
+	 */
+	public static final double CUTOFF = 0.0000000001;
+
+	public static void main(String[] args) {
+		Map<Class<?>, Double> measures = new HashMap<>();
+		measures.put(SpikeTimeQualityMeasure.class, 1.0);
+		measures.put(VoltageSingleQualityMeasure.class, 1.0);
+		measures.put(VoltageOverallQualityMeasure.class, 1.0);
+		measures.put(SpikeFrequencyQualityMeasure.class, 1.0);
+
+		GeneratedData data = GeneratedDataTestRunner.generate(SEED, TIMESTEPS, INPUT_IDX_AFTER_TUNING, NUM_NEURONS,
+				DT);
+		DatasetContext context = new DatasetContext(data.inputsWithNoise, data.vsWithNoise, DT,
+				INPUT_IDX_AFTER_TUNING);
+		ReconstructionModeAbstract mode = ReconstructionMode.IZHIKEVICH.getMode();
+
+		for (boolean single : new boolean[] { false, true }) {
+			PopulationArena complete = createArena(mode);
+			PopulationArena bounded = createArena(mode);
+			bounded.setEvaluationCutoff(CUTOFF);
+			createKernel(single).evaluate(complete, 0, INDIVIDUALS, mode, SEED, context, measures);
+			createKernel(single).evaluate(bounded, 0, INDIVIDUALS, mode, SEED, context, measures);
+
+			String kernel = single ? "single precision" : "double precision";
+			for (int slot : new int[] { DIVERGENT_SLOT, NAN_SLOT }) {
+				if (bounded.isNextAborted(slot) || bounded.getNextFitness(slot) != complete.getNextFitness(slot)
+						|| !Arrays.equals(getRecord(bounded, slot), getRecord(complete, slot))) {
+					throw new IllegalStateException("The invalid individual " + slot + " of the " + kernel
+							+ " kernel was not replaced with the cutoff (fitness " + bounded.getNextFitness(slot)
+							+ " instead of " + complete.getNextFitness(slot) + ")");
+				}
+			}
+			int aborted = 0;
+			for (int slot = 0; slot < INDIVIDUALS; slot++) {
+				if (bounded.isNextAborted(slot)) {
+					aborted++;
+				}
+			}
+			if (aborted == 0) {
+				throw new IllegalStateException("The cutoff did not abort any individual of the " + kernel
+						+ " kernel");
+			}
+			System.out.println("The invalid individuals of the " + kernel + " kernel were replaced, " + aborted
+					+ " valid individual(s) aborted");
+		}
+	}
+
+	/**
+	 * @return An arena whose next generation contains random individuals, a
+	 *         diverging individual and an individual with NaN parameters
+	 */
+	private static PopulationArena createArena(ReconstructionModeAbstract mode) {
+		PopulationArena arena = new PopulationArena(INDIVIDUALS, NUM_NEURONS, 0, false);
+		Random r = new Random(SEED);
+		for (int i = 0; i < INDIVIDUALS; i++) {
+			arena.addRandomToNext(mode, r);
+		}
+		// The voltage overflows in the first time step
+		arena.setNext(DIVERGENT_SLOT, PopulationArena.P1, 1e300);
+		arena.setNext(NAN_SLOT, PopulationArena.A, Double.NaN);
+		arena.setNext(NAN_SLOT, PopulationArena.B, Double.NaN);
+		return arena;
+	}
+
+	private static AbstractPopulationKernel createKernel(boolean single) {
+		return single ? new FloatPopulationKernel(INDIVIDUALS, NUM_NEURONS)
+				: new PopulationKernel(INDIVIDUALS, NUM_NEURONS);
+	}
+
+	private static double[] getRecord(PopulationArena arena, int slot) {
+		double[] record = new double[arena.getRecordLength()];
+		arena.copyNextRecord(slot, record, 0);
+		return record;
+	}
+}
@@ -0,0 +1,115 @@
+/** FailingEvaluationCheck.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.tests.generateddata;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.ReconstructionOptions;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.modes.ReconstructionMode;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.spikecomparison.SpikeTrainCmpInterface;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.spikecomparison.SpikeTrainComparator;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.spikecomparison.VoltageSingleQualityMeasure;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.GeneralTestConfiguration;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.helper.GeneratedDataTestRunner;
+
+/**
+ * This is a check of the error handling of the evaluation. A measure which
+ * throws an exception makes each evaluation task fail. The reconstruction
+ * must fail with this exception instead of waiting for the failed tasks, once
+ * with the neurons one after another and once with concurrent neurons.
+ *
+ * @author Leah Lackner
+ */
+public class FailingEvaluationCheck {
+
+	public static final int SEED = 31;
+
+	public static final int NUM_NEURONS = 3;
+
+	public static final int TIMESTEPS = 1000;
+	public static final double DT = GeneralTestConfiguration.DT;
+	public static final int INPUT_IDX_AFTER_TUNING = TIMESTEPS / 2;
+
+	public static final int POPULATION_SIZE = 100;
+	public static final double FITNESS_THRESHOLD = 0.0000000000000000001;
+	public static final int GENERATION_THRESHOLD = 5;
+	public static final double MUTATION_RATE = 0.5;
+
+	/**
+	 * The time after which a reconstruction counts as hanging, in
+	 * milliseconds
+	 */
+	public static final long TIMEOUT = 60000;
+
+	public static final String OUTPUT_PATH = "generatedData/" + FailingEvaluationCheck.class.getSimpleName();
+
+	/**
+	 * A measure whose comparison always fails.
+	 */
+	public static class FailingMeasure implements SpikeTrainCmpInterface {
+
+		@Override
+		public double compare(SpikeTrainComparator comparator) {
+			throw new IllegalStateException("The measure failed");
+		}
+
+		@Override
+		public double normalize(double value) {
+			return value;
+		}
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		Map<Class<?>, Double> measures = new HashMap<>();
+		measures.put(VoltageSingleQualityMeasure.class, 1.0);
+		measures.put(FailingMeasure.class, 1.0);
+
+		for (int concurrentNeurons : new int[] { 1, NUM_NEURONS }) {
+			ReconstructionOptions options = new ReconstructionOptions();
+			options.setConcurrentNeurons(concurrentNeurons);
+			AtomicReference<Throwable> error = new AtomicReference<>();
+			Thread reconstruction = new Thread(() -> {
+				try {
+					GeneratedDataTestRunner.run(FailingEvaluationCheck.class.getSimpleName(), SEED, TIMESTEPS,
+							INPUT_IDX_AFTER_TUNING, NUM_NEURONS, DT, POPULATION_SIZE, FITNESS_THRESHOLD,
+							GENERATION_THRESHOLD, GENERATION_THRESHOLD, MUTATION_RATE, false,
+							ReconstructionMode.IZHIKEVICH, OUTPUT_PATH, measures, options);
+				} catch (Throwable e) {
+					error.set(e);
+				}
+			});
+			reconstruction.setDaemon(true);
+			reconstruction.start();
+			reconstruction.join(TIMEOUT);
+			if (reconstruction.isAlive()) {
+				throw new IllegalStateException("The reconstruction with " + concurrentNeurons
+						+ " concurrent neuron(s) hangs after a failed evaluation");
+			}
+			if (!hasCause(error.get(), "The measure failed")) {
+				throw new IllegalStateException("The reconstruction with " + concurrentNeurons
+						+ " concurrent neuron(s) did not fail with the error of the evaluation", error.get());
+			}
+			System.out.println(concurrentNeurons + " concurrent neuron(s): " + error.get());
+		}
+		System.out.println("The failed evaluations stop the reconstructions");
+	}
+
+	/**
+	 * @return true if the exception or one of its causes has the message
+	 */
+	private static boolean hasCause(Throwable e, String message) {
+		for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+			if (message.equals(cause.getMessage())) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
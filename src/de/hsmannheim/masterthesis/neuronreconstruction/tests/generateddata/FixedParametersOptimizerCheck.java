@@ -0,0 +1,75 @@
+/** FixedParametersOptimizerCheck.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.tests.generateddata;
+
+import java.util.Random;
+
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.optimizer.CmaEsOptimizer;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.optimizer.DifferentialEvolutionOptimizer;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.optimizer.OptimizationProblem;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.optimizer.Optimizer;
+
+/**
+ * This is a check of the optimizers with a reconstruction mode which fixes all
+ * parameters. The problem has no free parameters, so each optimizer must
+ * evaluate the only candidate once and return.
+ *
+ * @author Leah Lackner
+ */
+public class FixedParametersOptimizerCheck {
+
+	public static final int SEED = 17;
+
+	/**
+	 * The maximum number of evaluated candidates, which is never reached by a
+	 * problem without free parameters
+	 */
+	public static final int BUDGET = 1000;
+
+	/**
+	 * A problem without free parameters, which is only finished when the
+	 * budget is used up.
+	 */
+	private static class FixedProblem implements OptimizationProblem {
+
+		int evaluated;
+
+		@Override
+		public int getDimension() {
+			return 0;
+		}
+
+		@Override
+		public double[] evaluate(double[][] candidates) {
+			for (double[] candidate : candidates) {
+				if (candidate.length != 0) {
+					throw new IllegalStateException("A candidate has " + candidate.length + " coordinate(s)");
+				}
+			}
+			evaluated += candidates.length;
+			return new double[candidates.length];
+		}
+
+		@Override
+		public boolean isFinished() {
+			return evaluated >= BUDGET;
+		}
+	}
+
+	public static void main(String[] args) {
+		for (Optimizer optimizer : new Optimizer[] { new CmaEsOptimizer(), new DifferentialEvolutionOptimizer() }) {
+			FixedProblem problem = new FixedProblem();
+			optimizer.optimize(problem, new Random(SEED));
+			if (problem.evaluated != 1) {
+				throw new IllegalStateException(optimizer.getClass().getSimpleName() + " evaluated "
+						+ problem.evaluated + " candidate(s) instead of the only candidate");
+			}
+			System.out.println(optimizer.getClass().getSimpleName() + ": the only candidate was evaluated");
+		}
+	}
+}
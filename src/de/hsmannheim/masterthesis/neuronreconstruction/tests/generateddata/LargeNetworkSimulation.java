@@ -0,0 +1,125 @@
+/** LargeNetworkSimulation.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.tests.generateddata;
+
+import static de.hsmannheim.masterthesis.neuronreconstruction.impl.model.ValueBorders.MAX_WEIGHT_GENERATION;
+import static de.hsmannheim.masterthesis.neuronreconstruction.impl.model.ValueBorders.MIN_WEIGHT_GENERATION;
+import static de.hsmannheim.masterthesis.neuronreconstruction.impl.model.ValueBorders.PERCENTAGE_INHIBITORY_WEIGHTS;
+import static de.hsmannheim.masterthesis.neuronreconstruction.impl.model.ValueBorders.SPIKE_RECOGNITION;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.Model;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.SparseNetworkSimulator;
+
+/**
+ * This is a simulation of a large generated network with sparse connectivity.
+ * No reconstruction is done, the spike times of all neurons are written to the
+ * output directory while the network is simulated.
+ *
+ * @author Leah Lackner
+ */
+public class LargeNetworkSimulation {
+
+	public static final int SEED = 56;
+
+	public static final int NUM_NEURONS = 10000;
+	public static final int SYNAPSES_PER_NEURON = 100;
+
+	public static final int TIMESTEPS = 10000;
+	public static final double DT = .1;
+
+	public static final String OUTPUT_PATH = "NeuronReconstruction/generatedData/"
+			+ LargeNetworkSimulation.class.getSimpleName();
+
+	public static void main(String[] args) throws IOException {
+		Random r = new Random(SEED);
+
+		// The weights are not stored in the models, so the models are
+		// created without weights
+		List<Model> models = new ArrayList<>(NUM_NEURONS);
+		for (int n = 0; n < NUM_NEURONS; n++) {
+			models.add(new Model(r, 0, n));
+		}
+
+		// Each neuron gets input from randomly chosen other neurons. The
+		// weights are scaled so that the overall input is in the same range as
+		// in the small generated networks.
+		int[] rowStart = new int[NUM_NEURONS + 1];
+		int[] presynapticNeurons = new int[NUM_NEURONS * SYNAPSES_PER_NEURON];
+		double[] synapticWeights = new double[presynapticNeurons.length];
+		double weightScale = 10.0 / SYNAPSES_PER_NEURON;
+		boolean[] connected = new boolean[NUM_NEURONS];
+		int k = 0;
+		for (int post = 0; post < NUM_NEURONS; post++) {
+			rowStart[post] = k;
+			for (int s = 0; s < SYNAPSES_PER_NEURON; s++) {
+				int pre;
+				do {
+					pre = r.nextInt(NUM_NEURONS);
+				} while (pre == post || connected[pre]);
+				connected[pre] = true;
+			}
+			// the presynaptic neurons of a row are sorted
+			for (int pre = 0; pre < NUM_NEURONS; pre++) {
+				if (connected[pre]) {
+					connected[pre] = false;
+					presynapticNeurons[k] = pre;
+					synapticWeights[k] = Model.generate(r, MIN_WEIGHT_GENERATION, MAX_WEIGHT_GENERATION)
+							* weightScale;
+					// inhibitory
+					if (pre >= NUM_NEURONS * (1.0 - PERCENTAGE_INHIBITORY_WEIGHTS))
+						synapticWeights[k] *= -1;
+					k++;
+				}
+			}
+		}
+		rowStart[NUM_NEURONS] = k;
+
+		SparseNetworkSimulator simulator = new SparseNetworkSimulator(models, rowStart, presynapticNeurons,
+				synapticWeights);
+
+		new File(OUTPUT_PATH).mkdirs();
+		long startTime = System.currentTimeMillis();
+		long[] spikeCount = new long[1];
+		try (BufferedWriter bfSpikes = new BufferedWriter(new FileWriter(OUTPUT_PATH + "/spikes.csv"))) {
+			bfSpikes.write("timestep;neuron" + System.lineSeparator());
+
+			simulator.simulate(0, TIMESTEPS, DT, (t, input) -> {
+				// the same input phases as in the GeneratedDataTestRunner
+				double inputValue = t < TIMESTEPS / 8 * 7 && t > TIMESTEPS / 8 * 4.5
+						|| t < TIMESTEPS / 8 * 3 && t > TIMESTEPS / 8 * 2 ? Model.generateInput(r) : 0;
+				for (int n = 0; n < input.length; n++) {
+					input[n] = inputValue;
+				}
+			}, (t, v) -> {
+				try {
+					for (int n = 0; n < v.length; n++) {
+						if (v[n] >= SPIKE_RECOGNITION) {
+							bfSpikes.write(t + ";" + n + System.lineSeparator());
+							spikeCount[0]++;
+						}
+					}
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		}
+
+		System.out.println("Simulated " + NUM_NEURONS + " neurons with " + simulator.getNumSynapses()
+				+ " synapses for " + TIMESTEPS + " time steps in " + (System.currentTimeMillis() - startTime)
+				+ " ms, " + spikeCount[0] + " spikes");
+	}
+}
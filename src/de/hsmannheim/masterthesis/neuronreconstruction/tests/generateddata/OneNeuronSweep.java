@@ -0,0 +1,84 @@
+/** OneNeuronSweep.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.tests.generateddata;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.DatasetContext;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.modes.ReconstructionMode;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.spikecomparison.SpikeFrequencyQualityMeasure;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.spikecomparison.SpikeTimeQualityMeasure;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.spikecomparison.VoltageOverallQualityMeasure;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.spikecomparison.VoltageSingleQualityMeasure;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.GeneralTestConfiguration;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.helper.GeneratedDataTestRunner;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.helper.GeneratedDataTestRunner.GeneratedData;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.helper.SweepConfiguration;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.helper.SweepRunner;
+
+/**
+ * This is a parameter sweep over the settings of the one neuron tests with
+ * generated data. All combinations of the population sizes, mutation rates
+ * and measure weights are reconstructed in one process and compared in one
+ * table.
+ * 
+ * @author Leah Lackner
+ */
+public class OneNeuronSweep {
+
+	public static final String DATASET_NAME = OneNeuronSweep.class.getSimpleName();
+
+	public static final int SEED = 15;
+
+	public static final int NUM_NEURONS = 1;
+
+	public static final int TIMESTEPS = 1000;
+	public static final double DT = GeneralTestConfiguration.DT;
+	public static final int INPUT_IDX_AFTER_TUNING = TIMESTEPS / 2;
+
+	public static final int[] POPULATION_SIZES = { 1000, 3000, 10000 };
+	public static final double[] MUTATION_RATES = { 0.3, 0.35, 0.5 };
+	public static final int[] GENERATION_THRESHOLDS = { 25 };
+
+	public static final int RECONSTRUCTION_SEED = 20;
+
+	public static final int CONCURRENT_CONFIGURATIONS = 4;
+	public static final int THREADS = (int) (Runtime.getRuntime().availableProcessors() * 1.4);
+
+	public static final String OUTPUT_PATH = "generatedData/" + OneNeuronSweep.class.getSimpleName();
+
+	public static void main(String[] args) throws IOException {
+
+		Map<Class<?>, Double> balancedMeasures = new HashMap<>();
+		balancedMeasures.put(SpikeTimeQualityMeasure.class, 1.0);
+		balancedMeasures.put(VoltageSingleQualityMeasure.class, 1.0);
+		balancedMeasures.put(VoltageOverallQualityMeasure.class, 1.0);
+		balancedMeasures.put(SpikeFrequencyQualityMeasure.class, 1.0);
+
+		Map<Class<?>, Double> allSameMeasures = new HashMap<>();
+		allSameMeasures.put(SpikeTimeQualityMeasure.class, 2.0);
+		allSameMeasures.put(VoltageSingleQualityMeasure.class, 2.0);
+		allSameMeasures.put(VoltageOverallQualityMeasure.class, 2.0);
+		allSameMeasures.put(SpikeFrequencyQualityMeasure.class, 2.0);
+
+		List<SweepConfiguration> configurations = SweepConfiguration.grid(POPULATION_SIZES, MUTATION_RATES,
+				GENERATION_THRESHOLDS, Arrays.asList(balancedMeasures, allSameMeasures),
+				new ReconstructionMode[] { ReconstructionMode.IZHIKEVICH }, RECONSTRUCTION_SEED);
+
+		GeneratedData data = GeneratedDataTestRunner.generate(SEED, TIMESTEPS, INPUT_IDX_AFTER_TUNING, NUM_NEURONS,
+				DT);
+		DatasetContext context = new DatasetContext(data.inputsWithNoise, data.vsWithNoise, DT,
+				INPUT_IDX_AFTER_TUNING);
+
+		SweepRunner.run(DATASET_NAME, context, configurations, CONCURRENT_CONFIGURATIONS, THREADS, OUTPUT_PATH);
+	}
+}
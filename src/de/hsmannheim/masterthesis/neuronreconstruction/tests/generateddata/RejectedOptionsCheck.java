@@ -0,0 +1,138 @@
+/** RejectedOptionsCheck.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.tests.generateddata;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.DatasetContext;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.Reconstruction;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.ReconstructionOptions;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.modes.ReconstructionMode;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.optimizer.CmaEsOptimizer;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.spikecomparison.VoltageSingleQualityMeasure;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.GeneralTestConfiguration;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.helper.GeneratedDataTestRunner;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.helper.GeneratedDataTestRunner.GeneratedData;
+
+/**
+ * This is a check of the rejected option combinations. The output directory
+ * contains the results of a previous run. Each reconstruction with a
+ * combination which is not supported must fail with an
+ * {@link IllegalArgumentException} and leave the output directory untouched,
+ * also with concurrent neurons.
+ *
+ * @author Leah Lackner
+ */
+public class RejectedOptionsCheck {
+
+	public static final int SEED = 37;
+
+	public static final int NUM_NEURONS = 3;
+
+	public static final int TIMESTEPS = 1000;
+	public static final double DT = GeneralTestConfiguration.DT;
+	public static final int INPUT_IDX_AFTER_TUNING = TIMESTEPS / 2;
+
+	public static final int POPULATION_SIZE = 100;
+	public static final double FITNESS_THRESHOLD = 0.0000000000000000001;
+	public static final int GENERATION_THRESHOLD = 5;
+	public static final double MUTATION_RATE = 0.5;
+
+	public static final String OUTPUT_PATH = "generatedData/" + RejectedOptionsCheck.class.getSimpleName();
+
+	/**
+	 * The files of the previous run, which would be removed by a started
+	 * reconstruction
+	 */
+	public static final List<String> PREVIOUS_FILES = Arrays.asList("reconstruction.log", "fitness_0.csv",
+			"model_0.csv");
+
+	public static void main(String[] args) throws IOException {
+		GeneratedData data = GeneratedDataTestRunner.generate(SEED, TIMESTEPS, INPUT_IDX_AFTER_TUNING, NUM_NEURONS,
+				DT);
+		DatasetContext context = new DatasetContext(data.inputsWithNoise, data.vsWithNoise, DT,
+				INPUT_IDX_AFTER_TUNING);
+
+		Map<Class<?>, Double> measures = new HashMap<>();
+		measures.put(VoltageSingleQualityMeasure.class, 1.0);
+
+		File output = new File(OUTPUT_PATH);
+		output.mkdirs();
+		for (String name : PREVIOUS_FILES) {
+			Files.write(new File(output, name).toPath(), name.getBytes(StandardCharsets.UTF_8));
+		}
+		String[] previous = output.list();
+		Arrays.sort(previous);
+
+		Map<String, ReconstructionOptions> combinations = new LinkedHashMap<>();
+		ReconstructionOptions options = new ReconstructionOptions();
+		options.setKeyedRandomStreams(true);
+		options.setSteadyState(true);
+		combinations.put("keyed random streams with the steady state mode", options);
+		options = new ReconstructionOptions();
+		options.setCheckpointInterval(1);
+		options.setIslands(2);
+		combinations.put("checkpoints with islands", options);
+		options = new ReconstructionOptions();
+		options.setOptimizer(new CmaEsOptimizer());
+		options.setSteadyState(true);
+		combinations.put("optimizer with the steady state mode", options);
+		options = new ReconstructionOptions();
+		options.setTransferFraction(0.1);
+		options.setResume(true);
+		combinations.put("population transfer with a resumed run", options);
+		options = new ReconstructionOptions();
+		options.setEarlyTerminationRank(10);
+		options.setBatchEvaluation(false);
+		combinations.put("early termination without the batch evaluation", options);
+		options = new ReconstructionOptions();
+		options.setIslands(POPULATION_SIZE);
+		combinations.put("more islands than pairs of individuals", options);
+
+		for (Map.Entry<String, ReconstructionOptions> combination : combinations.entrySet()) {
+			for (int concurrentNeurons : new int[] { 1, NUM_NEURONS }) {
+				combination.getValue().setConcurrentNeurons(concurrentNeurons);
+				try {
+					new Reconstruction(combination.getValue()).reconstruct(RejectedOptionsCheck.class.getSimpleName(),
+							new Random(SEED), context, POPULATION_SIZE, FITNESS_THRESHOLD, GENERATION_THRESHOLD,
+							GENERATION_THRESHOLD, MUTATION_RATE, false, ReconstructionMode.IZHIKEVICH, OUTPUT_PATH,
+							measures);
+					throw new IllegalStateException("The " + combination.getKey() + " was not rejected");
+				} catch (IllegalArgumentException e) {
+					System.out.println(combination.getKey() + ": " + e.getMessage());
+				}
+				checkUntouched(output, previous, combination.getKey());
+			}
+		}
+		System.out.println("The rejected combinations left the output directory untouched");
+	}
+
+	private static void checkUntouched(File output, String[] previous, String combination) throws IOException {
+		String[] files = output.list();
+		Arrays.sort(files);
+		if (!Arrays.equals(files, previous)) {
+			throw new IllegalStateException("The " + combination + " changed the output directory to "
+					+ Arrays.toString(files));
+		}
+		for (String name : PREVIOUS_FILES) {
+			String content = new String(Files.readAllBytes(new File(output, name).toPath()), StandardCharsets.UTF_8);
+			if (!content.equals(name)) {
+				throw new IllegalStateException("The " + combination + " changed the file " + name);
+			}
+		}
+	}
+}
@@ -0,0 +1,161 @@
+/** StalledWorkerCheck.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.tests.generateddata;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.Model;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.Reconstruction;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.ReconstructionOptions;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.modes.ReconstructionMode;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.spikecomparison.VoltageSingleQualityMeasure;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.GeneralTestConfiguration;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.helper.GeneratedDataTestRunner;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.helper.GeneratedDataTestRunner.GeneratedData;
+
+/**
+ * This is a check of the distributed evaluation with a worker which accepts
+ * the connection and answers the data set, but never reads the batches. The
+ * batches of a generation are more than the buffers of the connection can
+ * hold. The worker must be removed after the timeout and the reconstruction
+ * must finish locally with the same models as without workers.
+ *
+ * @author Leah Lackner
+ */
+public class StalledWorkerCheck {
+
+	public static final int SEED = 43;
+
+	public static final int NUM_NEURONS = 3;
+
+	public static final int TIMESTEPS = 200;
+	public static final double DT = GeneralTestConfiguration.DT;
+	public static final int INPUT_IDX_AFTER_TUNING = TIMESTEPS / 2;
+
+	public static final int POPULATION_SIZE = 40000;
+	public static final double FITNESS_THRESHOLD = 0.0000000000000000001;
+	public static final int GENERATION_THRESHOLD = 2;
+	public static final double MUTATION_RATE = 0.5;
+
+	/**
+	 * The magic number of the distributed protocol
+	 */
+	public static final int MAGIC = 0x4E524543;
+
+	/**
+	 * The threads reported by the worker, so that all batches are sent to it
+	 */
+	public static final int WORKER_THREADS = 100000;
+
+	/**
+	 * The time in milliseconds after which the worker counts as lost
+	 */
+	public static final int WORKER_TIMEOUT = 2000;
+
+	/**
+	 * The time after which a reconstruction counts as hanging, in
+	 * milliseconds
+	 */
+	public static final long TIMEOUT = 90000;
+
+	public static final String OUTPUT_PATH = "generatedData/" + StalledWorkerCheck.class.getSimpleName();
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		GeneratedData data = GeneratedDataTestRunner.generate(SEED, TIMESTEPS, INPUT_IDX_AFTER_TUNING, NUM_NEURONS,
+				DT);
+
+		Map<Class<?>, Double> measures = new HashMap<>();
+		measures.put(VoltageSingleQualityMeasure.class, 1.0);
+
+		String expected = reconstruct(new ReconstructionOptions(), data, measures);
+
+		List<Socket> connections = Collections.synchronizedList(new ArrayList<>());
+		try (ServerSocket server = new ServerSocket()) {
+			// The small buffer of the worker is filled by the first batches
+			server.setReceiveBufferSize(4096);
+			server.bind(new InetSocketAddress("localhost", 0));
+			Thread worker = new Thread(() -> {
+				try {
+					while (true) {
+						Socket socket = server.accept();
+						connections.add(socket);
+						DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+						out.writeInt(MAGIC);
+						out.writeInt(WORKER_THREADS);
+						out.flush();
+					}
+				} catch (IOException e) {
+					// the server is closed
+				}
+			});
+			worker.setDaemon(true);
+			worker.start();
+
+			ReconstructionOptions options = new ReconstructionOptions();
+			options.setWorkers(Collections.singletonList("localhost:" + server.getLocalPort()));
+			options.setWorkerTimeout(WORKER_TIMEOUT);
+			AtomicReference<String> models = new AtomicReference<>();
+			AtomicReference<Throwable> error = new AtomicReference<>();
+			Thread reconstruction = new Thread(() -> {
+				try {
+					models.set(reconstruct(options, data, measures));
+				} catch (Throwable e) {
+					error.set(e);
+				}
+			});
+			reconstruction.setDaemon(true);
+			reconstruction.start();
+			reconstruction.join(TIMEOUT);
+			if (reconstruction.isAlive()) {
+				throw new IllegalStateException("The reconstruction hangs with a worker which does not read");
+			}
+			if (error.get() != null) {
+				throw new IllegalStateException("The reconstruction failed", error.get());
+			}
+			if (!expected.equals(models.get())) {
+				throw new IllegalStateException(
+						"The models " + models.get() + " differ from those without workers " + expected);
+			}
+		} finally {
+			for (Socket socket : connections) {
+				socket.close();
+			}
+		}
+		System.out.println("The worker which does not read was removed, models " + expected);
+	}
+
+	/**
+	 * @return The parameters and weights of the reconstructed models
+	 */
+	private static String reconstruct(ReconstructionOptions options, GeneratedData data,
+			Map<Class<?>, Double> measures) throws IOException {
+		List<Model> models = new Reconstruction(options).reconstruct(StalledWorkerCheck.class.getSimpleName(),
+				new Random(SEED), data.inputsWithNoise, data.vsWithNoise, DT, POPULATION_SIZE, FITNESS_THRESHOLD,
+				GENERATION_THRESHOLD, GENERATION_THRESHOLD, MUTATION_RATE, INPUT_IDX_AFTER_TUNING, false,
+				ReconstructionMode.IZHIKEVICH, OUTPUT_PATH, measures);
+		StringBuilder result = new StringBuilder();
+		for (Model model : models) {
+			result.append(Arrays.toString(new double[] { model.a, model.b, model.c, model.d, model.p1, model.p2,
+					model.p3, model.p4, model.startU }));
+			result.append(Arrays.toString(model.weights));
+		}
+		return result.toString();
+	}
+}
@@ -0,0 +1,113 @@
+/** TenNeuronsDistributed.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.tests.generateddata;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.EvaluationWorker;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.ReconstructionOptions;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.modes.ReconstructionMode;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.spikecomparison.SpikeFrequencyQualityMeasure;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.spikecomparison.SpikeTimeQualityMeasure;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.spikecomparison.VoltageOverallQualityMeasure;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.spikecomparison.VoltageSingleQualityMeasure;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.helper.GeneratedDataTestRunner;
+
+/**
+ * This is a test for a reconstruction with ten interconnected generated
+ * neurons, whose fitness values are evaluated by several worker JVMs on the
+ * local machine. The settings are the same as in {@link TenNeuronsBalanced},
+ * the results are the same as those of a local reconstruction without the
+ * graphical user interface.
+ *
+ * @author Leah Lackner
+ */
+public class TenNeuronsDistributed {
+
+	public static final String DATASET_NAME = TenNeuronsDistributed.class.getSimpleName();
+
+	public static final int SEED = 56;
+
+	public static final int NUM_NEURONS = 10;
+
+	public static final int TIMESTEPS = 1000;
+	public static final double DT = .1;
+	public static final int INPUT_IDX_AFTER_TUNING = TIMESTEPS / 2;
+
+	public static final int POPULATION_SIZE = 10000;
+	public static final double FITNESS_THRESHOLD = 0.0000000000000000001;
+	public static final int GENERATION_THRESHOLD = 25;
+	public static final double MUTATION_RATE = 0.5;
+	public static final int ABORT_AFTER_GENERATIONS_WITHOUT_CHANGE = GENERATION_THRESHOLD / 3;
+
+	public static final boolean GUI = false;
+
+	public static final int WORKERS = 2;
+	public static final int THREADS_PER_WORKER = 2;
+
+	public static final String OUTPUT_PATH = "generatedData/" + TenNeuronsDistributed.class.getSimpleName();
+
+	public static void main(String[] args) throws IOException {
+
+		Map<Class<?>, Double> spikeMeasures = new HashMap<>();
+		spikeMeasures.put(SpikeTimeQualityMeasure.class, 1.0);
+		spikeMeasures.put(VoltageSingleQualityMeasure.class, 1.0);
+		spikeMeasures.put(VoltageOverallQualityMeasure.class, 1.0);
+		spikeMeasures.put(SpikeFrequencyQualityMeasure.class, 1.0);
+
+		// Start the workers in their own JVMs, each worker prints its port
+		List<Process> processes = new ArrayList<>(WORKERS);
+		List<String> addresses = new ArrayList<>(WORKERS);
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		try {
+			for (int w = 0; w < WORKERS; w++) {
+				Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+						EvaluationWorker.class.getName(), "0", String.valueOf(THREADS_PER_WORKER))
+								.redirectError(ProcessBuilder.Redirect.INHERIT).start();
+				processes.add(process);
+
+				BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+				String line = reader.readLine();
+				if (line == null) {
+					throw new IOException("The worker could not be started");
+				}
+				addresses.add("localhost:" + line.substring(line.lastIndexOf(' ') + 1));
+
+				// The output of the worker is discarded, so that the worker is
+				// not blocked by a full pipe
+				Thread drain = new Thread(() -> {
+					try {
+						while (reader.readLine() != null) {
+						}
+					} catch (IOException e) {
+					}
+				});
+				drain.setDaemon(true);
+				drain.start();
+			}
+
+			ReconstructionOptions options = new ReconstructionOptions();
+			options.setWorkers(addresses);
+
+			GeneratedDataTestRunner.run(DATASET_NAME, SEED, TIMESTEPS, INPUT_IDX_AFTER_TUNING, NUM_NEURONS, DT,
+					POPULATION_SIZE, FITNESS_THRESHOLD, GENERATION_THRESHOLD, ABORT_AFTER_GENERATIONS_WITHOUT_CHANGE,
+					MUTATION_RATE, GUI, ReconstructionMode.IZHIKEVICH, OUTPUT_PATH, spikeMeasures, options);
+		} finally {
+			for (Process process : processes) {
+				process.destroy();
+			}
+		}
+	}
+}
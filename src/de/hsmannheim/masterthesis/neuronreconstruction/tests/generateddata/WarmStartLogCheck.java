@@ -0,0 +1,128 @@
+/** WarmStartLogCheck.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.tests.generateddata;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.Model;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.DatasetContext;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.Reconstruction;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.modes.ReconstructionMode;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.spikecomparison.SpikeFrequencyQualityMeasure;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.spikecomparison.SpikeTimeQualityMeasure;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.spikecomparison.VoltageOverallQualityMeasure;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.spikecomparison.VoltageSingleQualityMeasure;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.GeneralTestConfiguration;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.helper.GeneratedDataTestRunner;
+import de.hsmannheim.masterthesis.neuronreconstruction.tests.helper.GeneratedDataTestRunner.GeneratedData;
+
+/**
+ * This is a check of the warm start sources. A short reconstruction writes its
+ * log files, which are loaded as warm start models again. Each loaded model
+ * must have the weights which are logged in the same generation as its
+ * parameters, i.e. the model and weights log files must be read in the same
+ * rows (the header of the weights log file consists of numbers).
+ *
+ * @author Leah Lackner
+ */
+public class WarmStartLogCheck {
+
+	public static final String DATASET_NAME = WarmStartLogCheck.class.getSimpleName();
+
+	public static final int SEED = 23;
+
+	public static final int NUM_NEURONS = 3;
+
+	public static final int TIMESTEPS = 1000;
+	public static final double DT = GeneralTestConfiguration.DT;
+	public static final int INPUT_IDX_AFTER_TUNING = TIMESTEPS / 2;
+
+	public static final int POPULATION_SIZE = 100;
+	public static final double FITNESS_THRESHOLD = 0.0000000000000000001;
+	public static final int GENERATION_THRESHOLD = 8;
+	public static final double MUTATION_RATE = 0.5;
+	public static final int ABORT_AFTER_GENERATIONS_WITHOUT_CHANGE = GENERATION_THRESHOLD;
+
+	public static final int RECONSTRUCTION_SEED = 24;
+
+	public static final String OUTPUT_PATH = "generatedData/" + WarmStartLogCheck.class.getSimpleName();
+
+	public static void main(String[] args) throws IOException {
+
+		Map<Class<?>, Double> spikeMeasures = new HashMap<>();
+		spikeMeasures.put(SpikeTimeQualityMeasure.class, 1.0);
+		spikeMeasures.put(VoltageSingleQualityMeasure.class, 1.0);
+		spikeMeasures.put(VoltageOverallQualityMeasure.class, 1.0);
+		spikeMeasures.put(SpikeFrequencyQualityMeasure.class, 1.0);
+
+		GeneratedData data = GeneratedDataTestRunner.generate(SEED, TIMESTEPS, INPUT_IDX_AFTER_TUNING, NUM_NEURONS,
+				DT);
+		DatasetContext context = new DatasetContext(data.inputsWithNoise, data.vsWithNoise, DT,
+				INPUT_IDX_AFTER_TUNING);
+		new Reconstruction().reconstruct(DATASET_NAME, new Random(RECONSTRUCTION_SEED), context, POPULATION_SIZE,
+				FITNESS_THRESHOLD, GENERATION_THRESHOLD, ABORT_AFTER_GENERATIONS_WITHOUT_CHANGE, MUTATION_RATE, false,
+				ReconstructionMode.IZHIKEVICH, OUTPUT_PATH, spikeMeasures);
+
+		List<List<Model>> models = Reconstruction.loadWarmStartModels(Collections.singletonList(OUTPUT_PATH),
+				NUM_NEURONS);
+		for (int n = 0; n < NUM_NEURONS; n++) {
+			// The logs of one reconstruction contain the header only in the
+			// first line
+			List<double[]> values = readLog(OUTPUT_PATH + "/model_neuron-" + n + ".csv");
+			List<double[]> weights = readLog(OUTPUT_PATH + "/weights_neuron-" + n + ".csv");
+			if (models.get(n).isEmpty() || values.size() != weights.size()) {
+				throw new IllegalStateException("The logs of the neuron " + n + " are incomplete");
+			}
+			for (Model model : models.get(n)) {
+				if (!isLogged(model, values, weights)) {
+					throw new IllegalStateException("The loaded model " + model + " of the neuron " + n
+							+ " has the weights " + Arrays.toString(model.weights)
+							+ ", which are not logged together with its parameters");
+				}
+			}
+			System.out.println("Neuron " + n + ": " + models.get(n).size() + " model(s) loaded with their weights");
+		}
+		System.out.println("The warm start models match their logs");
+	}
+
+	/**
+	 * @return true if a row of the logs contains the parameters and the
+	 *         weights of the model
+	 */
+	private static boolean isLogged(Model model, List<double[]> values, List<double[]> weights) {
+		double[] modelValues = { model.a, model.b, model.c, model.d, model.p1, model.p2, model.p3, model.p4, model.u,
+				model.startU, model.v };
+		for (int i = 0; i < values.size(); i++) {
+			if (Arrays.equals(values.get(i), modelValues) && Arrays.equals(weights.get(i), model.weights)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return The rows of a log file without its header
+	 */
+	private static List<double[]> readLog(String path) throws IOException {
+		List<String> lines = Files.readAllLines(Paths.get(path));
+		List<double[]> rows = new ArrayList<>(lines.size());
+		for (String line : lines.subList(1, lines.size())) {
+			rows.add(Arrays.stream(line.split(";")).mapToDouble(Double::parseDouble).toArray());
+		}
+		return rows;
+	}
+}
@@ -15,13 +15,15 @@ import static de.hsmannheim.masterthesis.neuronreconstruction.impl.model.ValueBo
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 
 import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.Model;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.NetworkState;
 import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.Reconstruction;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.ReconstructionOptions;
 import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.modes.ReconstructionMode;
 
 /**
@@ -77,76 +79,46 @@ public class GeneratedDataTestRunner {
 			double dt, int populationSize, double fitnessThreshold, int generationThreshold,
 			int abortAfterGenerationsWithoutChange, double mutationRate, boolean enableGui, ReconstructionMode mode,
 			String outputPath, Map<Class<?>, Double> measures) throws IOException {
-		outputPath = "NeuronReconstruction/" + outputPath;
-
-		double[][] inputs = new double[timesteps][numNeurons];
-
-		Random r = new Random(seed);
-
-		for (int i = 0; i < inputs.length; i++) {
-			for (int j = 0; j < inputs[i].length; j++) {
-				if (i < inputs.length / 8 * 7 && i > inputs.length / 8 * 4.5
-						|| i < inputs.length / 8 * 3 && i > inputs.length / 8 * 2)
-					inputs[i][j] = Model.generateInput(r);
-				else
-					inputs[i][j] = 0;
-			}
-		}
-
-		double[] uStarts = new double[numNeurons];
-		double[][] Vs = new double[timesteps][numNeurons];
-
-		List<Model> generatedModels = new LinkedList<>();
-		for (int n = 0; n < numNeurons; n++) {
-			generatedModels.add(new Model(r, numNeurons, n));
-			Vs[0][n] = generatedModels.get(n).v;
-		}
+		run(datasetName, seed, timesteps, inputIdxAfterTuning, numNeurons, dt, populationSize, fitnessThreshold,
+				generationThreshold, abortAfterGenerationsWithoutChange, mutationRate, enableGui, mode, outputPath,
+				measures, new ReconstructionOptions());
+	}
 
-		for (int i = 1; i < inputs.length; i++) {
-			for (int n = 0; n < uStarts.length; n++) {
-				if (i == inputIdxAfterTuning) {
-					uStarts[n] = generatedModels.get(n).u;
-				}
-				Vs[i][n] = generatedModels.get(n).v;
-			}
-			Model.calculateNetwork(dt, generatedModels, inputs[i]);
-		}
-		for (int i = 0; i < inputs[0].length; i++) {
-			generatedModels.get(i).u = uStarts[i];
-		}
+	/**
+	 * Runs the given test scenario with the given options of the
+	 * reconstruction.
+	 * 
+	 * @param options
+	 *            The options of the reconstruction
+	 * @throws IOException
+	 * 
+	 * @see #run(String, int, int, int, int, double, int, double, int, int,
+	 *      double, boolean, ReconstructionMode, String, Map)
+	 */
+	public static void run(String datasetName, int seed, int timesteps, int inputIdxAfterTuning, int numNeurons,
+			double dt, int populationSize, double fitnessThreshold, int generationThreshold,
+			int abortAfterGenerationsWithoutChange, double mutationRate, boolean enableGui, ReconstructionMode mode,
+			String outputPath, Map<Class<?>, Double> measures, ReconstructionOptions options) throws IOException {
+		outputPath = "NeuronReconstruction/" + outputPath;
 
-		// apply noise
-		double[][] inputsWithNoise = new double[inputs.length][numNeurons];
-		for (int i = 0; i < inputs.length; i++) {
-			for (int n = 0; n < inputs[0].length; n++) {
-				inputsWithNoise[i][n] = inputs[i][n]
-						+ Model.generate(r, NOISE_INPUT_MIN_GENERATION, NOISE_INPUT_MAX_GENERATION);
-			}
-		}
-		double[][] VsWithNoise = new double[Vs.length][numNeurons];
-		for (int i = 0; i < Vs.length; i++) {
-			for (int n = 0; n < inputs[0].length; n++) {
-				VsWithNoise[i][n] = Vs[i][n] + Model.generate(r, NOISE_V_MIN_GENERATION, NOISE_V_MAX_GENERATION);
-			}
-		}
+		GeneratedData data = generate(seed, timesteps, inputIdxAfterTuning, numNeurons, dt);
+		double[][] inputs = data.inputs;
+		double[][] inputsWithNoise = data.inputsWithNoise;
+		double[][] VsWithNoise = data.vsWithNoise;
+		List<Model> generatedModels = data.models;
 
 		// do the reconstruction
-		List<Model> reconstructed = new Reconstruction().reconstruct(datasetName, new Random(20), inputsWithNoise,
+		List<Model> reconstructed = new Reconstruction(options).reconstruct(datasetName, new Random(20), inputsWithNoise,
 				VsWithNoise, dt, populationSize, fitnessThreshold, generationThreshold,
 				abortAfterGenerationsWithoutChange, mutationRate, inputIdxAfterTuning, enableGui, mode, outputPath,
 				measures);
 
-		List<Model> reconstructedForSimulation = new LinkedList<>();
-		for (int i = 0; i < reconstructed.size(); i++) {
-			reconstructedForSimulation.add(new Model(reconstructed.get(i)));
-		}
+		NetworkState reconstructedForSimulation = new NetworkState(reconstructed);
 
 		double[][] Vs2 = new double[timesteps][numNeurons];
 		for (int i = inputIdxAfterTuning; i < inputs.length; i++) {
-			for (int n = 0; n < numNeurons; n++) {
-				Vs2[i][n] = reconstructedForSimulation.get(n).v;
-			}
-			Model.calculateNetwork(dt, reconstructedForSimulation, inputs[i]);
+			reconstructedForSimulation.copyVoltages(Vs2[i]);
+			reconstructedForSimulation.step(dt, inputs[i]);
 		}
 
 		for (int n = 0; n < numNeurons; n++) {
@@ -214,4 +186,98 @@ public class GeneratedDataTestRunner {
 		}
 
 	}
+
+	/**
+	 * The generated data of a test scenario.
+	 */
+	public static class GeneratedData {
+
+		/**
+		 * The input data without noise
+		 */
+		public final double[][] inputs;
+
+		/**
+		 * The measured data, i.e. the input and voltage data with noise
+		 */
+		public final double[][] inputsWithNoise;
+		public final double[][] vsWithNoise;
+
+		/**
+		 * The generated models, with the u values at the tuning index
+		 */
+		public final List<Model> models;
+
+		GeneratedData(double[][] inputs, double[][] inputsWithNoise, double[][] vsWithNoise, List<Model> models) {
+			this.inputs = inputs;
+			this.inputsWithNoise = inputsWithNoise;
+			this.vsWithNoise = vsWithNoise;
+			this.models = models;
+		}
+	}
+
+	/**
+	 * Generates the data of a network of random Izhikevich neurons as it is
+	 * used by the test scenarios.
+	 * 
+	 * @see #run(String, int, int, int, int, double, int, double, int, int,
+	 *      double, boolean, ReconstructionMode, String, Map)
+	 */
+	public static GeneratedData generate(int seed, int timesteps, int inputIdxAfterTuning, int numNeurons,
+			double dt) {
+		double[][] inputs = new double[timesteps][numNeurons];
+
+		Random r = new Random(seed);
+
+		for (int i = 0; i < inputs.length; i++) {
+			for (int j = 0; j < inputs[i].length; j++) {
+				if (i < inputs.length / 8 * 7 && i > inputs.length / 8 * 4.5
+						|| i < inputs.length / 8 * 3 && i > inputs.length / 8 * 2)
+					inputs[i][j] = Model.generateInput(r);
+				else
+					inputs[i][j] = 0;
+			}
+		}
+
+		double[] uStarts = new double[numNeurons];
+		double[][] Vs = new double[timesteps][numNeurons];
+
+		List<Model> generatedModels = new ArrayList<>(numNeurons);
+		for (int n = 0; n < numNeurons; n++) {
+			generatedModels.add(new Model(r, numNeurons, n));
+			Vs[0][n] = generatedModels.get(n).v;
+		}
+
+		NetworkState generatedNetwork = new NetworkState(generatedModels);
+		for (int i = 1; i < inputs.length; i++) {
+			for (int n = 0; n < uStarts.length; n++) {
+				if (i == inputIdxAfterTuning) {
+					uStarts[n] = generatedNetwork.getU(n);
+				}
+			}
+			generatedNetwork.copyVoltages(Vs[i]);
+			generatedNetwork.step(dt, inputs[i]);
+		}
+		generatedNetwork.writeBack(generatedModels);
+		for (int i = 0; i < inputs[0].length; i++) {
+			generatedModels.get(i).u = uStarts[i];
+		}
+
+		// apply noise
+		double[][] inputsWithNoise = new double[inputs.length][numNeurons];
+		for (int i = 0; i < inputs.length; i++) {
+			for (int n = 0; n < inputs[0].length; n++) {
+				inputsWithNoise[i][n] = inputs[i][n]
+						+ Model.generate(r, NOISE_INPUT_MIN_GENERATION, NOISE_INPUT_MAX_GENERATION);
+			}
+		}
+		double[][] VsWithNoise = new double[Vs.length][numNeurons];
+		for (int i = 0; i < Vs.length; i++) {
+			for (int n = 0; n < inputs[0].length; n++) {
+				VsWithNoise[i][n] = Vs[i][n] + Model.generate(r, NOISE_V_MIN_GENERATION, NOISE_V_MAX_GENERATION);
+			}
+		}
+
+		return new GeneratedData(inputs, inputsWithNoise, VsWithNoise, generatedModels);
+	}
 }
@@ -0,0 +1,217 @@
+/** SweepConfiguration.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.tests.helper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.modes.ReconstructionMode;
+
+/**
+ * The settings of the Genetic Algorithm for one reconstruction of a parameter
+ * sweep (see {@link SweepRunner}). The settings are the ones in which the test
+ * scenarios differ.
+ *
+ * @author Leah Lackner
+ */
+public class SweepConfiguration {
+
+	public static final double FITNESS_THRESHOLD = 0.0000000000000000001;
+
+	private final int populationSize;
+	private final double mutationRate;
+	private final int generationThreshold;
+	private final int abortAfterGenerationsWithoutChange;
+	private final ReconstructionMode mode;
+	private final Map<Class<?>, Double> measures;
+	private final int seed;
+
+	/**
+	 * @param populationSize
+	 *            The size of the genetic generation
+	 * @param mutationRate
+	 *            The mutation rate for the genetic algorithm [0, 1]
+	 * @param generationThreshold
+	 *            The threshold for the generation at which the reconstruction
+	 *            will be aborted
+	 * @param abortAfterGenerationsWithoutChange
+	 *            The maximum number of generations after which the
+	 *            reconstruction will be aborted by unchanged fitness values.
+	 * @param mode
+	 *            The reconstruction mode (determining the parameter ranges)
+	 * @param measures
+	 *            The measures of the fitness evaluation with their weights
+	 * @param seed
+	 *            The seed for the random generator of the reconstruction
+	 */
+	public SweepConfiguration(int populationSize, double mutationRate, int generationThreshold,
+			int abortAfterGenerationsWithoutChange, ReconstructionMode mode, Map<Class<?>, Double> measures, int seed) {
+		if (populationSize < 2) {
+			throw new IllegalArgumentException("The population needs at least two individuals");
+		}
+		if (!(mutationRate >= 0 && mutationRate <= 1)) {
+			throw new IllegalArgumentException("The mutation rate must be in [0, 1]");
+		}
+		this.populationSize = populationSize;
+		this.mutationRate = mutationRate;
+		this.generationThreshold = generationThreshold;
+		this.abortAfterGenerationsWithoutChange = abortAfterGenerationsWithoutChange;
+		this.mode = mode;
+		this.measures = Collections.unmodifiableMap(measures);
+		this.seed = seed;
+	}
+
+	/**
+	 * Creates the configurations of all combinations of the given values
+	 * (grid search). The reconstructions are aborted after a third of the
+	 * generation threshold without change, as in the test scenarios.
+	 *
+	 * @param populationSizes
+	 *            The population sizes
+	 * @param mutationRates
+	 *            The mutation rates
+	 * @param generationThresholds
+	 *            The generation thresholds
+	 * @param measures
+	 *            The weighted measures
+	 * @param modes
+	 *            The reconstruction modes
+	 * @param seed
+	 *            The seed of the reconstructions, which is the same for all
+	 *            configurations
+	 * @return The configurations
+	 */
+	public static List<SweepConfiguration> grid(int[] populationSizes, double[] mutationRates,
+			int[] generationThresholds, List<Map<Class<?>, Double>> measures, ReconstructionMode[] modes, int seed) {
+		List<SweepConfiguration> configurations = new ArrayList<>();
+		for (ReconstructionMode mode : modes) {
+			for (Map<Class<?>, Double> weightedMeasures : measures) {
+				for (int generationThreshold : generationThresholds) {
+					for (int populationSize : populationSizes) {
+						for (double mutationRate : mutationRates) {
+							configurations.add(new SweepConfiguration(populationSize, mutationRate,
+									generationThreshold, generationThreshold / 3, mode, weightedMeasures, seed));
+						}
+					}
+				}
+			}
+		}
+		return configurations;
+	}
+
+	/**
+	 * Creates configurations with random values from the given ranges (random
+	 * search). The population size is drawn log-uniformly, the other numbers
+	 * uniformly.
+	 *
+	 * @param count
+	 *            The number of configurations
+	 * @param r
+	 *            The random instance which draws the values
+	 * @param minPopulationSize
+	 *            The smallest population size
+	 * @param maxPopulationSize
+	 *            The largest population size
+	 * @param minMutationRate
+	 *            The smallest mutation rate
+	 * @param maxMutationRate
+	 *            The largest mutation rate
+	 * @param minGenerationThreshold
+	 *            The smallest generation threshold
+	 * @param maxGenerationThreshold
+	 *            The largest generation threshold
+	 * @param measures
+	 *            The weighted measures, one of them is chosen
+	 * @param modes
+	 *            The reconstruction modes, one of them is chosen
+	 * @param seed
+	 *            The seed of the reconstructions, which is the same for all
+	 *            configurations
+	 * @return The configurations
+	 */
+	public static List<SweepConfiguration> randomSearch(int count, Random r, int minPopulationSize,
+			int maxPopulationSize, double minMutationRate, double maxMutationRate, int minGenerationThreshold,
+			int maxGenerationThreshold, List<Map<Class<?>, Double>> measures, ReconstructionMode[] modes,
+			int seed) {
+		if (minPopulationSize > maxPopulationSize || minMutationRate > maxMutationRate
+				|| minGenerationThreshold > maxGenerationThreshold) {
+			throw new IllegalArgumentException("The minimum of a range must not be greater than its maximum");
+		}
+		List<SweepConfiguration> configurations = new ArrayList<>(count);
+		double logMin = Math.log(minPopulationSize);
+		double logMax = Math.log(maxPopulationSize);
+		for (int i = 0; i < count; i++) {
+			int populationSize = (int) Math.round(Math.exp(logMin + r.nextDouble() * (logMax - logMin)));
+			double mutationRate = minMutationRate + r.nextDouble() * (maxMutationRate - minMutationRate);
+			int generationThreshold = minGenerationThreshold
+					+ r.nextInt(maxGenerationThreshold - minGenerationThreshold + 1);
+			Map<Class<?>, Double> weightedMeasures = measures.get(r.nextInt(measures.size()));
+			ReconstructionMode mode = modes[r.nextInt(modes.length)];
+			configurations.add(new SweepConfiguration(populationSize, mutationRate, generationThreshold,
+					generationThreshold / 3, mode, weightedMeasures, seed));
+		}
+		return configurations;
+	}
+
+	public int getPopulationSize() {
+		return populationSize;
+	}
+
+	public double getMutationRate() {
+		return mutationRate;
+	}
+
+	public int getGenerationThreshold() {
+		return generationThreshold;
+	}
+
+	public int getAbortAfterGenerationsWithoutChange() {
+		return abortAfterGenerationsWithoutChange;
+	}
+
+	public ReconstructionMode getMode() {
+		return mode;
+	}
+
+	public Map<Class<?>, Double> getMeasures() {
+		return measures;
+	}
+
+	public int getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @return The weights of the measures by their names, sorted by the names
+	 */
+	public String getMeasuresDescription() {
+		Map<String, Double> sorted = new TreeMap<>();
+		for (Map.Entry<Class<?>, Double> entry : measures.entrySet()) {
+			sorted.put(entry.getKey().getSimpleName(), entry.getValue());
+		}
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, Double> entry : sorted.entrySet()) {
+			if (sb.length() > 0) {
+				sb.append(';');
+			}
+			sb.append(entry.getKey()).append('=').append(entry.getValue());
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		return "populationSize=" + populationSize + ", mutationRate=" + mutationRate + ", generationThreshold="
+				+ generationThreshold + ", mode=" + mode + ", measures={" + getMeasuresDescription() + "}";
+	}
+
+}
@@ -0,0 +1,257 @@
+/** SweepRunner.java
+ *
+ * Copyright (C) 2016 Leah Lackner
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+package de.hsmannheim.masterthesis.neuronreconstruction.tests.helper;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.datareader.ContestDataReader;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.Model;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.model.NetworkState;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.DatasetContext;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.Reconstruction;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.ReconstructionOptions;
+import de.hsmannheim.masterthesis.neuronreconstruction.impl.reconstruction.WorkQueue;
+
+/**
+ * Runs several configurations of the Genetic Algorithm on the same data in
+ * one process (parameter sweep).
+ *
+ * <p />
+ * The data is read once and all reconstructions share one
+ * {@link DatasetContext}, so the values derived from the data are only
+ * computed once. The configurations run at the same time and share one queue
+ * of worker threads, whose size limits the threads of all fitness evaluations.
+ * The results of all configurations are written into one table, which ranks
+ * them by the error of a simulation with the reconstructed models.
+ *
+ * @author Leah Lackner
+ */
+public class SweepRunner {
+
+	private SweepRunner() {
+	}
+
+	/**
+	 * The result of one configuration of a sweep.
+	 */
+	public static class Result {
+
+		public final SweepConfiguration configuration;
+
+		/**
+		 * The fitness values of the reconstructed neurons
+		 */
+		public final double[] fitnessValues;
+
+		/**
+		 * The mean squared difference between the measured voltages and the
+		 * voltages of the simulated network of the reconstructed models after
+		 * the tuning, which is comparable between different measures
+		 */
+		public final double simulationError;
+
+		/**
+		 * The duration of the reconstruction in milliseconds
+		 */
+		public final long time;
+
+		Result(SweepConfiguration configuration, double[] fitnessValues, double simulationError, long time) {
+			this.configuration = configuration;
+			this.fitnessValues = fitnessValues;
+			this.simulationError = simulationError;
+			this.time = time;
+		}
+
+		/**
+		 * @return The mean fitness value of all reconstructed neurons
+		 */
+		public double getMeanFitness() {
+			double sum = 0;
+			for (double fitness : fitnessValues) {
+				sum += fitness;
+			}
+			return sum / fitnessValues.length;
+		}
+
+		/**
+		 * @return The worst fitness value of all reconstructed neurons
+		 */
+		public double getMaxFitness() {
+			double max = Double.NEGATIVE_INFINITY;
+			for (double fitness : fitnessValues) {
+				max = Math.max(max, fitness);
+			}
+			return max;
+		}
+	}
+
+	/**
+	 * Runs a sweep on the contest data.
+	 *
+	 * @param inputCurrentFile
+	 *            Path to the current file of the contest data
+	 * @param inputVoltageFile
+	 *            Path to the voltage file of the contest data
+	 * @throws IOException
+	 * @see #run(String, DatasetContext, List, int, int, String)
+	 */
+	public static List<Result> runContestData(String sweepName, double dt, String inputCurrentFile,
+			String inputVoltageFile, List<SweepConfiguration> configurations, int concurrentConfigurations,
+			int threads, String outputPath) throws IOException {
+		ContestDataReader reader = new ContestDataReader(inputCurrentFile, inputVoltageFile);
+		int lines = reader.lines;
+		double[][] inputs = new double[lines][1];
+		double[][] vs = new double[lines][1];
+		for (int i = 0; i < lines; i++) {
+			inputs[i][0] = reader.data[0][i];
+			vs[i][0] = reader.data[1][i];
+		}
+		return run(sweepName, new DatasetContext(inputs, vs, dt, lines / 2), configurations,
+				concurrentConfigurations, threads, outputPath);
+	}
+
+	/**
+	 * Runs all configurations of a sweep on the same data and writes the
+	 * results into the file sweep.csv of the output directory. The log files
+	 * of each configuration are written into a subdirectory.
+	 *
+	 * @param sweepName
+	 *            The name of the sweep
+	 * @param context
+	 *            The measured data, which is shared by all configurations
+	 * @param configurations
+	 *            The configurations
+	 * @param concurrentConfigurations
+	 *            The number of configurations which run at the same time
+	 * @param threads
+	 *            The number of worker threads of the fitness evaluations of
+	 *            all configurations
+	 * @param outputPath
+	 *            The output directory for all written files
+	 * @return The results in the order of the configurations
+	 * @throws IOException
+	 */
+	public static List<Result> run(String sweepName, DatasetContext context, List<SweepConfiguration> configurations,
+			int concurrentConfigurations, int threads, String outputPath) throws IOException {
+		outputPath = "NeuronReconstruction/" + outputPath;
+		new File(outputPath).mkdirs();
+
+		WorkQueue workQueue = new WorkQueue(threads);
+		ExecutorService executor = Executors.newFixedThreadPool(concurrentConfigurations);
+		List<Future<Result>> futures = new ArrayList<>(configurations.size());
+		for (int i = 0; i < configurations.size(); i++) {
+			SweepConfiguration configuration = configurations.get(i);
+			String configurationPath = outputPath + "/configuration-" + i;
+			String datasetName = sweepName + " " + i;
+			futures.add(executor.submit(() -> {
+				ReconstructionOptions options = new ReconstructionOptions();
+				options.setWorkQueue(workQueue);
+				Reconstruction reconstruction = new Reconstruction(options);
+
+				long startTime = System.currentTimeMillis();
+				List<Model> models = reconstruction.reconstruct(datasetName, new Random(configuration.getSeed()), context,
+						configuration.getPopulationSize(), SweepConfiguration.FITNESS_THRESHOLD,
+						configuration.getGenerationThreshold(), configuration.getAbortAfterGenerationsWithoutChange(),
+						configuration.getMutationRate(), false, configuration.getMode(), configurationPath,
+						configuration.getMeasures());
+				return new Result(configuration, reconstruction.getFitnessValues(), simulate(context, models),
+						System.currentTimeMillis() - startTime);
+			}));
+		}
+
+		List<Result> results = new ArrayList<>(configurations.size());
+		try {
+			for (Future<Result> future : futures) {
+				results.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException("Interrupted while running the sweep", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new RuntimeException("Error while running the sweep", e.getCause());
+		} finally {
+			executor.shutdownNow();
+			workQueue.shutdown();
+		}
+
+		writeResults(results, outputPath);
+		return results;
+	}
+
+	/**
+	 * Simulates the network of the reconstructed models from the tuning index
+	 * on.
+	 *
+	 * @return The mean squared difference to the measured voltages
+	 */
+	private static double simulate(DatasetContext context, List<Model> models) {
+		NetworkState network = new NetworkState(models);
+		double[][] inputs = context.getInputs();
+		double[][] vs = context.getVs();
+		double[] v = new double[models.size()];
+		double sum = 0;
+		for (int i = context.getInputIdxAfterTuning(); i < inputs.length; i++) {
+			network.copyVoltages(v);
+			for (int n = 0; n < v.length; n++) {
+				double diff = vs[i][n] - v[n];
+				sum += diff * diff;
+			}
+			network.step(context.getDt(), inputs[i]);
+		}
+		return sum / ((inputs.length - context.getInputIdxAfterTuning()) * (double) v.length);
+	}
+
+	/**
+	 * Writes the results as a table, in which the configurations are ranked by
+	 * the errors of their simulations, and prints it. The fitness values are
+	 * only comparable between configurations with the same measures.
+	 */
+	private static void writeResults(List<Result> results, String outputPath) throws IOException {
+		List<Integer> ranking = new ArrayList<>(results.size());
+		for (int i = 0; i < results.size(); i++) {
+			ranking.add(i);
+		}
+		ranking.sort(
+				(i1, i2) -> Double.compare(results.get(i1).simulationError, results.get(i2).simulationError));
+
+		try (BufferedWriter bf = new BufferedWriter(new FileWriter(outputPath + "/sweep.csv"))) {
+			String header = "rank,configuration,populationSize,mutationRate,generationThreshold,"
+					+ "abortAfterGenerationsWithoutChange,mode,measures,simulationError,meanFitness,maxFitness,time";
+			bf.write(header);
+			bf.write(System.lineSeparator());
+			System.out.println(header);
+			for (int rank = 0; rank < ranking.size(); rank++) {
+				int i = ranking.get(rank);
+				Result result = results.get(i);
+				SweepConfiguration configuration = result.configuration;
+				String line = String.format(Locale.ROOT, "%d,%d,%d,%s,%d,%d,%s,%s,%s,%s,%s,%d", rank + 1, i,
+						configuration.getPopulationSize(), configuration.getMutationRate(),
+						configuration.getGenerationThreshold(), configuration.getAbortAfterGenerationsWithoutChange(),
+						configuration.getMode(), configuration.getMeasuresDescription(), result.simulationError,
+						result.getMeanFitness(), result.getMaxFitness(), result.time);
+				bf.write(line);
+				bf.write(System.lineSeparator());
+				System.out.println(line);
+			}
+		}
+	}
+
+}